@@ -4,11 +4,14 @@ import com.pixelbit.command.ApplyFilterCommand;
 import com.pixelbit.command.ExitCommand;
 import com.pixelbit.command.OpenImageCommand;
 import com.pixelbit.command.SaveImageCommand;
-import com.pixelbit.exception.CommandExecException;
+import com.pixelbit.model.BufferPool;
 import com.pixelbit.model.EditableImage;
 import com.pixelbit.model.PBModel;
+import com.pixelbit.model.PreviewRenderer;
 import com.pixelbit.model.filter.FilterType;
 import com.pixelbit.view.PBImageView;
+import javafx.application.Platform;
+import javafx.scene.control.Slider;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -26,6 +29,8 @@ public class PBController {
     private final PBModel model; // The model that holds the image and command history
     private final PBImageView view; // The view that displays the image and UI components
     private final Map<FilterType, Integer> filterApplicationCount = new HashMap<>();
+    // Renders slider previews off the JavaFX thread and publishes only the latest one back on it
+    private final PreviewRenderer previewRenderer = new PreviewRenderer(Platform::runLater);
 
     /**
      * Constructor for PBController.
@@ -53,9 +58,24 @@ public class PBController {
     }
 
     private void setupSliderHandlers() {
-        view.getBrightnessSlider().valueProperty().addListener((obs, oldVal, newVal) -> handleBrightness(newVal.doubleValue()));
+        Slider brightnessSlider = view.getBrightnessSlider();
+        brightnessSlider.valueProperty().addListener((obs, oldVal, newVal) ->
+                handleBrightness(newVal.doubleValue(), brightnessSlider.isValueChanging()));
+        // Dragging shows previews at screen resolution, so render the full image once released
+        brightnessSlider.valueChangingProperty().addListener((obs, wasChanging, changing) -> {
+            if (!changing) {
+                handleBrightness(brightnessSlider.getValue(), false);
+            }
+        });
 
-        view.getContrastSlider().valueProperty().addListener((obs, oldVal, newVal) -> handleContrast(newVal.doubleValue()));
+        Slider contrastSlider = view.getContrastSlider();
+        contrastSlider.valueProperty().addListener((obs, oldVal, newVal) ->
+                handleContrast(newVal.doubleValue(), contrastSlider.isValueChanging()));
+        contrastSlider.valueChangingProperty().addListener((obs, wasChanging, changing) -> {
+            if (!changing) {
+                handleContrast(contrastSlider.getValue(), false);
+            }
+        });
 
         view.getResetButton().setOnAction(_ -> handleReset());
 
@@ -80,8 +100,10 @@ public class PBController {
     }
 
     private void setupMenuHandlers() {
-        view.getOpenItem().setOnAction(_ -> model.getCommandManager().executeCommand(
-                new OpenImageCommand(model, view, view.getScene().getWindow())));
+        view.getOpenItem().setOnAction(_ -> {
+            previewRenderer.cancel();
+            model.getCommandManager().executeCommand(new OpenImageCommand(model, view, view.getScene().getWindow()));
+        });
 
         view.getSaveMenuItem().setOnAction(_ -> model.getCommandManager().executeCommand(
                 new SaveImageCommand(model, view.getScene().getWindow())));
@@ -95,28 +117,30 @@ public class PBController {
     }
 
     private void handleRedo() {
-        model.getCommandManager().redo();
+        previewRenderer.cancel();
+        model.redo();
         updateImageAndButtons();
     }
 
     private void handleUndo() {
-        model.getCommandManager().undo();
+        previewRenderer.cancel();
+        model.undo();
         updateImageAndButtons();
         resetFilterCounts();
     }
 
     private void handleReset() {
+        previewRenderer.cancel();
         if (model.getImage() != null) {
             try {
-                model.getImage().resetToOriginal();
+                // Put back the original and clear command history since we're resetting to original
+                model.resetToOriginal();
                 view.updateImage(model.getImage());
 
                 // Reset sliders to default positions
                 view.getBrightnessSlider().setValue(0);
                 view.getContrastSlider().setValue(0);
 
-                // Clear command history since we're resetting to original
-                model.getCommandManager().clearHistory();
                 updateUndoRedoButtons();
 
                 view.showStatus("Image reset to original");
@@ -126,28 +150,15 @@ public class PBController {
         }
     }
 
-    private void handleContrast(double newVal) {
+    private void handleContrast(double newVal, boolean dragging) {
         if (model.getImage() != null) {
             Map<String, Object> params = new HashMap<>();
             params.put("contrast", newVal);
-
-            ApplyFilterCommand command = new ApplyFilterCommand(
-                    model.getImage(),
-                    model.getFilterFactory(),
-                    FilterType.CONTRAST,
-                    params
-            );
-
-            try {
-                model.replaceEdit(command);
-                view.updateImage(model.getImage());
-            } catch (CommandExecException e) {
-                view.showError("Failed to apply contrast: " + e.getMessage());
-            }
+            requestPreview(FilterType.CONTRAST, params, "contrast", dragging);
         }
     }
 
-    private void handleBrightness(double value) {
+    private void handleBrightness(double value, boolean dragging) {
         if (model.getImage() != null) {
             // Convert slider value (-100 to 100) to a reasonable brightness adjustment
             // Divide by 100 to get a value between -1.0 and 1.0, then multiply by 0.5
@@ -156,22 +167,44 @@ public class PBController {
 
             Map<String, Object> params = new HashMap<>();
             params.put("brightness", brightnessAdjustment);
+            requestPreview(FilterType.BRIGHTNESS, params, "brightness", dragging);
+        }
+    }
 
-            ApplyFilterCommand command = new ApplyFilterCommand(
-                    model.getImage(),
-                    model.getFilterFactory(),
-                    FilterType.BRIGHTNESS,
-                    params
-            );
-
-            try {
-                model.replaceEdit(command);
-                view.updateImage(model.getImage());
-            } catch (CommandExecException e) {
-                view.showError("Failed to apply brightness: " + e.getMessage());
-            }
-            view.updateImage(model.getImage());
+    /**
+     * Renders a slider preview in the background. Slider events arriving while a preview is
+     * rendered replace it, and only the preview of the latest value is shown.
+     * While the slider is dragged, the preview is rendered at the size of the viewport and
+     * only shown; the image itself is updated by the full-size render once it is released.
+     *
+     * @param filterType  The filter to preview.
+     * @param params      The parameters of the filter.
+     * @param description The name of the adjustment, for error messages.
+     * @param dragging    Whether the slider is being dragged.
+     */
+    private void requestPreview(FilterType filterType, Map<String, Object> params, String description,
+                                boolean dragging) {
+        EditableImage source = model.getImage();
+        if (dragging) {
+            previewRenderer.request(
+                    model.previewTask(filterType, params, view.getViewportWidth(), view.getViewportHeight()),
+                    preview -> {
+                        if (model.getImage() == source) {
+                            view.updateImage(new EditableImage(preview, source.getFilename(), source.getFormat()));
+                        }
+                        // The view keeps its own copy of the pixels
+                        BufferPool.getDefault().release(preview);
+                    },
+                    e -> view.showError("Failed to apply " + description + ": " + e.getMessage()));
+            return;
         }
+        previewRenderer.request(model.previewTask(filterType, params),
+                preview -> {
+                    if (model.showPreview(source, preview)) {
+                        view.updateImage(model.getImage());
+                    }
+                },
+                e -> view.showError("Failed to apply " + description + ": " + e.getMessage()));
     }
 
     private void handleCrop() {
@@ -191,6 +224,7 @@ public class PBController {
     }
 
     private void applyCrop() {
+        previewRenderer.cancel();
         try {
             Map<String, Object> cropParams = view.getCropParameters();
             ApplyFilterCommand command = new ApplyFilterCommand(
@@ -200,7 +234,7 @@ public class PBController {
                     cropParams
             );
 
-            model.getCommandManager().executeCommand(command);
+            model.applyEdit(command);
             updateImageAndButtons();
 
             // Exit crop mode
@@ -227,6 +261,7 @@ public class PBController {
      * @param filterType The type of filter to apply.
      */
     private void applyFilter(FilterType filterType) {
+        previewRenderer.cancel();
         try {
             if (model.getImage() == null) {
                 view.showError("No image loaded");
@@ -255,7 +290,7 @@ public class PBController {
                     parameters
             );
 
-            model.getCommandManager().executeCommand(command);
+            model.applyEdit(command);
             updateImageAndButtons();
 
             // Show status message
@@ -1,18 +1,52 @@
 package com.pixelbit.command;
 
+import com.pixelbit.command.history.CompressedImage;
+import com.pixelbit.command.history.HistoryEntry;
+import com.pixelbit.command.history.Replayable;
+import com.pixelbit.command.history.SnapshotCompressor;
+import com.pixelbit.command.history.SpillFile;
+import com.pixelbit.command.history.SpilledImage;
+import com.pixelbit.command.history.SpilledPlanes;
+import com.pixelbit.command.history.TileDelta;
 import com.pixelbit.exception.CommandExecException;
+import com.pixelbit.model.BufferPool;
 import com.pixelbit.model.EditableImage;
+import com.pixelbit.model.filter.Filter;
+import com.pixelbit.model.filter.FilterExecutor;
+import com.pixelbit.model.filter.PlanarFilter;
+import com.pixelbit.model.filter.PlanarImage;
 
 import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.WeakReference;
 
 /**
  * Abstract base class for PixelBit commands.
  * Provides common functionality for commands, such as saving the current state
- * and undoing changes.
+ * and undoing changes. The saved state can be compressed in the background or spilled
+ * to disk by the command history, and is read back when the command is undone. The
+ * compression finishes on another thread, so the saved state is only changed while
+ * holding the command's lock.
  */
-public abstract class AbstractPBCommand implements PBCommand {
+public abstract class AbstractPBCommand implements PBCommand, HistoryEntry {
     protected final EditableImage editableImage;
     protected BufferedImage previousState;
+    protected PlanarImage previousPlanar; // High-precision state to restore, when the edit was planar
+    protected TileDelta previousTiles; // Tiles the edit changed, kept instead of the whole previous image
+    private SpilledImage spilledState; // Previous image, while it is held in the spill file
+    private SpilledPlanes spilledPlanar; // High-precision state to restore, while it is held in the spill file
+    private CompressedImage compressedState; // Previous image, while it is held compressed
+    private boolean compressing; // Whether a compression of the previous image is under way
+    private long stateGeneration; // Incremented whenever the saved state is dropped, so late compressions are ignored
+    private boolean replayUndo; // Whether the previous image was dropped for the history to rebuild
+    protected long executionNanos; // Duration of the last execution
+    private WeakReference<BufferedImage> sourceImage = new WeakReference<>(null); // Image the last execution started from
+    private WeakReference<BufferedImage> resultImage = new WeakReference<>(null); // Image the last execution produced
+    private boolean linked; // Whether the source image was the result of the command below in the history
+    private BufferedImage redoImage; // Image the command produced, kept after undo so redo can put it back
+    private TileDelta redoTiles; // Changed tiles holding the pixels the command produced, kept after undo
+    private PlanarImage redoPlanar; // High-precision pixels the command produced, kept after undo
 
 
     protected AbstractPBCommand(EditableImage editableImage) {
@@ -33,23 +67,427 @@ public abstract class AbstractPBCommand implements PBCommand {
 
     /**
      * Restores image to the previous state.
+     * The image produced by the command is kept for redo, which puts it back instead of
+     * executing the command again; the history drops it when it needs the memory. When only
+     * the changed tiles were kept, they are swapped with the tiles of that image instead,
+     * which requires it to still be the current image, and then hold its pixels for redo.
+     * The saved state is dropped afterwards.
+     *
+     * @throws UncheckedIOException if the saved state was spilled and cannot be read back.
      */
     @Override
-    public void undo() {
-        if (previousState != null) {
-            editableImage.setImage(previousState);
+    public synchronized void undo() {
+        BufferedImage keptImage = null;
+        TileDelta keptTiles = null;
+        PlanarImage keptPlanar = null;
+        try {
+            if (previousTiles != null) {
+                previousTiles.restore(editableImage.getWritableImage());
+                keptTiles = previousTiles;
+            } else if (previousPlanar != null || spilledPlanar != null) {
+                PlanarImage previous = spilledPlanar != null ? spilledPlanar.read() : previousPlanar;
+                if (editableImage.isHighPrecision()) {
+                    keptPlanar = editableImage.getPlanarImage();
+                    editableImage.setPlanarImage(previous);
+                } else {
+                    editableImage.setImage(previous.toImage());
+                }
+            } else {
+                BufferedImage previous = previousState;
+                if (spilledState != null) {
+                    previous = spilledState.read();
+                } else if (compressedState != null) {
+                    previous = compressedState.decompress();
+                }
+                if (previous != null) {
+                    BufferedImage result = editableImage.getBufferedImage();
+                    editableImage.setImage(previous);
+                    if (result != previous) {
+                        keptImage = result;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read back the undo state", e);
+        }
+        clearUndoState();
+        redoImage = keptImage;
+        redoTiles = keptTiles;
+        redoPlanar = keptPlanar;
+    }
+
+    /**
+     * Keeps the image the command produced for redo, once it was undone without the saved state.
+     *
+     * @param result The image the command produced.
+     */
+    protected synchronized void keepForRedo(BufferedImage result) {
+        dropRedoState();
+        redoImage = result;
+    }
+
+    /**
+     * Puts back the result kept when the command was undone, and keeps the current image,
+     * or the changed tiles or planes, as the undo state again.
+     *
+     * @return true if a result was put back, false if the command must be executed again.
+     * @throws IOException if the changed tiles were spilled and cannot be read back.
+     */
+    @Override
+    public synchronized boolean redoFromCache() throws IOException {
+        BufferedImage keptImage = redoImage;
+        TileDelta keptTiles = redoTiles;
+        PlanarImage keptPlanar = redoPlanar;
+        redoImage = null;
+        redoTiles = null;
+        redoPlanar = null;
+        if (keptImage != null) {
+            BufferedImage current = editableImage.getBufferedImage();
+            clearUndoState();
+            previousState = current;
+            editableImage.setImage(keptImage);
+            return true;
+        }
+        if (keptTiles != null) {
+            clearUndoState();
+            keptTiles.restore(editableImage.getWritableImage());
+            previousTiles = keptTiles;
+            return true;
+        }
+        if (keptPlanar != null && editableImage.isHighPrecision()) {
+            clearUndoState();
+            previousPlanar = editableImage.getPlanarImage();
+            editableImage.setPlanarImage(keptPlanar);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the memory held by the result kept for redo.
+     *
+     * @return The number of bytes held on the heap.
+     */
+    @Override
+    public synchronized long getRedoBytes() {
+        long bytes = SpilledImage.byteCount(redoImage);
+        if (redoTiles != null) {
+            bytes += redoTiles.getByteCount();
+        }
+        if (redoPlanar != null) {
+            bytes += 3L * Float.BYTES * redoPlanar.getWidth() * redoPlanar.getHeight();
         }
+        return bytes;
     }
 
     /**
-     * Saves the current state of the image before executing the command.
-     * This allows the command to restore the image to this state if needed.
+     * Drops the result kept for redo, returning its buffer to the pool since nothing else refers to it.
      */
-    protected void saveCurrentState() {
+    @Override
+    public synchronized void dropRedoState() {
+        if (redoImage != null) {
+            BufferPool.getDefault().release(redoImage);
+        }
+        redoImage = null;
+        redoTiles = null;
+        redoPlanar = null;
+    }
+
+    /**
+     * Drops the saved state, and the result kept for redo. Called once the command is undone,
+     * and before a new state is saved.
+     */
+    protected synchronized void clearUndoState() {
+        dropRedoState();
+        try {
+            if (spilledState != null) {
+                spilledState.discard();
+            }
+            if (compressedState != null) {
+                compressedState.discard();
+            }
+            if (previousTiles != null) {
+                previousTiles.discard();
+            }
+            if (spilledPlanar != null) {
+                spilledPlanar.discard();
+            }
+        } catch (IOException e) {
+            // The space is reclaimed when the history is cleared
+        }
+        previousState = null;
+        previousPlanar = null;
+        previousTiles = null;
+        spilledState = null;
+        spilledPlanar = null;
+        compressedState = null;
+        replayUndo = false;
+        stateGeneration++;
+    }
+
+    /**
+     * Keeps a reference to the current image as the state to restore on undo, without copying it.
+     * Only valid for commands that replace the image with a new one instead of writing to it,
+     * since the retained image must stay unchanged for as long as the command can be undone.
+     */
+    protected synchronized void retainCurrentState() {
+        clearUndoState();
         if (!editableImage.isEmpty()) {
-            previousState = editableImage.deepCopy().getBufferedImage();
+            previousState = editableImage.getBufferedImage();
         }
     }
 
-}
+    /**
+     * Replaces the retained previous image with the tiles the edit changed in it, when that
+     * takes less memory. Must be called right after the edit replaced the image retained by
+     * {@link #retainCurrentState()}. The previous image is then no longer referenced by the
+     * command, and undo writes the tiles back into the current image.
+     *
+     * @param executor The executor that compares the images.
+     */
+    protected synchronized void retainChangedTiles(FilterExecutor executor) {
+        TileDelta delta = TileDelta.capture(previousState, editableImage.getBufferedImage(), executor);
+        if (delta != null) {
+            previousTiles = delta;
+            previousState = null;
+        }
+    }
 
+    /**
+     * Checks whether a filter can be applied to the high-precision pixels of the image.
+     *
+     * @param filter The filter to apply.
+     * @return true if high precision is on and the filter works on planar images.
+     */
+    protected boolean canApplyPlanar(Filter filter) {
+        return editableImage.isHighPrecision()
+                && filter instanceof PlanarFilter planarFilter && planarFilter.supportsPlanar();
+    }
+
+    /**
+     * Applies a filter to a copy of the high-precision pixels and keeps the current planes
+     * as the undo state. The 8-bit image is only quantized when it is next displayed or saved.
+     *
+     * @param filter   The filter to apply.
+     * @param executor The executor that runs the filter.
+     */
+    protected void applyPlanar(PlanarFilter filter, FilterExecutor executor) {
+        PlanarImage current = editableImage.getPlanarImage();
+        synchronized (this) {
+            clearUndoState();
+            previousPlanar = current;
+        }
+        PlanarImage next = current.copy();
+        executor.applyPlanar(filter, next);
+        editableImage.setPlanarImage(next);
+    }
+
+    /**
+     * Returns the memory held by the saved state. High-precision planes count their
+     * three color planes, since alpha is shared with the current image.
+     *
+     * @return The number of bytes held on the heap.
+     */
+    @Override
+    public synchronized long getMemoryBytes() {
+        long bytes = SpilledImage.byteCount(previousState);
+        if (compressedState != null && !compressedState.isSpilled()) {
+            bytes += compressedState.getByteCount();
+        }
+        if (previousTiles != null && !previousTiles.isSpilled()) {
+            bytes += previousTiles.getByteCount();
+        }
+        if (previousPlanar != null) {
+            bytes += 3L * Float.BYTES * previousPlanar.getWidth() * previousPlanar.getHeight();
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the size of the saved state held in a spill file.
+     *
+     * @return The number of bytes spilled.
+     */
+    @Override
+    public synchronized long getSpilledBytes() {
+        long bytes = spilledState != null ? spilledState.getByteCount() : 0;
+        if (compressedState != null && compressedState.isSpilled()) {
+            bytes += compressedState.getByteCount();
+        }
+        if (previousTiles != null && previousTiles.isSpilled()) {
+            bytes += previousTiles.getByteCount();
+        }
+        if (spilledPlanar != null) {
+            bytes += spilledPlanar.getByteCount();
+        }
+        return bytes;
+    }
+
+    /**
+     * Moves the saved image, compressed image, tiles or high-precision planes to a spill file.
+     *
+     * @param file The file to write to.
+     * @return true if memory was freed.
+     * @throws IOException if the state cannot be written.
+     */
+    @Override
+    public synchronized boolean spill(SpillFile file) throws IOException {
+        if (previousState != null) {
+            SpilledImage spilled = SpilledImage.write(previousState, file);
+            if (spilled != null) {
+                spilledState = spilled;
+                previousState = null;
+                return true;
+            }
+        }
+        if (compressedState != null && !compressedState.isSpilled()) {
+            compressedState.spill(file);
+            return true;
+        }
+        if (previousTiles != null && !previousTiles.isSpilled()) {
+            previousTiles.spill(file);
+            return true;
+        }
+        if (previousPlanar != null) {
+            spilledPlanar = SpilledPlanes.write(previousPlanar, file);
+            previousPlanar = null;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Compresses the saved image in the background. Tiles are already small, and
+     * high-precision planes are kept as they are.
+     *
+     * @param compressor The compressor to use.
+     */
+    @Override
+    public void compress(SnapshotCompressor compressor) {
+        BufferedImage state;
+        long generation;
+        synchronized (this) {
+            if (previousState == null || compressing) {
+                return;
+            }
+            state = previousState;
+            generation = stateGeneration;
+            compressing = true;
+        }
+        compressor.compress(state, compressed -> {
+            synchronized (this) {
+                compressing = false;
+                if (compressed == null) {
+                    return;
+                }
+                // The command may have been undone or executed again while compressing. Redo can
+                // make the same image the saved state again, after undo wrote into it, so the
+                // image being the same does not mean the compressed pixels are still right
+                if (stateGeneration == generation && previousState == state) {
+                    compressedState = compressed;
+                    previousState = null;
+                } else {
+                    try {
+                        compressed.discard();
+                    } catch (IOException e) {
+                        // The space is reclaimed when the history is cleared
+                    }
+                }
+            }
+        });
+    }
+
+    @Override
+    public synchronized boolean hasPreviousImage() {
+        return previousState != null || compressedState != null || spilledState != null;
+    }
+
+    /**
+     * Returns the image of the state before the command. A spilled image is read back and
+     * kept in memory, since it is about to be used again; the budget spills it again later.
+     *
+     * @return The previous image, or null if the command does not keep one.
+     * @throws IOException if the image cannot be read back.
+     */
+    @Override
+    public synchronized BufferedImage getPreviousImage() throws IOException {
+        if (spilledState != null) {
+            previousState = spilledState.read();
+            spilledState = null;
+        }
+        if (previousState != null) {
+            return previousState;
+        }
+        return compressedState != null ? compressedState.decompress() : null;
+    }
+
+    @Override
+    public synchronized boolean dropPreviousImage() {
+        if (!hasPreviousImage()) {
+            return false;
+        }
+        clearUndoState();
+        replayUndo = true;
+        return true;
+    }
+
+    @Override
+    public synchronized boolean needsReplay() {
+        return replayUndo;
+    }
+
+    /**
+     * Undoes the command with a rebuilt image of the previous state. The image produced by the
+     * command is kept for redo, as in {@link #undo()}.
+     *
+     * @param previous The state before the command.
+     */
+    @Override
+    public synchronized void undoTo(BufferedImage previous) {
+        BufferedImage result = editableImage.getBufferedImage();
+        editableImage.setImage(previous);
+        clearUndoState();
+        if (result != previous) {
+            redoImage = result;
+        }
+    }
+
+    /**
+     * Records the images the last execution started from and produced, for linking the
+     * command to the one below it in the history. They are only weakly referenced.
+     *
+     * @param source The image the command was applied to, or null if it was not applied to an 8-bit image.
+     * @param result The image the command produced, or null.
+     */
+    protected synchronized void recordImages(BufferedImage source, BufferedImage result) {
+        sourceImage = new WeakReference<>(source);
+        resultImage = new WeakReference<>(result);
+    }
+
+    public synchronized void linkTo(Replayable below) {
+        BufferedImage source = sourceImage.get();
+        linked = source != null && below instanceof AbstractPBCommand command && command.resultImage.get() == source;
+    }
+
+    public synchronized boolean isLinked() {
+        return linked;
+    }
+
+    /**
+     * Checks whether the last execution can be replayed at 8 bits.
+     *
+     * @return false if the edit was made in the high-precision format.
+     */
+    public synchronized boolean canReplay() {
+        return previousPlanar == null && spilledPlanar == null;
+    }
+
+    /**
+     * Returns how long the last execution took.
+     *
+     * @return The execution time in nanoseconds.
+     */
+    public long getExecutionNanos() {
+        return executionNanos;
+    }
+}
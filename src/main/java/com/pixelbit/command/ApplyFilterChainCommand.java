@@ -0,0 +1,148 @@
+package com.pixelbit.command;
+
+import com.pixelbit.command.history.Replayable;
+import com.pixelbit.exception.CommandExecException;
+import com.pixelbit.model.EditableImage;
+import com.pixelbit.model.filter.Filter;
+import com.pixelbit.model.filter.FilterExecutor;
+import com.pixelbit.model.filter.FilterFactory;
+import com.pixelbit.model.filter.FilterSpec;
+import com.pixelbit.model.filter.PlanarFilter;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Command to apply a sequence of filters to an image as a single edit.
+ * Consecutive point filters in the sequence are fused into one pass over the pixels,
+ * and the image is snapshotted once for the whole sequence instead of once per filter.
+ */
+public class ApplyFilterChainCommand extends AbstractPBCommand implements ImageUpdateCommand, Replayable {
+
+    private final FilterFactory filterFactory; // Factory to create filters
+    private final FilterExecutor filterExecutor; // Executor that runs the compiled chain
+    private final List<FilterSpec> specs; // Filters to apply, in order
+
+    /**
+     * Constructs a command to apply a sequence of filters to an image.
+     *
+     * @param image         The editable image to which the filters will be applied.
+     * @param filterFactory The factory used to create the filters.
+     * @param specs         The filters to apply, in order.
+     */
+    public ApplyFilterChainCommand(EditableImage image, FilterFactory filterFactory, List<FilterSpec> specs) {
+        this(image, filterFactory, FilterExecutor.getDefault(), specs);
+    }
+
+    /**
+     * Constructs a command to apply a sequence of filters to an image using a specific executor.
+     *
+     * @param image          The editable image to which the filters will be applied.
+     * @param filterFactory  The factory used to create the filters.
+     * @param filterExecutor The executor used to run the filters.
+     * @param specs          The filters to apply, in order.
+     */
+    public ApplyFilterChainCommand(EditableImage image,
+                                   FilterFactory filterFactory,
+                                   FilterExecutor filterExecutor,
+                                   List<FilterSpec> specs) {
+        super(image);
+        if (specs == null || specs.isEmpty()) {
+            throw new IllegalArgumentException("At least one filter is required");
+        }
+        this.filterFactory = filterFactory;
+        this.filterExecutor = filterExecutor;
+        this.specs = List.copyOf(specs);
+    }
+
+    /**
+     * Creates a command that replays a recorded sequence of filter commands as one fused edit.
+     *
+     * @param image         The editable image to which the filters will be applied.
+     * @param filterFactory The factory used to create the filters.
+     * @param commands      The recorded commands, in the order they were executed.
+     * @return A command that applies all recorded filters in a single pass where possible.
+     */
+    public static ApplyFilterChainCommand fromCommands(EditableImage image,
+                                                       FilterFactory filterFactory,
+                                                       List<ApplyFilterCommand> commands) {
+        List<FilterSpec> specs = new ArrayList<>();
+        for (ApplyFilterCommand command : commands) {
+            specs.add(command.getFilterSpec());
+        }
+        return new ApplyFilterChainCommand(image, filterFactory, specs);
+    }
+
+    /**
+     * Executes the command, applying the compiled filter chain to the image.
+     * @throws CommandExecException if an error occurs during filter application.
+     */
+    @Override
+    public void execute() throws CommandExecException {
+        long start = System.nanoTime();
+        try {
+            Filter filter = filterFactory.createChain(specs, filterExecutor);
+            if (canApplyPlanar(filter)) {
+                recordImages(null, null);
+                applyPlanar((PlanarFilter) filter, filterExecutor);
+                return;
+            }
+            retainCurrentState();
+            BufferedImage source = editableImage.getBufferedImage();
+            BufferedImage filtered = filterExecutor.apply(filter, source);
+            editableImage.setImage(filtered);
+            recordImages(source, filtered);
+            retainChangedTiles(filterExecutor);
+        } catch (Exception e) {
+            throw new CommandExecException("Failed to apply filters: " + e.getMessage(), e);
+        } finally {
+            executionNanos = System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Applies the compiled filter chain to another image, so the history can rebuild a state it did not keep.
+     * @param image The image to filter; it is not modified.
+     * @return A new image with the filters applied.
+     * @throws CommandExecException if an error occurs during filter application.
+     */
+    @Override
+    public BufferedImage replay(BufferedImage image) throws CommandExecException {
+        try {
+            return filterExecutor.apply(filterFactory.createChain(specs, filterExecutor), image);
+        } catch (Exception e) {
+            throw new CommandExecException("Failed to replay filters: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns the filters applied by this command.
+     * @return An unmodifiable list of the filter specs, in order.
+     */
+    public List<FilterSpec> getFilterSpecs() {
+        return specs;
+    }
+
+    /**
+     * Returns a string representation of the command.
+     * @return A string describing the command.
+     */
+    @Override
+    public String toString() {
+        List<String> names = new ArrayList<>();
+        for (FilterSpec spec : specs) {
+            names.add(spec.type().toString());
+        }
+        return "Apply " + String.join(", ", names) + " filters";
+    }
+
+    /**
+     * Returns the updated image after applying the filters.
+     * @return The editable image with the applied filters.
+     */
+    @Override
+    public EditableImage getUpdatedImage() {
+        return editableImage;
+    }
+}
@@ -1,12 +1,24 @@
 package com.pixelbit.command;
 
+import com.pixelbit.command.history.Replayable;
 import com.pixelbit.exception.CommandExecException;
+import com.pixelbit.model.BufferPool;
 import com.pixelbit.model.EditableImage;
+import com.pixelbit.model.HistogramService;
 import com.pixelbit.model.filter.Filter;
+import com.pixelbit.model.filter.FilterExecutor;
 import com.pixelbit.model.filter.FilterFactory;
+import com.pixelbit.model.filter.FilterResultCache;
+import com.pixelbit.model.filter.FilterSpec;
 import com.pixelbit.model.filter.FilterType;
+import com.pixelbit.model.filter.InPlaceFilter;
+import com.pixelbit.model.filter.InvertibleFilter;
+import com.pixelbit.model.filter.PixelAccess;
+import com.pixelbit.model.filter.PlanarFilter;
+import com.pixelbit.model.filters.HistogramFilter;
 
 import java.awt.image.BufferedImage;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -15,13 +27,17 @@ import java.util.Map;
  * This command encapsulates the logic for applying a specific filter type
  * with given parameters to an editable image.
  */
-public class ApplyFilterCommand extends AbstractPBCommand implements ImageUpdateCommand {
+public class ApplyFilterCommand extends AbstractPBCommand implements ImageUpdateCommand, Replayable {
 
 
     private final FilterFactory filterFactory; // Factory to create filters
+    private final FilterExecutor filterExecutor; // Executor that runs the filter, in parallel when possible
 
     private final FilterType filterType; // Type of filter to apply
     private final Map<String, Object> parameters; // Parameters for the filter
+    private Filter inverse; // Filter that undoes the last execution, when the filter is exactly invertible
+    private FilterResultCache resultCache = FilterResultCache.getDefault(); // Earlier results by input content, null for none
+    private HistogramService histogramService = HistogramService.getDefault(); // Cached histograms of the image
 
 
     /**
@@ -36,8 +52,26 @@ public class ApplyFilterCommand extends AbstractPBCommand implements ImageUpdate
                               FilterFactory filterFactory,
                               FilterType filterType,
                               Map<String, Object> parameters) {
+        this(image, filterFactory, FilterExecutor.getDefault(), filterType, parameters);
+    }
+
+    /**
+     * Constructs a command to apply a filter to an image using a specific executor.
+     *
+     * @param image          The editable image to which the filter will be applied.
+     * @param filterFactory  The factory used to create the filter.
+     * @param filterExecutor The executor used to run the filter.
+     * @param filterType     The type of filter to apply.
+     * @param parameters     Parameters for the filter, can be null.
+     */
+    public ApplyFilterCommand(EditableImage image,
+                              FilterFactory filterFactory,
+                              FilterExecutor filterExecutor,
+                              FilterType filterType,
+                              Map<String, Object> parameters) {
         super(image);
         this.filterFactory = filterFactory;
+        this.filterExecutor = filterExecutor;
         this.filterType = filterType;
         this.parameters = parameters != null ? new HashMap<>(parameters) : new HashMap<>();
     }
@@ -45,20 +79,200 @@ public class ApplyFilterCommand extends AbstractPBCommand implements ImageUpdate
 
     /**
      * Executes the command to apply the specified filter to the image.
+     * Filters never modify their input, so the current image is kept as the undo state
+     * and the filter output is the only new buffer. When the filter left most tiles unchanged,
+     * only the changed tiles are kept. Filters that are exactly invertible for the current image,
+     * such as invert, flips and rotations, keep their inverse instead, so the current image
+     * can be freed and undo recomputes it.
      * @throws CommandExecException if an error occurs during filter application.
      */
     @Override
     public void execute() throws CommandExecException {
+        long start = System.nanoTime();
         try {
-            saveCurrentState();
             Filter filter = filterFactory.createFilter(filterType, parameters);
-            BufferedImage filtered = filter.apply(editableImage.getBufferedImage());
+            inverse = null;
+            if (canApplyPlanar(filter)) {
+                recordImages(null, null);
+                applyPlanar((PlanarFilter) filter, filterExecutor);
+                return;
+            }
+            filter = withCachedHistogram(filter);
+            BufferedImage source = editableImage.getBufferedImage();
+            if (filter instanceof InvertibleFilter invertibleFilter && invertibleFilter.isExactlyInvertible(source)) {
+                clearUndoState();
+                inverse = invertibleFilter.inverse();
+            } else {
+                retainCurrentState();
+            }
+            BufferedImage filtered = applyCached(filter, source);
             editableImage.setImage(filtered);
+            recordImages(source, filtered);
+            if (inverse == null) {
+                retainChangedTiles(filterExecutor);
+            }
+        } catch (Exception e) {
+            throw new CommandExecException("Failed to apply filter: " + e.getMessage(), e);
+        } finally {
+            executionNanos = System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Applies the filter to another image, so the history can rebuild a state it did not keep.
+     * @param image The image to filter; it is not modified.
+     * @return A new image with the filter applied.
+     * @throws CommandExecException if an error occurs during filter application.
+     */
+    @Override
+    public BufferedImage replay(BufferedImage image) throws CommandExecException {
+        try {
+            return applyCached(filterFactory.createFilter(filterType, parameters), image);
+        } catch (Exception e) {
+            throw new CommandExecException("Failed to replay filter: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Applies the filter, or copies its earlier result for the same pixels from the result cache.
+     * Invertible filters only move or flip bits, which is as fast as the copy, so they always run.
+     * @param filter The filter to apply.
+     * @param source The image to filter; it is not modified.
+     * @return A new image with the filter applied.
+     */
+    private BufferedImage applyCached(Filter filter, BufferedImage source) {
+        if (resultCache == null || filter instanceof InvertibleFilter) {
+            return filterExecutor.apply(filter, source);
+        }
+        resultCache.bindTo(editableImage);
+        FilterResultCache.Key key = resultCache.keyFor(source, getFilterSpec(), filterExecutor);
+        if (key == null) {
+            return filterExecutor.apply(filter, source);
+        }
+        BufferedImage cached = resultCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        BufferedImage filtered = filterExecutor.apply(filter, source);
+        resultCache.put(key, filtered);
+        return filtered;
+    }
+
+    /**
+     * Compiles a histogram-based correction, such as auto-levels or equalize, from the histogram
+     * of the current image held by the histogram service, so a histogram already counted for
+     * the image, for example for display, is not counted again.
+     * @param filter The filter to apply.
+     * @return The lookup table of the correction for a histogram filter, otherwise the filter itself.
+     */
+    private Filter withCachedHistogram(Filter filter) {
+        if (filter instanceof HistogramFilter histogramFilter) {
+            return histogramFilter.compile(histogramService.getHistogram(editableImage));
+        }
+        return filter;
+    }
+
+    /**
+     * Sets the service that provides the histograms of the image to histogram-based corrections.
+     * @param histogramService The histogram service.
+     */
+    public void setHistogramService(HistogramService histogramService) {
+        this.histogramService = histogramService;
+    }
+
+    /**
+     * Sets the cache of earlier filter results consulted before running the filter.
+     * @param resultCache The cache, or null to always run the filter.
+     */
+    public void setResultCache(FilterResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    /**
+     * Applies the filter without keeping an undo state.
+     * Filters that can work in place overwrite the current image, or its planar pixels in
+     * high-precision mode, directly, so no new buffer is allocated; the caller must make sure
+     * nothing else still refers to the current image.
+     * @throws CommandExecException if an error occurs during filter application.
+     */
+    @Override
+    public void executeWithoutUndo() throws CommandExecException {
+        try {
+            clearUndoState();
+            inverse = null;
+            Filter filter = filterFactory.createFilter(filterType, parameters);
+            if (canApplyPlanar(filter)) {
+                filterExecutor.applyPlanar((PlanarFilter) filter, editableImage.getPlanarImage());
+                editableImage.markPlanarModified();
+                return;
+            }
+            filter = withCachedHistogram(filter);
+            BufferedImage current = editableImage.getBufferedImage();
+            if (filter instanceof InPlaceFilter inPlaceFilter && PixelAccess.isDirect(current)) {
+                filterExecutor.applyInPlace(inPlaceFilter, current);
+                editableImage.markModified();
+            } else {
+                BufferedImage result = filterExecutor.apply(filter, current);
+                editableImage.setImage(result);
+                // Nothing else refers to the replaced image, so its buffer can be reused unless a crop views it
+                BufferPool.getDefault().releaseUnlessShared(current, result);
+            }
         } catch (Exception e) {
             throw new CommandExecException("Failed to apply filter: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Restores the image to its state before the filter was applied.
+     * For invertible filters the inverse is applied to the current image, which gives back
+     * the exact pixels without having kept them. The current image is kept for redo either way.
+     */
+    @Override
+    public synchronized void undo() {
+        if (inverse == null) {
+            super.undo();
+            return;
+        }
+        BufferedImage result = editableImage.getBufferedImage();
+        editableImage.setImage(filterExecutor.apply(inverse, result));
+        keepForRedo(result);
+    }
+
+    /**
+     * Puts back the result kept when the command was undone. An invertible filter keeps its
+     * inverse as the undo state again rather than the image it was undone to.
+     * @return true if a result was put back, false if the command must be executed again.
+     * @throws IOException if the kept state cannot be read back.
+     */
+    @Override
+    public synchronized boolean redoFromCache() throws IOException {
+        Filter undoFilter = inverse;
+        if (!super.redoFromCache()) {
+            return false;
+        }
+        if (undoFilter != null) {
+            clearUndoState();
+            inverse = undoFilter;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the type of filter this command applies.
+     * @return The filter type.
+     */
+    public FilterType getFilterType() {
+        return filterType;
+    }
+
+    /**
+     * Returns the filter type and parameters recorded by this command.
+     * @return A spec that recreates the filter applied by this command.
+     */
+    public FilterSpec getFilterSpec() {
+        return new FilterSpec(filterType, parameters);
+    }
+
     /**
      * Returns a string representation of the command.
      * @return A string describing the command.
@@ -1,24 +1,59 @@
 package com.pixelbit.command;
 
+import com.pixelbit.command.history.CheckpointPolicy;
+import com.pixelbit.command.history.HistoryEntry;
+import com.pixelbit.command.history.Replayable;
+import com.pixelbit.command.history.SnapshotCompressor;
+import com.pixelbit.command.history.SpillFile;
 import com.pixelbit.exception.CommandExecException;
+import com.pixelbit.model.BufferPool;
 import com.pixelbit.model.filter.FilterFactory;
 import com.pixelbit.view.UIErrorNotifier;
 
+import java.awt.image.BufferedImage;
+import java.io.IOException;
 import java.util.ArrayDeque;
+import java.util.Iterator;
 
 /**
  * CommandManager is responsible for managing the execution, undo, and redo of commands.
  * It maintains two stacks: one for undo operations and another for redo operations.
  * It also provides methods to check if undo or redo operations are possible.
  * It can optionally notify the UI of errors during command execution.
+ * <p>
+ * Only checkpoint commands keep a full image of the state before them; for the others,
+ * undo rebuilds it by replaying the commands since the nearest checkpoint, as chosen by
+ * a {@link CheckpointPolicy}.
+ * The undo states kept by the commands are held to a memory budget. All but the most
+ * recent states are compressed in the background, and when the history still exceeds
+ * the budget, the states of the oldest commands are written to a spill file. Both are
+ * read back when undo reaches them.
+ * <p>
+ * Undone commands keep the result they produced, so redo puts it back instead of running
+ * the command again. These results share the budget with the undo states and are dropped
+ * first, starting with the command furthest from being redone; redo then executes the
+ * command again. The hit and miss counts report how often redo found its result.
  */
 public class CommandManager {
 
+    /** System property that sets the default history budget in bytes. */
+    public static final String MAX_BYTES_PROPERTY = "pixelbit.history.maxBytes";
+    /** Default history budget: 512 MiB, or a quarter of the heap if that is smaller. */
+    public static final long DEFAULT_MAX_BYTES = Math.min(512L * 1024 * 1024, Runtime.getRuntime().maxMemory() / 4);
+    /** Number of most recent undo states kept uncompressed, so the next undo does not wait for inflating. */
+    public static final int UNCOMPRESSED_STATES = 1;
+
     private final ArrayDeque<PBCommand> undoStack = new ArrayDeque<>(); // Stack for undo operations
     private final ArrayDeque<PBCommand> redoStack = new ArrayDeque<>(); // Stack for redo operations
 
     private final FilterFactory filterFactory; // Factory for creating filters
     private UIErrorNotifier ui; // Optional UI notifier for error messages
+    private long maxBytes = Long.getLong(MAX_BYTES_PROPERTY, DEFAULT_MAX_BYTES); // Memory budget of the history
+    private SpillFile spillFile; // File for states over the budget, created when first needed
+    private SnapshotCompressor compressor = SnapshotCompressor.getDefault(); // Compresses older states, null for none
+    private CheckpointPolicy checkpointPolicy = CheckpointPolicy.DEFAULT; // Which commands keep their previous image
+    private long redoHits; // Redos that put back a kept result
+    private long redoMisses; // Redos that executed the command again
 
 
     /**
@@ -80,7 +115,10 @@ public class CommandManager {
         try {
             command.execute();
             undoStack.push(command);
-            redoStack.clear(); // Clear redo stack on new command execution
+            clearRedoStack(); // Clear redo stack on new command execution
+            applyCheckpointPolicy();
+            compressOlderStates();
+            enforceBudget();
         } catch (CommandExecException e) {
             if (ui != null) {
                 ui.showError("Error executing command: " + e.getMessage());
@@ -96,8 +134,13 @@ public class CommandManager {
         if (canUndo()) {
             try {
                 PBCommand command = undoStack.pop();
-                command.undo();
+                if (command instanceof HistoryEntry entry && entry.needsReplay()) {
+                    entry.undoTo(rebuildPreviousState());
+                } else {
+                    command.undo();
+                }
                 redoStack.push(command);
+                enforceBudget();
             } catch (Exception e) {
                 if (ui != null) {
                     ui.showError("Error undoing command: " + e.getMessage());
@@ -114,8 +157,16 @@ public class CommandManager {
         if (canRedo()) {
             try {
                 PBCommand command = redoStack.pop();
-                command.execute();
+                if (command instanceof HistoryEntry entry && entry.redoFromCache()) {
+                    redoHits++;
+                } else {
+                    redoMisses++;
+                    command.execute();
+                }
                 undoStack.push(command);
+                applyCheckpointPolicy();
+                compressOlderStates();
+                enforceBudget();
             } catch (Exception e) {
                 System.err.println("Error redoing command: " + e.getMessage());
                 if (ui != null) {
@@ -130,9 +181,287 @@ public class CommandManager {
      */
     public void clearHistory() {
         undoStack.clear();
+        clearRedoStack();
+        if (spillFile != null) {
+            try {
+                spillFile.clear();
+            } catch (IOException e) {
+                System.err.println("Error clearing the history spill file: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Clears the redo stack, returning the results its commands kept to the pool.
+     */
+    private void clearRedoStack() {
+        for (PBCommand command : redoStack) {
+            if (command instanceof HistoryEntry entry) {
+                entry.dropRedoState();
+            }
+        }
         redoStack.clear();
     }
 
+    /**
+     * Sets the memory budget of the history, shared by the undo states and the results kept
+     * for redo. The results are dropped, then states of the oldest commands are spilled
+     * to disk, until the history fits.
+     *
+     * @param maxBytes The budget in bytes, 0 to spill every state that can be spilled.
+     */
+    public void setMaxHistoryBytes(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("History budget cannot be negative");
+        }
+        this.maxBytes = maxBytes;
+        enforceBudget();
+    }
+
+    /**
+     * Gets the memory budget of the history.
+     *
+     * @return The budget in bytes.
+     */
+    public long getMaxHistoryBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Returns the memory held by the undo states of the history.
+     *
+     * @return The number of bytes held on the heap.
+     */
+    public long getHistoryMemoryBytes() {
+        long bytes = 0;
+        for (PBCommand command : undoStack) {
+            if (command instanceof HistoryEntry entry) {
+                bytes += entry.getMemoryBytes();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the size of the undo states spilled to disk.
+     *
+     * @return The number of bytes in the spill file.
+     */
+    public long getHistorySpilledBytes() {
+        long bytes = 0;
+        for (PBCommand command : undoStack) {
+            if (command instanceof HistoryEntry entry) {
+                bytes += entry.getSpilledBytes();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the memory held by the results kept for redo.
+     *
+     * @return The number of bytes held on the heap.
+     */
+    public long getRedoCacheBytes() {
+        long bytes = 0;
+        for (PBCommand command : redoStack) {
+            if (command instanceof HistoryEntry entry) {
+                bytes += entry.getRedoBytes();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the number of redos that put back a kept result.
+     *
+     * @return The hit count.
+     */
+    public long getRedoCacheHits() {
+        return redoHits;
+    }
+
+    /**
+     * Returns the number of redos that had to execute the command again.
+     *
+     * @return The miss count.
+     */
+    public long getRedoCacheMisses() {
+        return redoMisses;
+    }
+
+    /**
+     * Returns the fraction of redos that put back a kept result.
+     *
+     * @return The hit rate between 0 and 1, or 0 if nothing was redone yet.
+     */
+    public double getRedoCacheHitRate() {
+        long total = redoHits + redoMisses;
+        return total == 0 ? 0 : (double) redoHits / total;
+    }
+
+    /**
+     * Sets the policy that decides which commands keep a full image of the state before them.
+     * Applies to commands executed from now on.
+     *
+     * @param policy The policy, or null to keep the image of every command.
+     */
+    public void setCheckpointPolicy(CheckpointPolicy policy) {
+        this.checkpointPolicy = policy;
+    }
+
+    /**
+     * Gets the policy that decides which commands keep a full image of the state before them.
+     *
+     * @return The policy, or null if every command keeps its image.
+     */
+    public CheckpointPolicy getCheckpointPolicy() {
+        return checkpointPolicy;
+    }
+
+    /**
+     * Links the command just executed to the one below it and decides whether it stays a
+     * checkpoint. It drops its previous image when that image can be rebuilt by replaying
+     * the linked commands below it back to the nearest checkpoint, and the policy accepts
+     * the length and cost of that replay.
+     */
+    private void applyCheckpointPolicy() {
+        if (!(undoStack.peek() instanceof Replayable latest)) {
+            return;
+        }
+        Iterator<PBCommand> newestFirst = undoStack.iterator();
+        newestFirst.next();
+        PBCommand command = newestFirst.hasNext() ? newestFirst.next() : null;
+        latest.linkTo(command instanceof Replayable below ? below : null);
+        if (checkpointPolicy == null || !latest.hasPreviousImage() || !latest.isLinked()) {
+            return;
+        }
+        int replayed = 0;
+        long replayNanos = 0;
+        for (; command != null; command = newestFirst.hasNext() ? newestFirst.next() : null) {
+            if (!(command instanceof Replayable replayable) || !replayable.canReplay()) {
+                return;
+            }
+            replayed++;
+            replayNanos += replayable.getExecutionNanos();
+            if (checkpointPolicy.needsCheckpoint(replayed, replayNanos)) {
+                return;
+            }
+            if (replayable.hasPreviousImage()) {
+                latest.dropPreviousImage();
+                return;
+            }
+            if (!replayable.isLinked()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the state at the top of the undo stack, after its last command, by replaying
+     * the commands from the nearest checkpoint.
+     *
+     * @return A new image of the state.
+     * @throws CommandExecException if a command cannot be replayed.
+     * @throws IOException          if the checkpoint image cannot be read back.
+     */
+    private BufferedImage rebuildPreviousState() throws CommandExecException, IOException {
+        ArrayDeque<Replayable> oldestFirst = new ArrayDeque<>();
+        for (PBCommand command : undoStack) {
+            if (!(command instanceof Replayable replayable) || !replayable.canReplay()) {
+                break;
+            }
+            oldestFirst.push(replayable);
+            BufferedImage checkpoint = replayable.getPreviousImage();
+            if (checkpoint != null) {
+                BufferedImage image = checkpoint;
+                for (Replayable step : oldestFirst) {
+                    BufferedImage next = step.replay(image);
+                    if (image != checkpoint) {
+                        // A crop replays as a view, which keeps using the buffer it was cut from
+                        BufferPool.getDefault().releaseUnlessShared(image, next);
+                    }
+                    image = next;
+                }
+                return image;
+            }
+            if (!replayable.isLinked()) {
+                break;
+            }
+        }
+        throw new IllegalStateException("No checkpoint to rebuild the previous state from");
+    }
+
+    /**
+     * Sets the compressor for the older undo states.
+     *
+     * @param compressor The compressor, or null to keep the states uncompressed.
+     */
+    public void setSnapshotCompressor(SnapshotCompressor compressor) {
+        this.compressor = compressor;
+    }
+
+    /**
+     * Gets the compressor for the older undo states, whose statistics report the
+     * compression ratio and times.
+     *
+     * @return The compressor, or null if the states are kept uncompressed.
+     */
+    public SnapshotCompressor getSnapshotCompressor() {
+        return compressor;
+    }
+
+    /**
+     * Starts compressing the states of all commands but the most recent ones.
+     * States that are already compressed or spilled are left alone.
+     */
+    private void compressOlderStates() {
+        if (compressor == null) {
+            return;
+        }
+        int index = 0;
+        for (PBCommand command : undoStack) {
+            if (index++ >= UNCOMPRESSED_STATES && command instanceof HistoryEntry entry) {
+                entry.compress(compressor);
+            }
+        }
+    }
+
+    /**
+     * Drops the results kept for redo, then spills the states of the oldest commands, until
+     * the history fits its budget. If the spill file cannot be written, the states stay in memory.
+     */
+    private void enforceBudget() {
+        long bytes = getHistoryMemoryBytes() + getRedoCacheBytes();
+        Iterator<PBCommand> furthestFirst = redoStack.descendingIterator();
+        while (bytes > maxBytes && furthestFirst.hasNext()) {
+            if (furthestFirst.next() instanceof HistoryEntry entry) {
+                bytes -= entry.getRedoBytes();
+                entry.dropRedoState();
+            }
+        }
+        Iterator<PBCommand> oldestFirst = undoStack.descendingIterator();
+        try {
+            while (bytes > maxBytes && oldestFirst.hasNext()) {
+                if (oldestFirst.next() instanceof HistoryEntry entry) {
+                    long before = entry.getMemoryBytes();
+                    if (before > 0) {
+                        if (spillFile == null) {
+                            spillFile = SpillFile.createTemp();
+                        }
+                        entry.spill(spillFile);
+                        bytes -= before - entry.getMemoryBytes();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error spilling the history: " + e.getMessage());
+            if (ui != null) {
+                ui.showError("Error spilling the history to disk: " + e.getMessage());
+            }
+        }
+    }
+
     /**
      * Checks if there are commands available to undo.
      *
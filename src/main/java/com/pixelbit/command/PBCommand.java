@@ -22,4 +22,15 @@ public interface PBCommand {
      */
    void undo();
 
+    /**
+     * Executes the command without keeping any state needed to undo it.
+     * Used for transient edits, such as slider previews, that are never recorded in the history.
+     * Commands that can skip their undo snapshot override this; the default simply executes.
+     *
+     * @throws CommandExecException if an error occurs during command execution
+     */
+   default void executeWithoutUndo() throws CommandExecException {
+       execute();
+   }
+
 }
\ No newline at end of file
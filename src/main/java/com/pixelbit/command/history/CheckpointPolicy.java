@@ -0,0 +1,42 @@
+package com.pixelbit.command.history;
+
+/**
+ * CheckpointPolicy decides which commands of the history keep a full image of the state
+ * before them. The others drop it, and undo rebuilds it by replaying the commands after
+ * the nearest checkpoint, so history memory grows with the number of checkpoints instead
+ * of the number of commands. A command is a checkpoint when undoing it would otherwise
+ * replay too many commands, or commands that took too long to run.
+ *
+ * @param interval       Largest number of commands replayed to undo one command; 1 keeps every image.
+ * @param maxReplayNanos Largest total time of the commands replayed to undo one command, in nanoseconds.
+ */
+public record CheckpointPolicy(int interval, long maxReplayNanos) {
+
+    /** Policy of a new history: a checkpoint every 4 commands, or whenever replaying would take over 200 ms. */
+    public static final CheckpointPolicy DEFAULT = new CheckpointPolicy(4, 200_000_000L);
+
+    /**
+     * Validates the policy.
+     *
+     * @throws IllegalArgumentException if the interval is below 1 or the time is negative.
+     */
+    public CheckpointPolicy {
+        if (interval < 1) {
+            throw new IllegalArgumentException("Checkpoint interval must be at least 1: " + interval);
+        }
+        if (maxReplayNanos < 0) {
+            throw new IllegalArgumentException("Replay time cannot be negative: " + maxReplayNanos);
+        }
+    }
+
+    /**
+     * Checks whether a command must keep its previous image.
+     *
+     * @param replayedCommands Number of commands undo would replay without it, up to and including the checkpoint.
+     * @param replayNanos      Time those commands took to execute.
+     * @return true if the command must be a checkpoint.
+     */
+    public boolean needsCheckpoint(int replayedCommands, long replayNanos) {
+        return replayedCommands >= interval || replayNanos > maxReplayNanos;
+    }
+}
@@ -0,0 +1,275 @@
+package com.pixelbit.command.history;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * CompressedImage is an undo state whose pixels are held deflated in memory.
+ * Before deflating, every byte is replaced by its difference from the same byte of the
+ * previous pixel, like PNG's Sub filter, which turns the smooth areas of photos and the
+ * flat areas of documents into long runs that deflate well even at the fastest level.
+ * <p>
+ * Like a {@link SpilledImage}, the image decompresses to the same type and layout, and
+ * the compressed bytes can themselves be moved to a {@link SpillFile}.
+ */
+public final class CompressedImage {
+
+    private static final int CHUNK_BYTES = 64 * 1024; // Bytes filtered and deflated per step
+
+    private final ColorModel colorModel; // Color model of the image
+    private final SampleModel sampleModel; // Layout of the pixels in the data buffer
+    private final int dataType; // Type of the data buffer
+    private final int size; // Number of elements in the data buffer
+    private final boolean alphaPremultiplied; // Whether the colors are premultiplied by alpha
+    private final long rawBytes; // Size of the pixels before compression
+    private final SnapshotCompressor statistics; // Compressor that records the decompression times
+    private byte[] data; // Deflated pixels, null while spilled
+    private SpillFile file; // File holding the deflated pixels while they are spilled
+    private SpillFile.Slot slot; // Location of the deflated pixels in the file while they are spilled
+
+    private CompressedImage(BufferedImage image, byte[] data, SnapshotCompressor statistics) {
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        this.colorModel = image.getColorModel();
+        this.sampleModel = image.getSampleModel();
+        this.dataType = buffer.getDataType();
+        this.size = buffer.getSize();
+        this.alphaPremultiplied = image.isAlphaPremultiplied();
+        this.rawBytes = SpilledImage.byteCount(image);
+        this.statistics = statistics;
+        this.data = data;
+    }
+
+    /**
+     * Compresses the pixels of an image. The image itself is left unchanged.
+     *
+     * @param image      The image to compress.
+     * @param level      The deflate level, from {@link Deflater#BEST_SPEED} to {@link Deflater#BEST_COMPRESSION}.
+     * @param statistics The compressor to report the compression time and sizes to, can be null.
+     * @return The compressed image, or null for views and images with several banks.
+     */
+    public static CompressedImage compress(BufferedImage image, int level, SnapshotCompressor statistics) {
+        long start = System.nanoTime();
+        Object array = SpilledImage.data(image);
+        if (array == null) {
+            return null;
+        }
+        Codec codec = new Codec(image.getSampleModel(), array);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(CHUNK_BYTES);
+        Deflater deflater = new Deflater(level);
+        try {
+            byte[] deflated = new byte[CHUNK_BYTES];
+            for (int chunk = 0; chunk < codec.chunks(); chunk++) {
+                int length = codec.filter(chunk);
+                deflater.setInput(codec.filtered, 0, length);
+                while (!deflater.needsInput()) {
+                    out.write(deflated, 0, deflater.deflate(deflated));
+                }
+            }
+            deflater.finish();
+            while (!deflater.finished()) {
+                out.write(deflated, 0, deflater.deflate(deflated));
+            }
+        } finally {
+            deflater.end();
+        }
+        CompressedImage compressed = new CompressedImage(image, out.toByteArray(), statistics);
+        if (statistics != null) {
+            statistics.recordCompression(compressed.rawBytes, compressed.data.length, System.nanoTime() - start);
+        }
+        return compressed;
+    }
+
+    /**
+     * Decompresses the image, reading the compressed bytes back first if they were spilled.
+     * The image can only be decompressed once if it was spilled.
+     *
+     * @return A new image with the pixels, type and layout of the compressed one.
+     * @throws IOException if the compressed bytes cannot be read back or are corrupt.
+     */
+    public BufferedImage decompress() throws IOException {
+        long start = System.nanoTime();
+        if (data == null) {
+            data = new byte[(int) slot.length()];
+            file.read(slot, data);
+            file = null;
+            slot = null;
+        }
+        DataBuffer buffer = SpilledImage.newBuffer(dataType, size);
+        Codec codec = new Codec(sampleModel, SpilledImage.data(buffer));
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            for (int chunk = 0; chunk < codec.chunks(); chunk++) {
+                int length = codec.chunkLength(chunk);
+                int filled = 0;
+                while (filled < length) {
+                    int inflated = inflater.inflate(codec.filtered, filled, length - filled);
+                    if (inflated == 0 && (inflater.finished() || inflater.needsInput())) {
+                        throw new IOException("Compressed undo state is truncated");
+                    }
+                    filled += inflated;
+                }
+                codec.unfilter(chunk);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Compressed undo state is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+        WritableRaster raster = Raster.createWritableRaster(sampleModel, buffer, null);
+        if (statistics != null) {
+            statistics.recordDecompression(System.nanoTime() - start);
+        }
+        return new BufferedImage(colorModel, raster, alphaPremultiplied, null);
+    }
+
+    /**
+     * Moves the compressed bytes to a spill file; they are read back when the image is decompressed.
+     *
+     * @param spillFile The file to write to.
+     * @throws IOException if the bytes cannot be written.
+     */
+    public void spill(SpillFile spillFile) throws IOException {
+        if (data != null) {
+            slot = spillFile.write(data);
+            file = spillFile;
+            data = null;
+        }
+    }
+
+    /**
+     * Frees the space of the spilled bytes in the spill file, if they were spilled,
+     * when they will not be needed anymore.
+     *
+     * @throws IOException if the file cannot be truncated.
+     */
+    public void discard() throws IOException {
+        if (file != null) {
+            file.discard(slot);
+            file = null;
+            slot = null;
+        }
+    }
+
+    /**
+     * Checks whether the compressed bytes are in a spill file rather than in memory.
+     *
+     * @return true if the image was spilled.
+     */
+    public boolean isSpilled() {
+        return data == null;
+    }
+
+    /**
+     * Returns the size of the compressed pixels, wherever they are held.
+     *
+     * @return The number of compressed bytes.
+     */
+    public long getByteCount() {
+        return data != null ? data.length : slot.length();
+    }
+
+    /**
+     * Returns the size of the pixels before compression.
+     *
+     * @return The number of bytes of the image's data buffer.
+     */
+    public long getRawByteCount() {
+        return rawBytes;
+    }
+
+    /**
+     * Converts the pixel array to big-endian bytes and back, one chunk at a time, applying
+     * the Sub filter on the way. Chunks hold a whole number of elements and pixels, so the
+     * filter only needs the last pixel of the previous chunk.
+     */
+    private static final class Codec {
+        private final Object array; // Pixel array of the image
+        private final int elementSize; // Bytes per array element
+        private final int stride; // Bytes per pixel, the distance the filter looks back
+        private final int chunkElements; // Array elements per chunk
+        private final ByteBuffer raw; // Unfiltered bytes of the current chunk
+        private final byte[] filtered; // Filtered bytes of the current chunk
+        private final byte[] previous; // Unfiltered bytes of the last pixel of the previous chunk
+
+        Codec(SampleModel sampleModel, Object array) {
+            this.array = array;
+            this.elementSize = DataBuffer.getDataTypeSize(sampleModel.getDataType()) / 8;
+            this.stride = sampleModel.getNumDataElements() * elementSize;
+            int unit = elementSize * stride;
+            int chunkBytes = Math.max(1, CHUNK_BYTES / unit) * unit;
+            this.chunkElements = chunkBytes / elementSize;
+            this.raw = ByteBuffer.allocate(chunkBytes);
+            this.filtered = new byte[chunkBytes];
+            this.previous = new byte[stride];
+        }
+
+        int chunks() {
+            return (Array.getLength(array) + chunkElements - 1) / chunkElements;
+        }
+
+        int chunkLength(int chunk) {
+            return Math.min(chunkElements, Array.getLength(array) - chunk * chunkElements) * elementSize;
+        }
+
+        /**
+         * Fills the filtered bytes with one chunk of the array.
+         *
+         * @return The number of bytes in the chunk.
+         */
+        int filter(int chunk) {
+            int start = chunk * chunkElements;
+            int count = chunkLength(chunk) / elementSize;
+            raw.clear();
+            switch (array) {
+                case int[] ints -> raw.asIntBuffer().put(ints, start, count);
+                case short[] shorts -> raw.asShortBuffer().put(shorts, start, count);
+                case float[] floats -> raw.asFloatBuffer().put(floats, start, count);
+                default -> raw.put((byte[]) array, start, count);
+            }
+            byte[] bytes = raw.array();
+            int length = count * elementSize;
+            for (int i = 0; i < length; i++) {
+                filtered[i] = (byte) (bytes[i] - (i >= stride ? bytes[i - stride] : previous[i]));
+            }
+            if (length >= stride) {
+                System.arraycopy(bytes, length - stride, previous, 0, stride);
+            }
+            return length;
+        }
+
+        /**
+         * Reverses the filter on one chunk of filtered bytes and stores it in the array.
+         */
+        void unfilter(int chunk) {
+            int start = chunk * chunkElements;
+            int length = chunkLength(chunk);
+            byte[] bytes = raw.array();
+            for (int i = 0; i < length; i++) {
+                bytes[i] = (byte) (filtered[i] + (i >= stride ? bytes[i - stride] : previous[i]));
+            }
+            if (length >= stride) {
+                System.arraycopy(bytes, length - stride, previous, 0, stride);
+            }
+            int count = length / elementSize;
+            raw.clear();
+            switch (array) {
+                case int[] ints -> raw.asIntBuffer().get(ints, start, count);
+                case short[] shorts -> raw.asShortBuffer().get(shorts, start, count);
+                case float[] floats -> raw.asFloatBuffer().get(floats, start, count);
+                default -> raw.get((byte[]) array, start, count);
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.pixelbit.command.history;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * A command that keeps an undo state which can be compressed or moved out of the heap.
+ * The command history uses it to account for the memory of its entries, to compress
+ * the older ones in the background and to spill the oldest ones to disk when it exceeds
+ * its budget. Compressed and spilled states are read back by the command itself when
+ * it is undone.
+ */
+public interface HistoryEntry {
+
+    /**
+     * Returns the memory held by the undo state.
+     *
+     * @return The number of bytes held on the heap.
+     */
+    long getMemoryBytes();
+
+    /**
+     * Returns the size of the undo state held in a spill file.
+     *
+     * @return The number of bytes spilled.
+     */
+    long getSpilledBytes();
+
+    /**
+     * Moves the undo state to a spill file, if it has one that can be spilled.
+     *
+     * @param file The file to write to.
+     * @return true if memory was freed.
+     * @throws IOException if the state cannot be written.
+     */
+    boolean spill(SpillFile file) throws IOException;
+
+    /**
+     * Starts compressing the undo state in the background, if it has one that can be compressed.
+     * The state is swapped for the compressed one when the compression is done, unless the
+     * command was undone or executed again in the meantime.
+     *
+     * @param compressor The compressor to use.
+     */
+    void compress(SnapshotCompressor compressor);
+
+    /**
+     * Checks whether the undo state includes a full image of the state before the command,
+     * in memory, compressed or spilled.
+     *
+     * @return true if the command can serve as a checkpoint.
+     */
+    boolean hasPreviousImage();
+
+    /**
+     * Returns the full image of the state before the command, reading it back if it was
+     * compressed or spilled. The image stays part of the undo state and must not be modified.
+     *
+     * @return The previous image, or null if the command does not keep one.
+     * @throws IOException if the image cannot be read back.
+     */
+    BufferedImage getPreviousImage() throws IOException;
+
+    /**
+     * Drops the full previous image, leaving the history to rebuild it when the command is undone.
+     *
+     * @return true if an image was dropped.
+     */
+    boolean dropPreviousImage();
+
+    /**
+     * Checks whether the previous image was dropped, so undo needs it rebuilt by the history.
+     *
+     * @return true if the command must be undone with {@link #undoTo(BufferedImage)}.
+     */
+    boolean needsReplay();
+
+    /**
+     * Undoes the command by making a rebuilt image of the previous state the current image.
+     *
+     * @param previous The state before the command.
+     */
+    void undoTo(BufferedImage previous);
+
+    /**
+     * Redoes the command by putting back the result it produced, kept when it was undone,
+     * instead of executing it again. The undo state is set up as if the command was executed.
+     *
+     * @return true if the result was put back, false if none was kept and the command must be executed.
+     * @throws IOException if the result cannot be put back.
+     */
+    boolean redoFromCache() throws IOException;
+
+    /**
+     * Returns the memory held by the result kept for redo.
+     *
+     * @return The number of bytes held on the heap, 0 if no result is kept.
+     */
+    long getRedoBytes();
+
+    /**
+     * Drops the result kept for redo, when it will not be redone or memory is short.
+     */
+    void dropRedoState();
+}
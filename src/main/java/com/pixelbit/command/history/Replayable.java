@@ -0,0 +1,53 @@
+package com.pixelbit.command.history;
+
+import com.pixelbit.exception.CommandExecException;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * A command whose edit is deterministic and can be applied again to any image, so the
+ * history can rebuild the states between checkpoints instead of keeping them.
+ */
+public interface Replayable extends HistoryEntry {
+
+    /**
+     * Applies the command's edit to an image, without changing the image being edited.
+     *
+     * @param image The image to apply the edit to; it is not modified.
+     * @return A new image with the edit applied.
+     * @throws CommandExecException if the edit cannot be applied.
+     */
+    BufferedImage replay(BufferedImage image) throws CommandExecException;
+
+    /**
+     * Checks whether replaying gives back exactly the state the last execution produced.
+     * Edits made in the high-precision format cannot be replayed at 8 bits.
+     *
+     * @return true if the command can be replayed.
+     */
+    boolean canReplay();
+
+    /**
+     * Returns how long the last execution took, as an estimate of the cost of replaying it.
+     *
+     * @return The execution time in nanoseconds.
+     */
+    long getExecutionNanos();
+
+    /**
+     * Records whether the last execution started from the exact image the command below it
+     * in the history produced. Only then does replaying the command below give the state
+     * this command was applied to; an edit made outside the history in between, such as a
+     * committed preview, breaks the link.
+     *
+     * @param below The command below in the history, or null if there is none.
+     */
+    void linkTo(Replayable below);
+
+    /**
+     * Checks whether the last execution started from the image the command below it produced.
+     *
+     * @return true if the state before this command can be rebuilt from the command below.
+     */
+    boolean isLinked();
+}
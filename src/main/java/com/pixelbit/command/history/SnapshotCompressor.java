@@ -0,0 +1,139 @@
+package com.pixelbit.command.history;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.zip.Deflater;
+
+/**
+ * SnapshotCompressor compresses undo states in the background, so older entries of the
+ * history take a fraction of their memory without slowing down the edit that made them
+ * old. It also keeps statistics of the compression ratio and of the time spent compressing
+ * and decompressing, for tuning the level and for display.
+ */
+public final class SnapshotCompressor {
+
+    /** Deflate level used by the default compressor: the fastest, which still shrinks most photos. */
+    public static final int DEFAULT_LEVEL = Deflater.BEST_SPEED;
+
+    private static final SnapshotCompressor DEFAULT = new SnapshotCompressor(
+            Executors.newSingleThreadExecutor(task -> {
+                Thread thread = new Thread(task, "pixelbit-history-compressor");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }), DEFAULT_LEVEL);
+
+    private final Executor executor; // Runs the compressions
+    private final int level; // Deflate level
+    private long compressions; // Number of images compressed
+    private long rawBytes; // Bytes of the compressed images before compression
+    private long compressedBytes; // Bytes of the compressed images after compression
+    private long compressionNanos; // Time spent compressing
+    private long decompressions; // Number of images decompressed
+    private long decompressionNanos; // Time spent decompressing
+
+    /**
+     * Constructs a compressor.
+     *
+     * @param executor The executor that runs the compressions, normally a single background thread.
+     * @param level    The deflate level, from {@link Deflater#BEST_SPEED} to {@link Deflater#BEST_COMPRESSION}.
+     */
+    public SnapshotCompressor(Executor executor, int level) {
+        if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid deflate level: " + level);
+        }
+        this.executor = executor;
+        this.level = level;
+    }
+
+    /**
+     * Returns the shared compressor, which runs on a low-priority daemon thread.
+     *
+     * @return The default compressor.
+     */
+    public static SnapshotCompressor getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Compresses an image in the background. The image must not change until the compression is done.
+     *
+     * @param image The image to compress.
+     * @param done  Called on the background thread with the compressed image, or with null
+     *              if the image cannot be compressed.
+     */
+    public void compress(BufferedImage image, Consumer<CompressedImage> done) {
+        executor.execute(() -> done.accept(CompressedImage.compress(image, level, this)));
+    }
+
+    synchronized void recordCompression(long raw, long compressed, long nanos) {
+        compressions++;
+        rawBytes += raw;
+        compressedBytes += compressed;
+        compressionNanos += nanos;
+    }
+
+    synchronized void recordDecompression(long nanos) {
+        decompressions++;
+        decompressionNanos += nanos;
+    }
+
+    /**
+     * Returns the number of images compressed.
+     *
+     * @return The compression count.
+     */
+    public synchronized long getCompressionCount() {
+        return compressions;
+    }
+
+    /**
+     * Returns the number of images decompressed.
+     *
+     * @return The decompression count.
+     */
+    public synchronized long getDecompressionCount() {
+        return decompressions;
+    }
+
+    /**
+     * Returns the overall compression ratio.
+     *
+     * @return The bytes before compression divided by the bytes after, or 1 if nothing was compressed.
+     */
+    public synchronized double getCompressionRatio() {
+        return compressedBytes > 0 ? (double) rawBytes / compressedBytes : 1;
+    }
+
+    /**
+     * Returns the average time spent compressing an image.
+     *
+     * @return The average compression time in milliseconds, or 0 if nothing was compressed.
+     */
+    public synchronized double getAverageCompressionMillis() {
+        return compressions > 0 ? compressionNanos / 1e6 / compressions : 0;
+    }
+
+    /**
+     * Returns the average time spent decompressing an image, which undo waits for.
+     *
+     * @return The average decompression time in milliseconds, or 0 if nothing was decompressed.
+     */
+    public synchronized double getAverageDecompressionMillis() {
+        return decompressions > 0 ? decompressionNanos / 1e6 / decompressions : 0;
+    }
+
+    /**
+     * Returns a one-line summary of the statistics.
+     *
+     * @return The counts, ratio and average times.
+     */
+    @Override
+    public synchronized String toString() {
+        return String.format("%d compressed, ratio %.2f, %.1f ms to compress, %d decompressed, %.1f ms to decompress",
+                compressions, getCompressionRatio(), getAverageCompressionMillis(),
+                decompressions, getAverageDecompressionMillis());
+    }
+}
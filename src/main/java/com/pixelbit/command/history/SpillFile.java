@@ -0,0 +1,211 @@
+package com.pixelbit.command.history;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * SpillFile holds undo states that were moved out of the heap to keep the history under
+ * its memory budget. States are appended to a file through a {@link FileChannel} and read
+ * back when undo reaches them. Space is not reused piecemeal; the file is truncated once
+ * every state written to it has been read back or discarded.
+ * <p>
+ * Arrays are copied through a fixed direct buffer, so spilling a state does not allocate
+ * a second copy of it on the heap.
+ */
+public final class SpillFile implements Closeable {
+
+    private static final int CHUNK_SIZE = 1 << 20; // Bytes copied per read or write
+
+    /**
+     * Location of a spilled array in the file.
+     *
+     * @param offset     Position of the first byte.
+     * @param length     Number of bytes.
+     * @param generation Number of times the file was cleared before the array was written.
+     */
+    public record Slot(long offset, long length, int generation) {
+    }
+
+    private final FileChannel channel; // Channel to the spill file
+    private final ByteBuffer chunk = ByteBuffer.allocateDirect(CHUNK_SIZE); // Copy buffer
+    // Identity set of the slots not read back or discarded yet, to ignore double discards
+    private final Set<Slot> live = Collections.newSetFromMap(new IdentityHashMap<>());
+    private long end; // Position where the next array is written
+    private long liveBytes; // Bytes of the slots not read back or discarded yet
+    private int generation; // Incremented on clear, so older slots are recognized as gone
+
+    /**
+     * Opens a spill file at the given path, replacing any existing file.
+     * The file is deleted when it is closed.
+     *
+     * @param path The path of the file.
+     * @throws IOException if the file cannot be created.
+     */
+    public SpillFile(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+    }
+
+    /**
+     * Creates a spill file in the temporary directory.
+     *
+     * @return The spill file.
+     * @throws IOException if the file cannot be created.
+     */
+    public static SpillFile createTemp() throws IOException {
+        Path path = Files.createTempFile("pixelbit-history", ".spill");
+        path.toFile().deleteOnExit();
+        return new SpillFile(path);
+    }
+
+    /**
+     * Appends an array to the file.
+     *
+     * @param array An int[], short[], byte[] or float[] array.
+     * @return The slot to read the array back from.
+     * @throws IOException if the array cannot be written.
+     */
+    public synchronized Slot write(Object array) throws IOException {
+        long offset = end;
+        int length = Array.getLength(array);
+        int elementSize = elementSize(array);
+        int perChunk = CHUNK_SIZE / elementSize;
+        for (int start = 0; start < length; start += perChunk) {
+            int count = Math.min(perChunk, length - start);
+            chunk.clear();
+            switch (array) {
+                case int[] ints -> chunk.asIntBuffer().put(ints, start, count);
+                case short[] shorts -> chunk.asShortBuffer().put(shorts, start, count);
+                case float[] floats -> chunk.asFloatBuffer().put(floats, start, count);
+                default -> chunk.put((byte[]) array, start, count);
+            }
+            chunk.position(0).limit(count * elementSize);
+            while (chunk.hasRemaining()) {
+                end += channel.write(chunk, end);
+            }
+        }
+        Slot slot = new Slot(offset, end - offset, generation);
+        live.add(slot);
+        liveBytes += slot.length();
+        return slot;
+    }
+
+    /**
+     * Reads an array back from the file and discards its slot.
+     *
+     * @param slot  The slot returned when the array was written.
+     * @param array An array of the same type and length as the one written.
+     * @throws IOException if the array cannot be read.
+     * @throws IllegalStateException if the file was cleared since the array was written.
+     */
+    public synchronized void read(Slot slot, Object array) throws IOException {
+        if (slot.generation() != generation) {
+            throw new IllegalStateException("The spilled array was discarded when the file was cleared");
+        }
+        int length = Array.getLength(array);
+        int elementSize = elementSize(array);
+        if ((long) length * elementSize != slot.length()) {
+            throw new IllegalArgumentException("The array does not match the spilled one");
+        }
+        int perChunk = CHUNK_SIZE / elementSize;
+        long position = slot.offset();
+        for (int start = 0; start < length; start += perChunk) {
+            int count = Math.min(perChunk, length - start);
+            chunk.clear().limit(count * elementSize);
+            while (chunk.hasRemaining()) {
+                int read = channel.read(chunk, position);
+                if (read < 0) {
+                    throw new IOException("Spill file ended early");
+                }
+                position += read;
+            }
+            chunk.flip();
+            switch (array) {
+                case int[] ints -> chunk.asIntBuffer().get(ints, start, count);
+                case short[] shorts -> chunk.asShortBuffer().get(shorts, start, count);
+                case float[] floats -> chunk.asFloatBuffer().get(floats, start, count);
+                default -> chunk.get((byte[]) array, start, count);
+            }
+        }
+        discard(slot);
+    }
+
+    /**
+     * Discards a slot that will not be read back, such as one of a command dropped from the history.
+     * Slots that were already read back or discarded are ignored.
+     *
+     * @param slot The slot to discard.
+     * @throws IOException if the file cannot be truncated.
+     */
+    public synchronized void discard(Slot slot) throws IOException {
+        if (!live.remove(slot)) {
+            return;
+        }
+        liveBytes -= slot.length();
+        if (liveBytes == 0) {
+            // Nothing in the file is needed anymore
+            channel.truncate(0);
+            end = 0;
+        }
+    }
+
+    /**
+     * Discards every slot and empties the file.
+     *
+     * @throws IOException if the file cannot be truncated.
+     */
+    public synchronized void clear() throws IOException {
+        generation++;
+        live.clear();
+        liveBytes = 0;
+        end = 0;
+        channel.truncate(0);
+    }
+
+    /**
+     * Returns the bytes of the states currently held in the file.
+     *
+     * @return The number of bytes not read back or discarded yet.
+     */
+    public synchronized long getLiveBytes() {
+        return liveBytes;
+    }
+
+    /**
+     * Returns the size of the file, including the space of slots already read back.
+     *
+     * @return The file size in bytes.
+     */
+    public synchronized long getFileBytes() {
+        return end;
+    }
+
+    private static int elementSize(Object array) {
+        return switch (array) {
+            case int[] ignored -> Integer.BYTES;
+            case float[] ignored -> Float.BYTES;
+            case short[] ignored -> Short.BYTES;
+            case byte[] ignored -> Byte.BYTES;
+            default -> throw new IllegalArgumentException("Cannot spill " + array.getClass().getSimpleName());
+        };
+    }
+
+    /**
+     * Closes and deletes the file.
+     *
+     * @throws IOException if the file cannot be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,162 @@
+package com.pixelbit.command.history;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferFloat;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DataBufferShort;
+import java.awt.image.DataBufferUShort;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+
+/**
+ * SpilledImage is an undo state whose pixels were written to a {@link SpillFile}.
+ * The color model and sample model stay in memory, so the image read back has the
+ * same type and layout as the one written.
+ */
+public final class SpilledImage {
+
+    private final SpillFile file; // File holding the pixels
+    private final SpillFile.Slot slot; // Location of the pixels in the file
+    private final ColorModel colorModel; // Color model of the image
+    private final SampleModel sampleModel; // Layout of the pixels in the data buffer
+    private final int dataType; // Type of the data buffer
+    private final int size; // Number of elements in the data buffer
+    private final boolean alphaPremultiplied; // Whether the colors are premultiplied by alpha
+    private boolean released; // Whether the slot was read back or discarded
+
+    private SpilledImage(SpillFile file, SpillFile.Slot slot, BufferedImage image) {
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        this.file = file;
+        this.slot = slot;
+        this.colorModel = image.getColorModel();
+        this.sampleModel = image.getSampleModel();
+        this.dataType = buffer.getDataType();
+        this.size = buffer.getSize();
+        this.alphaPremultiplied = image.isAlphaPremultiplied();
+    }
+
+    /**
+     * Writes the pixels of an image to a spill file.
+     *
+     * @param image The image to spill.
+     * @param file  The file to write to.
+     * @return The spilled image, or null if the image cannot be spilled: views that share
+     * their pixels with a larger image and images with several banks stay in memory.
+     * @throws IOException if the pixels cannot be written.
+     */
+    public static SpilledImage write(BufferedImage image, SpillFile file) throws IOException {
+        Object data = data(image);
+        return data != null ? new SpilledImage(file, file.write(data), image) : null;
+    }
+
+    /**
+     * Returns the array behind the pixels of an image that owns its whole data buffer.
+     *
+     * @param image The image.
+     * @return The int[], byte[], short[] or float[] array, or null for views and multi-bank images.
+     */
+    static Object data(BufferedImage image) {
+        WritableRaster raster = image.getRaster();
+        DataBuffer buffer = raster.getDataBuffer();
+        if (raster.getParent() != null || raster.getSampleModelTranslateX() != 0
+                || raster.getSampleModelTranslateY() != 0 || buffer.getNumBanks() != 1 || buffer.getOffset() != 0) {
+            return null;
+        }
+        return switch (buffer) {
+            case DataBufferInt ints -> ints.getData();
+            case DataBufferByte bytes -> bytes.getData();
+            case DataBufferUShort shorts -> shorts.getData();
+            case DataBufferShort shorts -> shorts.getData();
+            case DataBufferFloat floats -> floats.getData();
+            default -> null;
+        };
+    }
+
+    /**
+     * Creates an empty data buffer for pixels read back from storage.
+     *
+     * @param dataType The type of the original data buffer.
+     * @param size     The number of elements.
+     * @return The new data buffer.
+     */
+    static DataBuffer newBuffer(int dataType, int size) {
+        return switch (dataType) {
+            case DataBuffer.TYPE_INT -> new DataBufferInt(size);
+            case DataBuffer.TYPE_BYTE -> new DataBufferByte(size);
+            case DataBuffer.TYPE_USHORT -> new DataBufferUShort(size);
+            case DataBuffer.TYPE_SHORT -> new DataBufferShort(size);
+            default -> new DataBufferFloat(size);
+        };
+    }
+
+    /**
+     * Returns the array behind a buffer created by {@link #newBuffer(int, int)}.
+     */
+    static Object data(DataBuffer buffer) {
+        return switch (buffer) {
+            case DataBufferInt ints -> ints.getData();
+            case DataBufferByte bytes -> bytes.getData();
+            case DataBufferUShort shorts -> shorts.getData();
+            case DataBufferShort shorts -> shorts.getData();
+            default -> ((DataBufferFloat) buffer).getData();
+        };
+    }
+
+    /**
+     * Reads the image back from the spill file. The image can only be read once.
+     *
+     * @return A new image with the pixels, type and layout of the spilled one.
+     * @throws IOException if the pixels cannot be read.
+     */
+    public BufferedImage read() throws IOException {
+        if (released) {
+            throw new IllegalStateException("The spilled image was already read back or discarded");
+        }
+        released = true;
+        DataBuffer buffer = newBuffer(dataType, size);
+        file.read(slot, data(buffer));
+        WritableRaster raster = Raster.createWritableRaster(sampleModel, buffer, null);
+        return new BufferedImage(colorModel, raster, alphaPremultiplied, null);
+    }
+
+    /**
+     * Frees the space of the image in the spill file without reading it back.
+     * Does nothing if the image was already read back or discarded.
+     *
+     * @throws IOException if the file cannot be truncated.
+     */
+    public void discard() throws IOException {
+        if (!released) {
+            released = true;
+            file.discard(slot);
+        }
+    }
+
+    /**
+     * Returns the size of the pixels in the spill file.
+     *
+     * @return The number of bytes written.
+     */
+    public long getByteCount() {
+        return slot.length();
+    }
+
+    /**
+     * Returns the memory held by the pixels of an image.
+     *
+     * @param image The image, can be null.
+     * @return The size of the image's data buffer in bytes, or 0 for null.
+     */
+    public static long byteCount(BufferedImage image) {
+        if (image == null) {
+            return 0;
+        }
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        return (long) buffer.getSize() * buffer.getNumBanks() * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+    }
+}
@@ -0,0 +1,93 @@
+package com.pixelbit.command.history;
+
+import com.pixelbit.model.filter.PlanarImage;
+
+import java.io.IOException;
+
+/**
+ * SpilledPlanes is a high-precision undo state whose color planes were written to a
+ * {@link SpillFile}. The alpha plane stays in memory, since it is shared with the
+ * current image and does not take any memory of its own.
+ */
+public final class SpilledPlanes {
+
+    private final SpillFile file; // File holding the planes
+    private final SpillFile.Slot red; // Location of the red plane in the file
+    private final SpillFile.Slot green; // Location of the green plane in the file
+    private final SpillFile.Slot blue; // Location of the blue plane in the file
+    private final float[] alpha; // Alpha plane, shared with the current image
+    private final int width; // Width in pixels
+    private final int height; // Height in pixels
+    private boolean released; // Whether the slots were read back or discarded
+
+    private SpilledPlanes(SpillFile file, SpillFile.Slot red, SpillFile.Slot green, SpillFile.Slot blue,
+                          PlanarImage image) {
+        this.file = file;
+        this.red = red;
+        this.green = green;
+        this.blue = blue;
+        this.alpha = image.alpha();
+        this.width = image.getWidth();
+        this.height = image.getHeight();
+    }
+
+    /**
+     * Writes the color planes of an image to a spill file.
+     *
+     * @param image The image to spill.
+     * @param file  The file to write to.
+     * @return The spilled planes.
+     * @throws IOException if the planes cannot be written.
+     */
+    public static SpilledPlanes write(PlanarImage image, SpillFile file) throws IOException {
+        SpillFile.Slot red = file.write(image.red());
+        SpillFile.Slot green = file.write(image.green());
+        SpillFile.Slot blue = file.write(image.blue());
+        return new SpilledPlanes(file, red, green, blue, image);
+    }
+
+    /**
+     * Reads the image back from the spill file. The image can only be read once.
+     *
+     * @return A new image with the planes of the spilled one.
+     * @throws IOException if the planes cannot be read.
+     */
+    public PlanarImage read() throws IOException {
+        if (released) {
+            throw new IllegalStateException("The spilled planes were already read back or discarded");
+        }
+        released = true;
+        int size = width * height;
+        float[] redPlane = new float[size];
+        float[] greenPlane = new float[size];
+        float[] bluePlane = new float[size];
+        file.read(red, redPlane);
+        file.read(green, greenPlane);
+        file.read(blue, bluePlane);
+        return PlanarImage.fromPlanes(width, height, redPlane, greenPlane, bluePlane, alpha);
+    }
+
+    /**
+     * Frees the space of the planes in the spill file without reading them back.
+     * Does nothing if the planes were already read back or discarded.
+     *
+     * @throws IOException if the file cannot be truncated.
+     */
+    public void discard() throws IOException {
+        if (!released) {
+            released = true;
+            file.discard(red);
+            file.discard(green);
+            file.discard(blue);
+        }
+    }
+
+    /**
+     * Returns the size of the planes in the spill file.
+     *
+     * @return The number of bytes written.
+     */
+    public long getByteCount() {
+        return red.length() + green.length() + blue.length();
+    }
+}
@@ -0,0 +1,261 @@
+package com.pixelbit.command.history;
+
+import com.pixelbit.model.filter.FilterExecutor;
+import com.pixelbit.model.filter.PixelAccess;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * TileDelta records the pixels of an image that an edit changed, so the edit can be undone
+ * without keeping the whole image from before it. The before and after images are compared
+ * in square tiles; only the before pixels of the tiles that differ are stored, and undo
+ * writes them back into the after image.
+ * <p>
+ * A delta is only worth keeping when most tiles are unchanged, for example when a filter
+ * leaves the white background of a scanned page alone. When most tiles changed, the whole
+ * before image is cheaper to keep by reference, and {@link #capture} returns null.
+ */
+public final class TileDelta {
+
+    /** Side of the square tiles, in pixels. */
+    public static final int TILE_SIZE = 64;
+    /** Largest fraction of changed tiles for which a delta is kept instead of the whole image. */
+    public static final double MAX_CHANGED_FRACTION = 0.5;
+
+    private final int width; // Width of the image
+    private final int height; // Height of the image
+    private final int[] tiles; // Indices of the changed tiles, in row-major tile order
+    private final int[] offsets; // Start of each changed tile in pixels, plus the total at the end
+    private int[] pixels; // Before pixels of the changed tiles, row by row within each tile, null while spilled
+    private SpillFile file; // File holding the pixels while they are spilled
+    private SpillFile.Slot slot; // Location of the pixels in the file while they are spilled
+
+    private TileDelta(int width, int height, int[] tiles, int[] offsets, int[] pixels) {
+        this.width = width;
+        this.height = height;
+        this.tiles = tiles;
+        this.offsets = offsets;
+        this.pixels = pixels;
+    }
+
+    /**
+     * Compares two images and records the before pixels of the tiles that differ.
+     *
+     * @param before The image before the edit.
+     * @param after  The image after the edit.
+     * @return The delta, or null if the images cannot be compared tile by tile (different
+     * sizes, or not both directly accessible TYPE_INT_ARGB images) or if more than
+     * {@link #MAX_CHANGED_FRACTION} of the tiles changed.
+     */
+    public static TileDelta capture(BufferedImage before, BufferedImage after) {
+        return capture(before, after, FilterExecutor.getDefault());
+    }
+
+    /**
+     * Compares two images and records the before pixels of the tiles that differ.
+     *
+     * @param before   The image before the edit.
+     * @param after    The image after the edit.
+     * @param executor The executor that compares and copies bands of tiles.
+     * @return The delta, or null if a delta is not possible or not worth keeping.
+     */
+    public static TileDelta capture(BufferedImage before, BufferedImage after, FilterExecutor executor) {
+        if (before == null || after == null || before == after
+                || !PixelAccess.isDirect(before) || !PixelAccess.isDirect(after)
+                || before.getWidth() != after.getWidth() || before.getHeight() != after.getHeight()) {
+            return null;
+        }
+        int width = before.getWidth();
+        int height = before.getHeight();
+        int[] src = PixelAccess.data(before);
+        int[] dst = PixelAccess.data(after);
+        int columns = (width + TILE_SIZE - 1) / TILE_SIZE;
+        int rows = (height + TILE_SIZE - 1) / TILE_SIZE;
+
+        // Mark the changed tiles; a changed tile usually differs in its first row, so this is cheap
+        boolean[] changed = new boolean[columns * rows];
+        executor.forEachBand(width * TILE_SIZE, rows, (startRow, endRow) -> {
+            for (int tileY = startRow; tileY < endRow; tileY++) {
+                for (int tileX = 0; tileX < columns; tileX++) {
+                    changed[tileY * columns + tileX] = differs(src, dst, width, height, tileX, tileY);
+                }
+            }
+        });
+
+        int count = 0;
+        for (boolean tile : changed) {
+            if (tile) {
+                count++;
+            }
+        }
+        if (count > MAX_CHANGED_FRACTION * changed.length) {
+            return null;
+        }
+
+        int[] tiles = new int[count];
+        int[] offsets = new int[count + 1];
+        for (int i = 0, n = 0; i < changed.length; i++) {
+            if (changed[i]) {
+                tiles[n] = i;
+                offsets[n + 1] = offsets[n] + tileWidth(i % columns, width) * tileHeight(i / columns, height);
+                n++;
+            }
+        }
+        int[] pixels = new int[offsets[count]];
+        executor.forEachBand(width * TILE_SIZE, count, (start, end) -> {
+            for (int n = start; n < end; n++) {
+                copyTile(src, width, height, columns, tiles[n], pixels, offsets[n]);
+            }
+        });
+        return new TileDelta(width, height, tiles, offsets, pixels);
+    }
+
+    private static boolean differs(int[] a, int[] b, int width, int height, int tileX, int tileY) {
+        int x = tileX * TILE_SIZE;
+        int tileWidth = tileWidth(tileX, width);
+        int endY = tileY * TILE_SIZE + tileHeight(tileY, height);
+        for (int y = tileY * TILE_SIZE; y < endY; y++) {
+            int from = y * width + x;
+            if (!Arrays.equals(a, from, from + tileWidth, b, from, from + tileWidth)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Copies a tile of an image to the packed tile storage.
+     */
+    private static void copyTile(int[] image, int width, int height, int columns, int tile,
+                                 int[] storage, int offset) {
+        int tileX = tile % columns;
+        int tileY = tile / columns;
+        int tileWidth = tileWidth(tileX, width);
+        int tileHeight = tileHeight(tileY, height);
+        for (int row = 0; row < tileHeight; row++) {
+            int pixel = (tileY * TILE_SIZE + row) * width + tileX * TILE_SIZE;
+            System.arraycopy(image, pixel, storage, offset + row * tileWidth, tileWidth);
+        }
+    }
+
+    private static int tileWidth(int tileX, int width) {
+        return Math.min(TILE_SIZE, width - tileX * TILE_SIZE);
+    }
+
+    private static int tileHeight(int tileY, int height) {
+        return Math.min(TILE_SIZE, height - tileY * TILE_SIZE);
+    }
+
+    /**
+     * Writes the recorded before pixels back into the image the delta was captured against,
+     * turning it back into the before image in place. The pixels they overwrite are recorded
+     * in their place, so restoring the delta again turns the image back into the after image.
+     *
+     * @param image The after image, or an image with the same pixels.
+     * @throws IllegalArgumentException if the image is not a directly accessible TYPE_INT_ARGB
+     *                                  image of the size the delta was captured at.
+     * @throws IOException              if the pixels were spilled and cannot be read back.
+     */
+    public void restore(BufferedImage image) throws IOException {
+        if (image.getWidth() != width || image.getHeight() != height) {
+            throw new IllegalArgumentException("The image does not have the size the delta was captured at");
+        }
+        if (pixels == null) {
+            pixels = new int[offsets[tiles.length]];
+            file.read(slot, pixels);
+            file.discard(slot);
+            file = null;
+            slot = null;
+        }
+        int[] data = PixelAccess.data(image);
+        int columns = (width + TILE_SIZE - 1) / TILE_SIZE;
+        int[] row = new int[TILE_SIZE];
+        for (int n = 0; n < tiles.length; n++) {
+            swapTile(data, width, height, columns, tiles[n], pixels, offsets[n], row);
+        }
+    }
+
+    /**
+     * Exchanges a tile of an image with its packed copy in the tile storage, one row at a time.
+     */
+    private static void swapTile(int[] image, int width, int height, int columns, int tile,
+                                 int[] storage, int offset, int[] row) {
+        int tileX = tile % columns;
+        int tileY = tile / columns;
+        int tileWidth = tileWidth(tileX, width);
+        int tileHeight = tileHeight(tileY, height);
+        for (int y = 0; y < tileHeight; y++) {
+            int pixel = (tileY * TILE_SIZE + y) * width + tileX * TILE_SIZE;
+            int stored = offset + y * tileWidth;
+            System.arraycopy(image, pixel, row, 0, tileWidth);
+            System.arraycopy(storage, stored, image, pixel, tileWidth);
+            System.arraycopy(row, 0, storage, stored, tileWidth);
+        }
+    }
+
+    /**
+     * Moves the recorded pixels to a spill file; they are read back when the delta is restored.
+     *
+     * @param spillFile The file to write to.
+     * @throws IOException if the pixels cannot be written.
+     */
+    public void spill(SpillFile spillFile) throws IOException {
+        if (pixels != null) {
+            slot = spillFile.write(pixels);
+            file = spillFile;
+            pixels = null;
+        }
+    }
+
+    /**
+     * Frees the space of the spilled bytes in the spill file, if they were spilled,
+     * when they will not be needed anymore.
+     *
+     * @throws IOException if the file cannot be truncated.
+     */
+    public void discard() throws IOException {
+        if (file != null) {
+            file.discard(slot);
+            file = null;
+            slot = null;
+        }
+    }
+
+    /**
+     * Checks whether the recorded pixels are in a spill file rather than in memory.
+     *
+     * @return true if the delta was spilled.
+     */
+    public boolean isSpilled() {
+        return pixels == null;
+    }
+
+    /**
+     * Returns the number of tiles whose pixels are recorded.
+     *
+     * @return The number of changed tiles.
+     */
+    public int getChangedTileCount() {
+        return tiles.length;
+    }
+
+    /**
+     * Returns the number of tiles the image was divided into.
+     *
+     * @return The total number of tiles.
+     */
+    public int getTileCount() {
+        return ((width + TILE_SIZE - 1) / TILE_SIZE) * ((height + TILE_SIZE - 1) / TILE_SIZE);
+    }
+
+    /**
+     * Returns the size of the recorded pixels and tile indices, wherever they are held.
+     *
+     * @return The size of the delta in bytes.
+     */
+    public long getByteCount() {
+        return 4L * offsets[tiles.length] + 4L * (tiles.length + offsets.length);
+    }
+}
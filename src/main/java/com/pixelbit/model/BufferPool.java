@@ -0,0 +1,268 @@
+package com.pixelbit.model;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.WritableRaster;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * BufferPool recycles full-size BufferedImages so that repeated edits, such as slider
+ * previews, reuse the same pixel buffers instead of allocating new ones each time.
+ * Free buffers are grouped by width, height and image type. The pool holds at most
+ * a configurable number of bytes and evicts the least recently used sizes first.
+ * <p>
+ * Buffers handed out by {@link #acquire(int, int, int)} have undefined contents, so callers
+ * must overwrite every pixel. A buffer must only be released once nothing refers to it anymore.
+ */
+public final class BufferPool {
+
+    /** System property that sets the byte cap of the default pool. */
+    public static final String MAX_BYTES_PROPERTY = "pixelbit.bufferpool.maxBytes";
+    /** Byte cap of the default pool: 256 MiB, or a quarter of the heap if that is smaller. */
+    public static final long DEFAULT_MAX_BYTES = Math.min(256L * 1024 * 1024, Runtime.getRuntime().maxMemory() / 4);
+
+    private static final BufferPool DEFAULT = new BufferPool(Long.getLong(MAX_BYTES_PROPERTY, DEFAULT_MAX_BYTES));
+
+    // Free buffers by size, in access order so the eldest key is the least recently used
+    private final LinkedHashMap<Key, ArrayDeque<BufferedImage>> free = new LinkedHashMap<>(16, 0.75f, true);
+    // Identity set of the pooled buffers, to ignore double releases
+    private final Set<BufferedImage> pooled = Collections.newSetFromMap(new IdentityHashMap<>());
+    private long maxBytes; // Maximum number of bytes held by the pool
+    private long pooledBytes; // Number of bytes currently held by the pool
+    private long hits; // Acquisitions served from the pool
+    private long misses; // Acquisitions that allocated a new buffer
+    private long evictions; // Buffers dropped to stay under the byte cap
+
+    /**
+     * Size and type of a pooled buffer.
+     */
+    private record Key(int width, int height, int type) {
+    }
+
+    /**
+     * Constructs a pool that holds at most the given number of bytes.
+     *
+     * @param maxBytes The byte cap, 0 to disable pooling.
+     */
+    public BufferPool(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("Byte cap cannot be negative");
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the shared pool used by the filters and images.
+     *
+     * @return The default BufferPool.
+     */
+    public static BufferPool getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Returns a buffer of the given size and type, reusing a pooled one when available.
+     * The contents of the returned image are undefined.
+     *
+     * @param width  The width of the image.
+     * @param height The height of the image.
+     * @param type   The BufferedImage type, e.g. {@link BufferedImage#TYPE_INT_ARGB}.
+     * @return An image of the requested size and type.
+     */
+    public BufferedImage acquire(int width, int height, int type) {
+        synchronized (this) {
+            ArrayDeque<BufferedImage> buffers = free.get(new Key(width, height, type));
+            if (buffers != null && !buffers.isEmpty()) {
+                BufferedImage image = buffers.pop();
+                if (buffers.isEmpty()) {
+                    free.remove(new Key(width, height, type));
+                }
+                pooled.remove(image);
+                pooledBytes -= sizeOf(image);
+                hits++;
+                return image;
+            }
+            misses++;
+        }
+        return new BufferedImage(width, height, type);
+    }
+
+    /**
+     * Returns a copy of an image in a buffer of the same size and type, reusing a pooled one when available.
+     *
+     * @param source The image to copy.
+     * @return A copy of the image.
+     */
+    public BufferedImage acquireCopy(BufferedImage source) {
+        BufferedImage copy = acquire(source.getWidth(), source.getHeight(), source.getType());
+        Graphics2D graphics = copy.createGraphics();
+        try {
+            // Replace the undefined contents instead of blending over them
+            graphics.setComposite(AlphaComposite.Src);
+            graphics.drawImage(source, 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        return copy;
+    }
+
+    /**
+     * Returns a buffer to the pool so it can be handed out again.
+     * Images that are views into another image, or larger than the byte cap, are ignored.
+     *
+     * @param image The image to release, may be null.
+     */
+    public synchronized void release(BufferedImage image) {
+        if (image == null || !isPoolable(image) || pooled.contains(image)) {
+            return;
+        }
+        long size = sizeOf(image);
+        if (size > maxBytes) {
+            return;
+        }
+        free.computeIfAbsent(new Key(image.getWidth(), image.getHeight(), image.getType()), key -> new ArrayDeque<>())
+                .push(image);
+        pooled.add(image);
+        pooledBytes += size;
+        trimTo(maxBytes);
+    }
+
+    /**
+     * Returns a buffer to the pool unless the image produced from it still shares its pixels,
+     * as a cropped view does. Use this for the input of a step whose output may be a view.
+     *
+     * @param image  The image to release, may be null.
+     * @param result The image produced from it, which stays in use.
+     */
+    public void releaseUnlessShared(BufferedImage image, BufferedImage result) {
+        if (image != null && result != null
+                && image.getRaster().getDataBuffer() == result.getRaster().getDataBuffer()) {
+            return;
+        }
+        release(image);
+    }
+
+    /**
+     * Drops every pooled buffer.
+     */
+    public synchronized void clear() {
+        free.clear();
+        pooled.clear();
+        pooledBytes = 0;
+    }
+
+    /**
+     * Changes the byte cap, evicting buffers if the pool is now over it.
+     *
+     * @param maxBytes The new byte cap, 0 to disable pooling.
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("Byte cap cannot be negative");
+        }
+        this.maxBytes = maxBytes;
+        trimTo(maxBytes);
+    }
+
+    /**
+     * Returns the byte cap of the pool.
+     *
+     * @return The maximum number of bytes held by the pool.
+     */
+    public synchronized long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Returns the number of bytes held by the pooled buffers.
+     *
+     * @return The pooled byte count.
+     */
+    public synchronized long getPooledBytes() {
+        return pooledBytes;
+    }
+
+    /**
+     * Returns the number of acquisitions served from the pool.
+     *
+     * @return The hit count.
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of acquisitions that had to allocate a new buffer.
+     *
+     * @return The miss count.
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of buffers dropped to stay under the byte cap.
+     *
+     * @return The eviction count.
+     */
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    /**
+     * Returns the fraction of acquisitions served from the pool.
+     *
+     * @return The hit rate between 0 and 1, or 0 if nothing was acquired yet.
+     */
+    public synchronized double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Evicts the least recently used buffers until the pool holds at most the given number of bytes.
+     */
+    private void trimTo(long limit) {
+        Iterator<Map.Entry<Key, ArrayDeque<BufferedImage>>> iterator = free.entrySet().iterator();
+        while (pooledBytes > limit && iterator.hasNext()) {
+            ArrayDeque<BufferedImage> buffers = iterator.next().getValue();
+            while (pooledBytes > limit && !buffers.isEmpty()) {
+                BufferedImage image = buffers.removeLast();
+                pooled.remove(image);
+                pooledBytes -= sizeOf(image);
+                evictions++;
+            }
+            if (buffers.isEmpty()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Checks whether an image owns its whole raster and can be recreated from its type,
+     * so handing it out again is indistinguishable from a new image.
+     */
+    private static boolean isPoolable(BufferedImage image) {
+        WritableRaster raster = image.getRaster();
+        return image.getType() != BufferedImage.TYPE_CUSTOM
+                && raster.getParent() == null
+                && raster.getSampleModelTranslateX() == 0
+                && raster.getSampleModelTranslateY() == 0;
+    }
+
+    /**
+     * Returns the number of bytes used by the pixels of an image.
+     */
+    private static long sizeOf(BufferedImage image) {
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        return (long) buffer.getSize() * buffer.getNumBanks() * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+    }
+}
@@ -1,9 +1,13 @@
 package com.pixelbit.model;
 
 
+import com.pixelbit.model.filter.PixelAccess;
+import com.pixelbit.model.filter.PlanarImage;
+import com.pixelbit.model.filters.ResizeFilter;
 import javafx.scene.image.Image;
 import javafx.embed.swing.SwingFXUtils;
 import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
 
 
 /**
@@ -23,6 +27,11 @@ public class EditableImage {
     private String filename = DEFAULT_IMAGE_FILENAME;
     private String format = DEFAULT_IMAGE_FORMAT;
     final private long createdAt = System.currentTimeMillis();
+    private long version; // Incremented every time the pixels may have changed
+    private boolean highPrecision; // Whether point edits work on the planar float format
+    private PlanarImage planar; // High-precision pixels, null until needed or after an 8-bit edit
+    private boolean imageStale; // Whether image lags behind planar and must be quantized again
+    private BufferedImage proxy; // Original scaled down to the viewport, null until a preview needs it
 
     /**
      * Default constructor that initializes an empty EditableImage with a 1x1 pixel image.
@@ -79,8 +88,7 @@ public class EditableImage {
      * @return a new EditableImage object that is a deep copy of the current instance
      */
     public EditableImage deepCopy() {
-        BufferedImage deepCopy = new BufferedImage(image.getWidth(), image.getHeight(), image.getType());
-        deepCopy.getGraphics().drawImage(image,  0, 0, null);
+        BufferedImage deepCopy = BufferPool.getDefault().acquireCopy(getBufferedImage());
         return new EditableImage(deepCopy, filename, format);
     }
 
@@ -89,10 +97,11 @@ public class EditableImage {
      * @return true if the image is null or has a width or height of 1 pixel, false otherwise.
      */
     public boolean isEmpty() {
-        if (image == null) {
+        BufferedImage current = getBufferedImage();
+        if (current == null) {
             return true;
         }
-        return image.getWidth() == 1 || image.getHeight() == 1;
+        return current.getWidth() == 1 || current.getHeight() == 1;
     }
 
     /**
@@ -139,7 +148,7 @@ public class EditableImage {
      * @return the height of the image in pixels.
      */
     public int getHeight() {
-        return this.image.getHeight();
+        return getBufferedImage().getHeight();
     }
 
     /**
@@ -147,17 +156,86 @@ public class EditableImage {
      * @return the width of the image in pixels.
      */
     public int getWidth() {
-        return this.image.getWidth();
+        return getBufferedImage().getWidth();
     }
 
     /**
      * Returns the BufferedImage object representing the image.
+     * The image may be a view sharing its pixels with another image, so use
+     * {@link #getWritableImage()} to modify it. In high-precision mode this is the 8-bit
+     * quantization of the planar pixels, computed when first needed after an edit.
      * @return the BufferedImage instance of the image.
      */
     public BufferedImage getBufferedImage() {
+        if (imageStale) {
+            image = planar.toImage();
+            imageStale = false;
+        }
         return this.image;
     }
 
+    /**
+     * Switches the high-precision working format on or off. While it is on, filters that
+     * support it edit the planar float pixels returned by {@link #getPlanarImage()}, and
+     * the 8-bit image is only produced for display and saving. Turning it off keeps the
+     * quantized image.
+     * @param enabled true to work on planar float pixels, false to work on 8-bit pixels.
+     */
+    public void setHighPrecision(boolean enabled) {
+        if (!enabled) {
+            getBufferedImage();
+            planar = null;
+        }
+        highPrecision = enabled;
+    }
+
+    /**
+     * Checks whether the high-precision working format is on.
+     * @return true if point edits work on planar float pixels.
+     */
+    public boolean isHighPrecision() {
+        return highPrecision;
+    }
+
+    /**
+     * Returns the high-precision pixels of the image, unpacking the 8-bit image if it was
+     * edited since. The planes must not be modified unless the caller owns them, see
+     * {@link #markPlanarModified()}.
+     * @return the planar pixels, or null if high precision is off.
+     */
+    public PlanarImage getPlanarImage() {
+        if (!highPrecision) {
+            return null;
+        }
+        if (planar == null) {
+            planar = PlanarImage.fromImage(image);
+        }
+        return planar;
+    }
+
+    /**
+     * Replaces the high-precision pixels of the image. The 8-bit image is quantized from
+     * them the next time it is needed.
+     * @param planar the new planar pixels, with the same size as the image.
+     * @throws IllegalStateException if high precision is off.
+     */
+    public void setPlanarImage(PlanarImage planar) {
+        if (!highPrecision) {
+            throw new IllegalStateException("High precision is not enabled");
+        }
+        this.planar = planar;
+        imageStale = true;
+        version++;
+    }
+
+    /**
+     * Records that the planes returned by {@link #getPlanarImage()} were modified in place.
+     */
+    public void markPlanarModified() {
+        imageStale = true;
+        version++;
+    }
+
     /**
      * Converts the BufferedImage to a JavaFX Image.
      * This method is useful for displaying the image in JavaFX applications.
@@ -166,12 +244,13 @@ public class EditableImage {
      */
     public Image toJavaFXImage() {
         // Convert BufferedImage to JavaFX Image
-        if (this.image == null) {
+        BufferedImage current = getBufferedImage();
+        if (current == null) {
             return null; // Handle the case where the image is null
         }
         // Use SwingFXUtils to convert BufferedImage to JavaFX Image
 
-        return SwingFXUtils.toFXImage(this.image, null);
+        return SwingFXUtils.toFXImage(current, null);
     }
 
     /**
@@ -182,6 +261,29 @@ public class EditableImage {
      */
     public void setImage(BufferedImage image) {
         this.image = image;
+        // The planes are unpacked again from the new image when next needed
+        planar = null;
+        imageStale = false;
+        version++;
+    }
+
+    /**
+     * Returns a counter that changes every time the pixels of the image may have changed.
+     * Results derived from the pixels, such as histograms, can be cached against it.
+     * @return the current version of the image.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Records that the pixels of the current image were modified in place.
+     * Code that writes to the image returned by {@link #getBufferedImage()} directly,
+     * instead of going through {@link #setImage(BufferedImage)}, must call this afterwards.
+     */
+    public void markModified() {
+        planar = null;
+        version++;
     }
 
     /**
@@ -191,7 +293,7 @@ public class EditableImage {
      * @return the RGB value of the pixel at (x, y)
      */
     public int getRGB(int x, int y) {
-        return image.getRGB(x, y);
+        return getBufferedImage().getRGB(x, y);
     }
 
     /**
@@ -201,7 +303,34 @@ public class EditableImage {
      * @param value the RGB value to set for the pixel
      */
     public void setRGB(int x, int y, int value) {
-        image.setRGB(x, y, value);
+        getWritableImage().setRGB(x, y, value);
+    }
+
+    /**
+     * Checks whether the image is a view that shares its pixels with another image, such as a crop.
+     * @return true if the image is a view, false if it owns its pixels.
+     */
+    public boolean isView() {
+        BufferedImage current = getBufferedImage();
+        return current != null && current.getRaster().getParent() != null;
+    }
+
+    /**
+     * Returns the image for writing. If the image is a view sharing its pixels with another
+     * image, such as an undo state, it is first copied into a buffer of its own so the write
+     * does not show through in the shared image.
+     * @return the BufferedImage instance of the image, safe to modify.
+     */
+    public BufferedImage getWritableImage() {
+        if (isView()) {
+            WritableRaster pixels = image.getRaster().createCompatibleWritableRaster(image.getWidth(), image.getHeight());
+            pixels.setRect(image.getRaster());
+            image = new BufferedImage(image.getColorModel(), pixels, image.isAlphaPremultiplied(), null);
+        }
+        // The caller is about to write to the image
+        planar = null;
+        version++;
+        return image;
     }
 
     /**
@@ -220,7 +349,79 @@ public class EditableImage {
      * This method restores the image to the state it was in when this EditableImage was created.
      */
     public void resetToOriginal() {
-        this.image = new BufferedImage(originalImage.getWidth(), originalImage.getHeight(), originalImage.getType());
-        this.image.getGraphics().drawImage(originalImage, 0, 0, null);
+        this.image = BufferPool.getDefault().acquireCopy(originalImage);
+        planar = null;
+        imageStale = false;
+        version++;
+    }
+
+    /**
+     * Resets the current image to a TYPE_INT_ARGB copy of the original image.
+     * Filters produce and work in place on that type, so edits applied right after the
+     * reset, such as slider previews, can overwrite the copy instead of allocating another one.
+     */
+    void resetToWorkingCopy() {
+        this.image = argbCopyOfOriginal();
+        planar = null;
+        imageStale = false;
+        version++;
+    }
+
+    /**
+     * Creates an image holding the same TYPE_INT_ARGB copy of the original image as
+     * {@link #resetToWorkingCopy()}, without changing this image. Only the original image is
+     * read, and it never changes, so previews can be rendered into the copy on another thread.
+     *
+     * @return a new EditableImage that owns the copy.
+     */
+    EditableImage createWorkingCopy() {
+        return new EditableImage(argbCopyOfOriginal(), filename, format);
+    }
+
+    /**
+     * Creates a working copy of the original image scaled down to fit within the given size,
+     * such as the viewport the image is shown in, so interactive previews filter only as many
+     * pixels as can be seen. The scaled-down original is area-averaged, as the view does when
+     * it shows the full image at that size, and is kept for the next preview at the same size.
+     *
+     * @param maxWidth  the width to fit in, or 0 or less for the full size.
+     * @param maxHeight the height to fit in, or 0 or less for the full size.
+     * @return a new EditableImage that owns the copy, the same as {@link #createWorkingCopy()}
+     * if the original already fits.
+     */
+    EditableImage createProxyCopy(int maxWidth, int maxHeight) {
+        int width = originalImage.getWidth();
+        int height = originalImage.getHeight();
+        if (maxWidth <= 0 || maxHeight <= 0 || (width <= maxWidth && height <= maxHeight)) {
+            return createWorkingCopy();
+        }
+        double scale = Math.min((double) maxWidth / width, (double) maxHeight / height);
+        int proxyWidth = Math.max(1, (int) Math.round(width * scale));
+        int proxyHeight = Math.max(1, (int) Math.round(height * scale));
+        BufferedImage copy = PixelAccess.borrowArgb(proxyWidth, proxyHeight);
+        synchronized (this) {
+            if (proxy == null || proxy.getWidth() != proxyWidth || proxy.getHeight() != proxyHeight) {
+                if (proxy != null) {
+                    // The viewport was resized, and nothing else refers to the old proxy
+                    BufferPool.getDefault().release(proxy);
+                }
+                proxy = new ResizeFilter(proxyWidth, proxyHeight).apply(originalImage);
+            }
+            System.arraycopy(PixelAccess.readPixels(proxy), 0, PixelAccess.data(copy), 0, proxyWidth * proxyHeight);
+        }
+        return new EditableImage(copy, filename, format);
+    }
+
+    private BufferedImage argbCopyOfOriginal() {
+        int width = originalImage.getWidth();
+        int height = originalImage.getHeight();
+        BufferedImage copy = PixelAccess.borrowArgb(width, height);
+        int[] data = PixelAccess.data(copy);
+        if (PixelAccess.isDirect(originalImage)) {
+            System.arraycopy(PixelAccess.data(originalImage), 0, data, 0, data.length);
+        } else {
+            originalImage.getRGB(0, 0, width, height, data, 0, width);
+        }
+        return copy;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,196 @@
+package com.pixelbit.model;
+
+import com.pixelbit.model.filter.FilterExecutor;
+import com.pixelbit.model.filter.PixelAccess;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Histogram holds the number of pixels at each of the 256 levels of the red, green
+ * and blue channels and of the luminance of an image. Luminance uses the same
+ * luminosity weights as the grayscale filter (0.299 red, 0.587 green, 0.114 blue).
+ * <p>
+ * {@link #compute(BufferedImage, FilterExecutor)} counts each band of rows into a
+ * partial histogram of its own, so threads never contend on shared counters, and
+ * merges the partial histograms once at the end. Histograms are immutable.
+ */
+public final class Histogram {
+
+    /** Number of levels per channel. */
+    public static final int LEVELS = PixelAccess.MAX_CHANNEL_VALUE + 1;
+
+    /**
+     * The channels counted by a histogram.
+     */
+    public enum Channel {
+        RED,
+        GREEN,
+        BLUE,
+        LUMINANCE
+    }
+
+    private static final int CHANNELS = Channel.values().length;
+
+    private final int[] counts; // Counts of all channels, LEVELS entries per channel in Channel order
+    private final long pixelCount; // Number of pixels counted
+
+    private Histogram(int[] counts, long pixelCount) {
+        this.counts = counts;
+        this.pixelCount = pixelCount;
+    }
+
+    /**
+     * Computes the histogram of an image, in parallel bands on large images.
+     *
+     * @param image    The image to count.
+     * @param executor The executor that runs the bands.
+     * @return The histogram of the image.
+     */
+    public static Histogram compute(BufferedImage image, FilterExecutor executor) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = PixelAccess.readPixels(image);
+        int[] counts = new int[CHANNELS * LEVELS];
+        executor.forEachBand(width, height, (startRow, endRow) -> {
+            int[] partial = new int[CHANNELS * LEVELS];
+            countPixels(pixels, startRow * width, endRow * width, partial);
+            synchronized (counts) {
+                for (int i = 0; i < partial.length; i++) {
+                    counts[i] += partial[i];
+                }
+            }
+        });
+        return new Histogram(counts, (long) width * height);
+    }
+
+    /**
+     * Computes the histogram of an image using the default executor.
+     *
+     * @param image The image to count.
+     * @return The histogram of the image.
+     */
+    public static Histogram compute(BufferedImage image) {
+        return compute(image, FilterExecutor.getDefault());
+    }
+
+    private static void countPixels(int[] pixels, int from, int to, int[] counts) {
+        int green = LEVELS;
+        int blue = 2 * LEVELS;
+        int luminance = 3 * LEVELS;
+        for (int i = from; i < to; i++) {
+            int argb = pixels[i];
+            int r = (argb >> 16) & 0xFF;
+            int g = (argb >> 8) & 0xFF;
+            int b = argb & 0xFF;
+            counts[r]++;
+            counts[green + g]++;
+            counts[blue + b]++;
+            counts[luminance + luminance(r, g, b)]++;
+        }
+    }
+
+    /**
+     * Returns the luminance level of a color, rounded to the nearest level.
+     *
+     * @param red   The red channel (0-255).
+     * @param green The green channel (0-255).
+     * @param blue  The blue channel (0-255).
+     * @return The luminance (0-255).
+     */
+    public static int luminance(int red, int green, int blue) {
+        return (299 * red + 587 * green + 114 * blue + 500) / 1000;
+    }
+
+    /**
+     * Returns the number of pixels at a level of a channel.
+     *
+     * @param channel The channel.
+     * @param level   The level (0-255).
+     * @return The number of pixels.
+     */
+    public int getCount(Channel channel, int level) {
+        if (level < 0 || level >= LEVELS) {
+            throw new IllegalArgumentException("Invalid level: " + level);
+        }
+        return counts[channel.ordinal() * LEVELS + level];
+    }
+
+    /**
+     * Returns the counts of a channel.
+     *
+     * @param channel The channel.
+     * @return A copy of the 256 counts of the channel.
+     */
+    public int[] getCounts(Channel channel) {
+        int[] copy = new int[LEVELS];
+        System.arraycopy(counts, channel.ordinal() * LEVELS, copy, 0, LEVELS);
+        return copy;
+    }
+
+    /**
+     * Returns the cumulative counts of a channel: entry i is the number of pixels at level i or below.
+     *
+     * @param channel The channel.
+     * @return The 256 cumulative counts of the channel.
+     */
+    public long[] getCumulativeCounts(Channel channel) {
+        long[] cumulative = new long[LEVELS];
+        long sum = 0;
+        int offset = channel.ordinal() * LEVELS;
+        for (int i = 0; i < LEVELS; i++) {
+            sum += counts[offset + i];
+            cumulative[i] = sum;
+        }
+        return cumulative;
+    }
+
+    /**
+     * Returns the lowest level of a channel at or below which at least the given fraction of pixels lie.
+     *
+     * @param channel  The channel.
+     * @param fraction The fraction of pixels, between 0 and 1.
+     * @return The level (0-255).
+     */
+    public int percentile(Channel channel, double fraction) {
+        if (!(fraction >= 0 && fraction <= 1)) {
+            throw new IllegalArgumentException("Fraction must be between 0 and 1: " + fraction);
+        }
+        long target = Math.max(1, (long) Math.ceil(fraction * pixelCount));
+        long sum = 0;
+        int offset = channel.ordinal() * LEVELS;
+        for (int i = 0; i < LEVELS; i++) {
+            sum += counts[offset + i];
+            if (sum >= target) {
+                return i;
+            }
+        }
+        return LEVELS - 1;
+    }
+
+    /**
+     * Returns the mean level of a channel.
+     *
+     * @param channel The channel.
+     * @return The mean level, 0 for an empty histogram.
+     */
+    public double mean(Channel channel) {
+        if (pixelCount == 0) {
+            return 0;
+        }
+        long sum = 0;
+        int offset = channel.ordinal() * LEVELS;
+        for (int i = 0; i < LEVELS; i++) {
+            sum += (long) i * counts[offset + i];
+        }
+        return (double) sum / pixelCount;
+    }
+
+    /**
+     * Returns the number of pixels counted.
+     *
+     * @return The pixel count.
+     */
+    public long getPixelCount() {
+        return pixelCount;
+    }
+}
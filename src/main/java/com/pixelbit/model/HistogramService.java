@@ -0,0 +1,96 @@
+package com.pixelbit.model;
+
+import com.pixelbit.model.filter.FilterExecutor;
+
+import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * HistogramService computes and caches the histograms of editable images.
+ * A cached histogram is reused until the image is replaced or modified, which is
+ * detected through the image version, so asking for the histogram of an unchanged
+ * image, for example on every repaint of a histogram panel, costs nothing.
+ */
+public final class HistogramService {
+
+    private static final HistogramService DEFAULT = new HistogramService(FilterExecutor.getDefault());
+
+    // Last histogram of each image; images that are no longer used drop out on their own
+    private final Map<EditableImage, Entry> cache = new WeakHashMap<>();
+    private final FilterExecutor executor; // Executor that counts the bands
+    private long hits; // Requests served from the cache
+    private long computations; // Histograms computed
+
+    /**
+     * Cached histogram and the state of the image it was computed from.
+     */
+    private record Entry(BufferedImage image, long version, Histogram histogram) {
+    }
+
+    /**
+     * Constructs a histogram service.
+     *
+     * @param executor The executor that computes the histograms.
+     */
+    public HistogramService(FilterExecutor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Returns the shared histogram service.
+     *
+     * @return The default service.
+     */
+    public static HistogramService getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Returns the histogram of the current state of an image, computing it if the image
+     * changed since the last request.
+     *
+     * @param image The image.
+     * @return The histogram of the image.
+     */
+    public synchronized Histogram getHistogram(EditableImage image) {
+        BufferedImage current = image.getBufferedImage();
+        long version = image.getVersion();
+        Entry entry = cache.get(image);
+        if (entry != null && entry.image() == current && entry.version() == version) {
+            hits++;
+            return entry.histogram();
+        }
+        Histogram histogram = Histogram.compute(current, executor);
+        computations++;
+        cache.put(image, new Entry(current, version, histogram));
+        return histogram;
+    }
+
+    /**
+     * Drops the cached histogram of an image.
+     *
+     * @param image The image.
+     */
+    public synchronized void invalidate(EditableImage image) {
+        cache.remove(image);
+    }
+
+    /**
+     * Returns the number of requests served from the cache.
+     *
+     * @return The hit count.
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of histograms computed.
+     *
+     * @return The computation count.
+     */
+    public synchronized long getComputationCount() {
+        return computations;
+    }
+}
@@ -3,8 +3,12 @@ package com.pixelbit.model;
 import com.pixelbit.command.ApplyFilterCommand;
 import com.pixelbit.command.CommandManager;
 import com.pixelbit.command.PBCommand;
+import com.pixelbit.command.history.CheckpointPolicy;
+import com.pixelbit.command.history.SnapshotCompressor;
 import com.pixelbit.exception.CommandExecException;
+import com.pixelbit.model.filter.FilterExecutor;
 import com.pixelbit.model.filter.FilterFactory;
+import com.pixelbit.model.filter.FilterType;
 import com.pixelbit.util.ImageUtility;
 
 import java.awt.image.BufferedImage;
@@ -25,6 +29,12 @@ public class PBModel {
     // isModified is set to true when an edit is applied
     // and reset to false when the image is loaded, replaced, or saved.
     private boolean isModified = false;
+    // Result of the last replaceEdit while it is still the current image and nothing else refers to it
+    private BufferedImage previewImage;
+    // Image produced by the command history before the first preview replaced it, restored before undo or redo
+    private BufferedImage committedImage;
+    // Whether edits work on the high-precision planar format, kept across image loads
+    private boolean highPrecision = false;
 
     /**
      * Default constructor initializes an empty model with a blank image.
@@ -66,11 +76,95 @@ public class PBModel {
      * @throws CommandExecException if the command execution fails
      */
     public void replaceEdit(PBCommand command) throws CommandExecException {
-        image.resetToOriginal();
-        command.execute();
+        dropPreview();
+        image.resetToWorkingCopy();
+        // The reset image is a fresh copy that nothing else refers to, so the command
+        // may overwrite it and skip its undo snapshot
+        command.executeWithoutUndo();
+        previewImage = image.getBufferedImage();
         // Don't add to command history since we're just updating the current state
     }
 
+    /**
+     * Prepares the rendering of a filter preview, for {@link #showPreview(EditableImage, BufferedImage)}.
+     * The task captures the current image and filters a copy of its original, like
+     * {@link #replaceEdit(PBCommand)}, without changing the model, so it can run on a
+     * background thread while the user keeps moving a slider. The filter stops between
+     * bands of rows once the render is cancelled.
+     *
+     * @param filterType the filter to preview
+     * @param parameters the parameters of the filter
+     * @return the task that renders the preview
+     */
+    public PreviewRenderer.Render previewTask(FilterType filterType, Map<String, Object> parameters) {
+        return previewTask(filterType, parameters, 0, 0);
+    }
+
+    /**
+     * Prepares the rendering of a filter preview scaled down to fit within the given size,
+     * for showing while a slider is dragged. Point filters give the same colors on the
+     * scaled-down original as on the full image, so the preview matches the full-size
+     * render that replaces it once the slider is released.
+     *
+     * @param filterType the filter to preview
+     * @param parameters the parameters of the filter
+     * @param maxWidth   the width the preview must fit in, such as the viewport, or 0 for the full size
+     * @param maxHeight  the height the preview must fit in, or 0 for the full size
+     * @return the task that renders the preview
+     */
+    public PreviewRenderer.Render previewTask(FilterType filterType, Map<String, Object> parameters,
+                                               int maxWidth, int maxHeight) {
+        EditableImage source = image;
+        FilterFactory filterFactory = getFilterFactory();
+        return cancelled -> {
+            EditableImage working = source.createProxyCopy(maxWidth, maxHeight);
+            FilterExecutor executor = FilterExecutor.getDefault().withCancellation(cancelled);
+            try {
+                new ApplyFilterCommand(working, filterFactory, executor, filterType, parameters).executeWithoutUndo();
+            } catch (CommandExecException e) {
+                // Nothing else refers to the unfinished copy
+                BufferPool.getDefault().release(working.getBufferedImage());
+                throw e;
+            }
+            return working.getBufferedImage();
+        };
+    }
+
+    /**
+     * Shows a preview rendered by a {@link #previewTask} as the current image, outside the
+     * history, as {@link #replaceEdit(PBCommand)} does. A preview of an image that was
+     * replaced since, for example by loading another file, is dropped.
+     *
+     * @param source  the image the preview was rendered for
+     * @param preview the rendered preview; the model takes it over
+     * @return true if the preview is now the current image
+     */
+    public boolean showPreview(EditableImage source, BufferedImage preview) {
+        if (source != image) {
+            BufferPool.getDefault().release(preview);
+            return false;
+        }
+        dropPreview();
+        image.setImage(preview);
+        previewImage = preview;
+        return true;
+    }
+
+    /**
+     * Releases the shown preview, which is about to be replaced by the next one, and remembers
+     * the image the history produced if no preview was shown yet.
+     */
+    private void dropPreview() {
+        if (image.getBufferedImage() == previewImage) {
+            // The previous preview is about to be replaced, so its buffer can serve the next one
+            BufferPool.getDefault().release(previewImage);
+        }
+        previewImage = null;
+        if (committedImage == null) {
+            committedImage = image.getBufferedImage();
+        }
+    }
+
     /**
      * Returns the CommandManager associated with this model.
      *
@@ -137,16 +231,35 @@ public class PBModel {
      * @param command the command to apply
      */
     public void applyEdit(PBCommand command) {
+        previewImage = null; // The command may keep the preview as its undo state
+        committedImage = null; // The preview becomes part of the history
         commandManager.executeCommand(command);
 
         isModified = true;
     }
 
+    /**
+     * Puts back the original image and clears the command history, dropping any preview.
+     */
+    public void resetToOriginal() {
+        BufferedImage current = image.getBufferedImage();
+        image.resetToOriginal();
+        if (current == previewImage) {
+            BufferPool.getDefault().release(current);
+        }
+        previewImage = null;
+        committedImage = null;
+        commandManager.clearHistory();
+    }
+
     /**
      * Undoes the last command applied to the image.
      * If there are no commands to undo, this method does nothing.
      */
     public void undo() {
+        if (commandManager.canUndo()) {
+            restoreCommittedImage();
+        }
         commandManager.undo();
     }
 
@@ -155,9 +268,29 @@ public class PBModel {
      * If there are no commands to redo, this method does nothing.
      */
     public void redo() {
+        if (commandManager.canRedo()) {
+            restoreCommittedImage();
+        }
         commandManager.redo();
     }
 
+    /**
+     * Drops the preview, if one is shown, and puts back the image the history last produced.
+     * Commands that undo by changing the current image, through an inverse filter or a tile
+     * delta, rely on the current image being the one they produced.
+     */
+    private void restoreCommittedImage() {
+        if (committedImage != null) {
+            BufferedImage current = image.getBufferedImage();
+            image.setImage(committedImage);
+            if (current == previewImage) {
+                BufferPool.getDefault().release(current);
+            }
+            committedImage = null;
+        }
+        previewImage = null;
+    }
+
     /**
      * Checks if there are commands that can be undone.
      *
@@ -176,6 +309,95 @@ public class PBModel {
         return commandManager.canRedo();
     }
 
+    /**
+     * Sets the memory budget of the undo history. Older undo states beyond it are
+     * moved to a spill file on disk and read back when undo reaches them.
+     *
+     * @param maxBytes the budget in bytes
+     */
+    public void setMaxHistoryBytes(long maxBytes) {
+        commandManager.setMaxHistoryBytes(maxBytes);
+    }
+
+    /**
+     * Returns the memory held by the undo history.
+     *
+     * @return the number of bytes of undo states held in memory
+     */
+    public long getHistoryMemoryBytes() {
+        return commandManager.getHistoryMemoryBytes();
+    }
+
+    /**
+     * Returns the size of the undo history spilled to disk.
+     *
+     * @return the number of bytes of undo states held in the spill file
+     */
+    public long getHistorySpilledBytes() {
+        return commandManager.getHistorySpilledBytes();
+    }
+
+    /**
+     * Returns the fraction of redos that put back the result kept when the edit was undone,
+     * instead of applying the edit again.
+     *
+     * @return the hit rate between 0 and 1, or 0 if nothing was redone yet
+     */
+    public double getRedoCacheHitRate() {
+        return commandManager.getRedoCacheHitRate();
+    }
+
+    /**
+     * Sets the policy that decides which edits keep a full image of the state before them.
+     * Undo rebuilds the other states by replaying edits from the nearest checkpoint.
+     *
+     * @param policy the policy, or null to keep an image for every edit
+     */
+    public void setCheckpointPolicy(CheckpointPolicy policy) {
+        commandManager.setCheckpointPolicy(policy);
+    }
+
+    /**
+     * Returns the compressor of the undo history, whose statistics report the
+     * compression ratio and the time spent compressing and decompressing.
+     *
+     * @return the compressor, or null if the history is kept uncompressed
+     */
+    public SnapshotCompressor getHistoryCompressor() {
+        return commandManager.getSnapshotCompressor();
+    }
+
+    /**
+     * Switches the high-precision working format on or off. While it is on, point filters
+     * and chains of them keep fractional channel values between edits, and the image is
+     * only rounded to 8 bits for display and saving.
+     *
+     * @param enabled true to edit in high precision
+     */
+    public void setHighPrecision(boolean enabled) {
+        highPrecision = enabled;
+        image.setHighPrecision(enabled);
+    }
+
+    /**
+     * Checks whether edits work on the high-precision planar format.
+     *
+     * @return true if high precision is on
+     */
+    public boolean isHighPrecision() {
+        return highPrecision;
+    }
+
+    /**
+     * Returns the histogram of the current image.
+     * The histogram is cached until the image changes, so repeated calls are cheap.
+     *
+     * @return the histogram of the current image
+     */
+    public Histogram getHistogram() {
+        return HistogramService.getDefault().getHistogram(image);
+    }
+
     /**
      * Returns the FilterFactory used by the CommandManager.
      *
@@ -193,6 +415,9 @@ public class PBModel {
      */
     private void load(String path) throws IOException {
         image = ImageUtility.loadFromFile(path);
+        image.setHighPrecision(highPrecision);
+        previewImage = null;
+        committedImage = null;
         commandManager.clearHistory();
         resetModifiedFlag();
     }
@@ -205,6 +430,9 @@ public class PBModel {
      */
     private void load(File file) throws IOException {
         image = ImageUtility.loadFromFile(file);
+        image.setHighPrecision(highPrecision);
+        previewImage = null;
+        committedImage = null;
         commandManager.clearHistory();
         resetModifiedFlag();
     }
@@ -0,0 +1,198 @@
+package com.pixelbit.model;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * PreviewRenderer renders slider previews on a background thread, so dragging a slider over
+ * a large image does not freeze the UI. Requests that arrive within the debounce delay of
+ * each other are coalesced into the latest one, a request that has not started yet is
+ * cancelled when a newer one arrives, and a render that is already running is told to stop
+ * through its cancellation check; whatever it still produces is dropped. Only the result of
+ * the newest request is published, on the publishing executor, which is normally the UI thread.
+ * <p>
+ * Renders run one at a time, so a stale render delays the newest one only until it
+ * notices it was cancelled, after its current band of rows.
+ */
+public final class PreviewRenderer {
+
+    /**
+     * Renders a preview on the background thread.
+     */
+    @FunctionalInterface
+    public interface Render {
+        /**
+         * Renders the preview.
+         *
+         * @param cancelled Returns true once a newer request made this render useless; the
+         *                  render should stop then, for example by filtering on an executor
+         *                  made with {@link com.pixelbit.model.filter.FilterExecutor#withCancellation}.
+         * @return The preview, a new image that nothing else refers to.
+         * @throws Exception if the render fails or stops because it was cancelled.
+         */
+        BufferedImage render(BooleanSupplier cancelled) throws Exception;
+    }
+
+    /** Delay before a request is rendered, during which a newer request replaces it. */
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 30;
+
+    private static final ScheduledExecutorService DEFAULT_SCHEDULER = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "pixelbit-preview");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ScheduledExecutorService scheduler; // Runs the renders, one at a time
+    private final Executor publisher; // Runs the publishing callbacks, normally on the UI thread
+    private final long debounceMillis; // Delay before a request is rendered
+    private long generation; // Number of the newest request; older ones are stale
+    private Future<?> pending; // Render of the newest request, until it starts
+    private long renders; // Renders run
+    private long published; // Renders published
+    private long discarded; // Requests cancelled or rendered too late to be published
+
+    /**
+     * Constructs a renderer that renders on a shared background thread.
+     *
+     * @param publisher The executor that publishes the results, for example {@code Platform::runLater}.
+     */
+    public PreviewRenderer(Executor publisher) {
+        this(DEFAULT_SCHEDULER, publisher, DEFAULT_DEBOUNCE_MILLIS);
+    }
+
+    /**
+     * Constructs a renderer.
+     *
+     * @param scheduler      The executor that runs the renders; it should have a single thread.
+     * @param publisher      The executor that publishes the results.
+     * @param debounceMillis The delay before a request is rendered, 0 to render right away.
+     */
+    public PreviewRenderer(ScheduledExecutorService scheduler, Executor publisher, long debounceMillis) {
+        if (debounceMillis < 0) {
+            throw new IllegalArgumentException("Debounce delay cannot be negative");
+        }
+        this.scheduler = scheduler;
+        this.publisher = publisher;
+        this.debounceMillis = debounceMillis;
+    }
+
+    /**
+     * Requests a preview, replacing any earlier request that was not published yet.
+     *
+     * @param render  Renders the preview on the background thread.
+     * @param publish Called on the publishing executor with the result, if no newer request arrived.
+     * @param onError Called on the publishing executor if the render fails, if no newer request arrived.
+     */
+    public synchronized void request(Render render, Consumer<BufferedImage> publish,
+                                     Consumer<Exception> onError) {
+        long request = ++generation;
+        cancelPending();
+        pending = scheduler.schedule(() -> run(request, render, publish, onError), debounceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Cancels the request not published yet, for example before an edit that the preview would hide.
+     */
+    public synchronized void cancel() {
+        generation++;
+        cancelPending();
+    }
+
+    private void cancelPending() {
+        // A running render is not interrupted; it sees the newer generation through its
+        // cancellation check and stops after its current band
+        if (pending != null && pending.cancel(false)) {
+            discarded++;
+        }
+        pending = null;
+    }
+
+    private void run(long request, Render render, Consumer<BufferedImage> publish,
+                     Consumer<Exception> onError) {
+        synchronized (this) {
+            if (request != generation) {
+                return;
+            }
+            pending = null;
+            renders++;
+        }
+        BufferedImage preview;
+        try {
+            preview = render.render(() -> !isCurrent(request));
+        } catch (Exception e) {
+            if (!isCurrent(request)) {
+                // Stopped by its cancellation check, or failed after it was no longer wanted
+                synchronized (this) {
+                    discarded++;
+                }
+                return;
+            }
+            publisher.execute(() -> {
+                if (isCurrent(request)) {
+                    onError.accept(e);
+                }
+            });
+            return;
+        }
+        if (!isCurrent(request)) {
+            discard(preview);
+            return;
+        }
+        publisher.execute(() -> {
+            if (isCurrent(request)) {
+                synchronized (this) {
+                    published++;
+                }
+                publish.accept(preview);
+            } else {
+                discard(preview);
+            }
+        });
+    }
+
+    private synchronized boolean isCurrent(long request) {
+        return request == generation;
+    }
+
+    private void discard(BufferedImage preview) {
+        synchronized (this) {
+            discarded++;
+        }
+        // Nothing else refers to a stale preview, so its buffer can serve the next render
+        BufferPool.getDefault().release(preview);
+    }
+
+    /**
+     * Returns the number of renders run.
+     *
+     * @return The render count.
+     */
+    public synchronized long getRenderCount() {
+        return renders;
+    }
+
+    /**
+     * Returns the number of renders published.
+     *
+     * @return The published count.
+     */
+    public synchronized long getPublishedCount() {
+        return published;
+    }
+
+    /**
+     * Returns the number of requests cancelled before they were rendered, or rendered after a
+     * newer request arrived.
+     *
+     * @return The discarded count.
+     */
+    public synchronized long getDiscardedCount() {
+        return discarded;
+    }
+}
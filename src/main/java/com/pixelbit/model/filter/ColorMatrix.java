@@ -0,0 +1,227 @@
+package com.pixelbit.model.filter;
+
+import java.util.Arrays;
+
+/**
+ * ColorMatrix is an immutable 3x4 matrix describing a linear color transform.
+ * Each output channel is a weighted sum of the input red, green and blue channels
+ * plus a constant offset, all in 0-255 channel units:
+ * <pre>
+ *   r' = m[0] * r + m[1] * g + m[2]  * b + m[3]
+ *   g' = m[4] * r + m[5] * g + m[6]  * b + m[7]
+ *   b' = m[8] * r + m[9] * g + m[10] * b + m[11]
+ * </pre>
+ * Two transforms applied one after the other are combined with {@link #then(ColorMatrix)}.
+ */
+public final class ColorMatrix {
+
+    /** Number of entries in a 3x4 matrix. */
+    public static final int SIZE = 12;
+    /** Largest absolute weight accepted, which keeps the fixed-point kernel within int range. */
+    public static final double MAX_WEIGHT = 32.0;
+    /** Largest absolute offset accepted, in channel units. */
+    public static final double MAX_OFFSET = 1024.0;
+    /** Largest value of a channel. */
+    private static final double MAX_CHANNEL_VALUE = 255.0;
+
+    /** Luminosity weights used for grayscale conversion and saturation. */
+    public static final double RED_LUMINANCE = 0.299;
+    public static final double GREEN_LUMINANCE = 0.587;
+    public static final double BLUE_LUMINANCE = 0.114;
+
+    private final double[] m; // Row-major 3x4 entries
+
+    /**
+     * Constructs a color matrix from its 12 row-major entries.
+     *
+     * @param entries The matrix entries.
+     * @throws IllegalArgumentException if there are not 12 entries or an entry is out of range.
+     */
+    public ColorMatrix(double... entries) {
+        if (entries == null || entries.length != SIZE) {
+            throw new IllegalArgumentException("A color matrix needs " + SIZE + " entries");
+        }
+        int invalid = firstEntryOutOfRange(entries);
+        if (invalid >= 0) {
+            throw new IllegalArgumentException("Color matrix entry " + invalid + " is out of range: " + entries[invalid]);
+        }
+        this.m = entries.clone();
+    }
+
+    /**
+     * Returns the index of the first entry that is not finite or exceeds its limit, or -1 if there is none.
+     */
+    private static int firstEntryOutOfRange(double[] entries) {
+        for (int i = 0; i < SIZE; i++) {
+            double limit = i % 4 == 3 ? MAX_OFFSET : MAX_WEIGHT;
+            if (!Double.isFinite(entries[i]) || Math.abs(entries[i]) > limit) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the identity transform.
+     *
+     * @return A matrix that leaves every color unchanged.
+     */
+    public static ColorMatrix identity() {
+        return new ColorMatrix(
+                1, 0, 0, 0,
+                0, 1, 0, 0,
+                0, 0, 1, 0);
+    }
+
+    /**
+     * Returns the luminosity grayscale transform.
+     *
+     * @return A matrix that replaces every channel with the perceived brightness.
+     */
+    public static ColorMatrix grayscale() {
+        return new ColorMatrix(
+                RED_LUMINANCE, GREEN_LUMINANCE, BLUE_LUMINANCE, 0,
+                RED_LUMINANCE, GREEN_LUMINANCE, BLUE_LUMINANCE, 0,
+                RED_LUMINANCE, GREEN_LUMINANCE, BLUE_LUMINANCE, 0);
+    }
+
+    /**
+     * Returns the classic sepia tone transform.
+     *
+     * @return A matrix that gives the image a warm brown tone.
+     */
+    public static ColorMatrix sepia() {
+        return new ColorMatrix(
+                0.393, 0.769, 0.189, 0,
+                0.349, 0.686, 0.168, 0,
+                0.272, 0.534, 0.131, 0);
+    }
+
+    /**
+     * Returns a saturation transform that blends each color with its luminosity.
+     *
+     * @param saturation 0 for grayscale, 1 for no change, above 1 to boost colors.
+     * @return The saturation matrix.
+     */
+    public static ColorMatrix saturation(double saturation) {
+        double inverse = 1 - saturation;
+        double r = RED_LUMINANCE * inverse;
+        double g = GREEN_LUMINANCE * inverse;
+        double b = BLUE_LUMINANCE * inverse;
+        return new ColorMatrix(
+                r + saturation, g, b, 0,
+                r, g + saturation, b, 0,
+                r, g, b + saturation, 0);
+    }
+
+    /**
+     * Returns a channel mixer where each output channel is a weighted sum of the input channels.
+     *
+     * @param red   Weights of the input red, green and blue channels for the output red channel.
+     * @param green Weights of the input red, green and blue channels for the output green channel.
+     * @param blue  Weights of the input red, green and blue channels for the output blue channel.
+     * @return The channel mixing matrix.
+     */
+    public static ColorMatrix channelMixer(double[] red, double[] green, double[] blue) {
+        return new ColorMatrix(
+                red[0], red[1], red[2], 0,
+                green[0], green[1], green[2], 0,
+                blue[0], blue[1], blue[2], 0);
+    }
+
+    /**
+     * Returns the transform that applies this matrix first and then the given one.
+     *
+     * @param next The transform applied after this one.
+     * @return The product next * this.
+     */
+    public ColorMatrix then(ColorMatrix next) {
+        return new ColorMatrix(multiply(next));
+    }
+
+    /**
+     * Checks whether applying this matrix and then the given one is the same as applying
+     * their product. That holds when this matrix maps every color with channels in 0-255
+     * to channels in 0-255, so the clamp between the two steps never changes anything,
+     * and when every entry of the product is within the accepted range.
+     *
+     * @param next The transform applied after this one.
+     * @return true if {@link #then(ColorMatrix)} can replace the two steps.
+     */
+    public boolean composesWith(ColorMatrix next) {
+        return staysInChannelRange() && firstEntryOutOfRange(multiply(next)) < 0;
+    }
+
+    /**
+     * Checks whether every color with channels in 0-255 is mapped to channels in 0-255.
+     *
+     * @return true if the result never needs clamping.
+     */
+    public boolean staysInChannelRange() {
+        // Allow for the rounding of weights that sum to exactly 1, such as the luminance weights
+        double tolerance = 1e-9;
+        for (int row = 0; row < 3; row++) {
+            double low = m[row * 4 + 3];
+            double high = low;
+            for (int k = 0; k < 3; k++) {
+                double weight = m[row * 4 + k] * MAX_CHANNEL_VALUE;
+                low += Math.min(0, weight);
+                high += Math.max(0, weight);
+            }
+            if (low < -tolerance || high > MAX_CHANNEL_VALUE + tolerance) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private double[] multiply(ColorMatrix next) {
+        double[] n = next.m;
+        double[] result = new double[SIZE];
+        for (int row = 0; row < 3; row++) {
+            for (int col = 0; col < 4; col++) {
+                double sum = col == 3 ? n[row * 4 + 3] : 0;
+                for (int k = 0; k < 3; k++) {
+                    sum += n[row * 4 + k] * m[k * 4 + col];
+                }
+                result[row * 4 + col] = sum;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the entry at the given row and column.
+     *
+     * @param row    The row (0 red, 1 green, 2 blue).
+     * @param column The column (0-2 channel weights, 3 offset).
+     * @return The matrix entry.
+     */
+    public double get(int row, int column) {
+        return m[row * 4 + column];
+    }
+
+    /**
+     * Returns a copy of the row-major entries.
+     *
+     * @return The 12 matrix entries.
+     */
+    public double[] toArray() {
+        return m.clone();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ColorMatrix other && Arrays.equals(m, other.m);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(m);
+    }
+
+    @Override
+    public String toString() {
+        return "ColorMatrix" + Arrays.toString(m);
+    }
+}
@@ -9,12 +9,24 @@ import java.awt.image.BufferedImage;
 public interface Filter {
     /**
      * Applies the filter to the given image.
+     * The input image is never modified, so callers may keep using it, for example as an undo state.
      *
      * @param image The image to which the filter will be applied.
      * @return The filtered image.
      */
     BufferedImage apply(BufferedImage image);
 
+    /**
+     * Indicates whether separate parts of the image may be filtered concurrently
+     * by the same filter instance. Filters that keep mutable per-call state must
+     * leave this as false.
+     *
+     * @return true if the filter can be run by several threads at once, false otherwise.
+     */
+    default boolean isParallelSafe() {
+        return false;
+    }
+
     /**
      * Returns the name of the filter.
      *
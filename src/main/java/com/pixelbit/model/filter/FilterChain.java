@@ -0,0 +1,202 @@
+package com.pixelbit.model.filter;
+
+import com.pixelbit.model.BufferPool;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * FilterChain applies a sequence of filters as a single filter.
+ * When the chain is built, every run of consecutive point filters is compiled into one
+ * {@link FusedPointFilter}, so a chain such as grayscale, brightness and contrast makes
+ * one pass over the pixels and allocates one output image instead of three.
+ * Consecutive per-channel tone filters are first composed into a single lookup table,
+ * and consecutive color matrices are multiplied into a single matrix where that does
+ * not skip a clamp to 0-255.
+ */
+public class FilterChain implements PlanarFilter {
+
+    private final List<Filter> filters; // Filters as given, run one by one on planar images
+    private final List<Filter> stages; // Compiled stages, with point filters fused
+    private final FilterExecutor executor; // Executor used to run each stage
+
+    /**
+     * Constructs a chain that runs its stages on the default executor.
+     *
+     * @param filters The filters to apply, in order.
+     */
+    public FilterChain(List<? extends Filter> filters) {
+        this(filters, FilterExecutor.getDefault());
+    }
+
+    /**
+     * Constructs a chain that runs its stages on the given executor.
+     *
+     * @param filters  The filters to apply, in order.
+     * @param executor The executor used to run each compiled stage.
+     * @throws IllegalArgumentException if the chain is empty.
+     */
+    public FilterChain(List<? extends Filter> filters, FilterExecutor executor) {
+        if (filters == null || filters.isEmpty()) {
+            throw new IllegalArgumentException("A filter chain needs at least one filter");
+        }
+        this.filters = List.copyOf(filters);
+        this.stages = compile(filters);
+        this.executor = executor;
+    }
+
+    /**
+     * Groups consecutive point filters into fused stages.
+     *
+     * @param filters The filters to compile.
+     * @return The compiled stages.
+     */
+    private static List<Filter> compile(List<? extends Filter> filters) {
+        List<Filter> compiled = new ArrayList<>();
+        List<PointFilter> run = new ArrayList<>();
+        for (Filter filter : filters) {
+            if (filter instanceof PointFilter pointFilter) {
+                addToRun(run, pointFilter);
+            } else {
+                flush(run, compiled);
+                compiled.add(filter);
+            }
+        }
+        flush(run, compiled);
+        return compiled;
+    }
+
+    /**
+     * Adds a point filter to the current run, composing it with the previous
+     * filter when both are per-channel lookups or both are color matrices.
+     * Color matrices are only multiplied when the clamp between them cannot change
+     * anything and the product is a valid matrix; otherwise they stay separate steps.
+     */
+    private static void addToRun(List<PointFilter> run, PointFilter filter) {
+        if (!run.isEmpty() && run.get(run.size() - 1) instanceof ColorMatrixFilter previous
+                && filter instanceof ColorMatrixFilter next
+                && previous.getMatrix().composesWith(next.getMatrix())) {
+            run.set(run.size() - 1, previous.andThen(next));
+            return;
+        }
+        if (!run.isEmpty()) {
+            LookupTableFilter previous = asLookupTable(run.get(run.size() - 1));
+            LookupTableFilter next = asLookupTable(filter);
+            if (previous != null && next != null) {
+                run.set(run.size() - 1, previous.andThen(next));
+                return;
+            }
+        }
+        run.add(filter);
+    }
+
+    private static LookupTableFilter asLookupTable(PointFilter filter) {
+        if (filter instanceof LookupTableFilter lookupTableFilter) {
+            return lookupTableFilter;
+        }
+        if (filter instanceof ToneFilter toneFilter) {
+            return toneFilter.compile();
+        }
+        return null;
+    }
+
+    private static void flush(List<PointFilter> run, List<Filter> compiled) {
+        if (run.size() == 1) {
+            compiled.add(run.get(0));
+        } else if (run.size() > 1) {
+            compiled.add(new FusedPointFilter(run));
+        }
+        run.clear();
+    }
+
+    /**
+     * Returns the compiled stages of the chain.
+     *
+     * @return An unmodifiable list of the stages that are actually run.
+     */
+    public List<Filter> getStages() {
+        return List.copyOf(stages);
+    }
+
+    /**
+     * Applies every stage of the chain in order.
+     *
+     * @param image The image to which the chain will be applied.
+     * @return The filtered image.
+     */
+    @Override
+    public BufferedImage apply(BufferedImage image) {
+        BufferedImage result = image;
+        for (Filter stage : stages) {
+            BufferedImage next = executor.apply(stage, result);
+            if (result != image && result != next) {
+                // Intermediate results are only seen by the next stage, unless it returned a view of them
+                BufferPool.getDefault().releaseUnlessShared(result, next);
+            }
+            result = next;
+        }
+        return result;
+    }
+
+    /**
+     * Checks whether every filter of the chain can work on planar images.
+     *
+     * @return true if the chain can be applied with {@link #filterPlanar(PlanarImage, int, int)}.
+     */
+    @Override
+    public boolean supportsPlanar() {
+        for (Filter filter : filters) {
+            if (!(filter instanceof PlanarFilter planarFilter) || !planarFilter.supportsPlanar()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Applies the filters to a range of the planes one block at a time. The original filters
+     * are used rather than the compiled stages, since composing lookup tables rounds every step.
+     */
+    @Override
+    public void filterPlanar(PlanarImage image, int from, int to) {
+        for (int start = from; start < to; start += FusedPointFilter.BLOCK_SIZE) {
+            int end = Math.min(to, start + FusedPointFilter.BLOCK_SIZE);
+            for (Filter filter : filters) {
+                ((PlanarFilter) filter).filterPlanar(image, start, end);
+            }
+        }
+    }
+
+    /**
+     * Planar ranges are independent when every filter is parallel safe.
+     *
+     * @return true if all filters of the chain are parallel safe.
+     */
+    @Override
+    public boolean isParallelSafe() {
+        for (Filter filter : filters) {
+            if (!filter.isParallelSafe()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the name of the filter.
+     *
+     * @return The names of the stages joined with " -> ".
+     */
+    @Override
+    public String getName() {
+        StringBuilder name = new StringBuilder();
+        for (Filter stage : stages) {
+            if (!name.isEmpty()) {
+                name.append(" -> ");
+            }
+            name.append(stage.getName());
+        }
+        return name.toString();
+    }
+}
@@ -0,0 +1,248 @@
+package com.pixelbit.model.filter;
+
+import java.awt.image.BufferedImage;
+import java.io.Serial;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BooleanSupplier;
+
+/**
+ * FilterExecutor runs filters on a ForkJoinPool by splitting the image into row bands.
+ * Filters that implement {@link RasterFilter} and report {@link Filter#isParallelSafe()}
+ * are run across the pool; every other filter, and any image smaller than the
+ * parallel threshold, is filtered sequentially on the calling thread.
+ * <p>
+ * An executor made with {@link #withCancellation(BooleanSupplier)} checks before every
+ * band whether the work is still wanted, and stops with a {@link CancellationException}
+ * if not. It splits raster filters into bands even when it runs them sequentially.
+ */
+public class FilterExecutor {
+
+    /** Images with fewer pixels than this are filtered sequentially. */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 256 * 256;
+    /** Smallest number of pixels handed to a single task. */
+    public static final int MIN_PIXELS_PER_TASK = 16 * 1024;
+    /** Number of tasks created per worker thread, to even out uneven bands. */
+    private static final int TASKS_PER_THREAD = 4;
+
+    private static final FilterExecutor DEFAULT = new FilterExecutor(ForkJoinPool.commonPool(), DEFAULT_PARALLEL_THRESHOLD);
+
+    private final ForkJoinPool pool; // Pool that runs the row band tasks
+    private final int parallelThreshold; // Minimum pixel count for parallel execution
+    private final BooleanSupplier cancelled; // Checked before every band, null if the work cannot be cancelled
+
+    /**
+     * Callback that processes the rows [startRow, endRow) of an image.
+     */
+    @FunctionalInterface
+    public interface RowBandTask {
+        /**
+         * Processes a band of rows.
+         *
+         * @param startRow The first row of the band, inclusive.
+         * @param endRow   The last row of the band, exclusive.
+         */
+        void run(int startRow, int endRow);
+    }
+
+    /**
+     * Constructs a FilterExecutor that runs on the given pool.
+     *
+     * @param pool              The pool to run row bands on.
+     * @param parallelThreshold Images with fewer pixels than this are filtered sequentially.
+     */
+    public FilterExecutor(ForkJoinPool pool, int parallelThreshold) {
+        this(pool, parallelThreshold, null);
+    }
+
+    private FilterExecutor(ForkJoinPool pool, int parallelThreshold, BooleanSupplier cancelled) {
+        if (pool == null) {
+            throw new IllegalArgumentException("Pool cannot be null");
+        }
+        this.pool = pool;
+        this.parallelThreshold = Math.max(1, parallelThreshold);
+        this.cancelled = cancelled;
+    }
+
+    /**
+     * Returns an executor on the same pool whose work stops between bands once the given
+     * check returns true, for example when a newer preview makes the current one useless.
+     *
+     * @param cancelled Returns true once the work is no longer wanted.
+     * @return The cancellable executor.
+     */
+    public FilterExecutor withCancellation(BooleanSupplier cancelled) {
+        return new FilterExecutor(pool, parallelThreshold, cancelled);
+    }
+
+    /**
+     * Returns the shared executor backed by the common ForkJoinPool.
+     *
+     * @return The default FilterExecutor.
+     */
+    public static FilterExecutor getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Returns the minimum number of pixels an image needs to be filtered in parallel.
+     *
+     * @return The parallel threshold in pixels.
+     */
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    /**
+     * Applies a filter to an image, in parallel when the filter and image size allow it.
+     *
+     * @param filter The filter to apply.
+     * @param image  The image to filter.
+     * @return The filtered image.
+     */
+    public BufferedImage apply(Filter filter, BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        if (!(filter instanceof RasterFilter rasterFilter) || !usesBands(filter, width, height)) {
+            return filter.apply(image);
+        }
+
+        int[] src = PixelAccess.readPixels(image);
+        BufferedImage result = PixelAccess.borrowArgb(width, height);
+        int[] dst = PixelAccess.data(result);
+        forEachBand(width, height, (startRow, endRow) ->
+                rasterFilter.filterRows(src, dst, width, height, startRow, endRow));
+        return result;
+    }
+
+    /**
+     * Applies an in-place filter to an image, overwriting its pixels, in parallel when
+     * the filter and image size allow it.
+     *
+     * @param filter The filter to apply.
+     * @param image  A directly accessible TYPE_INT_ARGB image to filter.
+     * @throws IllegalArgumentException if the image pixels are not directly accessible.
+     */
+    public void applyInPlace(InPlaceFilter filter, BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        if (!(filter instanceof RasterFilter rasterFilter) || !usesBands(filter, width, height)) {
+            filter.applyInPlace(image);
+            return;
+        }
+
+        int[] data = PixelAccess.data(image);
+        forEachBand(width, height, (startRow, endRow) ->
+                rasterFilter.filterRows(data, data, width, height, startRow, endRow));
+    }
+
+    /**
+     * Applies a planar filter to the color planes of an image in place, in parallel
+     * bands of rows when the filter and image size allow it.
+     *
+     * @param filter The filter to apply.
+     * @param image  The planar image to filter.
+     */
+    public void applyPlanar(PlanarFilter filter, PlanarImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        if (!filter.isParallelSafe()) {
+            filter.filterPlanar(image, 0, width * height);
+            return;
+        }
+        forEachBand(width, height, (startRow, endRow) ->
+                filter.filterPlanar(image, startRow * width, endRow * width));
+    }
+
+    /**
+     * Runs a task over every row of an image, splitting the rows into bands that are
+     * processed in parallel when the image is at least the parallel threshold.
+     * The bands are disjoint and together cover the rows [0, height).
+     *
+     * @param width  The width of the image, used to size the bands.
+     * @param height The height of the image.
+     * @param task   The task to run on each band.
+     */
+    public void forEachBand(int width, int height, RowBandTask task) {
+        if (height <= 0) {
+            return;
+        }
+        int minRows = Math.max(1, MIN_PIXELS_PER_TASK / Math.max(1, width));
+        if (!isParallel(width, height)) {
+            if (cancelled == null) {
+                task.run(0, height);
+                return;
+            }
+            for (int startRow = 0; startRow < height; startRow += minRows) {
+                checkCancelled(cancelled);
+                task.run(startRow, Math.min(height, startRow + minRows));
+            }
+            return;
+        }
+        int tasks = pool.getParallelism() * TASKS_PER_THREAD;
+        int rowsPerTask = Math.max(minRows, (height + tasks - 1) / tasks);
+        pool.invoke(new RowBandAction(task, 0, height, rowsPerTask, cancelled));
+    }
+
+    /**
+     * Checks whether a filter is run band by band, which happens when it is split across
+     * the pool, or when the work can be cancelled between bands.
+     */
+    private boolean usesBands(Filter filter, int width, int height) {
+        return filter.isParallelSafe() && (cancelled != null || isParallel(width, height));
+    }
+
+    private static void checkCancelled(BooleanSupplier cancelled) {
+        if (cancelled != null && cancelled.getAsBoolean()) {
+            throw new CancellationException("The filter was cancelled");
+        }
+    }
+
+    /**
+     * Checks whether an image of the given size is processed in parallel.
+     *
+     * @param width  The width of the image.
+     * @param height The height of the image.
+     * @return true if the image is split across the pool, false otherwise.
+     */
+    public boolean isParallel(int width, int height) {
+        return pool.getParallelism() > 1 && (long) width * height >= parallelThreshold;
+    }
+
+    /**
+     * Recursively halves a row range until it is no larger than the band size,
+     * then runs the task on it.
+     */
+    private static final class RowBandAction extends RecursiveAction {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        // Never serialized: the action only lives for the duration of a pool.invoke
+        private final transient RowBandTask task;
+        private final int startRow;
+        private final int endRow;
+        private final int rowsPerTask;
+        private final transient BooleanSupplier cancelled;
+
+        RowBandAction(RowBandTask task, int startRow, int endRow, int rowsPerTask, BooleanSupplier cancelled) {
+            this.task = task;
+            this.startRow = startRow;
+            this.endRow = endRow;
+            this.rowsPerTask = rowsPerTask;
+            this.cancelled = cancelled;
+        }
+
+        @Override
+        protected void compute() {
+            if (endRow - startRow <= rowsPerTask) {
+                checkCancelled(cancelled);
+                task.run(startRow, endRow);
+                return;
+            }
+            int middle = (startRow + endRow) >>> 1;
+            invokeAll(new RowBandAction(task, startRow, middle, rowsPerTask, cancelled),
+                      new RowBandAction(task, middle, endRow, rowsPerTask, cancelled));
+        }
+    }
+}
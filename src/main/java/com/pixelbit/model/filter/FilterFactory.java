@@ -3,13 +3,44 @@ package com.pixelbit.model.filter;
 import com.pixelbit.exception.InvalidFilterParamsException;
 import com.pixelbit.model.filters.*;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 
 /**
  * Factory class for creating filter instances based on the specified type and parameters.
+ * Per-channel tone filters are compiled into lookup tables, which are cached by filter
+ * type and parameter so repeated requests (for example while a slider is dragged)
+ * reuse the same table.
  */
 public class FilterFactory {
+    /** Maximum number of compiled lookup tables kept in the cache. */
+    public static final int MAX_CACHED_LOOKUP_TABLES = 128;
+    /** Default standard deviation of the blur filters, in pixels. */
+    public static final double DEFAULT_SIGMA = 2.0;
+    /** Default radius of the box blur, in pixels. */
+    public static final int DEFAULT_BOX_RADIUS = 5;
+    /** Default strength of the sharpen filters. */
+    public static final double DEFAULT_SHARPEN_AMOUNT = 1.0;
+    /** Default radius of the median filter, in pixels. */
+    public static final int DEFAULT_MEDIAN_RADIUS = 2;
+
+    // Compiled tone filters by type and parameter, least recently used first
+    private final Map<LookupTableKey, LookupTableFilter> lookupTables =
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<LookupTableKey, LookupTableFilter> eldest) {
+                    return size() > MAX_CACHED_LOOKUP_TABLES;
+                }
+            };
+
+    /** Cache key for a compiled tone filter. */
+    private record LookupTableKey(FilterType type, double parameter) {
+    }
+
     /**
      * Creates a filter based on the specified type and parameters.
      *
@@ -24,11 +55,74 @@ public class FilterFactory {
             case CONTRAST -> createContrastFilter(params);
             case BRIGHTNESS -> createBrightnessFilter(params);
             case SEPIA -> new SepiaFilter();
-            case INVERT -> new InvertFilter();
+            case INVERT -> new InvertFilter(); // flipping the color bits beats a table lookup
             case CROP -> createCropFilter(params);
+            case COLOR_MATRIX -> createColorMatrixFilter(params);
+            case GAUSSIAN_BLUR -> createGaussianBlurFilter(params);
+            case SHARPEN -> createSharpenFilter(params);
+            case UNSHARP_MASK -> createUnsharpMaskFilter(params);
+            case SOBEL -> new SobelFilter();
+            case BOX_BLUR -> createBoxBlurFilter(params);
+            case FAST_GAUSSIAN_BLUR -> createFastGaussianBlurFilter(params);
+            case RESIZE -> createResizeFilter(params);
+            case ROTATE_90 -> new TransformFilter(TransformFilter.Transform.ROTATE_90);
+            case ROTATE_180 -> new TransformFilter(TransformFilter.Transform.ROTATE_180);
+            case ROTATE_270 -> new TransformFilter(TransformFilter.Transform.ROTATE_270);
+            case FLIP_HORIZONTAL -> new TransformFilter(TransformFilter.Transform.FLIP_HORIZONTAL);
+            case FLIP_VERTICAL -> new TransformFilter(TransformFilter.Transform.FLIP_VERTICAL);
+            case TRANSPOSE -> new TransformFilter(TransformFilter.Transform.TRANSPOSE);
+            case AUTO_LEVELS -> createAutoLevelsFilter(params);
+            case EQUALIZE -> new EqualizeFilter();
+            case MEDIAN -> createMedianFilter(params);
         };
     }
 
+    /**
+     * Creates a filter from a recorded filter spec.
+     *
+     * @param spec The type and parameters of the filter.
+     * @return An instance of the specified filter type.
+     * @throws InvalidFilterParamsException if the recorded parameters are invalid.
+     */
+    public Filter createFilter(FilterSpec spec) {
+        return createFilter(spec.type(), spec.parameters());
+    }
+
+    /**
+     * Creates a single filter that applies the given specs in order.
+     * Consecutive point filters in the sequence are fused into one pass.
+     *
+     * @param specs The filters to apply, in order.
+     * @return The filter itself for a single spec, otherwise a compiled {@link FilterChain}.
+     * @throws InvalidFilterParamsException if any of the parameters are invalid.
+     */
+    public Filter createChain(List<FilterSpec> specs) {
+        return createChain(specs, FilterExecutor.getDefault());
+    }
+
+    /**
+     * Creates a single filter that applies the given specs in order, running the stages
+     * of the chain on the given executor.
+     *
+     * @param specs    The filters to apply, in order.
+     * @param executor The executor that runs each stage of the chain.
+     * @return The filter itself for a single spec, otherwise a compiled {@link FilterChain}.
+     * @throws InvalidFilterParamsException if any of the parameters are invalid.
+     */
+    public Filter createChain(List<FilterSpec> specs, FilterExecutor executor) {
+        if (specs == null || specs.isEmpty()) {
+            throw new InvalidFilterParamsException("A filter chain needs at least one filter");
+        }
+        if (specs.size() == 1) {
+            return createFilter(specs.get(0));
+        }
+        List<Filter> filters = new ArrayList<>();
+        for (FilterSpec spec : specs) {
+            filters.add(createFilter(spec));
+        }
+        return new FilterChain(filters, executor);
+    }
+
     /**
      * Creates a brightness filter with the specified parameters.
      * If no brightness parameter is provided, a default value of 0 is used.
@@ -38,11 +132,11 @@ public class FilterFactory {
      */
     private Filter createBrightnessFilter(Map<String, Object> params) {
         if (params == null || !params.containsKey("brightness")) {
-            return new BrightnessFilter(0); // default value
+            return compileTone(FilterType.BRIGHTNESS, 0, () -> new BrightnessFilter(0)); // default value
         }
         try {
             int brightness = ((Number) params.get("brightness")).intValue();
-            return new BrightnessFilter(brightness);
+            return compileTone(FilterType.BRIGHTNESS, brightness, () -> new BrightnessFilter(brightness));
         } catch (ClassCastException e) {
             throw new InvalidFilterParamsException("Invalid brightness parameter");
         }
@@ -57,11 +151,11 @@ public class FilterFactory {
      */
     private Filter createContrastFilter(Map<String, Object> params) {
         if (params == null || !params.containsKey("contrast")) {
-            return new ContrastFilter(1.0); // default value
+            return compileTone(FilterType.CONTRAST, 1.0, () -> new ContrastFilter(1.0)); // default value
         }
         try {
             double contrast = ((Number) params.get("contrast")).doubleValue();
-            return new ContrastFilter(contrast);
+            return compileTone(FilterType.CONTRAST, contrast, () -> new ContrastFilter(contrast));
         } catch (ClassCastException e) {
             throw new InvalidFilterParamsException("Invalid contrast parameter");
         }
@@ -90,4 +184,244 @@ public class FilterFactory {
             throw new InvalidFilterParamsException("Invalid crop parameters");
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Creates a color matrix filter with the specified parameters.
+     * The parameters must include either "matrix", the 12 row-major entries of a 3x4 color
+     * matrix (as a double[], Number[] or List of Numbers), or "saturation", where 0 gives
+     * grayscale and 1 leaves the image unchanged.
+     *
+     * @param params Parameters for the color matrix filter as a Map
+     * @return An instance of ColorMatrixFilter with the specified matrix.
+     * @throws InvalidFilterParamsException if the required parameters are missing or invalid.
+     */
+    private Filter createColorMatrixFilter(Map<String, Object> params) {
+        if (params == null || (!params.containsKey("matrix") && !params.containsKey("saturation"))) {
+            throw new InvalidFilterParamsException("Color matrix filter requires a matrix or saturation parameter");
+        }
+        try {
+            if (params.containsKey("matrix")) {
+                return new ColorMatrixFilter(new ColorMatrix(toDoubleArray(params.get("matrix"))));
+            }
+            double saturation = ((Number) params.get("saturation")).doubleValue();
+            return new ColorMatrixFilter("Saturation", ColorMatrix.saturation(saturation));
+        } catch (ClassCastException | IllegalArgumentException e) {
+            throw new InvalidFilterParamsException("Invalid color matrix parameters: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Creates a Gaussian blur filter with the specified parameters.
+     * The optional "sigma" parameter is the standard deviation of the blur in pixels, 2 by default.
+     *
+     * @param params Parameters for the blur filter as a Map
+     * @return An instance of GaussianBlurFilter with the specified sigma.
+     * @throws InvalidFilterParamsException if the parameters are invalid.
+     */
+    private Filter createGaussianBlurFilter(Map<String, Object> params) {
+        try {
+            return new GaussianBlurFilter(numberParameter(params, "sigma", DEFAULT_SIGMA));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidFilterParamsException("Invalid blur parameters: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Creates a sharpen filter with the specified parameters.
+     * The optional "amount" parameter is the strength of the effect, 1 by default.
+     *
+     * @param params Parameters for the sharpen filter as a Map
+     * @return An instance of SharpenFilter with the specified amount.
+     * @throws InvalidFilterParamsException if the parameters are invalid.
+     */
+    private Filter createSharpenFilter(Map<String, Object> params) {
+        try {
+            return new SharpenFilter(numberParameter(params, "amount", DEFAULT_SHARPEN_AMOUNT));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidFilterParamsException("Invalid sharpen parameters: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Creates an unsharp mask filter with the specified parameters.
+     * The optional parameters are "sigma", the blur radius in pixels (2 by default),
+     * "amount", the fraction of detail added back (1 by default), and "threshold",
+     * the smallest difference in channel levels that is sharpened (0 by default).
+     *
+     * @param params Parameters for the unsharp mask filter as a Map
+     * @return An instance of UnsharpMaskFilter with the specified parameters.
+     * @throws InvalidFilterParamsException if the parameters are invalid.
+     */
+    private Filter createUnsharpMaskFilter(Map<String, Object> params) {
+        try {
+            return new UnsharpMaskFilter(
+                    numberParameter(params, "sigma", DEFAULT_SIGMA),
+                    numberParameter(params, "amount", DEFAULT_SHARPEN_AMOUNT),
+                    (int) numberParameter(params, "threshold", 0));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidFilterParamsException("Invalid unsharp mask parameters: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Creates a box blur filter with the specified parameters.
+     * The optional "radius" parameter is the radius of the box in pixels, 5 by default.
+     *
+     * @param params Parameters for the box blur filter as a Map
+     * @return An instance of BoxBlurFilter with the specified radius.
+     * @throws InvalidFilterParamsException if the parameters are invalid.
+     */
+    private Filter createBoxBlurFilter(Map<String, Object> params) {
+        try {
+            return new BoxBlurFilter((int) numberParameter(params, "radius", DEFAULT_BOX_RADIUS));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidFilterParamsException("Invalid box blur parameters: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Creates a constant-time Gaussian blur filter with the specified parameters.
+     * Unlike {@link FilterType#GAUSSIAN_BLUR}, its cost does not grow with the radius.
+     * The optional "sigma" parameter is the standard deviation of the blur in pixels, 2 by default.
+     *
+     * @param params Parameters for the blur filter as a Map
+     * @return A three-pass BoxBlurFilter approximating the Gaussian.
+     * @throws InvalidFilterParamsException if the parameters are invalid.
+     */
+    private Filter createFastGaussianBlurFilter(Map<String, Object> params) {
+        try {
+            return BoxBlurFilter.gaussian(numberParameter(params, "sigma", DEFAULT_SIGMA));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidFilterParamsException("Invalid blur parameters: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Creates a resize filter with the specified parameters.
+     * The "width" and "height" parameters give the output size in pixels. The optional
+     * "interpolation" parameter, "lanczos" (default) or "bicubic", selects the kernel used
+     * when enlarging, and the optional "progressive" parameter (true by default) controls
+     * whether large reductions are done by successive halving.
+     *
+     * @param params Parameters for the resize filter as a Map
+     * @return An instance of ResizeFilter with the specified size.
+     * @throws InvalidFilterParamsException if the required parameters are missing or invalid.
+     */
+    private Filter createResizeFilter(Map<String, Object> params) {
+        if (params == null || !params.containsKey("width") || !params.containsKey("height")) {
+            throw new InvalidFilterParamsException("Resize filter requires width and height parameters");
+        }
+        try {
+            int width = ((Number) params.get("width")).intValue();
+            int height = ((Number) params.get("height")).intValue();
+            ResizeFilter.Interpolation interpolation = params.containsKey("interpolation")
+                    ? ResizeFilter.Interpolation.valueOf(params.get("interpolation").toString().toUpperCase())
+                    : ResizeFilter.Interpolation.LANCZOS;
+            boolean progressive = !params.containsKey("progressive") || (Boolean) params.get("progressive");
+            return new ResizeFilter(width, height, interpolation, progressive, FilterExecutor.getDefault());
+        } catch (ClassCastException | IllegalArgumentException e) {
+            throw new InvalidFilterParamsException("Invalid resize parameters: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Creates an auto-levels filter with the specified parameters.
+     * The optional "clip" parameter is the fraction of pixels ignored at each end of every
+     * channel, 0.001 by default.
+     *
+     * @param params Parameters for the auto-levels filter as a Map
+     * @return An instance of AutoLevelsFilter with the specified clip fraction.
+     * @throws InvalidFilterParamsException if the parameters are invalid.
+     */
+    private Filter createAutoLevelsFilter(Map<String, Object> params) {
+        try {
+            return new AutoLevelsFilter(numberParameter(params, "clip", AutoLevelsFilter.DEFAULT_CLIP),
+                    FilterExecutor.getDefault());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidFilterParamsException("Invalid auto-levels parameters: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Creates a median filter with the specified parameters.
+     * The optional "radius" parameter is the radius of the window in pixels, 2 by default.
+     *
+     * @param params Parameters for the median filter as a Map
+     * @return An instance of MedianFilter with the specified radius.
+     * @throws InvalidFilterParamsException if the parameters are invalid.
+     */
+    private Filter createMedianFilter(Map<String, Object> params) {
+        try {
+            return new MedianFilter((int) numberParameter(params, "radius", DEFAULT_MEDIAN_RADIUS));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidFilterParamsException("Invalid median parameters: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns an optional numeric parameter.
+     *
+     * @param params       The filter parameters, may be null.
+     * @param name         The name of the parameter.
+     * @param defaultValue The value used when the parameter is missing.
+     * @return The parameter as a double.
+     * @throws InvalidFilterParamsException if the parameter is not a finite number.
+     */
+    private static double numberParameter(Map<String, Object> params, String name, double defaultValue) {
+        if (params == null || !params.containsKey(name)) {
+            return defaultValue;
+        }
+        if (!(params.get(name) instanceof Number number) || !Double.isFinite(number.doubleValue())) {
+            throw new InvalidFilterParamsException("Invalid " + name + " parameter");
+        }
+        return number.doubleValue();
+    }
+
+    /**
+     * Converts a numeric array parameter to a double[].
+     *
+     * @param value A double[], Number[] or List of Numbers.
+     * @return The values as a double[].
+     * @throws ClassCastException if the value is not one of the supported types.
+     */
+    private static double[] toDoubleArray(Object value) {
+        if (value instanceof double[] doubles) {
+            return doubles;
+        }
+        if (value instanceof Number[] numbers) {
+            return toDoubleArray(List.of(numbers));
+        }
+        List<?> list = (List<?>) value;
+        double[] doubles = new double[list.size()];
+        for (int i = 0; i < doubles.length; i++) {
+            doubles[i] = ((Number) list.get(i)).doubleValue();
+        }
+        return doubles;
+    }
+
+    /**
+     * Returns the compiled lookup table for a tone filter, building and caching it on first use.
+     *
+     * @param type      The type of the tone filter.
+     * @param parameter The parameter the filter was created with.
+     * @param filter    Creates the tone filter if the table is not cached yet.
+     * @return The cached lookup table filter.
+     */
+    private LookupTableFilter compileTone(FilterType type, double parameter, Supplier<ToneFilter> filter) {
+        LookupTableKey key = new LookupTableKey(type, parameter);
+        synchronized (lookupTables) {
+            return lookupTables.computeIfAbsent(key, k -> filter.get().compile());
+        }
+    }
+
+    /**
+     * Returns the number of compiled lookup tables currently cached.
+     *
+     * @return The number of cached lookup tables.
+     */
+    public int getCachedLookupTableCount() {
+        synchronized (lookupTables) {
+            return lookupTables.size();
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package com.pixelbit.model.filter;
+
+import java.awt.image.BufferedImage;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * FilterResultCache remembers the output of recent filters by the content of their input,
+ * so applying the same filter to the same pixels again, for example sepia, undo, sepia,
+ * copies the earlier result instead of filtering again. Entries are keyed by a 64-bit hash
+ * of the input pixels together with the image size and the filter spec, and the least
+ * recently used entries are evicted once the cache holds more than its byte cap.
+ * <p>
+ * The cache keeps its own copies of the results and hands out copies, since the image
+ * being edited is sometimes written in place. Evicted copies are left to the garbage
+ * collector rather than the buffer pool, since a lookup may still be copying them.
+ * Only directly accessible TYPE_INT_ARGB images are cached. The entries are dropped when
+ * the cache is bound to another document, so a newly loaded image does not keep the
+ * results of the previous one alive.
+ */
+public final class FilterResultCache {
+
+    /** System property that sets the byte cap of the default cache. */
+    public static final String MAX_BYTES_PROPERTY = "pixelbit.filtercache.maxBytes";
+    /** Byte cap of the default cache: 128 MiB, or an eighth of the heap if that is smaller. */
+    public static final long DEFAULT_MAX_BYTES = Math.min(128L * 1024 * 1024, Runtime.getRuntime().maxMemory() / 8);
+
+    private static final FilterResultCache DEFAULT =
+            new FilterResultCache(Long.getLong(MAX_BYTES_PROPERTY, DEFAULT_MAX_BYTES));
+
+    private static final long PRIME = 0x9E3779B97F4A7C15L; // Odd multiplier of the hash lanes
+
+    // Cached results, in access order so the eldest key is the least recently used
+    private final LinkedHashMap<Key, BufferedImage> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private WeakReference<Object> owner = new WeakReference<>(null); // Document the entries were computed for
+    private long maxBytes; // Maximum number of bytes held by the cache
+    private long cachedBytes; // Number of bytes currently held by the cache
+    private long hits; // Lookups served from the cache
+    private long misses; // Lookups that found no result
+    private long evictions; // Results dropped to stay under the byte cap
+
+    /**
+     * Identifies a filter result by the content of its input and the filter that produced it.
+     *
+     * @param hash   The hash of the input pixels.
+     * @param width  The width of the input.
+     * @param height The height of the input.
+     * @param spec   The filter type and parameters.
+     */
+    public record Key(long hash, int width, int height, FilterSpec spec) {
+    }
+
+    /**
+     * Constructs a cache that holds at most the given number of bytes.
+     *
+     * @param maxBytes The byte cap, 0 to disable caching.
+     */
+    public FilterResultCache(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("Byte cap cannot be negative");
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the shared cache used by the filter commands.
+     *
+     * @return The default FilterResultCache.
+     */
+    public static FilterResultCache getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Hashes the pixels of an image. Each band of rows is hashed on the executor, in four
+     * independent lanes per row so the multiplications overlap, and the row hashes are
+     * then combined in order.
+     *
+     * @param image    A directly accessible TYPE_INT_ARGB image.
+     * @param executor The executor that hashes the bands of rows.
+     * @return The 64-bit hash of the pixels.
+     */
+    public static long hash(BufferedImage image, FilterExecutor executor) {
+        int[] data = PixelAccess.data(image);
+        int width = image.getWidth();
+        int height = image.getHeight();
+        long[] rows = new long[height];
+        executor.forEachBand(width, height, (startRow, endRow) -> {
+            for (int y = startRow; y < endRow; y++) {
+                rows[y] = hashRange(data, y * width, (y + 1) * width);
+            }
+        });
+        long hash = mix(((long) width << 32) | height);
+        for (long row : rows) {
+            hash = (hash ^ row) * PRIME;
+        }
+        return mix(hash);
+    }
+
+    private static long hashRange(int[] data, int from, int to) {
+        long a = 1;
+        long b = 2;
+        long c = 3;
+        long d = 4;
+        int i = from;
+        for (; i + 3 < to; i += 4) {
+            a = (a ^ data[i]) * PRIME;
+            b = (b ^ data[i + 1]) * PRIME;
+            c = (c ^ data[i + 2]) * PRIME;
+            d = (d ^ data[i + 3]) * PRIME;
+        }
+        for (; i < to; i++) {
+            a = (a ^ data[i]) * PRIME;
+        }
+        return mix(a) ^ Long.rotateLeft(mix(b), 16) ^ Long.rotateLeft(mix(c), 32) ^ Long.rotateLeft(mix(d), 48);
+    }
+
+    /**
+     * Spreads every bit of the value over the whole result, as in the finalizer of MurmurHash3.
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xFF51AFD7ED558CCDL;
+        value = (value ^ (value >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return value ^ (value >>> 33);
+    }
+
+    /**
+     * Drops every entry if they were computed for another document than the given one.
+     *
+     * @param document The document whose images are about to be filtered, such as its EditableImage.
+     */
+    public synchronized void bindTo(Object document) {
+        if (owner.get() != document) {
+            clear();
+            owner = new WeakReference<>(document);
+        }
+    }
+
+    /**
+     * Builds the key of a filter result.
+     *
+     * @param source   The image the filter is applied to.
+     * @param spec     The filter type and parameters.
+     * @param executor The executor that hashes the image.
+     * @return The key, or null if caching is off or the image is not a directly accessible
+     * TYPE_INT_ARGB image.
+     */
+    public Key keyFor(BufferedImage source, FilterSpec spec, FilterExecutor executor) {
+        if (getMaxBytes() == 0 || !PixelAccess.isDirect(source)) {
+            return null;
+        }
+        return new Key(hash(source, executor), source.getWidth(), source.getHeight(), spec);
+    }
+
+    /**
+     * Returns a copy of a cached result.
+     *
+     * @param key The key of the result.
+     * @return A new image with the pixels of the result, or null if it is not cached.
+     */
+    public BufferedImage get(Key key) {
+        BufferedImage cached;
+        synchronized (this) {
+            cached = entries.get(key);
+            if (cached == null) {
+                misses++;
+                return null;
+            }
+            hits++;
+        }
+        // Cached images are never written, so they can be copied outside the lock
+        return copy(cached);
+    }
+
+    /**
+     * Caches a copy of a filter result, evicting the least recently used results if needed.
+     * Results that are not directly accessible TYPE_INT_ARGB images, or larger than the
+     * byte cap, are ignored.
+     *
+     * @param key    The key of the result.
+     * @param result The filter result; it is not kept.
+     */
+    public void put(Key key, BufferedImage result) {
+        long size = 4L * result.getWidth() * result.getHeight();
+        if (!PixelAccess.isDirect(result) || size > getMaxBytes()) {
+            return;
+        }
+        BufferedImage copy = copy(result);
+        synchronized (this) {
+            BufferedImage replaced = entries.put(key, copy);
+            if (replaced != null) {
+                cachedBytes -= sizeOf(replaced);
+            }
+            cachedBytes += size;
+            trimTo(maxBytes);
+        }
+    }
+
+    private static BufferedImage copy(BufferedImage image) {
+        BufferedImage copy = PixelAccess.borrowArgb(image.getWidth(), image.getHeight());
+        int[] data = PixelAccess.data(image);
+        System.arraycopy(data, 0, PixelAccess.data(copy), 0, data.length);
+        return copy;
+    }
+
+    /**
+     * Drops every cached result.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        cachedBytes = 0;
+    }
+
+    /**
+     * Changes the byte cap, evicting results if the cache is now over it.
+     *
+     * @param maxBytes The new byte cap, 0 to disable caching.
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("Byte cap cannot be negative");
+        }
+        this.maxBytes = maxBytes;
+        trimTo(maxBytes);
+    }
+
+    /**
+     * Returns the byte cap of the cache.
+     *
+     * @return The maximum number of bytes held by the cache.
+     */
+    public synchronized long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Returns the number of bytes held by the cached results.
+     *
+     * @return The cached byte count.
+     */
+    public synchronized long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    /**
+     * Returns the number of lookups served from the cache.
+     *
+     * @return The hit count.
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of lookups that found no result.
+     *
+     * @return The miss count.
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of results dropped to stay under the byte cap.
+     *
+     * @return The eviction count.
+     */
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    /**
+     * Returns the fraction of lookups served from the cache.
+     *
+     * @return The hit rate between 0 and 1, or 0 if nothing was looked up yet.
+     */
+    public synchronized double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Evicts the least recently used results until the cache holds at most the given number of bytes.
+     */
+    private void trimTo(long limit) {
+        Iterator<Map.Entry<Key, BufferedImage>> iterator = entries.entrySet().iterator();
+        while (cachedBytes > limit && iterator.hasNext()) {
+            BufferedImage image = iterator.next().getValue();
+            iterator.remove();
+            cachedBytes -= sizeOf(image);
+            evictions++;
+        }
+    }
+
+    private static long sizeOf(BufferedImage image) {
+        return 4L * image.getWidth() * image.getHeight();
+    }
+}
@@ -0,0 +1,36 @@
+package com.pixelbit.model.filter;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * FilterSpec records a filter type together with the parameters it was created with.
+ * It is enough to recreate the filter through {@link FilterFactory} at any time.
+ *
+ * @param type       The type of the filter.
+ * @param parameters The parameters of the filter; never null.
+ */
+public record FilterSpec(FilterType type, Map<String, Object> parameters) {
+
+    /**
+     * Creates a filter spec, copying the parameters into an unmodifiable map.
+     */
+    public FilterSpec {
+        if (type == null) {
+            throw new IllegalArgumentException("Filter type cannot be null");
+        }
+        parameters = parameters != null
+                ? Collections.unmodifiableMap(new HashMap<>(parameters))
+                : Collections.emptyMap();
+    }
+
+    /**
+     * Creates a filter spec for a filter type without parameters.
+     *
+     * @param type The type of the filter.
+     */
+    public FilterSpec(FilterType type) {
+        this(type, null);
+    }
+}
@@ -10,5 +10,22 @@ public enum FilterType {
     BRIGHTNESS,
     SEPIA,
     INVERT,
-    CROP
+    CROP,
+    COLOR_MATRIX,
+    GAUSSIAN_BLUR,
+    SHARPEN,
+    UNSHARP_MASK,
+    SOBEL,
+    BOX_BLUR,
+    FAST_GAUSSIAN_BLUR,
+    RESIZE,
+    ROTATE_90,
+    ROTATE_180,
+    ROTATE_270,
+    FLIP_HORIZONTAL,
+    FLIP_VERTICAL,
+    TRANSPOSE,
+    AUTO_LEVELS,
+    EQUALIZE,
+    MEDIAN
 }
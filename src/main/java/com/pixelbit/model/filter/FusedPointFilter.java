@@ -0,0 +1,107 @@
+package com.pixelbit.model.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * FusedPointFilter collapses a sequence of point filters into a single pass over the image.
+ * The pixels are processed in small blocks: the first stage writes a block into the
+ * destination and the remaining stages transform that block in place while it is still
+ * in cache, so main memory is read and written only once for the whole chain.
+ */
+public class FusedPointFilter extends PointFilter {
+
+    /** Number of pixels processed by every stage before moving on to the next block. */
+    public static final int BLOCK_SIZE = 4096;
+
+    private final PointFilter[] stages; // Stages in application order
+
+    /**
+     * Constructs a fused filter from the given stages. Nested fused filters are flattened.
+     *
+     * @param stages The point filters to apply, in order.
+     * @throws IllegalArgumentException if no stages are given.
+     */
+    public FusedPointFilter(List<? extends PointFilter> stages) {
+        if (stages == null || stages.isEmpty()) {
+            throw new IllegalArgumentException("A fused filter needs at least one stage");
+        }
+        List<PointFilter> flattened = new ArrayList<>();
+        for (PointFilter stage : stages) {
+            if (stage instanceof FusedPointFilter fused) {
+                flattened.addAll(fused.getStages());
+            } else {
+                flattened.add(stage);
+            }
+        }
+        this.stages = flattened.toArray(new PointFilter[0]);
+    }
+
+    /**
+     * Returns the stages of this filter in application order.
+     *
+     * @return An unmodifiable list of the fused stages.
+     */
+    public List<PointFilter> getStages() {
+        return List.of(stages);
+    }
+
+    /**
+     * Runs a single pixel through every stage.
+     *
+     * @param argb The input pixel.
+     * @return The pixel after all stages have been applied.
+     */
+    @Override
+    public int filterPixel(int argb) {
+        for (PointFilter stage : stages) {
+            argb = stage.filterPixel(argb);
+        }
+        return argb;
+    }
+
+    /**
+     * Runs every stage over the range block by block, reusing dst as the working buffer.
+     */
+    @Override
+    protected void filterPixels(int[] src, int[] dst, int from, int to) {
+        for (int start = from; start < to; start += BLOCK_SIZE) {
+            int end = Math.min(to, start + BLOCK_SIZE);
+            stages[0].filterPixels(src, dst, start, end);
+            for (int i = 1; i < stages.length; i++) {
+                stages[i].filterPixels(dst, dst, start, end);
+            }
+        }
+    }
+
+    /**
+     * Applies the stages to the planes one block at a time, so each block stays in cache
+     * while every stage runs over it and no stage rounds its output.
+     */
+    @Override
+    public void filterPlanar(PlanarImage image, int from, int to) {
+        for (int start = from; start < to; start += BLOCK_SIZE) {
+            int end = Math.min(to, start + BLOCK_SIZE);
+            for (PointFilter stage : stages) {
+                stage.filterPlanar(image, start, end);
+            }
+        }
+    }
+
+    /**
+     * Returns the name of the filter.
+     *
+     * @return The names of the fused stages joined with " + ".
+     */
+    @Override
+    public String getName() {
+        StringBuilder name = new StringBuilder();
+        for (PointFilter stage : stages) {
+            if (!name.isEmpty()) {
+                name.append(" + ");
+            }
+            name.append(stage.getName());
+        }
+        return name.toString();
+    }
+}
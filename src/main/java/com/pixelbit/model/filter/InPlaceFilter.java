@@ -0,0 +1,22 @@
+package com.pixelbit.model.filter;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * A filter that can overwrite its input instead of allocating a new output image.
+ * In-place filtering is only possible on images whose pixels are directly accessible
+ * (see {@link PixelAccess#isDirect(BufferedImage)}), and callers must make sure no one
+ * else still needs the old pixels, for example an undo snapshot.
+ * If the filter also implements {@link RasterFilter}, its filterRows method must accept
+ * the same array as source and destination.
+ */
+public interface InPlaceFilter extends Filter {
+
+    /**
+     * Applies the filter to the given image, overwriting its pixels.
+     *
+     * @param image A directly accessible TYPE_INT_ARGB image to filter.
+     * @throws IllegalArgumentException if the image pixels are not directly accessible.
+     */
+    void applyInPlace(BufferedImage image);
+}
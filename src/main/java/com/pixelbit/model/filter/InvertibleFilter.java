@@ -0,0 +1,33 @@
+package com.pixelbit.model.filter;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * A filter whose effect can be undone exactly by applying another filter.
+ * Applying {@link #inverse()} to the output of {@link #apply} must give back an image
+ * with the same size, type and pixels as the input, so commands can undo the filter
+ * without keeping a copy of the image it was applied to.
+ * <p>
+ * Some filters are only exact for some images, for example when their output is always
+ * TYPE_INT_ARGB; they say so through {@link #isExactlyInvertible(BufferedImage)}.
+ */
+public interface InvertibleFilter extends Filter {
+
+    /**
+     * Returns the filter that exactly reverses this one.
+     *
+     * @return The inverse filter.
+     */
+    Filter inverse();
+
+    /**
+     * Checks whether the inverse gives back exactly the given image once the filter was
+     * applied to it. Transforms that only move pixels are exact for any image.
+     *
+     * @param image The image the filter is about to be applied to.
+     * @return true if the filter can be undone by its inverse for this image.
+     */
+    default boolean isExactlyInvertible(BufferedImage image) {
+        return true;
+    }
+}
@@ -0,0 +1,144 @@
+package com.pixelbit.model.filter;
+
+import static com.pixelbit.model.filter.PixelAccess.*;
+
+/**
+ * LookupTableFilter maps the red, green and blue channels of every pixel through
+ * 256-entry lookup tables, preserving alpha. Any per-channel tone adjustment can be
+ * expressed this way, and two lookup table filters applied one after the other
+ * compose into a single one.
+ */
+public class LookupTableFilter extends PointFilter {
+
+    private static final int TABLE_SIZE = MAX_CHANNEL_VALUE + 1;
+    private static final PixelKernels KERNELS = PixelKernels.get();
+
+    private final String name; // Name reported by getName
+    private final int[] red; // Lookup table for the red channel
+    private final int[] green; // Lookup table for the green channel
+    private final int[] blue; // Lookup table for the blue channel
+    private final ToneFilter curve; // Filter the tables were compiled from, used on planar images; may be null
+
+    /**
+     * Constructs a lookup table filter. The tables are copied and every entry is clamped to 0-255.
+     *
+     * @param name  The name of the filter.
+     * @param red   The 256-entry table for the red channel.
+     * @param green The 256-entry table for the green channel.
+     * @param blue  The 256-entry table for the blue channel.
+     * @throws IllegalArgumentException if any table does not have 256 entries.
+     */
+    public LookupTableFilter(String name, int[] red, int[] green, int[] blue) {
+        this(name, red, green, blue, null);
+    }
+
+    /**
+     * Constructs the lookup table filter compiled from a tone filter, which keeps the exact
+     * curve for planar images.
+     */
+    LookupTableFilter(String name, int[] red, int[] green, int[] blue, ToneFilter curve) {
+        this.curve = curve;
+        this.name = name;
+        this.red = copyTable(red);
+        this.green = green == red ? this.red : copyTable(green);
+        this.blue = blue == red ? this.red : blue == green ? this.green : copyTable(blue);
+    }
+
+    private static int[] copyTable(int[] table) {
+        if (table == null || table.length != TABLE_SIZE) {
+            throw new IllegalArgumentException("Lookup tables must have " + TABLE_SIZE + " entries");
+        }
+        int[] copy = new int[TABLE_SIZE];
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            copy[i] = clamp(table[i]);
+        }
+        return copy;
+    }
+
+    /**
+     * Returns a filter equivalent to applying this filter and then the given one.
+     *
+     * @param next The filter applied after this one.
+     * @return A single lookup table filter for both steps.
+     */
+    public LookupTableFilter andThen(LookupTableFilter next) {
+        int[] r = new int[TABLE_SIZE];
+        int[] g = new int[TABLE_SIZE];
+        int[] b = new int[TABLE_SIZE];
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            r[i] = next.red[red[i]];
+            g[i] = next.green[green[i]];
+            b[i] = next.blue[blue[i]];
+        }
+        return new LookupTableFilter(name + " + " + next.name, r, g, b);
+    }
+
+    /**
+     * Returns the output value of a channel for the given input.
+     *
+     * @param channel 0 for red, 1 for green, 2 for blue.
+     * @param value   The input channel value (0-255).
+     * @return The mapped channel value.
+     */
+    public int lookup(int channel, int value) {
+        return switch (channel) {
+            case 0 -> red[value];
+            case 1 -> green[value];
+            case 2 -> blue[value];
+            default -> throw new IllegalArgumentException("Invalid channel: " + channel);
+        };
+    }
+
+    /**
+     * Maps a single pixel through the lookup tables.
+     *
+     * @param argb The input pixel.
+     * @return The mapped pixel with the original alpha preserved.
+     */
+    @Override
+    public int filterPixel(int argb) {
+        return (argb & 0xFF000000)
+                | (red[(argb >> 16) & 0xFF] << 16)
+                | (green[(argb >> 8) & 0xFF] << 8)
+                | blue[argb & 0xFF];
+    }
+
+    @Override
+    protected void filterPixels(int[] src, int[] dst, int from, int to) {
+        KERNELS.lookup(src, dst, from, to, red, green, blue);
+    }
+
+    /**
+     * Maps the planes through the exact curve of the tone filter the tables were compiled
+     * from, or else through the tables, interpolating linearly between entries.
+     */
+    @Override
+    public void filterPlanar(PlanarImage image, int from, int to) {
+        if (curve != null) {
+            curve.filterPlanar(image, from, to);
+            return;
+        }
+        interpolate(image.red(), red, from, to);
+        interpolate(image.green(), green, from, to);
+        interpolate(image.blue(), blue, from, to);
+    }
+
+    private static void interpolate(float[] plane, int[] table, int from, int to) {
+        for (int i = from; i < to; i++) {
+            float value = Math.min(MAX_CHANNEL_VALUE, Math.max(0, plane[i]));
+            int low = (int) value;
+            int high = Math.min(MAX_CHANNEL_VALUE, low + 1);
+            plane[i] = table[low] + (table[high] - table[low]) * (value - low);
+        }
+    }
+
+    /**
+     * Returns the name of the filter.
+     *
+     * @return The name of the filter.
+     */
+    @Override
+    public String getName() {
+        return name;
+    }
+}
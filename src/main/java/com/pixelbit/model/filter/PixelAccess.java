@@ -0,0 +1,194 @@
+package com.pixelbit.model.filter;
+
+import com.pixelbit.model.BufferPool;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+
+/**
+ * PixelAccess is the shared pixel-access layer used by the filters.
+ * It reads and writes the backing int[] of TYPE_INT_ARGB images directly
+ * and provides the bit-shift channel math used to unpack and pack ARGB pixels,
+ * so filters never need to go through getRGB/setRGB or allocate a Color per pixel.
+ */
+public final class PixelAccess {
+
+    /** Maximum value of a single 8-bit channel. */
+    public static final int MAX_CHANNEL_VALUE = 255;
+
+    private PixelAccess() {
+    }
+
+    /**
+     * Creates a new TYPE_INT_ARGB image backed by a single int[] of width * height pixels.
+     *
+     * @param width  The width of the image.
+     * @param height The height of the image.
+     * @return A new TYPE_INT_ARGB image.
+     */
+    public static BufferedImage createArgb(int width, int height) {
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    }
+
+    /**
+     * Returns a TYPE_INT_ARGB image from the shared {@link BufferPool}, allocating one if none is free.
+     * The contents of the image are undefined, so callers must write every pixel.
+     *
+     * @param width  The width of the image.
+     * @param height The height of the image.
+     * @return A TYPE_INT_ARGB image with undefined contents.
+     */
+    public static BufferedImage borrowArgb(int width, int height) {
+        return BufferPool.getDefault().acquire(width, height, BufferedImage.TYPE_INT_ARGB);
+    }
+
+    /**
+     * Checks whether the pixels of an image can be accessed directly, i.e. the image
+     * is TYPE_INT_ARGB and its raster owns a tightly packed int[] starting at offset 0.
+     *
+     * @param image The image to check.
+     * @return true if {@link #data(BufferedImage)} can be used on the image, false otherwise.
+     */
+    public static boolean isDirect(BufferedImage image) {
+        if (!isPackedArgb(image)) {
+            return false;
+        }
+        Raster raster = image.getRaster();
+        return raster.getParent() == null
+                && raster.getSampleModelTranslateX() == 0
+                && raster.getSampleModelTranslateY() == 0
+                && raster.getDataBuffer().getOffset() == 0
+                && ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride() == image.getWidth();
+    }
+
+    /**
+     * Checks whether an image stores TYPE_INT_ARGB pixels in a single int[], either as the
+     * whole array or as a rectangular view into a larger one, such as a crop.
+     */
+    private static boolean isPackedArgb(BufferedImage image) {
+        if (image.getType() != BufferedImage.TYPE_INT_ARGB) {
+            return false;
+        }
+        Raster raster = image.getRaster();
+        DataBuffer buffer = raster.getDataBuffer();
+        return buffer instanceof DataBufferInt
+                && buffer.getNumBanks() == 1
+                && raster.getSampleModel() instanceof SinglePixelPackedSampleModel;
+    }
+
+    /**
+     * Returns the backing pixel array of a direct TYPE_INT_ARGB image.
+     * Writes to the returned array are immediately visible in the image.
+     *
+     * @param image The image whose pixels are returned.
+     * @return The backing int[] of the image, in row-major order.
+     * @throws IllegalArgumentException if the image is not directly accessible.
+     * @see #isDirect(BufferedImage)
+     */
+    public static int[] data(BufferedImage image) {
+        if (!isDirect(image)) {
+            throw new IllegalArgumentException("Image is not a packed TYPE_INT_ARGB image");
+        }
+        return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+
+    /**
+     * Returns the pixels of an image as packed ARGB values in row-major order.
+     * For direct TYPE_INT_ARGB images the backing array itself is returned, so callers
+     * must treat the result as read-only. Views into a TYPE_INT_ARGB image are copied row
+     * by row. Any other image is converted into a new array
+     * using the same default RGB color model as {@link BufferedImage#getRGB(int, int)}.
+     *
+     * @param image The image to read.
+     * @return The packed ARGB pixels of the image.
+     */
+    public static int[] readPixels(BufferedImage image) {
+        if (isDirect(image)) {
+            return data(image);
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        if (isPackedArgb(image)) {
+            // A view into a larger packed image: copy its rows straight out of the shared array
+            Raster raster = image.getRaster();
+            DataBufferInt buffer = (DataBufferInt) raster.getDataBuffer();
+            int stride = ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride();
+            int offset = buffer.getOffset()
+                    - raster.getSampleModelTranslateY() * stride
+                    - raster.getSampleModelTranslateX();
+            int[] src = buffer.getData();
+            int[] pixels = new int[width * height];
+            for (int row = 0; row < height; row++) {
+                System.arraycopy(src, offset + row * stride, pixels, row * width, width);
+            }
+            return pixels;
+        }
+        return image.getRGB(0, 0, width, height, null, 0, width);
+    }
+
+    /**
+     * Returns the alpha channel of a packed ARGB pixel.
+     *
+     * @param argb The packed pixel.
+     * @return The alpha value (0-255).
+     */
+    public static int alpha(int argb) {
+        return argb >>> 24;
+    }
+
+    /**
+     * Returns the red channel of a packed ARGB pixel.
+     *
+     * @param argb The packed pixel.
+     * @return The red value (0-255).
+     */
+    public static int red(int argb) {
+        return (argb >> 16) & 0xFF;
+    }
+
+    /**
+     * Returns the green channel of a packed ARGB pixel.
+     *
+     * @param argb The packed pixel.
+     * @return The green value (0-255).
+     */
+    public static int green(int argb) {
+        return (argb >> 8) & 0xFF;
+    }
+
+    /**
+     * Returns the blue channel of a packed ARGB pixel.
+     *
+     * @param argb The packed pixel.
+     * @return The blue value (0-255).
+     */
+    public static int blue(int argb) {
+        return argb & 0xFF;
+    }
+
+    /**
+     * Packs four channels into an ARGB pixel. The channels must already be in the range 0-255.
+     *
+     * @param a The alpha value.
+     * @param r The red value.
+     * @param g The green value.
+     * @param b The blue value.
+     * @return The packed ARGB pixel.
+     */
+    public static int pack(int a, int r, int g, int b) {
+        return (a << 24) | (r << 16) | (g << 8) | b;
+    }
+
+    /**
+     * Clamps a channel value to the range 0-255.
+     *
+     * @param value The value to clamp.
+     * @return The clamped value.
+     */
+    public static int clamp(int value) {
+        return Math.min(MAX_CHANNEL_VALUE, Math.max(0, value));
+    }
+}
@@ -0,0 +1,26 @@
+package com.pixelbit.model.filter;
+
+/**
+ * Chooses the pixel kernels once, the first time they are requested.
+ * The vector kernels are only loaded after the Vector API module has been found,
+ * so the scalar path never touches jdk.incubator.vector classes.
+ */
+final class PixelKernelSelection {
+
+    static final PixelKernels SELECTED = select();
+
+    private PixelKernelSelection() {
+    }
+
+    private static PixelKernels select() {
+        if (!Boolean.parseBoolean(System.getProperty(PixelKernels.SIMD_PROPERTY, "true"))
+                || ModuleLayer.boot().findModule(PixelKernels.VECTOR_MODULE).isEmpty()) {
+            return ScalarPixelKernels.INSTANCE;
+        }
+        try {
+            return VectorPixelKernels.create();
+        } catch (LinkageError e) {
+            return ScalarPixelKernels.INSTANCE;
+        }
+    }
+}
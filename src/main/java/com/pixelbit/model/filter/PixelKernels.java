@@ -0,0 +1,78 @@
+package com.pixelbit.model.filter;
+
+/**
+ * PixelKernels are the inner loops shared by the point filters, operating on ranges of
+ * packed ARGB pixels. Two implementations exist: a scalar one that always works and one
+ * built on the Java Vector API that processes a whole SIMD register of pixels per
+ * instruction. The vector kernels are selected at startup when the jdk.incubator.vector
+ * module is present in the boot layer (for example when the application is launched with
+ * {@code --add-modules jdk.incubator.vector}) and can be disabled with the system property
+ * {@value #SIMD_PROPERTY}=false. Both implementations produce identical pixels.
+ */
+public interface PixelKernels {
+
+    /** System property that disables the vector kernels when set to false. */
+    String SIMD_PROPERTY = "pixelbit.simd";
+    /** Name of the module providing the Vector API. */
+    String VECTOR_MODULE = "jdk.incubator.vector";
+
+    /**
+     * Returns the kernels selected for this JVM.
+     *
+     * @return The vector kernels if available, otherwise the scalar kernels.
+     */
+    static PixelKernels get() {
+        return PixelKernelSelection.SELECTED;
+    }
+
+    /**
+     * Returns the scalar kernels, regardless of Vector API availability.
+     *
+     * @return The scalar kernels.
+     */
+    static PixelKernels scalar() {
+        return ScalarPixelKernels.INSTANCE;
+    }
+
+    /**
+     * Flips the color bits of every pixel, preserving alpha.
+     *
+     * @param src  The packed ARGB source pixels.
+     * @param dst  The packed ARGB destination pixels; may be the same array as src.
+     * @param from The first index to transform, inclusive.
+     * @param to   The last index to transform, exclusive.
+     */
+    void invert(int[] src, int[] dst, int from, int to);
+
+    /**
+     * Maps the red, green and blue channels through 256-entry lookup tables, preserving alpha.
+     *
+     * @param src   The packed ARGB source pixels.
+     * @param dst   The packed ARGB destination pixels; may be the same array as src.
+     * @param from  The first index to transform, inclusive.
+     * @param to    The last index to transform, exclusive.
+     * @param red   The lookup table for the red channel; entries must be 0-255.
+     * @param green The lookup table for the green channel; entries must be 0-255.
+     * @param blue  The lookup table for the blue channel; entries must be 0-255.
+     */
+    void lookup(int[] src, int[] dst, int from, int to, int[] red, int[] green, int[] blue);
+
+    /**
+     * Applies a 3x4 color matrix given as 16.16 fixed-point weights, preserving alpha.
+     * Each output channel is (w[4c] * r + w[4c+1] * g + w[4c+2] * b + w[4c+3]) >> 16, clamped to 0-255.
+     *
+     * @param src     The packed ARGB source pixels.
+     * @param dst     The packed ARGB destination pixels; may be the same array as src.
+     * @param from    The first index to transform, inclusive.
+     * @param to      The last index to transform, exclusive.
+     * @param weights The 12 row-major fixed-point matrix entries.
+     */
+    void colorMatrix(int[] src, int[] dst, int from, int to, int[] weights);
+
+    /**
+     * Indicates whether these kernels use SIMD instructions through the Vector API.
+     *
+     * @return true for the vector kernels, false for the scalar kernels.
+     */
+    boolean isVectorized();
+}
@@ -0,0 +1,29 @@
+package com.pixelbit.model.filter;
+
+/**
+ * A filter that can work directly on the float planes of a {@link PlanarImage}, so
+ * chains of edits keep their precision instead of rounding to 8 bits after each one.
+ * Planar filters modify the color planes in place and leave alpha unchanged.
+ */
+public interface PlanarFilter extends Filter {
+
+    /**
+     * Filters the pixels in the index range [from, to) of the color planes in place.
+     * Ranges are disjoint when {@link #isParallelSafe()} is true, so they may run concurrently.
+     *
+     * @param image The planar image to filter.
+     * @param from  The first pixel index, inclusive.
+     * @param to    The last pixel index, exclusive.
+     */
+    void filterPlanar(PlanarImage image, int from, int to);
+
+    /**
+     * Checks whether this instance can actually filter planes. Composite filters
+     * only can when all their parts can.
+     *
+     * @return true by default.
+     */
+    default boolean supportsPlanar() {
+        return true;
+    }
+}
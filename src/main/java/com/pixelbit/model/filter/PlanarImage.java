@@ -0,0 +1,181 @@
+package com.pixelbit.model.filter;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * PlanarImage is the high-precision working format for chains of point edits.
+ * The red, green and blue channels are stored as separate float planes on the same
+ * 0-255 scale as 8-bit pixels, but keep their fractional part between edits, so a
+ * chain of brightness, contrast and color edits only rounds once, when the result is
+ * quantized for display or saving. Each plane is a plain row-major array, which keeps
+ * the per-channel loops of {@link PlanarFilter} simple enough for the JIT to vectorize.
+ * <p>
+ * Planar filters never change alpha, so the alpha plane is shared between an image
+ * and its copies.
+ */
+public final class PlanarImage {
+
+    private final int width; // Width in pixels
+    private final int height; // Height in pixels
+    private final float[] red; // Red plane, 0-255
+    private final float[] green; // Green plane, 0-255
+    private final float[] blue; // Blue plane, 0-255
+    private final float[] alpha; // Alpha plane, 0-255, shared with copies
+
+    private PlanarImage(int width, int height, float[] red, float[] green, float[] blue, float[] alpha) {
+        this.width = width;
+        this.height = height;
+        this.red = red;
+        this.green = green;
+        this.blue = blue;
+        this.alpha = alpha;
+    }
+
+    /**
+     * Unpacks an image into planes.
+     *
+     * @param image The image to unpack.
+     * @return A planar copy of the image.
+     */
+    public static PlanarImage fromImage(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = PixelAccess.readPixels(image);
+        int size = pixels.length;
+        PlanarImage planar = new PlanarImage(width, height,
+                new float[size], new float[size], new float[size], new float[size]);
+        FilterExecutor.getDefault().forEachBand(width, height, (startRow, endRow) -> {
+            for (int i = startRow * width; i < endRow * width; i++) {
+                int argb = pixels[i];
+                planar.alpha[i] = argb >>> 24;
+                planar.red[i] = (argb >> 16) & 0xFF;
+                planar.green[i] = (argb >> 8) & 0xFF;
+                planar.blue[i] = argb & 0xFF;
+            }
+        });
+        return planar;
+    }
+
+    /**
+     * Creates an image from its planes, such as planes read back from storage.
+     *
+     * @param width  The width in pixels.
+     * @param height The height in pixels.
+     * @param red    The red plane.
+     * @param green  The green plane.
+     * @param blue   The blue plane.
+     * @param alpha  The alpha plane, which may be shared with other images.
+     * @return An image that uses the given planes without copying them.
+     * @throws IllegalArgumentException if a plane does not hold width * height values.
+     */
+    public static PlanarImage fromPlanes(int width, int height, float[] red, float[] green, float[] blue,
+                                         float[] alpha) {
+        int size = width * height;
+        if (red.length != size || green.length != size || blue.length != size || alpha.length != size) {
+            throw new IllegalArgumentException("Every plane must hold " + size + " values");
+        }
+        return new PlanarImage(width, height, red, green, blue, alpha);
+    }
+
+    /**
+     * Quantizes the planes back to 8 bits per channel, rounding to the nearest level.
+     *
+     * @return A new TYPE_INT_ARGB image.
+     */
+    public BufferedImage toImage() {
+        BufferedImage image = PixelAccess.borrowArgb(width, height);
+        int[] data = PixelAccess.data(image);
+        FilterExecutor.getDefault().forEachBand(width, height, (startRow, endRow) -> {
+            for (int i = startRow * width; i < endRow * width; i++) {
+                data[i] = (quantize(alpha[i]) << 24) | (quantize(red[i]) << 16)
+                        | (quantize(green[i]) << 8) | quantize(blue[i]);
+            }
+        });
+        return image;
+    }
+
+    /**
+     * Rounds a channel value to the nearest 8-bit level.
+     *
+     * @param value The channel value on the 0-255 scale.
+     * @return The level, clamped to 0-255.
+     */
+    public static int quantize(float value) {
+        return PixelAccess.clamp((int) (value + 0.5f));
+    }
+
+    /**
+     * Returns a copy whose color planes can be modified without affecting this image.
+     *
+     * @return The copy, sharing the alpha plane with this image.
+     */
+    public PlanarImage copy() {
+        return new PlanarImage(width, height, red.clone(), green.clone(), blue.clone(), alpha);
+    }
+
+    /**
+     * Returns the quantized ARGB value of a pixel.
+     *
+     * @param x The x-coordinate of the pixel.
+     * @param y The y-coordinate of the pixel.
+     * @return The packed ARGB pixel.
+     */
+    public int getRGB(int x, int y) {
+        int i = y * width + x;
+        return PixelAccess.pack(quantize(alpha[i]), quantize(red[i]), quantize(green[i]), quantize(blue[i]));
+    }
+
+    /**
+     * Returns the width of the image.
+     *
+     * @return The width in pixels.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the height of the image.
+     *
+     * @return The height in pixels.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the red plane. Planar filters write to it in place.
+     *
+     * @return The red values in row-major order.
+     */
+    public float[] red() {
+        return red;
+    }
+
+    /**
+     * Returns the green plane. Planar filters write to it in place.
+     *
+     * @return The green values in row-major order.
+     */
+    public float[] green() {
+        return green;
+    }
+
+    /**
+     * Returns the blue plane. Planar filters write to it in place.
+     *
+     * @return The blue values in row-major order.
+     */
+    public float[] blue() {
+        return blue;
+    }
+
+    /**
+     * Returns the alpha plane, which must not be modified.
+     *
+     * @return The alpha values in row-major order.
+     */
+    public float[] alpha() {
+        return alpha;
+    }
+}
@@ -0,0 +1,111 @@
+package com.pixelbit.model.filter;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * PointFilter is the base class for filters whose output pixel depends only on the
+ * input pixel at the same position. It reads the packed ARGB pixels of the source image
+ * through {@link PixelAccess} and writes the result into a new TYPE_INT_ARGB image,
+ * or back into the source pixels when applied in place.
+ */
+public abstract class PointFilter implements RasterFilter, InPlaceFilter, PlanarFilter {
+
+    /**
+     * Transforms a single packed ARGB pixel.
+     *
+     * @param argb The input pixel.
+     * @return The transformed pixel.
+     */
+    public abstract int filterPixel(int argb);
+
+    /**
+     * Transforms the pixels in the index range [from, to) of src into dst.
+     * Subclasses on hot paths override this with the same loop so the call to
+     * {@link #filterPixel(int)} is resolved against a single class and can be inlined.
+     *
+     * @param src  The packed ARGB source pixels.
+     * @param dst  The packed ARGB destination pixels; may be the same array as src.
+     * @param from The first index to transform, inclusive.
+     * @param to   The last index to transform, exclusive.
+     */
+    protected void filterPixels(int[] src, int[] dst, int from, int to) {
+        for (int i = from; i < to; i++) {
+            dst[i] = filterPixel(src[i]);
+        }
+    }
+
+    /**
+     * Transforms the rows [startRow, endRow) of src into dst.
+     *
+     * @param src      The packed ARGB source pixels in row-major order.
+     * @param dst      The packed ARGB destination pixels in row-major order.
+     * @param width    The width of the image.
+     * @param height   The height of the image.
+     * @param startRow The first row to transform, inclusive.
+     * @param endRow   The last row to transform, exclusive.
+     */
+    @Override
+    public void filterRows(int[] src, int[] dst, int width, int height, int startRow, int endRow) {
+        filterPixels(src, dst, startRow * width, endRow * width);
+    }
+
+    /**
+     * Filters a range of a planar image by quantizing each pixel, applying
+     * {@link #filterPixel(int)} and unpacking the result. Subclasses whose math works on
+     * real values override this to keep the fractional part.
+     *
+     * @param image The planar image to filter.
+     * @param from  The first pixel index, inclusive.
+     * @param to    The last pixel index, exclusive.
+     */
+    @Override
+    public void filterPlanar(PlanarImage image, int from, int to) {
+        float[] red = image.red();
+        float[] green = image.green();
+        float[] blue = image.blue();
+        float[] alpha = image.alpha();
+        for (int i = from; i < to; i++) {
+            int argb = filterPixel(PixelAccess.pack(PlanarImage.quantize(alpha[i]), PlanarImage.quantize(red[i]),
+                    PlanarImage.quantize(green[i]), PlanarImage.quantize(blue[i])));
+            red[i] = (argb >> 16) & 0xFF;
+            green[i] = (argb >> 8) & 0xFF;
+            blue[i] = argb & 0xFF;
+        }
+    }
+
+    /**
+     * Point filters are stateless per pixel, so any band of the image can be filtered concurrently.
+     *
+     * @return true
+     */
+    @Override
+    public boolean isParallelSafe() {
+        return true;
+    }
+
+    /**
+     * Applies the filter to the given image.
+     *
+     * @param image The image to which the filter will be applied.
+     * @return A new TYPE_INT_ARGB image with the filter applied.
+     */
+    @Override
+    public BufferedImage apply(BufferedImage image) {
+        int[] src = PixelAccess.readPixels(image);
+        BufferedImage result = PixelAccess.borrowArgb(image.getWidth(), image.getHeight());
+        filterPixels(src, PixelAccess.data(result), 0, src.length);
+        return result;
+    }
+
+    /**
+     * Applies the filter to the given image, overwriting its pixels.
+     *
+     * @param image A directly accessible TYPE_INT_ARGB image to filter.
+     * @throws IllegalArgumentException if the image pixels are not directly accessible.
+     */
+    @Override
+    public void applyInPlace(BufferedImage image) {
+        int[] data = PixelAccess.data(image);
+        filterPixels(data, data, 0, data.length);
+    }
+}
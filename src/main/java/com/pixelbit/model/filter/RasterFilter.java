@@ -0,0 +1,22 @@
+package com.pixelbit.model.filter;
+
+/**
+ * A filter that works on packed ARGB pixel arrays and can compute any horizontal
+ * band of its output independently of the others. This lets {@link FilterExecutor}
+ * split the image into row bands and run them on several threads.
+ */
+public interface RasterFilter extends Filter {
+
+    /**
+     * Computes the output rows [startRow, endRow) of the filter.
+     * Implementations may read any row of src but must only write the given rows of dst.
+     *
+     * @param src      The packed ARGB source pixels in row-major order.
+     * @param dst      The packed ARGB destination pixels in row-major order.
+     * @param width    The width of the image.
+     * @param height   The height of the image.
+     * @param startRow The first row to compute, inclusive.
+     * @param endRow   The last row to compute, exclusive.
+     */
+    void filterRows(int[] src, int[] dst, int width, int height, int startRow, int endRow);
+}
@@ -0,0 +1,55 @@
+package com.pixelbit.model.filter;
+
+import static com.pixelbit.model.filter.ColorMatrixFilter.FIXED_POINT_SHIFT;
+import static com.pixelbit.model.filter.PixelAccess.clamp;
+
+/**
+ * Plain Java implementation of the pixel kernels, processing one pixel per iteration.
+ */
+final class ScalarPixelKernels implements PixelKernels {
+
+    static final ScalarPixelKernels INSTANCE = new ScalarPixelKernels();
+
+    private ScalarPixelKernels() {
+    }
+
+    @Override
+    public void invert(int[] src, int[] dst, int from, int to) {
+        for (int i = from; i < to; i++) {
+            dst[i] = src[i] ^ 0x00FFFFFF;
+        }
+    }
+
+    @Override
+    public void lookup(int[] src, int[] dst, int from, int to, int[] red, int[] green, int[] blue) {
+        for (int i = from; i < to; i++) {
+            int argb = src[i];
+            dst[i] = (argb & 0xFF000000)
+                    | (red[(argb >> 16) & 0xFF] << 16)
+                    | (green[(argb >> 8) & 0xFF] << 8)
+                    | blue[argb & 0xFF];
+        }
+    }
+
+    @Override
+    public void colorMatrix(int[] src, int[] dst, int from, int to, int[] w) {
+        int rr = w[0], rg = w[1], rb = w[2], ro = w[3];
+        int gr = w[4], gg = w[5], gb = w[6], go = w[7];
+        int br = w[8], bg = w[9], bb = w[10], bo = w[11];
+        for (int i = from; i < to; i++) {
+            int argb = src[i];
+            int r = (argb >> 16) & 0xFF;
+            int g = (argb >> 8) & 0xFF;
+            int b = argb & 0xFF;
+            int nr = clamp((rr * r + rg * g + rb * b + ro) >> FIXED_POINT_SHIFT);
+            int ng = clamp((gr * r + gg * g + gb * b + go) >> FIXED_POINT_SHIFT);
+            int nb = clamp((br * r + bg * g + bb * b + bo) >> FIXED_POINT_SHIFT);
+            dst[i] = (argb & 0xFF000000) | (nr << 16) | (ng << 8) | nb;
+        }
+    }
+
+    @Override
+    public boolean isVectorized() {
+        return false;
+    }
+}
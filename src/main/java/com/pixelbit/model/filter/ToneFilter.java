@@ -0,0 +1,114 @@
+package com.pixelbit.model.filter;
+
+import static com.pixelbit.model.filter.PixelAccess.*;
+
+/**
+ * ToneFilter is the base class for point filters that map each color channel
+ * independently through the same curve, so the output of a channel depends only on
+ * its own 0-255 input value. Such filters can be compiled into a 256-entry
+ * {@link LookupTableFilter} that replaces the per-pixel arithmetic with table lookups.
+ * Whole images are always filtered through the table, using {@link PixelKernels}.
+ * The alpha channel is always preserved.
+ */
+public abstract class ToneFilter extends PointFilter {
+
+    private static final PixelKernels KERNELS = PixelKernels.get();
+
+    private volatile int[] table; // Lazily evaluated tone curve
+
+    /**
+     * Maps a single color channel value through the tone curve.
+     *
+     * @param value The input channel value (0-255).
+     * @return The output channel value, clamped to 0-255.
+     */
+    public abstract int mapChannel(int value);
+
+    /**
+     * Maps a real channel value through the tone curve, for planar images.
+     * The default interpolates linearly between the levels of the integer curve;
+     * subclasses with a closed-form curve override it with the exact formula.
+     *
+     * @param value The input channel value on the 0-255 scale.
+     * @return The output channel value, clamped to 0-255.
+     */
+    public float mapChannel(float value) {
+        float clamped = Math.min(MAX_CHANNEL_VALUE, Math.max(0, value));
+        int low = (int) clamped;
+        int high = Math.min(MAX_CHANNEL_VALUE, low + 1);
+        float fraction = clamped - low;
+        return mapChannel(low) + (mapChannel(high) - mapChannel(low)) * fraction;
+    }
+
+    /**
+     * Maps the index range [from, to) of one plane through the tone curve, in place.
+     * Subclasses override this with the same loop so the curve is inlined and vectorized.
+     *
+     * @param plane The channel plane.
+     * @param from  The first index, inclusive.
+     * @param to    The last index, exclusive.
+     */
+    protected void mapPlane(float[] plane, int from, int to) {
+        for (int i = from; i < to; i++) {
+            plane[i] = mapChannel(plane[i]);
+        }
+    }
+
+    /**
+     * Maps the red, green and blue planes through the tone curve without rounding.
+     */
+    @Override
+    public void filterPlanar(PlanarImage image, int from, int to) {
+        mapPlane(image.red(), from, to);
+        mapPlane(image.green(), from, to);
+        mapPlane(image.blue(), from, to);
+    }
+
+    /**
+     * Applies the tone curve to the red, green and blue channels of a pixel.
+     *
+     * @param argb The input pixel.
+     * @return The mapped pixel with the original alpha preserved.
+     */
+    @Override
+    public int filterPixel(int argb) {
+        return pack(alpha(argb), mapChannel(red(argb)), mapChannel(green(argb)), mapChannel(blue(argb)));
+    }
+
+    /**
+     * Maps the pixels through the evaluated tone curve.
+     */
+    @Override
+    protected void filterPixels(int[] src, int[] dst, int from, int to) {
+        int[] curve = table;
+        if (curve == null) {
+            // Filters are immutable, so threads racing here compute the same table
+            curve = toTable();
+            table = curve;
+        }
+        KERNELS.lookup(src, dst, from, to, curve, curve, curve);
+    }
+
+    /**
+     * Evaluates the tone curve for every possible channel value.
+     *
+     * @return A 256-entry table where entry v holds mapChannel(v).
+     */
+    public int[] toTable() {
+        int[] table = new int[MAX_CHANNEL_VALUE + 1];
+        for (int value = 0; value <= MAX_CHANNEL_VALUE; value++) {
+            table[value] = mapChannel(value);
+        }
+        return table;
+    }
+
+    /**
+     * Compiles this filter into an equivalent lookup table filter.
+     *
+     * @return A LookupTableFilter that produces exactly the same pixels as this filter.
+     */
+    public LookupTableFilter compile() {
+        int[] table = toTable();
+        return new LookupTableFilter(getName(), table, table, table, this);
+    }
+}
@@ -0,0 +1,89 @@
+package com.pixelbit.model.filters;
+
+import com.pixelbit.model.Histogram;
+import com.pixelbit.model.filter.FilterExecutor;
+import com.pixelbit.model.filter.LookupTableFilter;
+
+import static com.pixelbit.model.filter.PixelAccess.MAX_CHANNEL_VALUE;
+
+/**
+ * AutoLevelsFilter stretches each color channel to the full 0-255 range.
+ * The darkest and brightest levels of each channel are found in its histogram, ignoring a
+ * small fraction of outlying pixels at both ends, and mapped linearly to 0 and 255.
+ * Because the channels are stretched separately, the filter also removes color casts.
+ */
+public class AutoLevelsFilter extends HistogramFilter {
+
+    /** Default fraction of pixels clipped at each end of every channel. */
+    public static final double DEFAULT_CLIP = 0.001;
+
+    private static final Histogram.Channel[] COLOR_CHANNELS =
+            {Histogram.Channel.RED, Histogram.Channel.GREEN, Histogram.Channel.BLUE};
+
+    private final double clip; // Fraction of pixels ignored at each end of every channel
+
+    /**
+     * Constructs an auto-levels filter that clips the default fraction of pixels.
+     */
+    public AutoLevelsFilter() {
+        this(DEFAULT_CLIP, FilterExecutor.getDefault());
+    }
+
+    /**
+     * Constructs an auto-levels filter.
+     *
+     * @param clip     The fraction of pixels ignored at each end of every channel, in [0, 0.5).
+     * @param executor The executor that counts the histogram and applies the table.
+     * @throws IllegalArgumentException if the clip fraction is out of range.
+     */
+    public AutoLevelsFilter(double clip, FilterExecutor executor) {
+        super(executor);
+        if (!(clip >= 0 && clip < 0.5)) {
+            throw new IllegalArgumentException("Clip fraction must be in [0, 0.5): " + clip);
+        }
+        this.clip = clip;
+    }
+
+    /**
+     * Returns the fraction of pixels ignored at each end of every channel.
+     *
+     * @return The clip fraction.
+     */
+    public double getClip() {
+        return clip;
+    }
+
+    @Override
+    public LookupTableFilter compile(Histogram histogram) {
+        int[][] tables = new int[COLOR_CHANNELS.length][];
+        for (int c = 0; c < COLOR_CHANNELS.length; c++) {
+            int low = histogram.percentile(COLOR_CHANNELS[c], clip);
+            int high = histogram.percentile(COLOR_CHANNELS[c], 1 - clip);
+            tables[c] = stretch(low, high);
+        }
+        return new LookupTableFilter(getName(), tables[0], tables[1], tables[2]);
+    }
+
+    /**
+     * Builds a table mapping [low, high] linearly onto [0, 255], or the identity if the range is empty.
+     */
+    private static int[] stretch(int low, int high) {
+        int[] table = new int[MAX_CHANNEL_VALUE + 1];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = high <= low
+                    ? i
+                    : (int) Math.round((i - low) * (double) MAX_CHANNEL_VALUE / (high - low));
+        }
+        return table;
+    }
+
+    /**
+     * Returns the name of the filter.
+     *
+     * @return The name of the filter.
+     */
+    @Override
+    public String getName() {
+        return "Auto Levels";
+    }
+}
@@ -0,0 +1,231 @@
+package com.pixelbit.model.filters;
+
+import com.pixelbit.model.filter.Filter;
+import com.pixelbit.model.filter.FilterExecutor;
+import com.pixelbit.model.filter.PixelAccess;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * BoxBlurFilter blurs an image in constant time per pixel, whatever the radius.
+ * Each box pass keeps a running sum over a sliding window, adding the pixel that enters
+ * the window and subtracting the one that leaves it, first along the rows and then along
+ * the columns. Three successive box passes of suitably chosen sizes approximate a
+ * Gaussian blur ({@link #gaussian(double)}) to within a few percent.
+ * <p>
+ * The horizontal passes run in parallel across bands of rows and the vertical passes
+ * across bands of columns. Pixels outside the image are clamped to the nearest edge pixel,
+ * like in {@link ConvolutionFilter}, and alpha is preserved.
+ */
+public class BoxBlurFilter implements Filter {
+
+    /** Largest radius accepted, in pixels. */
+    public static final int MAX_RADIUS = 2048;
+    /** Number of box passes used to approximate a Gaussian. */
+    public static final int GAUSSIAN_PASSES = 3;
+
+    private final String name; // Name reported by getName
+    private final int[] radii; // Radius of each box pass
+    private final FilterExecutor executor; // Executor that runs the row and column bands
+
+    /**
+     * Constructs a single-pass box blur.
+     *
+     * @param radius The radius of the box in pixels; the box is 2 * radius + 1 pixels wide.
+     * @throws IllegalArgumentException if the radius is negative or larger than {@link #MAX_RADIUS}.
+     */
+    public BoxBlurFilter(int radius) {
+        this("Box Blur", new int[]{radius}, FilterExecutor.getDefault());
+    }
+
+    /**
+     * Constructs a blur made of several box passes.
+     *
+     * @param name     The name of the filter.
+     * @param radii    The radius of each pass in pixels.
+     * @param executor The executor that runs the passes.
+     * @throws IllegalArgumentException if there are no passes or a radius is out of range.
+     */
+    public BoxBlurFilter(String name, int[] radii, FilterExecutor executor) {
+        if (radii == null || radii.length == 0) {
+            throw new IllegalArgumentException("A box blur needs at least one pass");
+        }
+        for (int radius : radii) {
+            if (radius < 0 || radius > MAX_RADIUS) {
+                throw new IllegalArgumentException("Radius must be between 0 and " + MAX_RADIUS + ": " + radius);
+            }
+        }
+        this.name = name;
+        this.radii = radii.clone();
+        this.executor = executor;
+    }
+
+    /**
+     * Creates a blur that approximates a Gaussian with three box passes.
+     *
+     * @param sigma The standard deviation of the Gaussian in pixels.
+     * @return The three-pass box blur.
+     * @throws IllegalArgumentException if sigma is not positive or needs a box larger than {@link #MAX_RADIUS}.
+     */
+    public static BoxBlurFilter gaussian(double sigma) {
+        return gaussian(sigma, FilterExecutor.getDefault());
+    }
+
+    /**
+     * Creates a blur that approximates a Gaussian with three box passes.
+     *
+     * @param sigma    The standard deviation of the Gaussian in pixels.
+     * @param executor The executor that runs the passes.
+     * @return The three-pass box blur.
+     * @throws IllegalArgumentException if sigma is not positive or needs a box larger than {@link #MAX_RADIUS}.
+     */
+    public static BoxBlurFilter gaussian(double sigma, FilterExecutor executor) {
+        if (!(sigma > 0)) {
+            throw new IllegalArgumentException("Sigma must be positive: " + sigma);
+        }
+        return new BoxBlurFilter("Fast Gaussian Blur", gaussianRadii(sigma, GAUSSIAN_PASSES), executor);
+    }
+
+    /**
+     * Returns the radii of n box passes whose combined variance best matches a Gaussian.
+     * Boxes of widths wl and wu = wl + 2 (both odd) are mixed so that m passes of wl and
+     * n - m passes of wu give a variance as close as possible to sigma squared.
+     */
+    static int[] gaussianRadii(double sigma, int passes) {
+        double variance = sigma * sigma;
+        int lower = (int) Math.floor(Math.sqrt(12 * variance / passes + 1));
+        if (lower % 2 == 0) {
+            lower--;
+        }
+        int upper = lower + 2;
+        int lowerPasses = (int) Math.round(
+                (12 * variance - passes * lower * lower - 4.0 * passes * lower - 3.0 * passes) / (-4.0 * lower - 4));
+        int[] radii = new int[passes];
+        for (int i = 0; i < passes; i++) {
+            radii[i] = ((i < lowerPasses ? lower : upper) - 1) / 2;
+        }
+        return radii;
+    }
+
+    /**
+     * Returns the radius of each box pass.
+     *
+     * @return A copy of the radii.
+     */
+    public int[] getRadii() {
+        return radii.clone();
+    }
+
+    /**
+     * Applies the blur to the given image.
+     *
+     * @param image The image to which the filter will be applied.
+     * @return A new TYPE_INT_ARGB image with the blur applied.
+     */
+    @Override
+    public BufferedImage apply(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] src = PixelAccess.readPixels(image);
+
+        int[][] channels = new int[3][width * height];
+        int[][] scratch = new int[3][width * height];
+        executor.forEachBand(width, height, (startRow, endRow) -> {
+            for (int i = startRow * width; i < endRow * width; i++) {
+                int argb = src[i];
+                channels[0][i] = (argb >> 16) & 0xFF;
+                channels[1][i] = (argb >> 8) & 0xFF;
+                channels[2][i] = argb & 0xFF;
+            }
+        });
+
+        for (int radius : radii) {
+            if (radius == 0) {
+                continue;
+            }
+            executor.forEachBand(width, height, (startRow, endRow) -> {
+                for (int c = 0; c < 3; c++) {
+                    for (int y = startRow; y < endRow; y++) {
+                        blurRow(channels[c], scratch[c], y * width, width, radius);
+                    }
+                }
+            });
+            // Columns are split into bands the same way rows are, with the roles of width and height swapped
+            executor.forEachBand(height, width, (startColumn, endColumn) -> {
+                for (int c = 0; c < 3; c++) {
+                    blurColumns(scratch[c], channels[c], width, height, startColumn, endColumn, radius);
+                }
+            });
+        }
+
+        BufferedImage result = PixelAccess.borrowArgb(width, height);
+        int[] dst = PixelAccess.data(result);
+        executor.forEachBand(width, height, (startRow, endRow) -> {
+            for (int i = startRow * width; i < endRow * width; i++) {
+                dst[i] = (src[i] & 0xFF000000) | (channels[0][i] << 16) | (channels[1][i] << 8) | channels[2][i];
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Box-blurs one row with a running sum over the window [x - radius, x + radius].
+     */
+    private static void blurRow(int[] in, int[] out, int offset, int width, int radius) {
+        float scale = 1f / (2 * radius + 1);
+        int last = offset + width - 1;
+        int sum = (radius + 1) * in[offset];
+        for (int i = 1; i <= radius; i++) {
+            sum += in[Math.min(offset + i, last)];
+        }
+        for (int x = 0; x < width; x++) {
+            out[offset + x] = (int) (sum * scale + 0.5f);
+            sum += in[Math.min(offset + x + radius + 1, last)] - in[Math.max(offset + x - radius, offset)];
+        }
+    }
+
+    /**
+     * Box-blurs the columns [startColumn, endColumn), keeping one running sum per column
+     * and walking down the rows so memory is read row by row.
+     */
+    private static void blurColumns(int[] in, int[] out, int width, int height,
+                                    int startColumn, int endColumn, int radius) {
+        float scale = 1f / (2 * radius + 1);
+        int columns = endColumn - startColumn;
+        int[] sums = new int[columns];
+        for (int x = 0; x < columns; x++) {
+            sums[x] = (radius + 1) * in[startColumn + x];
+        }
+        for (int i = 1; i <= radius; i++) {
+            int row = Math.min(i, height - 1) * width + startColumn;
+            for (int x = 0; x < columns; x++) {
+                sums[x] += in[row + x];
+            }
+        }
+        for (int y = 0; y < height; y++) {
+            int row = y * width + startColumn;
+            int entering = Math.min(y + radius + 1, height - 1) * width + startColumn;
+            int leaving = Math.max(y - radius, 0) * width + startColumn;
+            for (int x = 0; x < columns; x++) {
+                out[row + x] = (int) (sums[x] * scale + 0.5f);
+                sums[x] += in[entering + x] - in[leaving + x];
+            }
+        }
+    }
+
+    /**
+     * Returns the name of the filter.
+     *
+     * @return The name of the filter.
+     */
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return name + Arrays.toString(radii);
+    }
+}
@@ -1,15 +1,16 @@
 package com.pixelbit.model.filters;
 
-import com.pixelbit.model.filter.Filter;
-import java.awt.*;
-import java.awt.image.BufferedImage;
+import com.pixelbit.model.filter.ToneFilter;
+
+import static com.pixelbit.model.filter.PixelAccess.*;
 
 /**
  * BrightnessFilter adjusts the brightness of an image by a specified amount.
  * Positive values brighten the image, while negative values darken it.
  */
-public class BrightnessFilter implements Filter {
+public class BrightnessFilter extends ToneFilter {
     private final int adjustment; // Adjustment value in the range of -255 to 255
+    private final float adjustmentFactor; // Adjustment as a fraction of the full channel range
 
     /**
      * Constructs a BrightnessFilter with the specified adjustment value.
@@ -19,62 +20,53 @@ public class BrightnessFilter implements Filter {
      */
     public BrightnessFilter(int adjustment) {
         this.adjustment = adjustment;
+        this.adjustmentFactor = adjustment / 255.0f;
     }
 
     /**
-     * Applies the brightness adjustment to the given image.
+     * Applies the brightness adjustment to a single channel value.
      *
-     * @param image The image to adjust.
-     * @return A new BufferedImage with the brightness adjusted.
+     * @param value The input channel value (0-255).
+     * @return The adjusted channel value, clamped to 0-255.
      */
     @Override
-    public BufferedImage apply(BufferedImage image) {
-        int width = image.getWidth();
-        int height = image.getHeight();
-        BufferedImage brightImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-        
-        float adjustmentFactor = adjustment / 255.0f;
-        
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                Color color = new Color(image.getRGB(x, y), true);
-                int r = color.getRed();
-                int g = color.getGreen();
-                int b = color.getBlue();
-                
-                if (adjustmentFactor > 0) {
-                    // When brightening, scale up towards 255
-                    r += (255 - r) * adjustmentFactor;
-                    g += (255 - g) * adjustmentFactor;
-                    b += (255 - b) * adjustmentFactor;
-                } else {
-                    // When darkening, scale down towards 0
-                    r += r * adjustmentFactor;
-                    g += g * adjustmentFactor;
-                    b += b * adjustmentFactor;
-                }
-                
-                // Create new color with clamped RGB values and original alpha
-                Color newColor = new Color(
-                    clamp((int)r),
-                    clamp((int)g),
-                    clamp((int)b),
-                    color.getAlpha()
-                );
-                brightImage.setRGB(x, y, newColor.getRGB());
-            }
+    public int mapChannel(int value) {
+        if (adjustmentFactor > 0) {
+            // When brightening, scale up towards 255
+            return clamp((int) (value + (255 - value) * adjustmentFactor));
+        }
+        // When darkening, scale down towards 0
+        return clamp((int) (value + value * adjustmentFactor));
+    }
+
+    /**
+     * Adjusts a real channel value with the same curve, without truncating.
+     *
+     * @param value the channel value on the 0-255 scale
+     * @return the adjusted value, clamped to 0-255
+     */
+    @Override
+    public float mapChannel(float value) {
+        float adjusted = adjustmentFactor > 0
+                ? value + (255 - value) * adjustmentFactor
+                : value + value * adjustmentFactor;
+        return Math.min(255f, Math.max(0f, adjusted));
+    }
+
+    @Override
+    protected void mapPlane(float[] plane, int from, int to) {
+        for (int i = from; i < to; i++) {
+            plane[i] = mapChannel(plane[i]);
         }
-        return brightImage;
     }
 
     /**
-     * Clamps the RGB values to ensure they are within the valid range of 0 to 255.
+     * Returns the brightness adjustment of this filter.
      *
-     * @param value The RGB value to clamp.
-     * @return The clamped value.
+     * @return The adjustment value.
      */
-    private int clamp(int value) {
-        return Math.min(255, Math.max(0, value));
+    public int getAdjustment() {
+        return adjustment;
     }
 
     /**
@@ -1,8 +1,8 @@
 package com.pixelbit.model.filters;
 
-import com.pixelbit.model.filter.Filter;
-import java.awt.*;
-import java.awt.image.BufferedImage;
+import com.pixelbit.model.filter.ToneFilter;
+
+import static com.pixelbit.model.filter.PixelAccess.*;
 
 /**
  * ContrastFilter applies a contrast adjustment to an image.
@@ -10,8 +10,9 @@ import java.awt.image.BufferedImage;
  * Values outside this range will be clamped.
  * A value of 0.0 means no change.
  */
-public class ContrastFilter implements Filter {
+public class ContrastFilter extends ToneFilter {
     private final double adjustment; // Adjustment value between -1.0 and 1.0
+    private final double factor; // Contrast factor applied around middle gray
 
     /**
      * Constructs a ContrastFilter with the specified adjustment.
@@ -21,44 +22,54 @@ public class ContrastFilter implements Filter {
      */
     public ContrastFilter(double adjustment) {
         this.adjustment = adjustment;
-    }
 
-    /**
-     * Applies the contrast adjustment to the given image.
-     *
-     * @param image The input image to adjust.
-     * @return A new BufferedImage with the contrast adjusted.
-     */
-    @Override
-    public BufferedImage apply(BufferedImage image) {
-        int width = image.getWidth();
-        int height = image.getHeight();
-        BufferedImage contrastImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-        
         // Convert adjustment from -1.0 to 1.0 range to a gentler contrast factor
-        double factor;
         if (adjustment > 0) {
             // For positive adjustments (0 to 1), map to range 1.0 to 2.0
-            factor = 1.0 + adjustment;
+            this.factor = 1.0 + adjustment;
         } else {
             // For negative adjustments (-1 to 0), map to range 0.5 to 1.0
-            factor = 1.0 + adjustment/2.0;
+            this.factor = 1.0 + adjustment/2.0;
         }
-        
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                Color color = new Color(image.getRGB(x, y), true);
-                
-                // Apply contrast adjustment to each channel
-                int r = adjustContrast(color.getRed(), factor);
-                int g = adjustContrast(color.getGreen(), factor);
-                int b = adjustContrast(color.getBlue(), factor);
-                
-                Color newColor = new Color(r, g, b, color.getAlpha());
-                contrastImage.setRGB(x, y, newColor.getRGB());
-            }
+    }
+
+    /**
+     * Applies the contrast adjustment to a single channel value.
+     *
+     * @param value The input channel value (0-255).
+     * @return The adjusted channel value, clamped to 0-255.
+     */
+    @Override
+    public int mapChannel(int value) {
+        return adjustContrast(value, factor);
+    }
+
+    /**
+     * Adjusts the contrast of a real channel value, without truncating.
+     *
+     * @param value the channel value on the 0-255 scale
+     * @return the adjusted value, clamped to 0-255
+     */
+    @Override
+    public float mapChannel(float value) {
+        float adjusted = (float) (128 + (value - 128) * factor);
+        return Math.min(255f, Math.max(0f, adjusted));
+    }
+
+    @Override
+    protected void mapPlane(float[] plane, int from, int to) {
+        for (int i = from; i < to; i++) {
+            plane[i] = mapChannel(plane[i]);
         }
-        return contrastImage;
+    }
+
+    /**
+     * Returns the contrast adjustment of this filter.
+     *
+     * @return The adjustment value.
+     */
+    public double getAdjustment() {
+        return adjustment;
     }
 
     /**
@@ -75,16 +86,6 @@ public class ContrastFilter implements Filter {
         return clamp((int) adjusted);
     }
 
-    /**
-     * Clamps a value to the range 0-255.
-     *
-     * @param value The value to clamp.
-     * @return The clamped value.
-     */
-    private int clamp(int value) {
-        return Math.min(255, Math.max(0, value));
-    }
-
     /**
      * Returns the name of the filter.
      *
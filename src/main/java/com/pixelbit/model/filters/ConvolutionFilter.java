@@ -0,0 +1,217 @@
+package com.pixelbit.model.filters;
+
+import com.pixelbit.model.filter.PixelAccess;
+import com.pixelbit.model.filter.RasterFilter;
+
+import java.awt.image.BufferedImage;
+
+import static com.pixelbit.model.filter.PixelAccess.clamp;
+
+/**
+ * ConvolutionFilter is the convolution engine behind the spatial filters.
+ * It convolves the red, green and blue channels with a {@link ConvolutionKernel}
+ * and keeps the alpha channel of the center pixel. Pixels outside the image are
+ * clamped to the nearest edge pixel.
+ * <p>
+ * Each band of output rows is computed independently, reading the rows it needs
+ * above and below, so {@link com.pixelbit.model.filter.FilterExecutor} can run the
+ * bands in parallel. Separable kernels run as a horizontal pass into a float buffer
+ * followed by a vertical pass; other kernels are applied directly in 2-D.
+ */
+public class ConvolutionFilter implements RasterFilter {
+
+    private final String name; // Name reported by getName
+    private final ConvolutionKernel kernel; // Kernel applied by filterRows
+
+    /**
+     * Constructs a convolution filter.
+     *
+     * @param name   The name of the filter.
+     * @param kernel The kernel to convolve the image with.
+     */
+    public ConvolutionFilter(String name, ConvolutionKernel kernel) {
+        if (kernel == null) {
+            throw new IllegalArgumentException("Kernel cannot be null");
+        }
+        this.name = name;
+        this.kernel = kernel;
+    }
+
+    /**
+     * Constructs a convolution filter named after its kernel.
+     *
+     * @param kernel The kernel to convolve the image with.
+     */
+    public ConvolutionFilter(ConvolutionKernel kernel) {
+        this("Convolution", kernel);
+    }
+
+    /**
+     * Returns the kernel applied by this filter.
+     *
+     * @return The convolution kernel.
+     */
+    public ConvolutionKernel getKernel() {
+        return kernel;
+    }
+
+    /**
+     * Applies the filter to the given image on the calling thread.
+     *
+     * @param image The image to which the filter will be applied.
+     * @return A new TYPE_INT_ARGB image with the filter applied.
+     */
+    @Override
+    public BufferedImage apply(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] src = PixelAccess.readPixels(image);
+        BufferedImage result = PixelAccess.borrowArgb(width, height);
+        filterRows(src, PixelAccess.data(result), width, height, 0, height);
+        return result;
+    }
+
+    @Override
+    public void filterRows(int[] src, int[] dst, int width, int height, int startRow, int endRow) {
+        float[][] channels = convolve(src, width, height, kernel, startRow, endRow);
+        float[] red = channels[0];
+        float[] green = channels[1];
+        float[] blue = channels[2];
+        int offset = startRow * width;
+        for (int i = 0; i < red.length; i++) {
+            dst[offset + i] = (src[offset + i] & 0xFF000000)
+                    | (round(red[i]) << 16) | (round(green[i]) << 8) | round(blue[i]);
+        }
+    }
+
+    /**
+     * Rounds a convolved channel value to the nearest level in 0-255.
+     *
+     * @param value The channel value.
+     * @return The rounded and clamped value.
+     */
+    protected static int round(float value) {
+        return clamp((int) (value + 0.5f));
+    }
+
+    /**
+     * Convolves the red, green and blue channels of the rows [startRow, endRow).
+     *
+     * @param src      The packed ARGB source pixels in row-major order.
+     * @param width    The width of the image.
+     * @param height   The height of the image.
+     * @param kernel   The kernel to convolve with.
+     * @param startRow The first row to compute, inclusive.
+     * @param endRow   The last row to compute, exclusive.
+     * @return The red, green and blue results, each (endRow - startRow) * width values in row-major order.
+     */
+    protected static float[][] convolve(int[] src, int width, int height, ConvolutionKernel kernel,
+                                        int startRow, int endRow) {
+        int radiusX = kernel.getWidth() / 2;
+        int radiusY = kernel.getHeight() / 2;
+        int top = Math.max(0, startRow - radiusY);
+        int bottom = Math.min(height, endRow + radiusY);
+        float[][] padded = unpackPadded(src, width, top, bottom, radiusX);
+
+        float[][] result = new float[3][(endRow - startRow) * width];
+        if (kernel.isSeparable()) {
+            float[] horizontal = kernel.getHorizontal();
+            float[] vertical = kernel.getVertical();
+            for (int c = 0; c < 3; c++) {
+                float[] rows = horizontalPass(padded[c], width, bottom - top, horizontal);
+                for (int y = startRow; y < endRow; y++) {
+                    int out = (y - startRow) * width;
+                    for (int k = 0; k < vertical.length; k++) {
+                        int row = clampRow(y + k - radiusY, height) - top;
+                        axpy(vertical[k], rows, row * width, result[c], out, width);
+                    }
+                }
+            }
+        } else {
+            int paddedWidth = width + 2 * radiusX;
+            for (int c = 0; c < 3; c++) {
+                for (int y = startRow; y < endRow; y++) {
+                    int out = (y - startRow) * width;
+                    for (int ky = 0; ky < kernel.getHeight(); ky++) {
+                        int row = (clampRow(y + ky - radiusY, height) - top) * paddedWidth;
+                        for (int kx = 0; kx < kernel.getWidth(); kx++) {
+                            float weight = kernel.get(kx, ky);
+                            if (weight != 0) {
+                                axpy(weight, padded[c], row + kx, result[c], out, width);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Unpacks the rows [top, bottom) into one float array per color channel, with
+     * radiusX copies of the edge pixels added on both sides of every row.
+     */
+    private static float[][] unpackPadded(int[] src, int width, int top, int bottom, int radiusX) {
+        int paddedWidth = width + 2 * radiusX;
+        float[][] padded = new float[3][(bottom - top) * paddedWidth];
+        for (int y = top; y < bottom; y++) {
+            int in = y * width;
+            int out = (y - top) * paddedWidth;
+            for (int x = -radiusX; x < width + radiusX; x++) {
+                int argb = src[in + Math.min(width - 1, Math.max(0, x))];
+                int i = out + x + radiusX;
+                padded[0][i] = (argb >> 16) & 0xFF;
+                padded[1][i] = (argb >> 8) & 0xFF;
+                padded[2][i] = argb & 0xFF;
+            }
+        }
+        return padded;
+    }
+
+    /**
+     * Convolves every padded row with the horizontal factor of a separable kernel.
+     */
+    private static float[] horizontalPass(float[] padded, int width, int rows, float[] horizontal) {
+        int paddedWidth = width + horizontal.length - 1;
+        float[] result = new float[rows * width];
+        for (int row = 0; row < rows; row++) {
+            for (int k = 0; k < horizontal.length; k++) {
+                axpy(horizontal[k], padded, row * paddedWidth + k, result, row * width, width);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Adds weight * x[xOffset + i] to y[yOffset + i] for i in [0, length).
+     */
+    private static void axpy(float weight, float[] x, int xOffset, float[] y, int yOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            y[yOffset + i] += weight * x[xOffset + i];
+        }
+    }
+
+    private static int clampRow(int row, int height) {
+        return Math.min(height - 1, Math.max(0, row));
+    }
+
+    /**
+     * Checks whether the filter can process bands of rows on separate threads.
+     *
+     * @return true, since every band only writes its own rows.
+     */
+    @Override
+    public boolean isParallelSafe() {
+        return true;
+    }
+
+    /**
+     * Returns the name of the filter.
+     *
+     * @return The name of the filter.
+     */
+    @Override
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,291 @@
+package com.pixelbit.model.filters;
+
+import java.util.Arrays;
+
+/**
+ * ConvolutionKernel is an immutable matrix of weights with odd width and height,
+ * centered on the pixel being computed.
+ * When the kernel is the outer product of a column and a row vector it is separable,
+ * and {@link ConvolutionFilter} runs it as a horizontal and a vertical 1-D pass,
+ * which costs width + height multiplies per pixel instead of width * height.
+ */
+public final class ConvolutionKernel {
+
+    /** Largest width or height accepted. */
+    public static final int MAX_SIZE = 255;
+    /** Largest Gaussian sigma accepted, which keeps the kernel within MAX_SIZE. */
+    public static final double MAX_SIGMA = 42.0;
+    /** Relative tolerance used when checking whether a kernel is separable. */
+    private static final double SEPARABLE_TOLERANCE = 1e-6;
+
+    private final int width; // Number of columns
+    private final int height; // Number of rows
+    private final float[] weights; // Row-major weights
+    private final float[] horizontal; // Row factor of a separable kernel, null otherwise
+    private final float[] vertical; // Column factor of a separable kernel, null otherwise
+
+    /**
+     * Constructs a kernel from its row-major weights and detects whether it is separable.
+     *
+     * @param width   The number of columns, odd.
+     * @param height  The number of rows, odd.
+     * @param weights The width * height weights in row-major order.
+     * @throws IllegalArgumentException if the size is not odd, too large or does not match the weights.
+     */
+    public ConvolutionKernel(int width, int height, float... weights) {
+        this(width, height, weights, null, null);
+        checkWeights(weights);
+    }
+
+    private ConvolutionKernel(int width, int height, float[] weights, float[] horizontal, float[] vertical) {
+        checkSize(width);
+        checkSize(height);
+        if (weights == null || weights.length != width * height) {
+            throw new IllegalArgumentException("A " + width + "x" + height + " kernel needs " + width * height + " weights");
+        }
+        this.width = width;
+        this.height = height;
+        this.weights = weights.clone();
+        if (horizontal != null) {
+            this.horizontal = horizontal.clone();
+            this.vertical = vertical.clone();
+        } else {
+            float[][] factors = factorize(width, height, this.weights);
+            this.horizontal = factors == null ? null : factors[0];
+            this.vertical = factors == null ? null : factors[1];
+        }
+    }
+
+    /**
+     * Creates a separable kernel from its row and column factors.
+     *
+     * @param horizontal The weights applied along each row, odd length.
+     * @param vertical   The weights applied along each column, odd length.
+     * @return The kernel vertical * horizontal.
+     */
+    public static ConvolutionKernel separable(float[] horizontal, float[] vertical) {
+        checkWeights(horizontal);
+        checkWeights(vertical);
+        float[] weights = new float[horizontal.length * vertical.length];
+        for (int y = 0; y < vertical.length; y++) {
+            for (int x = 0; x < horizontal.length; x++) {
+                weights[y * horizontal.length + x] = vertical[y] * horizontal[x];
+            }
+        }
+        return new ConvolutionKernel(horizontal.length, vertical.length, weights, horizontal, vertical);
+    }
+
+    /**
+     * Creates a normalized Gaussian blur kernel reaching three standard deviations from the center.
+     *
+     * @param sigma The standard deviation in pixels.
+     * @return The separable Gaussian kernel.
+     */
+    public static ConvolutionKernel gaussian(double sigma) {
+        float[] weights = gaussianWeights(sigma);
+        return separable(weights, weights);
+    }
+
+    /**
+     * Returns the normalized 1-D Gaussian weights reaching three standard deviations from the center.
+     *
+     * @param sigma The standard deviation in pixels.
+     * @return The weights, which sum to 1.
+     */
+    static float[] gaussianWeights(double sigma) {
+        if (!(sigma > 0) || sigma > MAX_SIGMA) {
+            throw new IllegalArgumentException("Sigma must be in (0, " + MAX_SIGMA + "]: " + sigma);
+        }
+        int radius = Math.max(1, (int) Math.ceil(3 * sigma));
+        double[] values = new double[2 * radius + 1];
+        double sum = 0;
+        for (int i = -radius; i <= radius; i++) {
+            values[i + radius] = Math.exp(-(i * i) / (2 * sigma * sigma));
+            sum += values[i + radius];
+        }
+        float[] weights = new float[values.length];
+        for (int i = 0; i < values.length; i++) {
+            weights[i] = (float) (values[i] / sum);
+        }
+        return weights;
+    }
+
+    /**
+     * Creates a 3x3 sharpening kernel that adds the difference from the four neighbours.
+     *
+     * @param amount The strength of the effect, 0 for no change.
+     * @return The sharpening kernel, whose weights sum to 1.
+     */
+    public static ConvolutionKernel sharpen(double amount) {
+        float a = (float) amount;
+        return new ConvolutionKernel(3, 3,
+                0, -a, 0,
+                -a, 1 + 4 * a, -a,
+                0, -a, 0);
+    }
+
+    /**
+     * Creates the horizontal Sobel gradient kernel.
+     *
+     * @return The kernel [1 2 1]^T * [-1 0 1].
+     */
+    public static ConvolutionKernel sobelX() {
+        return separable(new float[]{-1, 0, 1}, new float[]{1, 2, 1});
+    }
+
+    /**
+     * Creates the vertical Sobel gradient kernel.
+     *
+     * @return The kernel [-1 0 1]^T * [1 2 1].
+     */
+    public static ConvolutionKernel sobelY() {
+        return separable(new float[]{1, 2, 1}, new float[]{-1, 0, 1});
+    }
+
+    /**
+     * Splits a kernel into a row and a column factor if it is the outer product of the two.
+     * The factors are read from the row and column of the largest weight and the
+     * product is then checked against every weight.
+     *
+     * @return The horizontal and vertical factors, or null if the kernel is not separable.
+     */
+    private static float[][] factorize(int width, int height, float[] weights) {
+        int pivot = 0;
+        for (int i = 1; i < weights.length; i++) {
+            if (Math.abs(weights[i]) > Math.abs(weights[pivot])) {
+                pivot = i;
+            }
+        }
+        float largest = weights[pivot];
+        if (largest == 0) {
+            return null;
+        }
+        int pivotRow = pivot / width;
+        int pivotColumn = pivot % width;
+        float[] horizontal = new float[width];
+        float[] vertical = new float[height];
+        for (int x = 0; x < width; x++) {
+            horizontal[x] = weights[pivotRow * width + x] / largest;
+        }
+        for (int y = 0; y < height; y++) {
+            vertical[y] = weights[y * width + pivotColumn];
+        }
+        double tolerance = Math.abs(largest) * SEPARABLE_TOLERANCE;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (Math.abs((double) vertical[y] * horizontal[x] - weights[y * width + x]) > tolerance) {
+                    return null;
+                }
+            }
+        }
+        return new float[][]{horizontal, vertical};
+    }
+
+    private static void checkSize(int size) {
+        if (size <= 0 || size % 2 == 0 || size > MAX_SIZE) {
+            throw new IllegalArgumentException("Kernel size must be odd and at most " + MAX_SIZE + ": " + size);
+        }
+    }
+
+    private static void checkWeights(float[] weights) {
+        if (weights == null || weights.length % 2 == 0 || weights.length > MAX_SIZE * MAX_SIZE) {
+            throw new IllegalArgumentException("Kernel weights must have an odd length");
+        }
+        for (float weight : weights) {
+            if (!Float.isFinite(weight)) {
+                throw new IllegalArgumentException("Kernel weights must be finite");
+            }
+        }
+    }
+
+    /**
+     * Returns the number of columns of the kernel.
+     *
+     * @return The kernel width.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the number of rows of the kernel.
+     *
+     * @return The kernel height.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the weight at the given column and row.
+     *
+     * @param x The column, 0 at the left.
+     * @param y The row, 0 at the top.
+     * @return The kernel weight.
+     */
+    public float get(int x, int y) {
+        return weights[y * width + x];
+    }
+
+    /**
+     * Checks whether the kernel is the outer product of a column and a row vector.
+     *
+     * @return true if the kernel can be applied as two 1-D passes, false otherwise.
+     */
+    public boolean isSeparable() {
+        return horizontal != null;
+    }
+
+    /**
+     * Returns the weights applied along each row by a separable kernel.
+     *
+     * @return A copy of the row factor.
+     * @throws IllegalStateException if the kernel is not separable.
+     */
+    public float[] getHorizontal() {
+        if (!isSeparable()) {
+            throw new IllegalStateException("Kernel is not separable");
+        }
+        return horizontal.clone();
+    }
+
+    /**
+     * Returns the weights applied along each column by a separable kernel.
+     *
+     * @return A copy of the column factor.
+     * @throws IllegalStateException if the kernel is not separable.
+     */
+    public float[] getVertical() {
+        if (!isSeparable()) {
+            throw new IllegalStateException("Kernel is not separable");
+        }
+        return vertical.clone();
+    }
+
+    /**
+     * Returns a copy of the row-major weights.
+     *
+     * @return The kernel weights.
+     */
+    public float[] toArray() {
+        return weights.clone();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ConvolutionKernel other
+                && width == other.width
+                && height == other.height
+                && Arrays.equals(weights, other.weights);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * width + height) + Arrays.hashCode(weights);
+    }
+
+    @Override
+    public String toString() {
+        return "ConvolutionKernel[" + width + "x" + height + (isSeparable() ? ", separable" : "") + "]";
+    }
+}
@@ -1,6 +1,7 @@
 package com.pixelbit.model.filters;
 
 import com.pixelbit.model.filter.Filter;
+
 import java.awt.image.BufferedImage;
 
 /**
@@ -33,7 +34,7 @@ public class CropFilter implements Filter {
      * Applies the crop filter to the given image.
      *
      * @param image The image to be cropped.
-     * @return A new BufferedImage that is the cropped version of the input image.
+     * @return A view of the cropped area that shares the pixels of the input image.
      * @throws IllegalArgumentException if the crop parameters are invalid.
      */
     @Override
@@ -50,22 +51,11 @@ public class CropFilter implements Filter {
             );
         }
 
-        // Create a new image with the cropped dimensions
-        BufferedImage croppedImage = new BufferedImage(
-            width, 
-            height, 
-            image.getType()
-        );
-
-        // Copy the cropped region to the new image
-        croppedImage.getGraphics().drawImage(
-            image,
-            0, 0, width, height,  // Destination coordinates
-            x, y, x + width, y + height,  // Source coordinates
-            null
-        );
-
-        return croppedImage;
+        // The cropped image is a view sharing the source pixels, so cropping copies nothing.
+        // Filters never write to their input, and EditableImage copies the view before
+        // any write of its own, so the shared pixels stay unchanged. Callers that pool their
+        // input release it with BufferPool.releaseUnlessShared, which keeps it for the view.
+        return image.getSubimage(x, y, width, height);
     }
 
     /**
@@ -0,0 +1,64 @@
+package com.pixelbit.model.filters;
+
+import com.pixelbit.model.Histogram;
+import com.pixelbit.model.filter.FilterExecutor;
+import com.pixelbit.model.filter.LookupTableFilter;
+
+import static com.pixelbit.model.filter.PixelAccess.MAX_CHANNEL_VALUE;
+
+/**
+ * EqualizeFilter spreads the tones of an image evenly over the 0-255 range.
+ * The table maps every level to the fraction of pixels at or below it, computed from the
+ * luminance histogram. The same table is applied to the red, green and blue channels,
+ * which raises contrast without shifting the balance between the channels as much as
+ * equalizing each channel separately would.
+ */
+public class EqualizeFilter extends HistogramFilter {
+
+    /**
+     * Constructs an equalization filter.
+     */
+    public EqualizeFilter() {
+        this(FilterExecutor.getDefault());
+    }
+
+    /**
+     * Constructs an equalization filter that runs on a specific executor.
+     *
+     * @param executor The executor that counts the histogram and applies the table.
+     */
+    public EqualizeFilter(FilterExecutor executor) {
+        super(executor);
+    }
+
+    @Override
+    public LookupTableFilter compile(Histogram histogram) {
+        long[] cumulative = histogram.getCumulativeCounts(Histogram.Channel.LUMINANCE);
+        long total = histogram.getPixelCount();
+        // Levels below the darkest pixel map to 0, so the darkest tone becomes black
+        long darkest = 0;
+        for (long count : cumulative) {
+            if (count > 0) {
+                darkest = count;
+                break;
+            }
+        }
+        int[] table = new int[MAX_CHANNEL_VALUE + 1];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = total == darkest
+                    ? i
+                    : (int) Math.round(Math.max(0, cumulative[i] - darkest) * (double) MAX_CHANNEL_VALUE / (total - darkest));
+        }
+        return new LookupTableFilter(getName(), table, table, table);
+    }
+
+    /**
+     * Returns the name of the filter.
+     *
+     * @return The name of the filter.
+     */
+    @Override
+    public String getName() {
+        return "Equalize";
+    }
+}
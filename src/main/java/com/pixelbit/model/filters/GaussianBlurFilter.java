@@ -0,0 +1,30 @@
+package com.pixelbit.model.filters;
+
+/**
+ * GaussianBlurFilter blurs an image with a Gaussian kernel.
+ * The kernel is separable, so each pixel costs two 1-D passes of 6 * sigma + 1 taps.
+ */
+public class GaussianBlurFilter extends ConvolutionFilter {
+
+    private final double sigma; // Standard deviation of the blur in pixels
+
+    /**
+     * Constructs a Gaussian blur filter.
+     *
+     * @param sigma The standard deviation of the blur in pixels.
+     * @throws IllegalArgumentException if sigma is not in (0, {@link ConvolutionKernel#MAX_SIGMA}].
+     */
+    public GaussianBlurFilter(double sigma) {
+        super("Gaussian Blur", ConvolutionKernel.gaussian(sigma));
+        this.sigma = sigma;
+    }
+
+    /**
+     * Returns the standard deviation of the blur.
+     *
+     * @return Sigma in pixels.
+     */
+    public double getSigma() {
+        return sigma;
+    }
+}
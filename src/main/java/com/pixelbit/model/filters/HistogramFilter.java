@@ -0,0 +1,49 @@
+package com.pixelbit.model.filters;
+
+import com.pixelbit.model.Histogram;
+import com.pixelbit.model.filter.Filter;
+import com.pixelbit.model.filter.FilterExecutor;
+import com.pixelbit.model.filter.LookupTableFilter;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * HistogramFilter is the base of the automatic tone corrections.
+ * It counts the histogram of the input image, compiles a {@link LookupTableFilter}
+ * from it with {@link #compile(Histogram)}, and maps the image through that table.
+ * Callers that already hold the histogram of an image compile the table themselves;
+ * the filter commands take it from {@link com.pixelbit.model.HistogramService}, which
+ * caches it per image.
+ */
+public abstract class HistogramFilter implements Filter {
+
+    private final FilterExecutor executor; // Executor that counts and maps the bands
+
+    /**
+     * Constructs a histogram filter.
+     *
+     * @param executor The executor that counts the histogram and applies the table.
+     */
+    protected HistogramFilter(FilterExecutor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Compiles the lookup table that corrects an image with the given histogram.
+     *
+     * @param histogram The histogram of the image to correct.
+     * @return The correction as a lookup table filter.
+     */
+    public abstract LookupTableFilter compile(Histogram histogram);
+
+    /**
+     * Applies the correction to the given image.
+     *
+     * @param image The image to correct.
+     * @return A new TYPE_INT_ARGB image with the correction applied.
+     */
+    @Override
+    public BufferedImage apply(BufferedImage image) {
+        return executor.apply(compile(Histogram.compute(image, executor)), image);
+    }
+}
@@ -1,44 +1,81 @@
 package com.pixelbit.model.filters;
 
-import com.pixelbit.model.filter.Filter;
+import com.pixelbit.model.filter.InvertibleFilter;
+import com.pixelbit.model.filter.PixelKernels;
+import com.pixelbit.model.filter.ToneFilter;
 
-import java.awt.*;
 import java.awt.image.BufferedImage;
 
 /**
  * InvertFilter applies an invert effect to an image, reversing the RGB color values.
  * The alpha channel is preserved, allowing for transparent images to remain transparent.
+ * Inverting twice gives back the original pixels, so the filter is its own inverse.
  */
-public class InvertFilter implements Filter {
+public class InvertFilter extends ToneFilter implements InvertibleFilter {
 
     public static final int MAX_RGB_VALUE = 255; // Maximum value for RGB components
 
     /**
-     * Applies an invert filter to the given image.
+     * Inverts a single channel value.
      *
-     * @param image The image to which the filter will be applied.
-     * @return A new BufferedImage with the invert filter applied.
+     * @param value The input channel value (0-255).
+     * @return The inverted channel value.
      */
     @Override
-    public BufferedImage apply(BufferedImage image) {
-        int width = image.getWidth();
-        int height = image.getHeight();
-        BufferedImage invertedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-        
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                int pixel = image.getRGB(x, y);
-                Color color = new Color(pixel, true); // true = has alpha
-                // Invert RGB values
-                int r = MAX_RGB_VALUE - color.getRed();
-                int g = MAX_RGB_VALUE - color.getGreen();
-                int b = MAX_RGB_VALUE - color.getBlue();
-                int a = color.getAlpha(); // preserve original alpha
-                invertedImage.setRGB(x, y, new Color(r, g, b, a).getRGB());
-            }
+    public int mapChannel(int value) {
+        return MAX_RGB_VALUE - value;
+    }
+
+    /**
+     * Inverts the RGB values of a single pixel.
+     * Since every channel is 8 bits, 255 - c is the same as flipping the low 24 bits.
+     *
+     * @param argb The input pixel.
+     * @return The inverted pixel with the original alpha preserved.
+     */
+    @Override
+    public int filterPixel(int argb) {
+        return argb ^ 0x00FFFFFF;
+    }
+
+    @Override
+    protected void filterPixels(int[] src, int[] dst, int from, int to) {
+        PixelKernels.get().invert(src, dst, from, to);
+    }
+
+    @Override
+    public float mapChannel(float value) {
+        return MAX_RGB_VALUE - value;
+    }
+
+    @Override
+    protected void mapPlane(float[] plane, int from, int to) {
+        for (int i = from; i < to; i++) {
+            plane[i] = MAX_RGB_VALUE - plane[i];
         }
-        return invertedImage;
-}
+    }
+
+    /**
+     * Returns the filter that exactly reverses this one, which is the filter itself.
+     *
+     * @return This filter.
+     */
+    @Override
+    public InvertFilter inverse() {
+        return this;
+    }
+
+    /**
+     * Checks whether inverting twice gives back the image. The output is always TYPE_INT_ARGB,
+     * so only TYPE_INT_ARGB images come back with the same type and exactly the same pixels.
+     *
+     * @param image The image the filter is about to be applied to.
+     * @return true for TYPE_INT_ARGB images.
+     */
+    @Override
+    public boolean isExactlyInvertible(BufferedImage image) {
+        return image.getType() == BufferedImage.TYPE_INT_ARGB;
+    }
 
 /**
  * Returns the name of the filter.
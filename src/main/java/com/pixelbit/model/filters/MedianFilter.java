@@ -0,0 +1,227 @@
+package com.pixelbit.model.filters;
+
+import com.pixelbit.model.filter.PixelAccess;
+import com.pixelbit.model.filter.RasterFilter;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * MedianFilter replaces every color channel of a pixel with the median of that channel
+ * over the surrounding (2 * radius + 1) square window, which removes speckle noise
+ * while keeping edges sharp. Pixels outside the image are clamped to the nearest edge
+ * pixel, like in {@link ConvolutionFilter}, and alpha is preserved.
+ * <p>
+ * The median is found with Perreault and Hébert's constant-time algorithm. Every column
+ * keeps a histogram of the 2 * radius + 1 rows around the current row, updated with one
+ * removal and one addition per row. The window histogram slides along the row by adding
+ * the column histogram that enters and subtracting the one that leaves. Histograms have
+ * a coarse level of 16 bins and a fine level of 256; the coarse level is kept up to date
+ * and each 16-level segment of the fine level is only brought up to date when the median
+ * falls inside it, so the cost per pixel does not depend on the radius.
+ * <p>
+ * Each band of rows keeps its own column histograms, so bands run in parallel.
+ */
+public class MedianFilter implements RasterFilter {
+
+    /** Largest radius accepted, in pixels. Window counts must fit the short bins. */
+    public static final int MAX_RADIUS = 100;
+
+    private static final int LEVELS = 256;
+    private static final int SEGMENTS = 16; // Coarse bins, each covering 16 fine levels
+    private static final int SEGMENT_SIZE = LEVELS / SEGMENTS;
+
+    private final int radius; // Radius of the window
+
+    /**
+     * Constructs a median filter.
+     *
+     * @param radius The radius of the window in pixels; the window is 2 * radius + 1 pixels wide.
+     * @throws IllegalArgumentException if the radius is negative or larger than {@link #MAX_RADIUS}.
+     */
+    public MedianFilter(int radius) {
+        if (radius < 0 || radius > MAX_RADIUS) {
+            throw new IllegalArgumentException("Radius must be between 0 and " + MAX_RADIUS + ": " + radius);
+        }
+        this.radius = radius;
+    }
+
+    /**
+     * Returns the radius of the window.
+     *
+     * @return The radius in pixels.
+     */
+    public int getRadius() {
+        return radius;
+    }
+
+    /**
+     * Applies the filter to the given image on the calling thread.
+     *
+     * @param image The image to which the filter will be applied.
+     * @return A new TYPE_INT_ARGB image with the filter applied.
+     */
+    @Override
+    public BufferedImage apply(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] src = PixelAccess.readPixels(image);
+        BufferedImage result = PixelAccess.borrowArgb(width, height);
+        filterRows(src, PixelAccess.data(result), width, height, 0, height);
+        return result;
+    }
+
+    @Override
+    public void filterRows(int[] src, int[] dst, int width, int height, int startRow, int endRow) {
+        if (radius == 0) {
+            System.arraycopy(src, startRow * width, dst, startRow * width, (endRow - startRow) * width);
+            return;
+        }
+        for (int i = startRow * width; i < endRow * width; i++) {
+            dst[i] = src[i] & 0xFF000000;
+        }
+        // The histograms are reused for each channel in turn
+        Histograms histograms = new Histograms(width);
+        for (int shift = 16; shift >= 0; shift -= 8) {
+            histograms.filterChannel(src, dst, width, height, startRow, endRow, shift);
+        }
+    }
+
+    /**
+     * Column and window histograms of one band, for one channel at a time.
+     */
+    private final class Histograms {
+        private final short[] columnFine; // 256 bins per column
+        private final short[] columnCoarse; // 16 bins per column
+        private final int[] windowFine = new int[LEVELS]; // Fine window histogram, updated lazily per segment
+        private final int[] windowCoarse = new int[SEGMENTS]; // Coarse window histogram, always up to date
+        private final int[] segmentColumn = new int[SEGMENTS]; // Center column each fine segment is valid for
+
+        Histograms(int width) {
+            columnFine = new short[width * LEVELS];
+            columnCoarse = new short[width * SEGMENTS];
+        }
+
+        void filterChannel(int[] src, int[] dst, int width, int height, int startRow, int endRow, int shift) {
+            Arrays.fill(columnFine, (short) 0);
+            Arrays.fill(columnCoarse, (short) 0);
+            for (int row = startRow - radius; row <= startRow + radius; row++) {
+                updateColumns(src, clamp(row, height) * width, width, shift, 1);
+            }
+            int half = (2 * radius + 1) * (2 * radius + 1) / 2;
+
+            for (int y = startRow; y < endRow; y++) {
+                if (y > startRow) {
+                    updateColumns(src, clamp(y - radius - 1, height) * width, width, shift, -1);
+                    updateColumns(src, clamp(y + radius, height) * width, width, shift, 1);
+                }
+
+                // Window at x = 0: columns -radius to radius, clamped to the first column
+                Arrays.fill(windowCoarse, 0);
+                Arrays.fill(segmentColumn, Integer.MIN_VALUE);
+                for (int k = -radius; k <= radius; k++) {
+                    addCoarse(clamp(k, width), 1);
+                }
+
+                int out = y * width;
+                for (int x = 0; x < width; x++) {
+                    if (x > 0) {
+                        addCoarse(clamp(x + radius, width), 1);
+                        addCoarse(clamp(x - radius - 1, width), -1);
+                    }
+                    dst[out + x] |= median(x, width, half) << shift;
+                }
+            }
+        }
+
+        /**
+         * Adds (sign 1) or removes (sign -1) the channel values of one source row to the column histograms.
+         */
+        private void updateColumns(int[] src, int rowOffset, int width, int shift, int sign) {
+            for (int x = 0; x < width; x++) {
+                int value = (src[rowOffset + x] >> shift) & 0xFF;
+                columnFine[x * LEVELS + value] += (short) sign;
+                columnCoarse[x * SEGMENTS + (value >> 4)] += (short) sign;
+            }
+        }
+
+        private void addCoarse(int column, int sign) {
+            int offset = column * SEGMENTS;
+            for (int s = 0; s < SEGMENTS; s++) {
+                windowCoarse[s] += sign * columnCoarse[offset + s];
+            }
+        }
+
+        private void addFine(int column, int segment, int sign) {
+            int offset = column * LEVELS + segment * SEGMENT_SIZE;
+            int base = segment * SEGMENT_SIZE;
+            for (int i = 0; i < SEGMENT_SIZE; i++) {
+                windowFine[base + i] += sign * columnFine[offset + i];
+            }
+        }
+
+        /**
+         * Returns the level of the window centered on column x that has more than half values below it.
+         */
+        private int median(int x, int width, int half) {
+            int count = 0;
+            int segment = 0;
+            while (count + windowCoarse[segment] <= half) {
+                count += windowCoarse[segment++];
+            }
+            updateSegment(segment, x, width);
+            int level = segment * SEGMENT_SIZE;
+            while (count + windowFine[level] <= half) {
+                count += windowFine[level++];
+            }
+            return level;
+        }
+
+        /**
+         * Brings one fine segment of the window histogram up to date for the window centered on column x,
+         * sliding it from the column it was last used at, or rebuilding it if that is cheaper.
+         */
+        private void updateSegment(int segment, int x, int width) {
+            int last = segmentColumn[segment];
+            if (last == x) {
+                return;
+            }
+            if (last == Integer.MIN_VALUE || 2 * (x - last) > 2 * radius + 1) {
+                Arrays.fill(windowFine, segment * SEGMENT_SIZE, (segment + 1) * SEGMENT_SIZE, 0);
+                for (int k = x - radius; k <= x + radius; k++) {
+                    addFine(clamp(k, width), segment, 1);
+                }
+            } else {
+                for (int column = last + 1; column <= x; column++) {
+                    addFine(clamp(column + radius, width), segment, 1);
+                    addFine(clamp(column - radius - 1, width), segment, -1);
+                }
+            }
+            segmentColumn[segment] = x;
+        }
+    }
+
+    private static int clamp(int index, int size) {
+        return Math.min(size - 1, Math.max(0, index));
+    }
+
+    /**
+     * Checks whether the filter can process bands of rows on separate threads.
+     *
+     * @return true, since every band keeps its own histograms and only writes its own rows.
+     */
+    @Override
+    public boolean isParallelSafe() {
+        return true;
+    }
+
+    /**
+     * Returns the name of the filter.
+     *
+     * @return The name of the filter.
+     */
+    @Override
+    public String getName() {
+        return "Median";
+    }
+}
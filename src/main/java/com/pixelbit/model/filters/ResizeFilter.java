@@ -0,0 +1,308 @@
+package com.pixelbit.model.filters;
+
+import com.pixelbit.model.filter.Filter;
+import com.pixelbit.model.filter.FilterExecutor;
+import com.pixelbit.model.filter.PixelAccess;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * ResizeFilter scales an image to a new width and height.
+ * Each axis is resampled separately, first along the rows and then along the columns.
+ * An axis that shrinks is area-averaged, so every source pixel contributes in proportion
+ * to how much of it falls inside each output pixel. An axis that grows is interpolated
+ * with a Lanczos or bicubic kernel. Colors are resampled premultiplied by alpha so
+ * transparent pixels do not bleed into their neighbours.
+ * <p>
+ * Both passes run in parallel across bands of output rows. Large reductions are done
+ * progressively, halving the image until it is within twice the target size, which keeps
+ * every pass down to a few source pixels per output pixel.
+ */
+public class ResizeFilter implements Filter {
+
+    /** Largest output width or height accepted, in pixels. */
+    public static final int MAX_SIZE = 32768;
+
+    /**
+     * Interpolation kernel used along axes that grow.
+     */
+    public enum Interpolation {
+        /** Catmull-Rom bicubic interpolation, sharp with little ringing. */
+        BICUBIC(2),
+        /** Three-lobe Lanczos interpolation, the sharpest but with slight ringing near hard edges. */
+        LANCZOS(3);
+
+        private final int support; // Radius of the kernel in source pixels
+
+        Interpolation(int support) {
+            this.support = support;
+        }
+
+        double weight(double x) {
+            x = Math.abs(x);
+            if (x >= support) {
+                return 0;
+            }
+            if (this == BICUBIC) {
+                // Catmull-Rom, a = -0.5
+                return x < 1
+                        ? 1.5 * x * x * x - 2.5 * x * x + 1
+                        : -0.5 * x * x * x + 2.5 * x * x - 4 * x + 2;
+            }
+            return sinc(x) * sinc(x / support);
+        }
+
+        private static double sinc(double x) {
+            if (x == 0) {
+                return 1;
+            }
+            double px = Math.PI * x;
+            return Math.sin(px) / px;
+        }
+    }
+
+    private final int width; // Output width
+    private final int height; // Output height
+    private final Interpolation interpolation; // Kernel used along axes that grow
+    private final boolean progressive; // Whether large reductions are done by successive halving
+    private final FilterExecutor executor; // Executor that runs the bands
+
+    /**
+     * Constructs a resize filter that area-averages when shrinking and uses Lanczos when enlarging.
+     *
+     * @param width  The output width in pixels.
+     * @param height The output height in pixels.
+     */
+    public ResizeFilter(int width, int height) {
+        this(width, height, Interpolation.LANCZOS, true, FilterExecutor.getDefault());
+    }
+
+    /**
+     * Constructs a resize filter.
+     *
+     * @param width         The output width in pixels.
+     * @param height        The output height in pixels.
+     * @param interpolation The kernel used along axes that grow.
+     * @param progressive   Whether large reductions are done by successive halving.
+     * @param executor      The executor that runs the passes.
+     * @throws IllegalArgumentException if the size is not between 1 and {@link #MAX_SIZE}.
+     */
+    public ResizeFilter(int width, int height, Interpolation interpolation, boolean progressive, FilterExecutor executor) {
+        if (width <= 0 || height <= 0 || width > MAX_SIZE || height > MAX_SIZE) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid resize dimensions: %dx%d", width, height));
+        }
+        if (interpolation == null) {
+            throw new IllegalArgumentException("Interpolation cannot be null");
+        }
+        this.width = width;
+        this.height = height;
+        this.interpolation = interpolation;
+        this.progressive = progressive;
+        this.executor = executor;
+    }
+
+    /**
+     * Applies the resize to the given image.
+     *
+     * @param image The image to resize.
+     * @return A new TYPE_INT_ARGB image of the requested size.
+     */
+    @Override
+    public BufferedImage apply(BufferedImage image) {
+        int srcWidth = image.getWidth();
+        int srcHeight = image.getHeight();
+        int[] pixels = PixelAccess.readPixels(image);
+        if (progressive) {
+            // Halve each axis while it is more than twice the target, so the final pass stays narrow
+            while (srcWidth > 2 * width || srcHeight > 2 * height) {
+                int stepWidth = srcWidth > 2 * width ? (srcWidth + 1) / 2 : srcWidth;
+                int stepHeight = srcHeight > 2 * height ? (srcHeight + 1) / 2 : srcHeight;
+                int[] step = new int[stepWidth * stepHeight];
+                resample(pixels, srcWidth, srcHeight, step, stepWidth, stepHeight);
+                pixels = step;
+                srcWidth = stepWidth;
+                srcHeight = stepHeight;
+            }
+        }
+        BufferedImage result = PixelAccess.borrowArgb(width, height);
+        resample(pixels, srcWidth, srcHeight, PixelAccess.data(result), width, height);
+        return result;
+    }
+
+    /**
+     * Resamples packed ARGB pixels to a new size with a horizontal and a vertical pass.
+     */
+    private void resample(int[] src, int srcWidth, int srcHeight, int[] dst, int dstWidth, int dstHeight) {
+        Weights columns = weights(srcWidth, dstWidth);
+        Weights rows = weights(srcHeight, dstHeight);
+
+        // Horizontal pass: premultiplied channels of every source row at the output width
+        float[][] horizontal = new float[4][dstWidth * srcHeight];
+        executor.forEachBand(dstWidth, srcHeight, (startRow, endRow) -> {
+            for (int y = startRow; y < endRow; y++) {
+                int in = y * srcWidth;
+                int out = y * dstWidth;
+                for (int x = 0; x < dstWidth; x++) {
+                    float a = 0, r = 0, g = 0, b = 0;
+                    int first = columns.first[x];
+                    int offset = x * columns.taps;
+                    for (int k = 0; k < columns.count[x]; k++) {
+                        int argb = src[in + first + k];
+                        float weight = columns.weights[offset + k];
+                        float alpha = (argb >>> 24) * weight;
+                        a += alpha;
+                        r += ((argb >> 16) & 0xFF) * alpha;
+                        g += ((argb >> 8) & 0xFF) * alpha;
+                        b += (argb & 0xFF) * alpha;
+                    }
+                    horizontal[0][out + x] = a;
+                    horizontal[1][out + x] = r;
+                    horizontal[2][out + x] = g;
+                    horizontal[3][out + x] = b;
+                }
+            }
+        });
+
+        // Vertical pass: combine the resampled rows and convert back to straight alpha
+        executor.forEachBand(dstWidth, dstHeight, (startRow, endRow) -> {
+            float[][] sums = new float[4][dstWidth];
+            for (int y = startRow; y < endRow; y++) {
+                for (float[] sum : sums) {
+                    Arrays.fill(sum, 0);
+                }
+                int offset = y * rows.taps;
+                for (int k = 0; k < rows.count[y]; k++) {
+                    float weight = rows.weights[offset + k];
+                    int in = (rows.first[y] + k) * dstWidth;
+                    for (int c = 0; c < 4; c++) {
+                        float[] sum = sums[c];
+                        float[] row = horizontal[c];
+                        for (int x = 0; x < dstWidth; x++) {
+                            sum[x] += weight * row[in + x];
+                        }
+                    }
+                }
+                int out = y * dstWidth;
+                for (int x = 0; x < dstWidth; x++) {
+                    dst[out + x] = pack(sums[0][x], sums[1][x], sums[2][x], sums[3][x]);
+                }
+            }
+        });
+    }
+
+    /**
+     * Packs premultiplied channel sums back into a straight-alpha ARGB pixel.
+     */
+    private static int pack(float alpha, float red, float green, float blue) {
+        if (alpha <= 0) {
+            return 0;
+        }
+        int a = PixelAccess.clamp((int) (alpha + 0.5f));
+        float scale = 1f / alpha;
+        int r = PixelAccess.clamp((int) (red * scale + 0.5f));
+        int g = PixelAccess.clamp((int) (green * scale + 0.5f));
+        int b = PixelAccess.clamp((int) (blue * scale + 0.5f));
+        return (a << 24) | (r << 16) | (g << 8) | b;
+    }
+
+    /**
+     * Source pixels and weights contributing to each output pixel along one axis.
+     * Output pixel i reads count[i] consecutive source pixels starting at first[i],
+     * with weights stored at weights[i * taps].
+     */
+    private record Weights(int[] first, int[] count, float[] weights, int taps) {
+    }
+
+    /**
+     * Computes the resampling weights for one axis: area coverage when it shrinks,
+     * the interpolation kernel when it grows, normalized to sum to 1.
+     */
+    private Weights weights(int srcSize, int dstSize) {
+        double scale = (double) srcSize / dstSize;
+        boolean shrinking = scale > 1;
+        int taps = shrinking ? (int) Math.ceil(scale) + 1 : 2 * interpolation.support;
+        int[] first = new int[dstSize];
+        int[] count = new int[dstSize];
+        float[] weights = new float[dstSize * taps];
+        double[] values = new double[taps];
+
+        for (int i = 0; i < dstSize; i++) {
+            int start;
+            int n = 0;
+            double sum = 0;
+            if (shrinking) {
+                // Output pixel i covers the source interval [i * scale, (i + 1) * scale)
+                double left = i * scale;
+                double right = Math.min(srcSize, (i + 1) * scale);
+                start = (int) Math.floor(left);
+                for (int j = start; j < right && n < taps; j++, n++) {
+                    values[n] = Math.min(j + 1, right) - Math.max(j, left);
+                    sum += values[n];
+                }
+            } else {
+                double center = (i + 0.5) * scale - 0.5;
+                start = (int) Math.floor(center) - interpolation.support + 1;
+                for (int j = start; j < start + taps; j++, n++) {
+                    values[n] = interpolation.weight(j - center);
+                    sum += values[n];
+                }
+            }
+
+            // Fold taps that fall outside the image onto the edge pixels
+            int clampedStart = Math.max(0, Math.min(srcSize - 1, start));
+            int clampedEnd = Math.max(0, Math.min(srcSize - 1, start + n - 1));
+            first[i] = clampedStart;
+            count[i] = clampedEnd - clampedStart + 1;
+            int offset = i * taps;
+            for (int k = 0; k < n; k++) {
+                int j = Math.max(0, Math.min(srcSize - 1, start + k));
+                weights[offset + j - clampedStart] += (float) (values[k] / sum);
+            }
+        }
+        return new Weights(first, count, weights, taps);
+    }
+
+    /**
+     * Returns the output width.
+     *
+     * @return The width in pixels.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the output height.
+     *
+     * @return The height in pixels.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the kernel used along axes that grow.
+     *
+     * @return The interpolation kernel.
+     */
+    public Interpolation getInterpolation() {
+        return interpolation;
+    }
+
+    /**
+     * Returns the name of the filter.
+     *
+     * @return The name of the filter.
+     */
+    @Override
+    public String getName() {
+        return "Resize";
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Resize to %dx%d", width, height);
+    }
+}
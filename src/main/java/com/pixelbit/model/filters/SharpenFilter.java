@@ -0,0 +1,29 @@
+package com.pixelbit.model.filters;
+
+/**
+ * SharpenFilter increases local contrast with a 3x3 kernel that adds the difference
+ * between each pixel and its four direct neighbours.
+ */
+public class SharpenFilter extends ConvolutionFilter {
+
+    private final double amount; // Strength of the effect
+
+    /**
+     * Constructs a sharpen filter.
+     *
+     * @param amount The strength of the effect, 0 for no change.
+     */
+    public SharpenFilter(double amount) {
+        super("Sharpen", ConvolutionKernel.sharpen(amount));
+        this.amount = amount;
+    }
+
+    /**
+     * Returns the strength of the effect.
+     *
+     * @return The sharpening amount.
+     */
+    public double getAmount() {
+        return amount;
+    }
+}
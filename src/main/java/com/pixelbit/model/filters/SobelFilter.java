@@ -0,0 +1,35 @@
+package com.pixelbit.model.filters;
+
+/**
+ * SobelFilter highlights edges. Each color channel is replaced by the magnitude of its
+ * gradient, computed from the separable horizontal and vertical Sobel kernels,
+ * so flat areas turn black and edges turn bright.
+ */
+public class SobelFilter extends ConvolutionFilter {
+
+    private static final ConvolutionKernel SOBEL_Y = ConvolutionKernel.sobelY();
+
+    /**
+     * Constructs a Sobel edge detection filter.
+     */
+    public SobelFilter() {
+        super("Sobel Edges", ConvolutionKernel.sobelX());
+    }
+
+    @Override
+    public void filterRows(int[] src, int[] dst, int width, int height, int startRow, int endRow) {
+        float[][] gx = convolve(src, width, height, getKernel(), startRow, endRow);
+        float[][] gy = convolve(src, width, height, SOBEL_Y, startRow, endRow);
+        int offset = startRow * width;
+        for (int i = 0; i < gx[0].length; i++) {
+            int r = magnitude(gx[0][i], gy[0][i]);
+            int g = magnitude(gx[1][i], gy[1][i]);
+            int b = magnitude(gx[2][i], gy[2][i]);
+            dst[offset + i] = (src[offset + i] & 0xFF000000) | (r << 16) | (g << 8) | b;
+        }
+    }
+
+    private static int magnitude(float x, float y) {
+        return round((float) Math.sqrt(x * x + y * y));
+    }
+}
@@ -0,0 +1,256 @@
+package com.pixelbit.model.filters;
+
+import com.pixelbit.model.filter.FilterExecutor;
+import com.pixelbit.model.filter.InvertibleFilter;
+import com.pixelbit.model.filter.PixelAccess;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+
+/**
+ * TransformFilter rotates, flips or transposes an image without changing any pixel value.
+ * Every transform moves source pixel (x, y) to a destination index that is linear in x and y,
+ * so one kernel handles them all. The kernel walks the image in square blocks small enough
+ * that both the source rows and the destination rows of a block stay in cache, which
+ * matters for the rotations and the transpose where a source row becomes a destination column.
+ * <p>
+ * TYPE_INT_ARGB images are moved as packed ints; other images are moved as raw raster
+ * elements, so the result keeps the type of the input and every transform is exactly
+ * reversed by its {@link #inverse()}.
+ */
+public class TransformFilter implements InvertibleFilter {
+
+    /** Side of the square blocks the image is processed in, in pixels. */
+    static final int BLOCK_SIZE = 64;
+
+    /**
+     * The supported transforms.
+     */
+    public enum Transform {
+        /** Rotates the image 90 degrees clockwise. */
+        ROTATE_90("Rotate 90", true),
+        /** Rotates the image 180 degrees. */
+        ROTATE_180("Rotate 180", false),
+        /** Rotates the image 270 degrees clockwise, i.e. 90 degrees counterclockwise. */
+        ROTATE_270("Rotate 270", true),
+        /** Mirrors the image left to right. */
+        FLIP_HORIZONTAL("Flip Horizontal", false),
+        /** Mirrors the image top to bottom. */
+        FLIP_VERTICAL("Flip Vertical", false),
+        /** Swaps rows and columns, mirroring the image along its main diagonal. */
+        TRANSPOSE("Transpose", true);
+
+        private final String displayName; // Name reported by the filter
+        private final boolean swapsAxes; // Whether the output is height x width
+
+        Transform(String displayName, boolean swapsAxes) {
+            this.displayName = displayName;
+            this.swapsAxes = swapsAxes;
+        }
+
+        /**
+         * Returns the transform that exactly reverses this one.
+         *
+         * @return The inverse transform.
+         */
+        public Transform inverse() {
+            return switch (this) {
+                case ROTATE_90 -> ROTATE_270;
+                case ROTATE_270 -> ROTATE_90;
+                default -> this;
+            };
+        }
+
+        /**
+         * Checks whether the transform swaps the width and height of the image.
+         *
+         * @return true for 90 and 270 degree rotations and the transpose.
+         */
+        public boolean swapsAxes() {
+            return swapsAxes;
+        }
+
+        /**
+         * Returns the destination index of source pixel (0, 0) and the change in destination
+         * index per step in x and in y, for a source image of the given size.
+         */
+        private int[] mapping(int width, int height) {
+            return switch (this) {
+                case ROTATE_90 -> new int[]{height - 1, height, -1};
+                case ROTATE_180 -> new int[]{width * height - 1, -1, -width};
+                case ROTATE_270 -> new int[]{(width - 1) * height, -height, 1};
+                case FLIP_HORIZONTAL -> new int[]{width - 1, -1, width};
+                case FLIP_VERTICAL -> new int[]{(height - 1) * width, 1, -width};
+                case TRANSPOSE -> new int[]{0, height, 1};
+            };
+        }
+    }
+
+    private final Transform transform; // Transform applied by this filter
+    private final FilterExecutor executor; // Executor that runs the bands of blocks
+
+    /**
+     * Constructs a transform filter.
+     *
+     * @param transform The transform to apply.
+     */
+    public TransformFilter(Transform transform) {
+        this(transform, FilterExecutor.getDefault());
+    }
+
+    /**
+     * Constructs a transform filter that runs on a specific executor.
+     *
+     * @param transform The transform to apply.
+     * @param executor  The executor that runs the bands of blocks.
+     */
+    public TransformFilter(Transform transform, FilterExecutor executor) {
+        if (transform == null) {
+            throw new IllegalArgumentException("Transform cannot be null");
+        }
+        this.transform = transform;
+        this.executor = executor;
+    }
+
+    /**
+     * Returns the transform applied by this filter.
+     *
+     * @return The transform.
+     */
+    public Transform getTransform() {
+        return transform;
+    }
+
+    /**
+     * Returns the filter that exactly reverses this one.
+     *
+     * @return A TransformFilter with the inverse transform.
+     */
+    @Override
+    public TransformFilter inverse() {
+        return new TransformFilter(transform.inverse(), executor);
+    }
+
+    /**
+     * Applies the transform to the given image.
+     *
+     * @param image The image to transform.
+     * @return A new image of the same type with the pixels moved.
+     */
+    @Override
+    public BufferedImage apply(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int dstWidth = transform.swapsAxes() ? height : width;
+        int dstHeight = transform.swapsAxes() ? width : height;
+        int[] mapping = transform.mapping(width, height);
+
+        if (PixelAccess.isDirect(image)) {
+            int[] src = PixelAccess.data(image);
+            BufferedImage result = PixelAccess.borrowArgb(dstWidth, dstHeight);
+            int[] dst = PixelAccess.data(result);
+            executor.forEachBand(width, height, (startRow, endRow) ->
+                    transformBlocks(src, dst, width, startRow, endRow, mapping));
+            return result;
+        }
+
+        BufferedImage result = createCompatible(image, dstWidth, dstHeight);
+        Raster source = image.getRaster();
+        WritableRaster target = result.getRaster();
+        executor.forEachBand(width, height, (startRow, endRow) ->
+                transformElements(source, target, width, dstWidth, startRow, endRow, mapping));
+        return result;
+    }
+
+    /**
+     * Creates an image with the same type, color model and raster layout as the given one.
+     */
+    private static BufferedImage createCompatible(BufferedImage image, int width, int height) {
+        ColorModel colorModel = image.getColorModel();
+        return switch (image.getType()) {
+            case BufferedImage.TYPE_CUSTOM -> new BufferedImage(colorModel,
+                    colorModel.createCompatibleWritableRaster(width, height), image.isAlphaPremultiplied(), null);
+            case BufferedImage.TYPE_BYTE_BINARY, BufferedImage.TYPE_BYTE_INDEXED ->
+                    new BufferedImage(width, height, image.getType(), (IndexColorModel) colorModel);
+            default -> new BufferedImage(width, height, image.getType());
+        };
+    }
+
+    /**
+     * Moves the packed pixels of the source rows [startRow, endRow) block by block.
+     */
+    private static void transformBlocks(int[] src, int[] dst, int width, int startRow, int endRow, int[] mapping) {
+        int base = mapping[0];
+        int stepX = mapping[1];
+        int stepY = mapping[2];
+        for (int blockY = startRow; blockY < endRow; blockY += BLOCK_SIZE) {
+            int blockEndY = Math.min(blockY + BLOCK_SIZE, endRow);
+            for (int blockX = 0; blockX < width; blockX += BLOCK_SIZE) {
+                int blockEndX = Math.min(blockX + BLOCK_SIZE, width);
+                for (int y = blockY; y < blockEndY; y++) {
+                    int in = y * width + blockX;
+                    int out = base + blockX * stepX + y * stepY;
+                    for (int x = blockX; x < blockEndX; x++, in++, out += stepX) {
+                        dst[out] = src[in];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves the raw raster elements of the source rows [startRow, endRow) block by block.
+     * Each block is read in one call, rearranged, and written to the destination rectangle
+     * it maps to, so any raster layout and pixel type is supported.
+     */
+    private static void transformElements(Raster source, WritableRaster target, int width, int dstWidth,
+                                          int startRow, int endRow, int[] mapping) {
+        int elements = source.getNumDataElements();
+        Object srcBlock = null;
+        Object dstBlock = null;
+        for (int blockY = startRow; blockY < endRow; blockY += BLOCK_SIZE) {
+            int blockHeight = Math.min(BLOCK_SIZE, endRow - blockY);
+            for (int blockX = 0; blockX < width; blockX += BLOCK_SIZE) {
+                int blockWidth = Math.min(BLOCK_SIZE, width - blockX);
+                srcBlock = source.getDataElements(blockX, blockY, blockWidth, blockHeight, srcBlock);
+                if (dstBlock == null) {
+                    dstBlock = source.getDataElements(blockX, blockY, blockWidth, blockHeight, null);
+                }
+
+                // The block maps to the rectangle spanned by the images of two opposite corners
+                int first = destination(blockX, blockY, mapping);
+                int last = destination(blockX + blockWidth - 1, blockY + blockHeight - 1, mapping);
+                int left = Math.min(first % dstWidth, last % dstWidth);
+                int top = Math.min(first / dstWidth, last / dstWidth);
+                int rectWidth = Math.abs(first % dstWidth - last % dstWidth) + 1;
+                int rectHeight = Math.abs(first / dstWidth - last / dstWidth) + 1;
+
+                for (int y = 0; y < blockHeight; y++) {
+                    for (int x = 0; x < blockWidth; x++) {
+                        int d = destination(blockX + x, blockY + y, mapping);
+                        int local = (d / dstWidth - top) * rectWidth + (d % dstWidth - left);
+                        System.arraycopy(srcBlock, (y * blockWidth + x) * elements, dstBlock, local * elements, elements);
+                    }
+                }
+                target.setDataElements(left, top, rectWidth, rectHeight, dstBlock);
+            }
+        }
+    }
+
+    private static int destination(int x, int y, int[] mapping) {
+        return mapping[0] + x * mapping[1] + y * mapping[2];
+    }
+
+    /**
+     * Returns the name of the filter.
+     *
+     * @return The name of the transform.
+     */
+    @Override
+    public String getName() {
+        return transform.displayName;
+    }
+}
@@ -0,0 +1,78 @@
+package com.pixelbit.model.filters;
+
+import static com.pixelbit.model.filter.PixelAccess.clamp;
+
+/**
+ * UnsharpMaskFilter sharpens an image by adding back the difference between each
+ * pixel and a Gaussian-blurred copy of it. Differences smaller than the threshold
+ * are left alone, so smooth areas and noise are not amplified.
+ */
+public class UnsharpMaskFilter extends ConvolutionFilter {
+
+    private final double sigma; // Standard deviation of the blur in pixels
+    private final float amount; // Fraction of the difference added back
+    private final int threshold; // Smallest difference, in channel levels, that is sharpened
+
+    /**
+     * Constructs an unsharp mask filter.
+     *
+     * @param sigma     The standard deviation of the blur in pixels.
+     * @param amount    The fraction of the difference added back, e.g. 1 to double it.
+     * @param threshold The smallest difference, in channel levels, that is sharpened.
+     * @throws IllegalArgumentException if sigma is not in (0, {@link ConvolutionKernel#MAX_SIGMA}].
+     */
+    public UnsharpMaskFilter(double sigma, double amount, int threshold) {
+        super("Unsharp Mask", ConvolutionKernel.gaussian(sigma));
+        this.sigma = sigma;
+        this.amount = (float) amount;
+        this.threshold = Math.max(0, threshold);
+    }
+
+    @Override
+    public void filterRows(int[] src, int[] dst, int width, int height, int startRow, int endRow) {
+        float[][] blurred = convolve(src, width, height, getKernel(), startRow, endRow);
+        int offset = startRow * width;
+        for (int i = 0; i < blurred[0].length; i++) {
+            int argb = src[offset + i];
+            int r = sharpen((argb >> 16) & 0xFF, blurred[0][i]);
+            int g = sharpen((argb >> 8) & 0xFF, blurred[1][i]);
+            int b = sharpen(argb & 0xFF, blurred[2][i]);
+            dst[offset + i] = (argb & 0xFF000000) | (r << 16) | (g << 8) | b;
+        }
+    }
+
+    private int sharpen(int value, float blurred) {
+        float difference = value - blurred;
+        if (Math.abs(difference) < threshold) {
+            return value;
+        }
+        return clamp(Math.round(value + amount * difference));
+    }
+
+    /**
+     * Returns the standard deviation of the blur.
+     *
+     * @return Sigma in pixels.
+     */
+    public double getSigma() {
+        return sigma;
+    }
+
+    /**
+     * Returns the fraction of the difference added back.
+     *
+     * @return The sharpening amount.
+     */
+    public double getAmount() {
+        return amount;
+    }
+
+    /**
+     * Returns the smallest difference that is sharpened.
+     *
+     * @return The threshold in channel levels.
+     */
+    public int getThreshold() {
+        return threshold;
+    }
+}
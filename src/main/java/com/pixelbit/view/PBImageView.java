@@ -176,6 +176,34 @@ public class PBImageView extends BorderPane {
         }
     }
 
+    /**
+     * Returns the width of the area the image is shown in, in screen pixels.
+     *
+     * @return The viewport width, or 0 if the view was not laid out yet.
+     */
+    public int getViewportWidth() {
+        return (int) Math.ceil(mainImagePane.getWidth() * getOutputScale());
+    }
+
+    /**
+     * Returns the height of the area the image is shown in, in screen pixels.
+     *
+     * @return The viewport height, or 0 if the view was not laid out yet.
+     */
+    public int getViewportHeight() {
+        return (int) Math.ceil(mainImagePane.getHeight() * getOutputScale());
+    }
+
+    /**
+     * Returns the number of screen pixels per layout unit, above 1 on high-density displays.
+     */
+    private double getOutputScale() {
+        if (getScene() == null || getScene().getWindow() == null) {
+            return 1;
+        }
+        return Math.max(getScene().getWindow().getOutputScaleX(), getScene().getWindow().getOutputScaleY());
+    }
+
     /**
      * Sets up listeners for resizing the main image pane.
      * This method ensures that the image view resizes correctly when the pane size changes.
@@ -4,6 +4,7 @@ module com.codeninja.pixelbit {
     requires ij;
     requires java.desktop;
     requires javafx.swing;
+    requires static jdk.incubator.vector;
 
 
     opens com.pixelbit to javafx.fxml;
@@ -0,0 +1,87 @@
+package com.pixelbit;
+
+import com.pixelbit.model.BufferPool;
+import com.pixelbit.model.filter.PixelAccess;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * TestImages creates the images the tests filter and compares their pixels.
+ * Images are filled with seeded random pixels, so every run sees the same data.
+ */
+public final class TestImages {
+
+    private TestImages() {
+    }
+
+    /**
+     * Creates a directly accessible TYPE_INT_ARGB image filled with random pixels.
+     *
+     * @param width  The width of the image.
+     * @param height The height of the image.
+     * @param seed   The seed of the random pixels.
+     * @return A new TYPE_INT_ARGB image.
+     */
+    public static BufferedImage randomImage(int width, int height, long seed) {
+        return randomImage(width, height, BufferedImage.TYPE_INT_ARGB, seed);
+    }
+
+    /**
+     * Creates an image of the given type filled with random pixels, in row-major order.
+     * Types that cannot hold every ARGB value keep what setRGB stores for them.
+     *
+     * @param width  The width of the image.
+     * @param height The height of the image.
+     * @param type   The BufferedImage type.
+     * @param seed   The seed of the random pixels.
+     * @return A new image of the given type.
+     */
+    public static BufferedImage randomImage(int width, int height, int type, long seed) {
+        Random random = new Random(seed);
+        if (type == BufferedImage.TYPE_INT_ARGB) {
+            BufferedImage image = PixelAccess.createArgb(width, height);
+            int[] data = PixelAccess.data(image);
+            for (int i = 0; i < data.length; i++) {
+                data[i] = random.nextInt();
+            }
+            return image;
+        }
+        BufferedImage image = new BufferedImage(width, height, type);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Returns the pixels of an image in the default ARGB color model.
+     *
+     * @param image The image to read.
+     * @return The packed ARGB pixels, row by row.
+     */
+    public static int[] pixels(BufferedImage image) {
+        return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
+
+    /**
+     * Takes every TYPE_INT_ARGB buffer of the given size out of the default pool and fills it
+     * with zeros, so an image that still uses a released buffer shows the damage.
+     *
+     * @param width  The width of the buffers.
+     * @param height The height of the buffers.
+     */
+    public static void overwritePooledBuffers(int width, int height) {
+        BufferPool pool = BufferPool.getDefault();
+        long hits = pool.getHitCount();
+        BufferedImage buffer = pool.acquire(width, height, BufferedImage.TYPE_INT_ARGB);
+        while (pool.getHitCount() > hits) {
+            Arrays.fill(PixelAccess.data(buffer), 0);
+            hits = pool.getHitCount();
+            buffer = pool.acquire(width, height, BufferedImage.TYPE_INT_ARGB);
+        }
+    }
+}
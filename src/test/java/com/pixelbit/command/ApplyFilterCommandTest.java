@@ -0,0 +1,449 @@
+package com.pixelbit.command;
+
+import com.pixelbit.command.history.SnapshotCompressor;
+import com.pixelbit.model.BufferPool;
+import com.pixelbit.model.EditableImage;
+import com.pixelbit.model.HistogramService;
+import com.pixelbit.model.PBModel;
+import com.pixelbit.model.filter.FilterExecutor;
+import com.pixelbit.model.filter.FilterFactory;
+import com.pixelbit.model.filter.FilterResultCache;
+import com.pixelbit.model.filter.FilterType;
+import com.pixelbit.model.filter.PixelAccess;
+import com.pixelbit.model.filter.PlanarImage;
+import com.pixelbit.model.filters.ResizeFilter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+import static com.pixelbit.TestImages.overwritePooledBuffers;
+import static com.pixelbit.TestImages.pixels;
+import static com.pixelbit.TestImages.randomImage;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ApplyFilterCommandTest {
+
+    @Test
+    void testExecuteKeepsSourceAsUndoState() throws Exception {
+        BufferedImage source = randomImage(40, 30, BufferedImage.TYPE_INT_ARGB, 11);
+        int[] expected = pixels(source);
+        EditableImage image = new EditableImage(source);
+        ApplyFilterCommand command = new ApplyFilterCommand(image, new FilterFactory(), FilterType.SEPIA, null);
+
+        command.execute();
+        assertNotSame(source, image.getBufferedImage());
+        assertArrayEquals(expected, pixels(source), "The filter must not modify the undo state");
+
+        command.undo();
+        assertSame(source, image.getBufferedImage());
+        assertArrayEquals(expected, pixels(image.getBufferedImage()));
+    }
+
+    @Test
+    void testCompressionOutlivingUndoAndRedoIsIgnored() throws Exception {
+        BufferedImage source = randomImage(40, 30, BufferedImage.TYPE_INT_ARGB, 11);
+        EditableImage image = new EditableImage(source);
+        ApplyFilterCommand command = new ApplyFilterCommand(image, new FilterFactory(), FilterType.SEPIA, null);
+        List<Runnable> compressions = new ArrayList<>();
+
+        command.execute();
+        command.compress(new SnapshotCompressor(compressions::add, Deflater.BEST_SPEED));
+        command.undo();
+        // The edit below may write into the restored image before it is redone
+        source.setRGB(0, 0, 0xFF123456);
+        assertTrue(command.redoFromCache());
+        assertSame(source, command.previousState);
+        compressions.forEach(Runnable::run);
+
+        assertSame(source, command.previousState, "A compression started before undo must not replace the state");
+        command.undo();
+        assertEquals(0xFF123456, image.getRGB(0, 0));
+    }
+
+    @Test
+    void testHistogramCorrectionsUseTheCachedHistogram() throws Exception {
+        BufferedImage source = randomImage(40, 30, BufferedImage.TYPE_INT_ARGB, 11);
+        EditableImage image = new EditableImage(source);
+        FilterFactory factory = new FilterFactory();
+        HistogramService histograms = new HistogramService(FilterExecutor.getDefault());
+        histograms.getHistogram(image);
+        ApplyFilterCommand command = new ApplyFilterCommand(image, factory, FilterType.EQUALIZE, null);
+        command.setHistogramService(histograms);
+        command.setResultCache(null);
+
+        command.execute();
+        assertEquals(1, histograms.getComputationCount());
+        assertEquals(1, histograms.getHitCount());
+        assertArrayEquals(pixels(factory.createFilter(FilterType.EQUALIZE, null).apply(source)),
+                pixels(image.getBufferedImage()));
+    }
+
+    @Test
+    void testInvertIsUndoneByItsInverse() throws Exception {
+        BufferedImage source = randomImage(40, 30, BufferedImage.TYPE_INT_ARGB, 11);
+        int[] expected = pixels(source);
+        EditableImage image = new EditableImage(source);
+        ApplyFilterCommand command = new ApplyFilterCommand(image, new FilterFactory(), FilterType.INVERT, null);
+
+        command.execute();
+        assertEquals(0, command.getMemoryBytes(), "An exactly invertible filter keeps no undo state");
+        command.undo();
+        assertArrayEquals(expected, pixels(image.getBufferedImage()));
+        assertEquals(BufferedImage.TYPE_INT_ARGB, image.getBufferedImage().getType());
+    }
+
+    @Test
+    void testInvertKeepsSourceWhenNotExactlyInvertible() throws Exception {
+        // Invert always outputs TYPE_INT_ARGB, so inverting again would not give back the type
+        BufferedImage source = randomImage(40, 30, BufferedImage.TYPE_3BYTE_BGR, 11);
+        EditableImage image = new EditableImage(source);
+        ApplyFilterCommand command = new ApplyFilterCommand(image, new FilterFactory(), FilterType.INVERT, null);
+
+        command.execute();
+        assertSame(source, command.previousState);
+        command.undo();
+        assertSame(source, image.getBufferedImage());
+    }
+
+    @Test
+    void testReapplyingAFilterUsesTheResultCache() {
+        EditableImage image = new EditableImage(randomImage(40, 30, BufferedImage.TYPE_INT_ARGB, 11));
+        FilterFactory factory = new FilterFactory();
+        CommandManager manager = new CommandManager(factory);
+        FilterResultCache cache = new FilterResultCache(1 << 20);
+
+        ApplyFilterCommand sepia = new ApplyFilterCommand(image, factory, FilterType.SEPIA, null);
+        sepia.setResultCache(cache);
+        manager.executeCommand(sepia);
+        int[] expected = pixels(image.getBufferedImage());
+        manager.undo();
+
+        ApplyFilterCommand again = new ApplyFilterCommand(image, factory, FilterType.SEPIA, null);
+        again.setResultCache(cache);
+        manager.executeCommand(again);
+        assertEquals(1, cache.getHitCount());
+        assertArrayEquals(expected, pixels(image.getBufferedImage()));
+
+        // A newly loaded image starts with an empty cache
+        EditableImage other = new EditableImage(randomImage(40, 30, BufferedImage.TYPE_INT_ARGB, 11));
+        ApplyFilterCommand elsewhere = new ApplyFilterCommand(other, factory, FilterType.SEPIA, null);
+        elsewhere.setResultCache(cache);
+        manager.executeCommand(elsewhere);
+        assertEquals(1, cache.getHitCount());
+    }
+
+    /**
+     * A white page with a small dark patch, so most filters leave most tiles unchanged.
+     */
+    private static BufferedImage page() {
+        BufferedImage image = PixelAccess.createArgb(200, 150);
+        Arrays.fill(PixelAccess.data(image), 0xFFFFFFFF);
+        Random random = new Random(5);
+        for (int y = 20; y < 50; y++) {
+            for (int x = 10; x < 50; x++) {
+                image.setRGB(x, y, 0xFF000000 | random.nextInt(0x808080));
+            }
+        }
+        return image;
+    }
+
+    @Test
+    void testPartialEditKeepsOnlyChangedTiles() throws Exception {
+        BufferedImage source = page();
+        int[] expected = pixels(source);
+        EditableImage image = new EditableImage(source);
+        ApplyFilterCommand brighten = new ApplyFilterCommand(image, new FilterFactory(), FilterType.BRIGHTNESS,
+                Map.of("brightness", 40));
+
+        brighten.execute();
+        assertNull(brighten.previousState, "The previous image must not be kept");
+        assertNotNull(brighten.previousTiles);
+        assertEquals(1, brighten.previousTiles.getChangedTileCount());
+
+        brighten.undo();
+        assertArrayEquals(expected, pixels(image.getBufferedImage()));
+    }
+
+    @Test
+    void testUndoAndRedoRestoreEveryStep() throws Exception {
+        EditableImage image = new EditableImage(page());
+        FilterFactory factory = new FilterFactory();
+        CommandManager manager = new CommandManager(factory);
+        ApplyFilterCommand[] commands = {
+                new ApplyFilterCommand(image, factory, FilterType.BRIGHTNESS, Map.of("brightness", 40)),
+                new ApplyFilterCommand(image, factory, FilterType.MEDIAN, Map.of("radius", 1)),
+                new ApplyFilterCommand(image, factory, FilterType.ROTATE_90, null),
+                new ApplyFilterCommand(image, factory, FilterType.BRIGHTNESS, Map.of("brightness", -30)),
+                new ApplyFilterCommand(image, factory, FilterType.RESIZE, Map.of("width", 100, "height", 60)),
+                new ApplyFilterCommand(image, factory, FilterType.INVERT, null)};
+
+        int[][] states = new int[commands.length + 1][];
+        states[0] = pixels(image.getBufferedImage());
+        for (int i = 0; i < commands.length; i++) {
+            manager.executeCommand(commands[i]);
+            states[i + 1] = pixels(image.getBufferedImage());
+        }
+        assertNotNull(commands[0].previousTiles);
+        assertNotNull(commands[1].previousTiles);
+
+        for (int i = commands.length - 1; i >= 0; i--) {
+            manager.undo();
+            assertArrayEquals(states[i], pixels(image.getBufferedImage()), "Undo of step " + (i + 1));
+        }
+        for (int i = 0; i < commands.length; i++) {
+            manager.redo();
+            assertArrayEquals(states[i + 1], pixels(image.getBufferedImage()), "Redo of step " + (i + 1));
+        }
+    }
+
+    @Test
+    void testUndoAfterPreviewRestoresHistory(@TempDir File directory) throws Exception {
+        File file = new File(directory, "page.png");
+        ImageIO.write(page(), "png", file);
+        PBModel model = new PBModel(file);
+        EditableImage image = model.getImage();
+        FilterFactory factory = model.getFilterFactory();
+        int[] original = pixels(image.getBufferedImage());
+
+        model.applyEdit(new ApplyFilterCommand(image, factory, FilterType.BRIGHTNESS, Map.of("brightness", 40)));
+        int[] brightened = pixels(image.getBufferedImage());
+        ApplyFilterCommand despeckle = new ApplyFilterCommand(image, factory, FilterType.MEDIAN, Map.of("radius", 1));
+        model.applyEdit(despeckle);
+        assertNotNull(despeckle.previousTiles);
+        int[] edited = pixels(image.getBufferedImage());
+
+        // A slider preview replaces the image outside the history
+        model.replaceEdit(new ApplyFilterCommand(image, factory, FilterType.CONTRAST, Map.of("contrast", 0.5)));
+        model.undo();
+        assertArrayEquals(brightened, pixels(image.getBufferedImage()));
+        model.redo();
+        assertArrayEquals(edited, pixels(image.getBufferedImage()));
+        model.undo();
+        model.undo();
+        assertArrayEquals(original, pixels(image.getBufferedImage()));
+    }
+
+    @Test
+    void testExecuteWithoutUndoFiltersInPlace() throws Exception {
+        BufferedImage source = PixelAccess.createArgb(40, 30);
+        int[] data = PixelAccess.data(source);
+        data[5] = 0xFF102030;
+        EditableImage image = new EditableImage(source);
+
+        new ApplyFilterCommand(image, new FilterFactory(), FilterType.INVERT, null).executeWithoutUndo();
+        assertSame(source, image.getBufferedImage());
+        assertEquals(0xFFEFDFCF, data[5]);
+    }
+
+    @Test
+    void testCropWithoutUndoKeepsTheBufferItViews() throws Exception {
+        BufferPool.getDefault().clear();
+        BufferedImage source = randomImage(40, 30, BufferedImage.TYPE_INT_ARGB, 11);
+        int[] expected = pixels(source.getSubimage(4, 2, 10, 8));
+        EditableImage image = new EditableImage(source);
+        Map<String, Object> params = Map.of("x", 4, "y", 2, "width", 10, "height", 8);
+
+        new ApplyFilterCommand(image, new FilterFactory(), FilterType.CROP, params).executeWithoutUndo();
+        assertArrayEquals(expected, pixels(image.getBufferedImage()));
+        overwritePooledBuffers(40, 30);
+        assertArrayEquals(expected, pixels(image.getBufferedImage()), "The crop must not view a pooled buffer");
+    }
+
+    @Test
+    void testReplaceEditStartsFromOriginal(@TempDir File directory) throws Exception {
+        BufferedImage source = randomImage(40, 30, BufferedImage.TYPE_3BYTE_BGR, 11);
+        File file = new File(directory, "source.png");
+        ImageIO.write(source, "png", file);
+        PBModel model = new PBModel(file);
+        EditableImage image = model.getImage();
+        FilterFactory factory = model.getFilterFactory();
+        Map<String, Object> params = Map.of("brightness", 40);
+        int[] expected = pixels(factory.createFilter(FilterType.BRIGHTNESS, params).apply(image.getOriginalImage()));
+
+        model.replaceEdit(new ApplyFilterCommand(image, factory, FilterType.BRIGHTNESS, params));
+        assertArrayEquals(expected, pixels(image.getBufferedImage()));
+        model.replaceEdit(new ApplyFilterCommand(image, factory, FilterType.BRIGHTNESS, params));
+        assertArrayEquals(expected, pixels(image.getBufferedImage()), "Previews must not accumulate");
+    }
+
+    @Test
+    void testPreviewTaskRendersOriginalAtViewportSize(@TempDir File directory) throws Exception {
+        File file = new File(directory, "source.png");
+        ImageIO.write(randomImage(40, 30, BufferedImage.TYPE_INT_ARGB, 11), "png", file);
+        PBModel model = new PBModel(file);
+        EditableImage image = model.getImage();
+        Map<String, Object> params = Map.of("brightness", 40);
+        int[] edited = pixels(image.getBufferedImage());
+
+        BufferedImage proxy = model.previewTask(FilterType.BRIGHTNESS, params, 20, 20).render(() -> false);
+        assertEquals(20, proxy.getWidth());
+        assertEquals(15, proxy.getHeight());
+        BufferedImage full = model.previewTask(FilterType.BRIGHTNESS, params).render(() -> false);
+        assertArrayEquals(pixels(model.getFilterFactory().createFilter(FilterType.BRIGHTNESS, params)
+                .apply(image.getOriginalImage())), pixels(full));
+        assertArrayEquals(edited, pixels(image.getBufferedImage()), "Rendering must not change the image");
+
+        // The proxy matches the full render scaled down to the viewport
+        int[] expected = pixels(new ResizeFilter(20, 15).apply(full));
+        int[] actual = pixels(proxy);
+        for (int i = 0; i < expected.length; i++) {
+            for (int shift = 0; shift < 32; shift += 8) {
+                assertEquals((expected[i] >> shift) & 0xFF, (actual[i] >> shift) & 0xFF, 2.0);
+            }
+        }
+    }
+
+    @Test
+    void testShowPreviewDropsPreviewOfReplacedImage(@TempDir File directory) throws Exception {
+        File file = new File(directory, "source.png");
+        ImageIO.write(randomImage(40, 30, BufferedImage.TYPE_INT_ARGB, 11), "png", file);
+        PBModel model = new PBModel(file);
+        EditableImage image = model.getImage();
+        BufferedImage preview = model.previewTask(FilterType.BRIGHTNESS, Map.of("brightness", 40)).render(() -> false);
+
+        assertTrue(model.showPreview(image, preview));
+        assertSame(preview, image.getBufferedImage());
+        BufferedImage stale = model.previewTask(FilterType.BRIGHTNESS, Map.of("brightness", 20)).render(() -> false);
+        assertFalse(model.showPreview(new EditableImage(randomImage(40, 30, BufferedImage.TYPE_INT_ARGB, 11)), stale));
+        assertSame(preview, image.getBufferedImage());
+    }
+
+    @Test
+    void testFilterAfterPreviewIsUndoneAndRedone(@TempDir File directory) throws Exception {
+        File file = new File(directory, "source.png");
+        ImageIO.write(randomImage(40, 30, BufferedImage.TYPE_INT_ARGB, 11), "png", file);
+        PBModel model = new PBModel(file);
+        EditableImage image = model.getImage();
+        FilterFactory factory = model.getFilterFactory();
+
+        assertTrue(model.showPreview(image, model.previewTask(FilterType.BRIGHTNESS, Map.of("brightness", 40)).render(() -> false)));
+        int[] previewed = pixels(image.getBufferedImage());
+        model.applyEdit(new ApplyFilterCommand(image, factory, FilterType.SEPIA, null));
+        int[] sepia = pixels(image.getBufferedImage());
+
+        model.undo();
+        assertArrayEquals(previewed, pixels(image.getBufferedImage()));
+        model.redo();
+        assertArrayEquals(sepia, pixels(image.getBufferedImage()));
+        model.undo();
+        assertArrayEquals(previewed, pixels(image.getBufferedImage()));
+    }
+
+    @Test
+    void testResetAfterPreviewDropsPreview(@TempDir File directory) throws Exception {
+        File file = new File(directory, "source.png");
+        ImageIO.write(randomImage(40, 30, BufferedImage.TYPE_INT_ARGB, 11), "png", file);
+        PBModel model = new PBModel(file);
+        EditableImage image = model.getImage();
+        FilterFactory factory = model.getFilterFactory();
+        int[] original = pixels(image.getOriginalImage());
+
+        assertTrue(model.showPreview(image, model.previewTask(FilterType.BRIGHTNESS, Map.of("brightness", 40)).render(() -> false)));
+        model.resetToOriginal();
+        assertArrayEquals(original, pixels(image.getBufferedImage()));
+        assertFalse(model.canUndo());
+
+        model.applyEdit(new ApplyFilterCommand(image, factory, FilterType.SEPIA, null));
+        int[] sepia = pixels(image.getBufferedImage());
+        model.undo();
+        assertArrayEquals(original, pixels(image.getBufferedImage()));
+        model.redo();
+        assertArrayEquals(sepia, pixels(image.getBufferedImage()));
+    }
+
+    @Test
+    void testCropSharesPixelsUntilWritten() throws Exception {
+        BufferedImage source = randomImage(40, 30, BufferedImage.TYPE_INT_ARGB, 11);
+        int[] expected = pixels(source);
+        EditableImage image = new EditableImage(source);
+        Map<String, Object> params = Map.of("x", 4, "y", 2, "width", 10, "height", 8);
+        ApplyFilterCommand crop = new ApplyFilterCommand(image, new FilterFactory(), FilterType.CROP, params);
+
+        crop.execute();
+        assertTrue(image.isView());
+        assertEquals(source.getRGB(4, 2), image.getRGB(0, 0));
+
+        image.setRGB(0, 0, 0xFF00FF00);
+        assertFalse(image.isView());
+        assertTrue(PixelAccess.isDirect(image.getBufferedImage()));
+        assertEquals(0xFF00FF00, image.getRGB(0, 0));
+        assertEquals(source.getRGB(5, 2), image.getRGB(1, 0));
+        assertArrayEquals(expected, pixels(source), "Writes must not show through in the undo state");
+
+        crop.undo();
+        assertSame(source, image.getBufferedImage());
+    }
+
+    @Test
+    void testResizeIsUndoable() throws Exception {
+        BufferedImage source = randomImage(40, 30, BufferedImage.TYPE_INT_RGB, 11);
+        EditableImage image = new EditableImage(source);
+        ApplyFilterCommand resize = new ApplyFilterCommand(image, new FilterFactory(), FilterType.RESIZE,
+                Map.of("width", 15, "height", 90, "interpolation", "bicubic"));
+
+        resize.execute();
+        assertEquals(15, image.getWidth());
+        assertEquals(90, image.getHeight());
+
+        resize.undo();
+        assertSame(source, image.getBufferedImage());
+    }
+
+    @Test
+    void testRotateUndoesThroughInverse() throws Exception {
+        BufferedImage source = randomImage(40, 30, BufferedImage.TYPE_3BYTE_BGR, 11);
+        int[] expected = pixels(source);
+        EditableImage image = new EditableImage(source);
+        ApplyFilterCommand rotate = new ApplyFilterCommand(image, new FilterFactory(), FilterType.ROTATE_90, null);
+
+        rotate.execute();
+        assertNull(rotate.previousState, "An invertible filter must not keep the previous image");
+        assertEquals(30, image.getWidth());
+        assertEquals(40, image.getHeight());
+
+        rotate.undo();
+        BufferedImage restored = image.getBufferedImage();
+        assertEquals(BufferedImage.TYPE_3BYTE_BGR, restored.getType());
+        assertArrayEquals(expected, pixels(restored));
+
+        rotate.execute();
+        assertEquals(30, image.getWidth());
+    }
+
+    @Test
+    void testHighPrecisionEditsQuantizeOnlyForDisplay() throws Exception {
+        BufferedImage source = randomImage(40, 30, BufferedImage.TYPE_INT_ARGB, 11);
+        EditableImage image = new EditableImage(source);
+        image.setHighPrecision(true);
+        FilterFactory factory = new FilterFactory();
+        PlanarImage before = image.getPlanarImage();
+
+        ApplyFilterCommand flatten = new ApplyFilterCommand(image, factory, FilterType.CONTRAST, Map.of("contrast", -0.9));
+        ApplyFilterCommand restore = new ApplyFilterCommand(image, factory, FilterType.CONTRAST, Map.of("contrast", 0.8));
+        flatten.execute();
+        restore.execute();
+        assertNull(flatten.previousState, "Planar edits keep planes, not images");
+        assertSame(before, flatten.previousPlanar);
+
+        // At 8 bits the flattened image has lost levels that stretching it again cannot bring back
+        BufferedImage quantized = factory.createFilter(FilterType.CONTRAST, Map.of("contrast", 0.8))
+                .apply(factory.createFilter(FilterType.CONTRAST, Map.of("contrast", -0.9)).apply(source));
+        long preciseLevels = Arrays.stream(pixels(image.getBufferedImage())).map(argb -> argb & 0xFF).distinct().count();
+        long quantizedLevels = Arrays.stream(pixels(quantized)).map(argb -> argb & 0xFF).distinct().count();
+        assertTrue(preciseLevels > quantizedLevels, preciseLevels + " vs " + quantizedLevels);
+
+        restore.undo();
+        flatten.undo();
+        assertSame(before, image.getPlanarImage());
+        assertArrayEquals(pixels(source), pixels(image.getBufferedImage()));
+    }
+}
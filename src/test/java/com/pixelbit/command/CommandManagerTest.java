@@ -0,0 +1,364 @@
+package com.pixelbit.command;
+
+import com.pixelbit.command.history.CheckpointPolicy;
+import com.pixelbit.command.history.SnapshotCompressor;
+import com.pixelbit.model.BufferPool;
+import com.pixelbit.model.EditableImage;
+import com.pixelbit.model.filter.FilterFactory;
+import com.pixelbit.model.filter.FilterType;
+import com.pixelbit.model.filter.PixelAccess;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+import static com.pixelbit.TestImages.overwritePooledBuffers;
+import static com.pixelbit.TestImages.pixels;
+import static com.pixelbit.TestImages.randomImage;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommandManagerTest {
+
+    @Test
+    void testHistoryOverBudgetIsSpilledAndReadBack() {
+        EditableImage image = new EditableImage(randomImage(120, 80, BufferedImage.TYPE_3BYTE_BGR, 17));
+        FilterFactory factory = new FilterFactory();
+        CommandManager manager = new CommandManager(factory);
+        manager.setSnapshotCompressor(null);
+        manager.setCheckpointPolicy(null);
+        long frame = 4L * 120 * 80;
+        manager.setMaxHistoryBytes(2 * frame);
+
+        Map<String, Object> brighter = Map.of("brightness", 30);
+        int[][] states = new int[6][];
+        states[0] = pixels(image.getBufferedImage());
+        for (int i = 1; i < states.length; i++) {
+            manager.executeCommand(new ApplyFilterCommand(image, factory,
+                    i % 2 == 0 ? FilterType.INVERT : FilterType.BRIGHTNESS, brighter));
+            states[i] = pixels(image.getBufferedImage());
+            assertTrue(manager.getHistoryMemoryBytes() <= 2 * frame, "Step " + i);
+        }
+        assertTrue(manager.getHistorySpilledBytes() > 0);
+
+        for (int i = states.length - 2; i >= 0; i--) {
+            manager.undo();
+            assertArrayEquals(states[i], pixels(image.getBufferedImage()), "Undo to step " + i);
+        }
+        assertEquals(BufferedImage.TYPE_3BYTE_BGR, image.getBufferedImage().getType());
+        assertEquals(0, manager.getHistoryMemoryBytes());
+        assertEquals(0, manager.getHistorySpilledBytes());
+
+        for (int i = 1; i < states.length; i++) {
+            manager.redo();
+            assertArrayEquals(states[i], pixels(image.getBufferedImage()), "Redo to step " + i);
+        }
+    }
+
+    @Test
+    void testChangedTilesAreSpilledToo() {
+        BufferedImage source = PixelAccess.createArgb(200, 150);
+        Arrays.fill(PixelAccess.data(source), 0xFFFFFFFF);
+        source.setRGB(3, 3, 0xFF000000);
+        int[] expected = pixels(source);
+        EditableImage image = new EditableImage(source);
+        FilterFactory factory = new FilterFactory();
+        CommandManager manager = new CommandManager(factory);
+        manager.setSnapshotCompressor(null);
+        ApplyFilterCommand brighten = new ApplyFilterCommand(image, factory, FilterType.BRIGHTNESS,
+                Map.of("brightness", 40));
+        manager.executeCommand(brighten);
+        assertNotNull(brighten.previousTiles);
+        assertTrue(manager.getHistoryMemoryBytes() > 0);
+
+        manager.setMaxHistoryBytes(0);
+        assertTrue(brighten.previousTiles.isSpilled());
+        assertEquals(0, manager.getHistoryMemoryBytes());
+        assertEquals(brighten.previousTiles.getByteCount(), manager.getHistorySpilledBytes());
+
+        manager.undo();
+        assertArrayEquals(expected, pixels(image.getBufferedImage()));
+        manager.redo();
+        manager.clearHistory();
+        assertFalse(manager.canUndo());
+        assertEquals(0, manager.getHistorySpilledBytes());
+    }
+
+    @Test
+    void testHighPrecisionPlanesAreSpilledToo() {
+        EditableImage image = new EditableImage(randomImage(120, 80, BufferedImage.TYPE_INT_ARGB, 17));
+        image.setHighPrecision(true);
+        FilterFactory factory = new FilterFactory();
+        CommandManager manager = new CommandManager(factory);
+        manager.setSnapshotCompressor(null);
+        manager.setMaxHistoryBytes(0);
+
+        int[][] states = new int[4][];
+        states[0] = pixels(image.getBufferedImage());
+        for (int i = 1; i < states.length; i++) {
+            manager.executeCommand(new ApplyFilterCommand(image, factory, FilterType.CONTRAST,
+                    Map.of("contrast", 0.3)));
+            states[i] = pixels(image.getBufferedImage());
+        }
+        assertEquals(0, manager.getHistoryMemoryBytes());
+        assertEquals(3 * 3L * Float.BYTES * 120 * 80, manager.getHistorySpilledBytes());
+
+        for (int i = states.length - 2; i >= 0; i--) {
+            manager.undo();
+            assertArrayEquals(states[i], pixels(image.getBufferedImage()), "Undo to step " + i);
+        }
+        assertEquals(0, manager.getHistorySpilledBytes());
+    }
+
+    @Test
+    void testOlderStatesAreCompressed() {
+        // A gradient compresses well once neighbouring pixels are differenced
+        BufferedImage source = PixelAccess.createArgb(300, 200);
+        for (int y = 0; y < 200; y++) {
+            for (int x = 0; x < 300; x++) {
+                source.setRGB(x, y, PixelAccess.pack(255, x * 255 / 299, y * 255 / 199, 128));
+            }
+        }
+        EditableImage image = new EditableImage(source);
+        FilterFactory factory = new FilterFactory();
+        CommandManager manager = new CommandManager(factory);
+        // Compress on the calling thread so the test sees the result right away
+        SnapshotCompressor compressor = new SnapshotCompressor(Runnable::run, Deflater.BEST_SPEED);
+        manager.setSnapshotCompressor(compressor);
+        manager.setCheckpointPolicy(null);
+        long frame = 4L * 300 * 200;
+
+        int[][] states = new int[5][];
+        states[0] = pixels(image.getBufferedImage());
+        for (int i = 1; i < states.length; i++) {
+            manager.executeCommand(new ApplyFilterCommand(image, factory, FilterType.BRIGHTNESS,
+                    Map.of("brightness", 10)));
+            states[i] = pixels(image.getBufferedImage());
+        }
+        assertEquals(3, compressor.getCompressionCount(), "All but the latest state are compressed");
+        assertTrue(compressor.getCompressionRatio() > 4, String.valueOf(compressor.getCompressionRatio()));
+        assertTrue(manager.getHistoryMemoryBytes() < frame + 3 * frame / 4);
+
+        for (int i = states.length - 2; i >= 0; i--) {
+            manager.undo();
+            assertArrayEquals(states[i], pixels(image.getBufferedImage()), "Undo to step " + i);
+        }
+        assertEquals(3, compressor.getDecompressionCount());
+        assertTrue(compressor.getAverageDecompressionMillis() >= 0);
+        assertTrue(compressor.toString().startsWith("3 compressed"));
+    }
+
+    @Test
+    void testStatesBetweenCheckpointsAreReplayed() {
+        EditableImage image = new EditableImage(randomImage(120, 80, BufferedImage.TYPE_INT_ARGB, 17));
+        FilterFactory factory = new FilterFactory();
+        CommandManager manager = new CommandManager(factory);
+        manager.setSnapshotCompressor(null);
+        manager.setCheckpointPolicy(new CheckpointPolicy(3, Long.MAX_VALUE));
+        long frame = 4L * 120 * 80;
+
+        ApplyFilterCommand[] commands = new ApplyFilterCommand[8];
+        int[][] states = new int[commands.length + 1][];
+        states[0] = pixels(image.getBufferedImage());
+        for (int i = 0; i < commands.length; i++) {
+            commands[i] = i % 2 == 0
+                    ? new ApplyFilterCommand(image, factory, FilterType.BRIGHTNESS, Map.of("brightness", 20))
+                    : new ApplyFilterCommand(image, factory, FilterType.MEDIAN, Map.of("radius", 1));
+            manager.executeCommand(commands[i]);
+            states[i + 1] = pixels(image.getBufferedImage());
+        }
+        // A checkpoint every third command, the rest are rebuilt from the one below them
+        for (int i = 0; i < commands.length; i++) {
+            assertEquals(i % 3 == 0, commands[i].hasPreviousImage(), "Command " + i);
+        }
+        assertEquals(3 * frame, manager.getHistoryMemoryBytes());
+
+        for (int i = commands.length - 1; i >= 0; i--) {
+            manager.undo();
+            assertArrayEquals(states[i], pixels(image.getBufferedImage()), "Undo to step " + i);
+        }
+        for (int i = 1; i < states.length; i++) {
+            manager.redo();
+            assertArrayEquals(states[i], pixels(image.getBufferedImage()), "Redo to step " + i);
+        }
+        for (int i = commands.length - 1; i >= 0; i--) {
+            manager.undo();
+            assertArrayEquals(states[i], pixels(image.getBufferedImage()), "Second undo to step " + i);
+        }
+    }
+
+    @Test
+    void testReplayEndingInCropKeepsTheBufferItViews() {
+        BufferPool.getDefault().clear();
+        EditableImage image = new EditableImage(randomImage(120, 80, BufferedImage.TYPE_INT_ARGB, 17));
+        FilterFactory factory = new FilterFactory();
+        CommandManager manager = new CommandManager(factory);
+        manager.setSnapshotCompressor(null);
+        manager.setCheckpointPolicy(new CheckpointPolicy(4, Long.MAX_VALUE));
+
+        List<ApplyFilterCommand> commands = List.of(
+                new ApplyFilterCommand(image, factory, FilterType.SEPIA, Map.of()),
+                new ApplyFilterCommand(image, factory, FilterType.BRIGHTNESS, Map.of("brightness", 20)),
+                new ApplyFilterCommand(image, factory, FilterType.CROP, Map.of("x", 10, "y", 5, "width", 60, "height", 40)),
+                new ApplyFilterCommand(image, factory, FilterType.CONTRAST, Map.of("contrast", 0.3)));
+        int[] cropped = null;
+        for (ApplyFilterCommand command : commands) {
+            manager.executeCommand(command);
+            if (command == commands.get(2)) {
+                cropped = pixels(image.getBufferedImage());
+            }
+        }
+        // Only the first command keeps its image, the crop is rebuilt by replaying from it
+        assertFalse(commands.get(3).hasPreviousImage());
+
+        manager.undo();
+        assertArrayEquals(cropped, pixels(image.getBufferedImage()));
+        overwritePooledBuffers(120, 80);
+        assertArrayEquals(cropped, pixels(image.getBufferedImage()), "The crop must not view a pooled buffer");
+    }
+
+    @Test
+    void testSlowReplayKeepsEveryImage() {
+        EditableImage image = new EditableImage(randomImage(120, 80, BufferedImage.TYPE_INT_ARGB, 17));
+        FilterFactory factory = new FilterFactory();
+        CommandManager manager = new CommandManager(factory);
+        manager.setSnapshotCompressor(null);
+        manager.setCheckpointPolicy(new CheckpointPolicy(100, 0));
+        for (int i = 0; i < 4; i++) {
+            manager.executeCommand(new ApplyFilterCommand(image, factory, FilterType.BRIGHTNESS,
+                    Map.of("brightness", 20)));
+        }
+        assertEquals(4 * 4L * 120 * 80, manager.getHistoryMemoryBytes());
+    }
+
+    @Test
+    void testEditOutsideHistoryIsNotReplayedOver() {
+        EditableImage image = new EditableImage(randomImage(120, 80, BufferedImage.TYPE_INT_ARGB, 17));
+        FilterFactory factory = new FilterFactory();
+        CommandManager manager = new CommandManager(factory);
+        manager.setSnapshotCompressor(null);
+        manager.setCheckpointPolicy(new CheckpointPolicy(10, Long.MAX_VALUE));
+        manager.executeCommand(new ApplyFilterCommand(image, factory, FilterType.INVERT, null));
+
+        // Like a committed preview, the image changes without a command
+        image.setImage(randomImage(120, 80, BufferedImage.TYPE_INT_ARGB, 17));
+        int[] preview = pixels(image.getBufferedImage());
+        ApplyFilterCommand blur = new ApplyFilterCommand(image, factory, FilterType.MEDIAN, Map.of("radius", 1));
+        manager.executeCommand(blur);
+        assertTrue(blur.hasPreviousImage());
+
+        manager.undo();
+        assertArrayEquals(preview, pixels(image.getBufferedImage()));
+    }
+
+    @Test
+    void testInvertibleTogglesKeepNoHistory() {
+        EditableImage image = new EditableImage(randomImage(120, 80, BufferedImage.TYPE_INT_ARGB, 17));
+        FilterFactory factory = new FilterFactory();
+        CommandManager manager = new CommandManager(factory);
+        FilterType[] toggles = {FilterType.INVERT, FilterType.FLIP_HORIZONTAL, FilterType.ROTATE_90,
+                FilterType.INVERT, FilterType.FLIP_VERTICAL, FilterType.ROTATE_270};
+
+        int[][] states = new int[toggles.length + 1][];
+        states[0] = pixels(image.getBufferedImage());
+        for (int i = 0; i < toggles.length; i++) {
+            manager.executeCommand(new ApplyFilterCommand(image, factory, toggles[i], null));
+            states[i + 1] = pixels(image.getBufferedImage());
+            assertEquals(0, manager.getHistoryMemoryBytes(), "Step " + (i + 1));
+        }
+        assertEquals(0, manager.getHistorySpilledBytes());
+
+        for (int i = toggles.length - 1; i >= 0; i--) {
+            manager.undo();
+            assertArrayEquals(states[i], pixels(image.getBufferedImage()), "Undo to step " + i);
+        }
+        for (int i = 1; i < states.length; i++) {
+            manager.redo();
+            assertArrayEquals(states[i], pixels(image.getBufferedImage()), "Redo to step " + i);
+        }
+    }
+
+    @Test
+    void testRedoPutsBackKeptResults() {
+        BufferedImage source = randomImage(120, 80, BufferedImage.TYPE_INT_ARGB, 17);
+        EditableImage image = new EditableImage(source);
+        FilterFactory factory = new FilterFactory();
+        CommandManager manager = new CommandManager(factory);
+        manager.setSnapshotCompressor(null);
+        // Which states the default policy keeps depends on how long the edits took
+        manager.setCheckpointPolicy(null);
+        ApplyFilterCommand[] commands = {
+                new ApplyFilterCommand(image, factory, FilterType.BRIGHTNESS, Map.of("brightness", 20)),
+                new ApplyFilterCommand(image, factory, FilterType.FLIP_HORIZONTAL, null),
+                new ApplyFilterCommand(image, factory, FilterType.MEDIAN, Map.of("radius", 1))};
+
+        int[][] results = new int[commands.length][];
+        for (int i = 0; i < commands.length; i++) {
+            manager.executeCommand(commands[i]);
+            results[i] = pixels(image.getBufferedImage());
+        }
+        long undoBytes = manager.getHistoryMemoryBytes();
+        for (int i = 0; i < commands.length; i++) {
+            manager.undo();
+        }
+        assertEquals(0, manager.getHistoryMemoryBytes());
+        assertEquals(3 * 4L * 120 * 80, manager.getRedoCacheBytes());
+
+        for (int i = 0; i < commands.length; i++) {
+            manager.redo();
+            assertArrayEquals(results[i], pixels(image.getBufferedImage()), "Redo of step " + (i + 1));
+        }
+        assertEquals(3, manager.getRedoCacheHits());
+        assertEquals(0, manager.getRedoCacheMisses());
+        assertEquals(1.0, manager.getRedoCacheHitRate());
+        assertEquals(undoBytes, manager.getHistoryMemoryBytes(), "Redo keeps the same undo states");
+        assertEquals(0, manager.getRedoCacheBytes());
+
+        // Undo still works after a redo from the kept results
+        int[] expected = pixels(source);
+        for (int i = 0; i < commands.length; i++) {
+            manager.undo();
+        }
+        assertArrayEquals(expected, pixels(image.getBufferedImage()));
+    }
+
+    @Test
+    void testRedoResultsAreDroppedFirstOverBudget() {
+        EditableImage image = new EditableImage(randomImage(120, 80, BufferedImage.TYPE_INT_ARGB, 17));
+        FilterFactory factory = new FilterFactory();
+        CommandManager manager = new CommandManager(factory);
+        manager.setSnapshotCompressor(null);
+        manager.setCheckpointPolicy(null);
+        long frame = 4L * 120 * 80;
+        manager.setMaxHistoryBytes(2 * frame);
+
+        int[][] states = new int[4][];
+        states[0] = pixels(image.getBufferedImage());
+        for (int i = 1; i < states.length; i++) {
+            manager.executeCommand(new ApplyFilterCommand(image, factory, FilterType.BRIGHTNESS,
+                    Map.of("brightness", 20)));
+            states[i] = pixels(image.getBufferedImage());
+        }
+        for (int i = 1; i < states.length; i++) {
+            manager.undo();
+            assertTrue(manager.getHistoryMemoryBytes() + manager.getRedoCacheBytes() <= 2 * frame, "Undo " + i);
+        }
+        // The result of the first command is the furthest from being redone, so it went first
+        assertEquals(2 * frame, manager.getRedoCacheBytes());
+
+        for (int i = 1; i < states.length; i++) {
+            manager.redo();
+            assertArrayEquals(states[i], pixels(image.getBufferedImage()), "Redo to step " + i);
+        }
+        assertEquals(2, manager.getRedoCacheHits());
+        assertEquals(1, manager.getRedoCacheMisses());
+
+        // A new command clears the redo stack and its kept results
+        manager.undo();
+        manager.executeCommand(new ApplyFilterCommand(image, factory, FilterType.SEPIA, null));
+        assertFalse(manager.canRedo());
+        assertEquals(0, manager.getRedoCacheBytes());
+    }
+}
@@ -0,0 +1,71 @@
+package com.pixelbit.command.history;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.image.BufferedImage;
+import java.nio.file.Path;
+import java.util.zip.Deflater;
+
+import static com.pixelbit.TestImages.pixels;
+import static com.pixelbit.TestImages.randomImage;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressedImageTest {
+
+    @Test
+    void testRoundTripKeepsTypeAndPixels() throws Exception {
+        // 301 x 203 spans several chunks, and chunks do not end on row boundaries
+        for (int type : new int[]{BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_3BYTE_BGR,
+                BufferedImage.TYPE_USHORT_GRAY, BufferedImage.TYPE_BYTE_BINARY, BufferedImage.TYPE_4BYTE_ABGR}) {
+            BufferedImage image = randomImage(301, 203, type, 9);
+            CompressedImage compressed = CompressedImage.compress(image, Deflater.BEST_SPEED, null);
+            assertNotNull(compressed);
+            assertEquals(SpilledImage.byteCount(image), compressed.getRawByteCount());
+
+            BufferedImage back = compressed.decompress();
+            assertEquals(type, back.getType());
+            assertArrayEquals(pixels(image), pixels(back), "Type " + type);
+        }
+    }
+
+    @Test
+    void testFlatImageCompressesWell() throws Exception {
+        BufferedImage image = new BufferedImage(400, 300, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < 300; y++) {
+            for (int x = 0; x < 400; x++) {
+                image.setRGB(x, y, 0xFF000000 | (x << 8) | y);
+            }
+        }
+        SnapshotCompressor statistics = new SnapshotCompressor(Runnable::run, Deflater.BEST_SPEED);
+        CompressedImage compressed = CompressedImage.compress(image, Deflater.BEST_SPEED, statistics);
+        assertTrue(compressed.getByteCount() * 20 < compressed.getRawByteCount(), compressed.getByteCount() + " bytes");
+        assertEquals(1, statistics.getCompressionCount());
+        assertEquals((double) compressed.getRawByteCount() / compressed.getByteCount(), statistics.getCompressionRatio());
+        assertArrayEquals(pixels(image), pixels(compressed.decompress()));
+        assertEquals(1, statistics.getDecompressionCount());
+    }
+
+    @Test
+    void testCompressedBytesCanBeSpilled(@TempDir Path directory) throws Exception {
+        BufferedImage image = randomImage(64, 48, BufferedImage.TYPE_INT_RGB, 9);
+        try (SpillFile file = new SpillFile(directory.resolve("history.spill"))) {
+            CompressedImage compressed = CompressedImage.compress(image, Deflater.BEST_SPEED, null);
+            long size = compressed.getByteCount();
+            compressed.spill(file);
+            assertTrue(compressed.isSpilled());
+            assertEquals(size, compressed.getByteCount());
+            assertEquals(size, file.getLiveBytes());
+
+            assertArrayEquals(pixels(image), pixels(compressed.decompress()));
+            assertFalse(compressed.isSpilled());
+            assertEquals(0, file.getLiveBytes());
+        }
+    }
+
+    @Test
+    void testViewsAreNotCompressed() {
+        BufferedImage view = randomImage(40, 40, BufferedImage.TYPE_INT_ARGB, 9).getSubimage(1, 1, 10, 10);
+        assertNull(CompressedImage.compress(view, Deflater.BEST_SPEED, null));
+    }
+}
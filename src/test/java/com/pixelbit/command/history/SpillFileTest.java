@@ -0,0 +1,88 @@
+package com.pixelbit.command.history;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.image.BufferedImage;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static com.pixelbit.TestImages.pixels;
+import static com.pixelbit.TestImages.randomImage;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpillFileTest {
+
+    @Test
+    void testArraysRoundTrip(@TempDir Path directory) throws Exception {
+        try (SpillFile file = new SpillFile(directory.resolve("history.spill"))) {
+            // Longer than one copy chunk
+            int[] ints = new Random(1).ints(600_000).toArray();
+            float[] floats = {0.5f, 254.75f, -1f};
+            byte[] bytes = {1, -2, 3};
+            short[] shorts = {-4, 5000};
+            SpillFile.Slot intSlot = file.write(ints);
+            SpillFile.Slot floatSlot = file.write(floats);
+            SpillFile.Slot byteSlot = file.write(bytes);
+            SpillFile.Slot shortSlot = file.write(shorts);
+            assertEquals(4L * ints.length + 12 + 3 + 4, file.getLiveBytes());
+
+            float[] floatsBack = new float[3];
+            file.read(floatSlot, floatsBack);
+            assertArrayEquals(floats, floatsBack);
+            int[] intsBack = new int[ints.length];
+            file.read(intSlot, intsBack);
+            assertArrayEquals(ints, intsBack);
+            byte[] bytesBack = new byte[3];
+            file.read(byteSlot, bytesBack);
+            assertArrayEquals(bytes, bytesBack);
+            assertTrue(file.getFileBytes() > 0);
+
+            short[] shortsBack = new short[2];
+            file.read(shortSlot, shortsBack);
+            assertArrayEquals(shorts, shortsBack);
+            assertEquals(0, file.getLiveBytes());
+            assertEquals(0, file.getFileBytes(), "The file is truncated once nothing in it is needed");
+        }
+    }
+
+    @Test
+    void testClearDiscardsOlderSlots(@TempDir Path directory) throws Exception {
+        try (SpillFile file = new SpillFile(directory.resolve("history.spill"))) {
+            SpillFile.Slot old = file.write(new int[10]);
+            file.clear();
+            SpillFile.Slot current = file.write(new int[5]);
+
+            file.discard(old);
+            assertEquals(20, file.getLiveBytes(), "Slots from before the clear are already gone");
+            assertThrows(IllegalStateException.class, () -> file.read(old, new int[10]));
+            file.read(current, new int[5]);
+            assertEquals(0, file.getLiveBytes());
+        }
+    }
+
+    @Test
+    void testSpilledImageKeepsTypeAndPixels(@TempDir Path directory) throws Exception {
+        try (SpillFile file = new SpillFile(directory.resolve("history.spill"))) {
+            for (int type : new int[]{BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_3BYTE_BGR,
+                    BufferedImage.TYPE_USHORT_GRAY, BufferedImage.TYPE_BYTE_BINARY}) {
+                BufferedImage image = randomImage(70, 45, type, 3);
+                SpilledImage spilled = SpilledImage.write(image, file);
+                assertNotNull(spilled);
+                assertEquals(SpilledImage.byteCount(image), spilled.getByteCount());
+
+                BufferedImage back = spilled.read();
+                assertEquals(type, back.getType());
+                assertArrayEquals(pixels(image), pixels(back));
+            }
+        }
+    }
+
+    @Test
+    void testViewsAreNotSpilled(@TempDir Path directory) throws Exception {
+        try (SpillFile file = new SpillFile(directory.resolve("history.spill"))) {
+            BufferedImage view = randomImage(70, 45, BufferedImage.TYPE_INT_ARGB, 3).getSubimage(5, 5, 20, 20);
+            assertNull(SpilledImage.write(view, file));
+        }
+    }
+}
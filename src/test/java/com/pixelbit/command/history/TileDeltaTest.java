@@ -0,0 +1,114 @@
+package com.pixelbit.command.history;
+
+import com.pixelbit.model.filter.FilterExecutor;
+import com.pixelbit.model.filter.PixelAccess;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.image.BufferedImage;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TileDeltaTest {
+
+    // Not a multiple of the tile size, so the last row and column of tiles are partial
+    private static final int WIDTH = 150;
+    private static final int HEIGHT = 90;
+
+    private static BufferedImage filled(int argb) {
+        BufferedImage image = PixelAccess.createArgb(WIDTH, HEIGHT);
+        Arrays.fill(PixelAccess.data(image), argb);
+        return image;
+    }
+
+    private static BufferedImage copy(BufferedImage image) {
+        BufferedImage copy = PixelAccess.createArgb(image.getWidth(), image.getHeight());
+        System.arraycopy(PixelAccess.data(image), 0, PixelAccess.data(copy), 0, PixelAccess.data(copy).length);
+        return copy;
+    }
+
+    @Test
+    void testRestoreGivesBackBeforePixels() throws Exception {
+        BufferedImage before = filled(0xFFFFFFFF);
+        PixelAccess.data(before)[10] = 0xFF000000;
+        BufferedImage after = copy(before);
+        after.setRGB(10, 0, 0xFF808080); // First tile
+        after.setRGB(149, 89, 0xFF123456); // Last, partial tile
+        int[] edited = PixelAccess.data(copy(after));
+
+        TileDelta delta = TileDelta.capture(before, after);
+        assertNotNull(delta);
+        assertEquals(2, delta.getChangedTileCount());
+        assertEquals(6, delta.getTileCount());
+        assertTrue(delta.getByteCount() < 4L * WIDTH * HEIGHT);
+
+        delta.restore(after);
+        assertArrayEquals(PixelAccess.data(before), PixelAccess.data(after));
+
+        // The delta now holds the edited pixels, so restoring again redoes the edit
+        delta.restore(after);
+        assertArrayEquals(edited, PixelAccess.data(after));
+    }
+
+    @Test
+    void testRestoringSpilledDeltaFreesOnlyItsBytes(@TempDir Path directory) throws Exception {
+        try (SpillFile file = new SpillFile(directory.resolve("history.spill"))) {
+            SpillFile.Slot other = file.write(new int[10]);
+            BufferedImage before = filled(0xFFFFFFFF);
+            BufferedImage after = copy(before);
+            after.setRGB(10, 0, 0xFF808080);
+            TileDelta delta = TileDelta.capture(before, after);
+            delta.spill(file);
+            assertTrue(delta.isSpilled());
+
+            delta.restore(after);
+            assertArrayEquals(PixelAccess.data(before), PixelAccess.data(after));
+            assertEquals(other.length(), file.getLiveBytes(), "Only the other slot is still held");
+            delta.discard();
+            assertEquals(other.length(), file.getLiveBytes());
+            file.discard(other);
+            assertEquals(0, file.getFileBytes());
+        }
+    }
+
+    @Test
+    void testUnchangedImageHasEmptyDelta() {
+        BufferedImage before = filled(0xFF336699);
+        TileDelta delta = TileDelta.capture(before, copy(before));
+        assertNotNull(delta);
+        assertEquals(0, delta.getChangedTileCount());
+    }
+
+    @Test
+    void testMostlyChangedImageIsNotWorthADelta() {
+        assertNull(TileDelta.capture(filled(0xFF000000), filled(0xFFFFFFFF)));
+    }
+
+    @Test
+    void testImagesThatCannotBeComparedHaveNoDelta() {
+        BufferedImage image = filled(0xFF000000);
+        assertNull(TileDelta.capture(image, PixelAccess.createArgb(WIDTH, HEIGHT + 1)));
+        assertNull(TileDelta.capture(image, new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB)));
+        assertNull(TileDelta.capture(image, image));
+    }
+
+    @Test
+    void testParallelCaptureMatchesSequential() throws Exception {
+        BufferedImage before = filled(0xFFFFFFFF);
+        BufferedImage after = copy(before);
+        for (int x = 0; x < 100; x += 7) {
+            after.setRGB(x, x / 2, 0xFF000000 | x);
+        }
+        TileDelta sequential = TileDelta.capture(before, after,
+                new FilterExecutor(new ForkJoinPool(4), Integer.MAX_VALUE));
+        TileDelta parallel = TileDelta.capture(before, after, new FilterExecutor(new ForkJoinPool(4), 1));
+        assertEquals(sequential.getChangedTileCount(), parallel.getChangedTileCount());
+
+        BufferedImage restored = copy(after);
+        parallel.restore(restored);
+        assertArrayEquals(PixelAccess.data(before), PixelAccess.data(restored));
+    }
+}
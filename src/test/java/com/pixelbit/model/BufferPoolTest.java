@@ -0,0 +1,79 @@
+package com.pixelbit.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BufferPoolTest {
+
+    private static final long ARGB_10X10_BYTES = 10 * 10 * 4;
+
+    @Test
+    void testReleasedBufferIsReused() {
+        BufferPool pool = new BufferPool(1024 * 1024);
+        BufferedImage first = pool.acquire(10, 10, BufferedImage.TYPE_INT_ARGB);
+        assertEquals(0, pool.getHitCount());
+        assertEquals(1, pool.getMissCount());
+
+        pool.release(first);
+        assertEquals(ARGB_10X10_BYTES, pool.getPooledBytes());
+        assertSame(first, pool.acquire(10, 10, BufferedImage.TYPE_INT_ARGB));
+        assertEquals(1, pool.getHitCount());
+        assertEquals(0, pool.getPooledBytes());
+    }
+
+    @Test
+    void testBuffersAreKeyedBySizeAndType() {
+        BufferPool pool = new BufferPool(1024 * 1024);
+        pool.release(new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB));
+
+        assertEquals(BufferedImage.TYPE_INT_RGB, pool.acquire(10, 10, BufferedImage.TYPE_INT_RGB).getType());
+        assertEquals(11, pool.acquire(11, 10, BufferedImage.TYPE_INT_ARGB).getWidth());
+        assertEquals(0, pool.getHitCount());
+        assertEquals(2, pool.getMissCount());
+    }
+
+    @Test
+    void testLeastRecentlyUsedSizeIsEvicted() {
+        BufferPool pool = new BufferPool(2 * ARGB_10X10_BYTES);
+        BufferedImage small = new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB);
+        BufferedImage wide = new BufferedImage(20, 5, BufferedImage.TYPE_INT_ARGB);
+        pool.release(small);
+        pool.release(wide);
+        pool.release(new BufferedImage(5, 20, BufferedImage.TYPE_INT_ARGB));
+
+        assertEquals(1, pool.getEvictionCount());
+        assertTrue(pool.getPooledBytes() <= pool.getMaxBytes());
+        assertSame(wide, pool.acquire(20, 5, BufferedImage.TYPE_INT_ARGB));
+        assertNotSame(small, pool.acquire(10, 10, BufferedImage.TYPE_INT_ARGB));
+    }
+
+    @Test
+    void testViewsAndDoubleReleasesAreIgnored() {
+        BufferPool pool = new BufferPool(1024 * 1024);
+        BufferedImage image = new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB);
+        pool.release(image.getSubimage(2, 2, 5, 5));
+        assertEquals(0, pool.getPooledBytes());
+
+        pool.release(image);
+        pool.release(image);
+        assertEquals(ARGB_10X10_BYTES, pool.getPooledBytes());
+    }
+
+    @Test
+    void testAcquireCopyOverwritesPooledContents() {
+        BufferPool pool = new BufferPool(1024 * 1024);
+        BufferedImage dirty = new BufferedImage(4, 4, BufferedImage.TYPE_INT_ARGB);
+        dirty.setRGB(1, 1, 0xFFFF0000);
+        pool.release(dirty);
+
+        BufferedImage source = new BufferedImage(4, 4, BufferedImage.TYPE_INT_ARGB);
+        source.setRGB(2, 2, 0x80123456);
+        BufferedImage copy = pool.acquireCopy(source);
+        assertSame(dirty, copy);
+        assertEquals(0, copy.getRGB(1, 1));
+        assertEquals(0x80123456, copy.getRGB(2, 2));
+    }
+}
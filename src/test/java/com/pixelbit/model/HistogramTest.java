@@ -0,0 +1,94 @@
+package com.pixelbit.model;
+
+import com.pixelbit.model.filter.FilterExecutor;
+import com.pixelbit.model.filter.PixelAccess;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.pixelbit.TestImages.randomImage;
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistogramTest {
+
+    @Test
+    void testCountsMatchPixels() {
+        BufferedImage image = randomImage(37, 23, 1L);
+        int[][] expected = new int[4][Histogram.LEVELS];
+        for (int argb : PixelAccess.data(image)) {
+            int r = (argb >> 16) & 0xFF;
+            int g = (argb >> 8) & 0xFF;
+            int b = argb & 0xFF;
+            expected[0][r]++;
+            expected[1][g]++;
+            expected[2][b]++;
+            expected[3][Histogram.luminance(r, g, b)]++;
+        }
+
+        Histogram histogram = Histogram.compute(image);
+        assertEquals(37 * 23, histogram.getPixelCount());
+        for (Histogram.Channel channel : Histogram.Channel.values()) {
+            assertArrayEquals(expected[channel.ordinal()], histogram.getCounts(channel), channel.toString());
+        }
+    }
+
+    @Test
+    void testParallelMatchesSequential() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            BufferedImage image = randomImage(640, 480, 2L);
+            Histogram sequential = Histogram.compute(image, new FilterExecutor(pool, Integer.MAX_VALUE));
+            Histogram parallel = Histogram.compute(image, new FilterExecutor(pool, 1));
+            for (Histogram.Channel channel : Histogram.Channel.values()) {
+                assertArrayEquals(sequential.getCounts(channel), parallel.getCounts(channel), channel.toString());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testPercentileAndMean() {
+        BufferedImage image = PixelAccess.createArgb(10, 1);
+        int[] data = PixelAccess.data(image);
+        for (int i = 0; i < data.length; i++) {
+            data[i] = 0xFF000000 | (i * 10) << 16;
+        }
+        Histogram histogram = Histogram.compute(image);
+        assertEquals(0, histogram.percentile(Histogram.Channel.RED, 0));
+        assertEquals(40, histogram.percentile(Histogram.Channel.RED, 0.5));
+        assertEquals(90, histogram.percentile(Histogram.Channel.RED, 1));
+        assertEquals(45, histogram.mean(Histogram.Channel.RED), 1e-9);
+        assertEquals(10, histogram.getCumulativeCounts(Histogram.Channel.GREEN)[0]);
+    }
+
+    @Test
+    void testServiceCachesUntilImageChanges() {
+        HistogramService service = new HistogramService(FilterExecutor.getDefault());
+        BufferedImage white = PixelAccess.createArgb(20, 20);
+        Arrays.fill(PixelAccess.data(white), 0xFFFFFFFF);
+        EditableImage image = new EditableImage(white);
+
+        Histogram first = service.getHistogram(image);
+        assertSame(first, service.getHistogram(image));
+        assertEquals(1, service.getComputationCount());
+        assertEquals(1, service.getHitCount());
+
+        image.setRGB(0, 0, 0xFF000000);
+        Histogram written = service.getHistogram(image);
+        assertEquals(0, first.getCount(Histogram.Channel.LUMINANCE, 0));
+        assertEquals(1, written.getCount(Histogram.Channel.LUMINANCE, 0));
+
+        image.setImage(randomImage(20, 20, 4L));
+        assertNotSame(written, service.getHistogram(image));
+        assertEquals(3, service.getComputationCount());
+
+        // Writes straight to the pixels only show once they are recorded
+        PixelAccess.data(image.getBufferedImage())[0] = 0;
+        image.markModified();
+        service.getHistogram(image);
+        assertEquals(4, service.getComputationCount());
+    }
+}
@@ -0,0 +1,130 @@
+package com.pixelbit.model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PreviewRendererTest {
+    private ScheduledExecutorService scheduler;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    private static BufferedImage image(int width) {
+        return new BufferedImage(width, 1, BufferedImage.TYPE_INT_ARGB);
+    }
+
+    private void drain() throws InterruptedException {
+        // The scheduler has a single thread, so this runs after every render scheduled before it
+        CountDownLatch done = new CountDownLatch(1);
+        scheduler.schedule(done::countDown, 200, TimeUnit.MILLISECONDS);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testRapidRequestsPublishOnlyTheLatest() throws InterruptedException {
+        PreviewRenderer renderer = new PreviewRenderer(scheduler, Runnable::run, 50);
+        List<Integer> published = new CopyOnWriteArrayList<>();
+
+        for (int width = 1; width <= 5; width++) {
+            int w = width;
+            renderer.request(cancelled -> image(w), preview -> published.add(preview.getWidth()), e -> fail(e));
+        }
+        drain();
+
+        assertEquals(List.of(5), published);
+        assertEquals(1, renderer.getRenderCount());
+        assertEquals(4, renderer.getDiscardedCount());
+    }
+
+    @Test
+    void testCancelPreventsPublishing() throws InterruptedException {
+        PreviewRenderer renderer = new PreviewRenderer(scheduler, Runnable::run, 50);
+        List<BufferedImage> published = new CopyOnWriteArrayList<>();
+
+        renderer.request(cancelled -> image(1), published::add, e -> fail(e));
+        renderer.cancel();
+        drain();
+
+        assertTrue(published.isEmpty());
+        assertEquals(0, renderer.getRenderCount());
+    }
+
+    @Test
+    void testRenderOutdatedWhileRunningIsDiscarded() throws InterruptedException {
+        PreviewRenderer renderer = new PreviewRenderer(scheduler, Runnable::run, 0);
+        List<Integer> published = new CopyOnWriteArrayList<>();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        renderer.request(cancelled -> {
+            started.countDown();
+            release.await();
+            return image(1);
+        }, preview -> published.add(preview.getWidth()), e -> fail(e));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        renderer.request(cancelled -> image(2), preview -> published.add(preview.getWidth()), e -> fail(e));
+        release.countDown();
+        drain();
+
+        assertEquals(List.of(2), published);
+        assertEquals(2, renderer.getRenderCount());
+        assertEquals(1, renderer.getPublishedCount());
+        assertEquals(1, renderer.getDiscardedCount());
+    }
+
+    @Test
+    void testRunningRenderIsToldToStop() throws InterruptedException {
+        PreviewRenderer renderer = new PreviewRenderer(scheduler, Runnable::run, 0);
+        List<Integer> published = new CopyOnWriteArrayList<>();
+        List<Exception> errors = new CopyOnWriteArrayList<>();
+        CountDownLatch started = new CountDownLatch(1);
+
+        renderer.request(cancelled -> {
+            started.countDown();
+            while (!cancelled.getAsBoolean()) {
+                Thread.onSpinWait();
+            }
+            throw new CancellationException();
+        }, preview -> published.add(preview.getWidth()), errors::add);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        renderer.request(cancelled -> image(2), preview -> published.add(preview.getWidth()), errors::add);
+        drain();
+
+        assertEquals(List.of(2), published);
+        assertTrue(errors.isEmpty(), "A cancelled render is not an error");
+        assertEquals(1, renderer.getDiscardedCount());
+    }
+
+    @Test
+    void testFailedRenderReportsError() throws InterruptedException {
+        PreviewRenderer renderer = new PreviewRenderer(scheduler, Runnable::run, 0);
+        List<Exception> errors = new CopyOnWriteArrayList<>();
+
+        renderer.request(cancelled -> {
+            throw new IllegalStateException("boom");
+        }, preview -> fail("Nothing should be published"), errors::add);
+        drain();
+
+        assertEquals(1, errors.size());
+        assertEquals("boom", errors.get(0).getMessage());
+    }
+}
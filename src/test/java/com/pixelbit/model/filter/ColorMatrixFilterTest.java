@@ -0,0 +1,129 @@
+package com.pixelbit.model.filter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColorMatrixFilterTest {
+
+    private final FilterFactory factory = new FilterFactory();
+
+    @Test
+    void testIdentityLeavesPixelsUnchanged() {
+        ColorMatrixFilter identity = new ColorMatrixFilter(ColorMatrix.identity());
+        for (int argb : new int[]{0x00000000, 0xFFFFFFFF, 0x80123456, 0x7FFEDCBA}) {
+            assertEquals(argb, identity.filterPixel(argb));
+        }
+    }
+
+    @Test
+    void testMatrixProductMatchesSequentialTransform() {
+        ColorMatrix first = ColorMatrix.saturation(1.6);
+        ColorMatrix second = new ColorMatrix(
+                0.9, 0.1, 0.0, 12,
+                0.0, 0.8, 0.2, -5,
+                0.1, 0.1, 0.8, 3);
+        ColorMatrix product = first.then(second);
+
+        double[] color = {200, 90, 30};
+        double[] intermediate = transform(first, color);
+        double[] expected = transform(second, intermediate);
+        double[] actual = transform(product, color);
+        assertArrayEquals(expected, actual, 1e-9);
+    }
+
+    private static double[] transform(ColorMatrix matrix, double[] color) {
+        double[] result = new double[3];
+        for (int row = 0; row < 3; row++) {
+            result[row] = matrix.get(row, 0) * color[0] + matrix.get(row, 1) * color[1]
+                    + matrix.get(row, 2) * color[2] + matrix.get(row, 3);
+        }
+        return result;
+    }
+
+    @Test
+    void testZeroSaturationMatchesGrayscale() {
+        Filter saturation = factory.createFilter(FilterType.COLOR_MATRIX, Map.of("saturation", 0.0));
+        Filter grayscale = factory.createFilter(FilterType.GRAYSCALE, null);
+        for (int argb : new int[]{0xFF102030, 0xFFC08040, 0x40FF00FF}) {
+            assertEquals(((PointFilter) grayscale).filterPixel(argb), ((PointFilter) saturation).filterPixel(argb));
+        }
+    }
+
+    @Test
+    void testConsecutiveMatricesAreMultipliedInAChain() {
+        FilterChain chain = (FilterChain) factory.createChain(List.of(
+                new FilterSpec(FilterType.GRAYSCALE),
+                new FilterSpec(FilterType.COLOR_MATRIX, Map.of("saturation", 0.5)),
+                new FilterSpec(FilterType.SEPIA)));
+
+        assertEquals(1, chain.getStages().size());
+        ColorMatrixFilter fused = assertInstanceOf(ColorMatrixFilter.class, chain.getStages().get(0));
+        assertEquals(ColorMatrix.grayscale().then(ColorMatrix.saturation(0.5)).then(ColorMatrix.sepia()),
+                fused.getMatrix());
+    }
+
+    @Test
+    void testMatrixThatLeavesChannelRangeIsNotMultiplied() {
+        List<FilterSpec> specs = List.of(
+                new FilterSpec(FilterType.COLOR_MATRIX, Map.of("saturation", 3.0)),
+                new FilterSpec(FilterType.GRAYSCALE));
+        FilterChain chain = (FilterChain) factory.createChain(specs);
+
+        assertInstanceOf(FusedPointFilter.class, chain.getStages().get(0));
+        assertEquals(0xFF4C4C4C, ((PointFilter) chain.getStages().get(0)).filterPixel(0xFFFF2010));
+        assertFalse(ColorMatrix.saturation(3).composesWith(ColorMatrix.grayscale()));
+        assertTrue(ColorMatrix.grayscale().composesWith(ColorMatrix.sepia()));
+    }
+
+    @Test
+    void testOutOfRangeProductKeepsSeparateStages() {
+        List<FilterSpec> specs = List.of(
+                new FilterSpec(FilterType.COLOR_MATRIX, Map.of("saturation", 10.0)),
+                new FilterSpec(FilterType.COLOR_MATRIX, Map.of("saturation", 10.0)));
+
+        FilterChain chain = (FilterChain) assertDoesNotThrow(() -> factory.createChain(specs));
+        assertInstanceOf(FusedPointFilter.class, chain.getStages().get(0));
+    }
+
+    @Test
+    void testFusedMatricesMatchSequentialOnSaturatedColors() {
+        List<List<FilterSpec>> chains = List.of(
+                List.of(new FilterSpec(FilterType.COLOR_MATRIX, Map.of("saturation", 3.0)),
+                        new FilterSpec(FilterType.GRAYSCALE)),
+                List.of(new FilterSpec(FilterType.SEPIA),
+                        new FilterSpec(FilterType.COLOR_MATRIX, Map.of("saturation", 2.0)),
+                        new FilterSpec(FilterType.SEPIA)),
+                List.of(new FilterSpec(FilterType.GRAYSCALE),
+                        new FilterSpec(FilterType.COLOR_MATRIX, Map.of("saturation", 0.5)),
+                        new FilterSpec(FilterType.SEPIA)));
+        int[] colors = {0xFFFF2010, 0xFF00FF00, 0xFF0000FF, 0xFFFFFFFF, 0xFF000000, 0xFFFF00FF, 0xFFF0F010, 0xFF20E0FF};
+
+        for (List<FilterSpec> specs : chains) {
+            PointFilter fused = (PointFilter) ((FilterChain) factory.createChain(specs)).getStages().get(0);
+            for (int color : colors) {
+                int expected = color;
+                for (FilterSpec spec : specs) {
+                    expected = ((PointFilter) factory.createFilter(spec)).filterPixel(expected);
+                }
+                int actual = fused.filterPixel(color);
+                for (int shift = 0; shift < 32; shift += 8) {
+                    // Multiplied matrices skip the rounding of the intermediate color, but never a clamp
+                    assertEquals((expected >> shift) & 0xFF, (actual >> shift) & 0xFF, 1.0,
+                            specs + " on " + Integer.toHexString(color));
+                }
+            }
+        }
+    }
+
+    @Test
+    void testInvalidMatrixIsRejected() {
+        assertThrows(IllegalArgumentException.class, () ->
+                factory.createFilter(FilterType.COLOR_MATRIX, Map.of("matrix", new double[]{1, 0, 0})));
+        assertThrows(IllegalArgumentException.class, () ->
+                factory.createFilter(FilterType.COLOR_MATRIX, Map.of()));
+    }
+}
@@ -0,0 +1,102 @@
+package com.pixelbit.model.filter;
+
+import com.pixelbit.model.BufferPool;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.pixelbit.TestImages.overwritePooledBuffers;
+import static com.pixelbit.TestImages.randomImage;
+import static org.junit.jupiter.api.Assertions.*;
+
+class FilterChainTest {
+
+    private final FilterFactory factory = new FilterFactory();
+
+    private static BufferedImage applyOneByOne(List<Filter> filters, BufferedImage image) {
+        BufferedImage result = image;
+        for (Filter filter : filters) {
+            result = filter.apply(result);
+        }
+        return result;
+    }
+
+    @Test
+    void testConsecutivePointFiltersAreFusedIntoOneStage() {
+        List<FilterSpec> specs = List.of(
+                new FilterSpec(FilterType.GRAYSCALE),
+                new FilterSpec(FilterType.BRIGHTNESS, Map.of("brightness", 40)),
+                new FilterSpec(FilterType.CONTRAST, Map.of("contrast", 0.3)));
+        FilterChain chain = (FilterChain) factory.createChain(specs);
+
+        assertEquals(1, chain.getStages().size());
+        assertInstanceOf(FusedPointFilter.class, chain.getStages().get(0));
+    }
+
+    @Test
+    void testFusedChainMatchesSeparatePasses() {
+        List<FilterSpec> specs = List.of(
+                new FilterSpec(FilterType.SEPIA),
+                new FilterSpec(FilterType.BRIGHTNESS, Map.of("brightness", -25)),
+                new FilterSpec(FilterType.INVERT),
+                new FilterSpec(FilterType.CONTRAST, Map.of("contrast", 0.5)));
+        BufferedImage input = randomImage(97, 83, 7);
+
+        BufferedImage expected = applyOneByOne(specs.stream().map(factory::createFilter).toList(), input);
+        BufferedImage actual = factory.createChain(specs).apply(input);
+
+        assertArrayEquals(PixelAccess.data(expected), PixelAccess.data(actual));
+    }
+
+    @Test
+    void testStagesRunOnTheGivenExecutor() {
+        List<FilterSpec> specs = List.of(
+                new FilterSpec(FilterType.GRAYSCALE),
+                new FilterSpec(FilterType.CROP, Map.of("x", 2, "y", 3, "width", 200, "height", 150)),
+                new FilterSpec(FilterType.SEPIA));
+        BufferedImage input = randomImage(257, 211, 7);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Filter chain = factory.createChain(specs, new FilterExecutor(pool, 1));
+            BufferedImage expected = applyOneByOne(specs.stream().map(factory::createFilter).toList(), input);
+
+            assertArrayEquals(PixelAccess.readPixels(expected), PixelAccess.readPixels(chain.apply(input)));
+            assertTrue(pool.getPoolSize() > 0, "The stages must run on the given pool");
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testNonPointFilterSplitsTheChain() {
+        List<FilterSpec> specs = List.of(
+                new FilterSpec(FilterType.GRAYSCALE),
+                new FilterSpec(FilterType.INVERT),
+                new FilterSpec(FilterType.CROP, Map.of("x", 2, "y", 3, "width", 40, "height", 30)),
+                new FilterSpec(FilterType.SEPIA));
+        FilterChain chain = (FilterChain) factory.createChain(specs);
+        BufferedImage input = randomImage(64, 48, 7);
+
+        assertEquals(3, chain.getStages().size());
+        BufferedImage expected = applyOneByOne(specs.stream().map(factory::createFilter).toList(), input);
+        assertArrayEquals(PixelAccess.data(expected), PixelAccess.data(chain.apply(input)));
+    }
+
+    @Test
+    void testChainEndingInCropKeepsTheBufferItViews() {
+        BufferPool.getDefault().clear();
+        List<FilterSpec> specs = List.of(
+                new FilterSpec(FilterType.SEPIA),
+                new FilterSpec(FilterType.CROP, Map.of("x", 2, "y", 3, "width", 40, "height", 30)));
+        Filter chain = factory.createChain(specs);
+        BufferedImage input = randomImage(64, 48, 7);
+
+        BufferedImage output = chain.apply(input);
+        int[] expected = PixelAccess.readPixels(output);
+        overwritePooledBuffers(64, 48);
+        assertArrayEquals(expected, PixelAccess.readPixels(output), "The crop must not view a pooled buffer");
+    }
+}
@@ -0,0 +1,102 @@
+package com.pixelbit.model.filter;
+
+import com.pixelbit.model.filters.SepiaFilter;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static com.pixelbit.TestImages.randomImage;
+import static org.junit.jupiter.api.Assertions.*;
+
+class FilterExecutorTest {
+
+    @Test
+    void testParallelResultMatchesSequential() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            FilterExecutor executor = new FilterExecutor(pool, 1);
+            BufferedImage input = randomImage(301, 257, 42);
+            Filter filter = new SepiaFilter();
+
+            assertTrue(executor.isParallel(input.getWidth(), input.getHeight()));
+            assertArrayEquals(PixelAccess.data(filter.apply(input)),
+                    PixelAccess.data(executor.apply(filter, input)));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testInPlaceResultMatchesOutOfPlace() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            FilterExecutor executor = new FilterExecutor(pool, 1);
+            BufferedImage input = randomImage(301, 257, 42);
+            PointFilter filter = new SepiaFilter();
+            int[] expected = PixelAccess.data(filter.apply(input)).clone();
+
+            int[] before = PixelAccess.data(input);
+            executor.applyInPlace(filter, input);
+            assertSame(before, PixelAccess.data(input));
+            assertArrayEquals(expected, PixelAccess.data(input));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testInPlaceRejectsIndirectImages() {
+        BufferedImage input = new BufferedImage(8, 8, BufferedImage.TYPE_3BYTE_BGR);
+        assertThrows(IllegalArgumentException.class, () -> new SepiaFilter().applyInPlace(input));
+    }
+
+    @Test
+    void testForEachBandCoversEveryRowOnce() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            FilterExecutor executor = new FilterExecutor(pool, 1);
+            AtomicIntegerArray visits = new AtomicIntegerArray(1000);
+            executor.forEachBand(20, 1000, (startRow, endRow) -> {
+                for (int row = startRow; row < endRow; row++) {
+                    visits.incrementAndGet(row);
+                }
+            });
+            for (int row = 0; row < visits.length(); row++) {
+                assertEquals(1, visits.get(row), "Row " + row + " should be visited exactly once");
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testCancelledWorkStopsBetweenBands() {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        FilterExecutor executor = new FilterExecutor(ForkJoinPool.commonPool(), Integer.MAX_VALUE)
+                .withCancellation(cancelled::get);
+        AtomicInteger bands = new AtomicInteger();
+
+        assertThrows(CancellationException.class, () -> executor.forEachBand(16, 10_000, (startRow, endRow) -> {
+            bands.incrementAndGet();
+            cancelled.set(true);
+        }));
+        assertEquals(1, bands.get());
+
+        // Uncancelled work still gives the same result as the filter on its own
+        cancelled.set(false);
+        BufferedImage input = randomImage(301, 257, 42);
+        assertArrayEquals(PixelAccess.data(new SepiaFilter().apply(input)),
+                PixelAccess.data(executor.apply(new SepiaFilter(), input)));
+    }
+
+    @Test
+    void testSmallImagesRunSequentially() {
+        FilterExecutor executor = new FilterExecutor(ForkJoinPool.commonPool(), FilterExecutor.DEFAULT_PARALLEL_THRESHOLD);
+        assertFalse(executor.isParallel(10, 10));
+    }
+}
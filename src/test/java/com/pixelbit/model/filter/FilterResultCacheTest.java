@@ -0,0 +1,98 @@
+package com.pixelbit.model.filter;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.pixelbit.TestImages.randomImage;
+import static org.junit.jupiter.api.Assertions.*;
+
+class FilterResultCacheTest {
+
+    private static final FilterExecutor SEQUENTIAL = new FilterExecutor(new ForkJoinPool(1), Integer.MAX_VALUE);
+    private static final FilterSpec SEPIA = new FilterSpec(FilterType.SEPIA);
+
+    @Test
+    void testHashDependsOnContentOnly() {
+        BufferedImage image = randomImage(101, 67, 1);
+        long hash = FilterResultCache.hash(image, SEQUENTIAL);
+        assertEquals(hash, FilterResultCache.hash(randomImage(101, 67, 1), SEQUENTIAL));
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertEquals(hash, FilterResultCache.hash(image, new FilterExecutor(pool, 1)));
+        } finally {
+            pool.shutdown();
+        }
+
+        PixelAccess.data(image)[5000] ^= 1;
+        assertNotEquals(hash, FilterResultCache.hash(image, SEQUENTIAL));
+    }
+
+    @Test
+    void testCachedResultIsCopied() {
+        FilterResultCache cache = new FilterResultCache(1 << 20);
+        BufferedImage source = randomImage(50, 40, 2);
+        BufferedImage result = randomImage(50, 40, 3);
+        int[] expected = PixelAccess.data(result).clone();
+
+        FilterResultCache.Key key = cache.keyFor(source, SEPIA, SEQUENTIAL);
+        assertNull(cache.get(key));
+        cache.put(key, result);
+        PixelAccess.data(result)[0] = 0; // The cache keeps its own copy
+        BufferedImage cached = cache.get(cache.keyFor(source, SEPIA, SEQUENTIAL));
+        assertNotNull(cached);
+        assertNotSame(result, cached);
+        assertArrayEquals(expected, PixelAccess.data(cached));
+
+        assertNull(cache.get(cache.keyFor(source, new FilterSpec(FilterType.SEPIA, Map.of("amount", 1)), SEQUENTIAL)));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(4L * 50 * 40, cache.getCachedBytes());
+    }
+
+    @Test
+    void testLeastRecentlyUsedResultsAreEvicted() {
+        long frame = 4L * 50 * 40;
+        FilterResultCache cache = new FilterResultCache(2 * frame);
+        FilterResultCache.Key[] keys = new FilterResultCache.Key[3];
+        for (int i = 0; i < keys.length; i++) {
+            BufferedImage source = randomImage(50, 40, 10 + i);
+            keys[i] = cache.keyFor(source, SEPIA, SEQUENTIAL);
+            cache.put(keys[i], source);
+            if (i == 1) {
+                assertNotNull(cache.get(keys[0])); // The first result is now used more recently than the second
+            }
+        }
+        assertEquals(2 * frame, cache.getCachedBytes());
+        assertEquals(1, cache.getEvictionCount());
+        assertNotNull(cache.get(keys[0]));
+        assertNull(cache.get(keys[1]));
+        assertNotNull(cache.get(keys[2]));
+    }
+
+    @Test
+    void testBindingToAnotherDocumentClearsTheCache() {
+        FilterResultCache cache = new FilterResultCache(1 << 20);
+        Object document = new Object();
+        BufferedImage source = randomImage(20, 20, 4);
+        cache.bindTo(document);
+        FilterResultCache.Key key = cache.keyFor(source, SEPIA, SEQUENTIAL);
+        cache.put(key, source);
+
+        cache.bindTo(document);
+        assertNotNull(cache.get(key));
+        cache.bindTo(new Object());
+        assertNull(cache.get(key));
+        assertEquals(0, cache.getCachedBytes());
+    }
+
+    @Test
+    void testDisabledCacheHasNoKeys() {
+        assertNull(new FilterResultCache(0).keyFor(randomImage(10, 10, 5), SEPIA, SEQUENTIAL));
+        BufferedImage gray = new BufferedImage(10, 10, BufferedImage.TYPE_BYTE_GRAY);
+        assertNull(new FilterResultCache(1 << 20).keyFor(gray, SEPIA, SEQUENTIAL));
+    }
+}
@@ -0,0 +1,53 @@
+package com.pixelbit.model.filter;
+
+import com.pixelbit.model.filters.BrightnessFilter;
+import com.pixelbit.model.filters.ContrastFilter;
+import com.pixelbit.model.filters.InvertFilter;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Map;
+
+import static com.pixelbit.TestImages.randomImage;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LookupTableFilterTest {
+
+    @Test
+    void testCompiledToneFiltersMatchArithmetic() {
+        BufferedImage input = randomImage(64, 64, 3);
+        ToneFilter[] filters = {
+                new BrightnessFilter(-90), new BrightnessFilter(45), new BrightnessFilter(255),
+                new ContrastFilter(-0.7), new ContrastFilter(0.0), new ContrastFilter(0.8),
+                new InvertFilter()
+        };
+        for (ToneFilter filter : filters) {
+            assertArrayEquals(PixelAccess.data(filter.apply(input)),
+                    PixelAccess.data(filter.compile().apply(input)), filter.getName());
+        }
+    }
+
+    @Test
+    void testComposedTablesMatchSequentialApplication() {
+        BufferedImage input = randomImage(64, 64, 3);
+        ToneFilter first = new BrightnessFilter(70);
+        ToneFilter second = new ContrastFilter(0.4);
+
+        BufferedImage expected = second.apply(first.apply(input));
+        BufferedImage actual = first.compile().andThen(second.compile()).apply(input);
+
+        assertArrayEquals(PixelAccess.data(expected), PixelAccess.data(actual));
+    }
+
+    @Test
+    void testFactoryCachesTablesByParameter() {
+        FilterFactory factory = new FilterFactory();
+        Filter first = factory.createFilter(FilterType.BRIGHTNESS, Map.of("brightness", 12));
+        Filter second = factory.createFilter(FilterType.BRIGHTNESS, Map.of("brightness", 12));
+        Filter other = factory.createFilter(FilterType.BRIGHTNESS, Map.of("brightness", 13));
+
+        assertSame(first, second);
+        assertNotSame(first, other);
+        assertEquals(2, factory.getCachedLookupTableCount());
+    }
+}
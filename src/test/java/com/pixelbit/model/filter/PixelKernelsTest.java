@@ -0,0 +1,106 @@
+package com.pixelbit.model.filter;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Checks that the Vector API kernels produce exactly the same pixels as the scalar kernels,
+ * including the scalar tail at the end of ranges that are not a multiple of the vector length.
+ */
+class PixelKernelsTest {
+
+    private static final int LENGTH = 1031;
+
+    private final Random random = new Random(11);
+    private final PixelKernels scalar = PixelKernels.scalar();
+    private PixelKernels vector;
+    private int[] src;
+
+    @BeforeEach
+    void setUp() {
+        vector = PixelKernels.get();
+        assumeTrue(vector.isVectorized(), "Vector API module is not available");
+        src = new int[LENGTH];
+        for (int i = 0; i < LENGTH; i++) {
+            src[i] = random.nextInt();
+        }
+    }
+
+    private int[] randomTable() {
+        int[] table = new int[256];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = random.nextInt(256);
+        }
+        return table;
+    }
+
+    private static int[] fixedWeights(ColorMatrix matrix) {
+        int[] weights = new int[ColorMatrix.SIZE];
+        for (int row = 0; row < 3; row++) {
+            for (int column = 0; column < 4; column++) {
+                weights[row * 4 + column] = (int) Math.round(matrix.get(row, column) * (1 << ColorMatrixFilter.FIXED_POINT_SHIFT));
+            }
+        }
+        return weights;
+    }
+
+    /**
+     * Runs both kernels over several unaligned ranges and compares the whole destination.
+     */
+    private void assertSameOutput(KernelCall call) {
+        int[][] ranges = {{0, LENGTH}, {3, 4}, {5, 5}, {1, 700}, {17, LENGTH - 9}};
+        for (int[] range : ranges) {
+            int[] expected = new int[LENGTH];
+            int[] actual = new int[LENGTH];
+            call.run(scalar, expected, range[0], range[1]);
+            call.run(vector, actual, range[0], range[1]);
+            assertArrayEquals(expected, actual, "Range " + range[0] + ".." + range[1]);
+        }
+    }
+
+    @FunctionalInterface
+    private interface KernelCall {
+        void run(PixelKernels kernels, int[] dst, int from, int to);
+    }
+
+    @Test
+    void testInvertMatchesScalar() {
+        assertSameOutput((kernels, dst, from, to) -> kernels.invert(src, dst, from, to));
+    }
+
+    @Test
+    void testLookupMatchesScalar() {
+        int[] red = randomTable();
+        int[] green = randomTable();
+        int[] blue = randomTable();
+        assertSameOutput((kernels, dst, from, to) -> kernels.lookup(src, dst, from, to, red, green, blue));
+    }
+
+    @Test
+    void testColorMatrixMatchesScalar() {
+        ColorMatrix[] matrices = {
+                ColorMatrix.grayscale(),
+                ColorMatrix.sepia(),
+                ColorMatrix.saturation(2.5),
+                new ColorMatrix(-1.5, 0.25, 3, 40, 0, -2, 1, -100, 31, -31, 0.5, 1000)
+        };
+        for (ColorMatrix matrix : matrices) {
+            int[] weights = fixedWeights(matrix);
+            assertSameOutput((kernels, dst, from, to) -> kernels.colorMatrix(src, dst, from, to, weights));
+        }
+    }
+
+    @Test
+    void testInPlaceMatchesScalar() {
+        int[] expected = src.clone();
+        int[] actual = src.clone();
+        scalar.invert(expected, expected, 0, LENGTH);
+        vector.invert(actual, actual, 0, LENGTH);
+        assertArrayEquals(expected, actual);
+    }
+}
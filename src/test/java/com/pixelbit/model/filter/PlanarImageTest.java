@@ -0,0 +1,94 @@
+package com.pixelbit.model.filter;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.Map;
+
+import static com.pixelbit.TestImages.randomImage;
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlanarImageTest {
+
+    private final FilterFactory factory = new FilterFactory();
+
+    private static void assertWithinOneLevel(int[] expected, int[] actual, String message) {
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i] >>> 24, actual[i] >>> 24, message + " alpha at " + i);
+            for (int shift = 0; shift < 24; shift += 8) {
+                int e = (expected[i] >> shift) & 0xFF;
+                int a = (actual[i] >> shift) & 0xFF;
+                assertTrue(Math.abs(e - a) <= 1, message + " at " + i + ": " + e + " vs " + a);
+            }
+        }
+    }
+
+    @Test
+    void testRoundTripIsExact() {
+        BufferedImage image = randomImage(37, 21, 5);
+        PlanarImage planar = PlanarImage.fromImage(image);
+        assertArrayEquals(PixelAccess.data(image), PixelAccess.data(planar.toImage()));
+        assertEquals(PixelAccess.data(image)[40], planar.getRGB(3, 1));
+    }
+
+    @Test
+    void testPlanarFiltersMatch8BitFilters() {
+        BufferedImage image = randomImage(64, 32, 5);
+        List<FilterSpec> specs = List.of(
+                new FilterSpec(FilterType.BRIGHTNESS, Map.of("brightness", 40)),
+                new FilterSpec(FilterType.BRIGHTNESS, Map.of("brightness", -70)),
+                new FilterSpec(FilterType.CONTRAST, Map.of("contrast", 0.4)),
+                new FilterSpec(FilterType.INVERT),
+                new FilterSpec(FilterType.SEPIA),
+                new FilterSpec(FilterType.GRAYSCALE));
+        for (FilterSpec spec : specs) {
+            PlanarFilter planarFilter = (PlanarFilter) factory.createFilter(spec.type(), spec.parameters());
+            Filter filter = planarFilter;
+            PlanarImage planar = PlanarImage.fromImage(image);
+            FilterExecutor.getDefault().applyPlanar(planarFilter, planar);
+            assertWithinOneLevel(PixelAccess.data(filter.apply(image)), PixelAccess.data(planar.toImage()),
+                    spec.type().toString());
+        }
+    }
+
+    @Test
+    void testChainKeepsPrecisionBetweenSteps() {
+        // Darkening a lot and brightening back rounds away detail at 8 bits
+        List<FilterSpec> specs = List.of(
+                new FilterSpec(FilterType.CONTRAST, Map.of("contrast", -0.9)),
+                new FilterSpec(FilterType.CONTRAST, Map.of("contrast", 0.8)),
+                new FilterSpec(FilterType.CONTRAST, Map.of("contrast", 0.8)));
+        FilterChain chain = (FilterChain) factory.createChain(specs);
+        assertTrue(chain.supportsPlanar());
+
+        BufferedImage image = PixelAccess.createArgb(256, 1);
+        int[] data = PixelAccess.data(image);
+        for (int i = 0; i < data.length; i++) {
+            data[i] = PixelAccess.pack(255, i, i, i);
+        }
+        PlanarImage planar = PlanarImage.fromImage(image);
+        FilterExecutor.getDefault().applyPlanar(chain, planar);
+        int[] precise = PixelAccess.data(planar.toImage());
+        int[] quantized = PixelAccess.data(chain.apply(image));
+
+        // factor 0.55 * 1.8 * 1.8 = 1.782 around middle gray
+        int preciseError = 0;
+        int quantizedError = 0;
+        for (int i = 0; i < 256; i++) {
+            int expected = PixelAccess.clamp((int) Math.round(128 + (i - 128) * 0.55 * 1.8 * 1.8));
+            preciseError = Math.max(preciseError, Math.abs(PixelAccess.blue(precise[i]) - expected));
+            quantizedError = Math.max(quantizedError, Math.abs(PixelAccess.blue(quantized[i]) - expected));
+        }
+        assertTrue(preciseError <= 1, "Planar error " + preciseError);
+        assertTrue(quantizedError > preciseError, "8-bit error " + quantizedError);
+    }
+
+    @Test
+    void testChainWithSpatialFilterIsNotPlanar() {
+        FilterChain chain = (FilterChain) factory.createChain(List.of(
+                new FilterSpec(FilterType.BRIGHTNESS, Map.of("brightness", 10)),
+                new FilterSpec(FilterType.GAUSSIAN_BLUR)));
+        assertFalse(chain.supportsPlanar());
+    }
+}
@@ -0,0 +1,92 @@
+package com.pixelbit.model.filters;
+
+import com.pixelbit.model.filter.Filter;
+import com.pixelbit.model.filter.FilterExecutor;
+import com.pixelbit.model.filter.PixelAccess;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the running-sum blurs with the convolution kernels they replace, for growing radii.
+ * The convolution cost grows with the radius while the running-sum cost stays flat.
+ * Run it after {@code mvn test-compile} with the test classpath, e.g. from the IDE through {@link #main}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class BlurBenchmark {
+
+    private static final int SIZE = 1024;
+
+    @Param({"2", "8", "32", "100"})
+    public int radius;
+
+    private final FilterExecutor executor = FilterExecutor.getDefault();
+    private BufferedImage image;
+    private Filter uniformKernel;
+    private Filter boxBlur;
+    private Filter gaussianKernel;
+    private Filter boxGaussian;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        image = PixelAccess.createArgb(SIZE, SIZE);
+        int[] data = PixelAccess.data(image);
+        for (int i = 0; i < data.length; i++) {
+            data[i] = random.nextInt();
+        }
+        float[] box = new float[2 * radius + 1];
+        Arrays.fill(box, 1f / box.length);
+        uniformKernel = new ConvolutionFilter(ConvolutionKernel.separable(box, box));
+        boxBlur = new BoxBlurFilter(radius);
+        // A Gaussian reaches about three standard deviations, so this matches the box radius
+        double sigma = radius / 3.0;
+        gaussianKernel = new GaussianBlurFilter(sigma);
+        boxGaussian = BoxBlurFilter.gaussian(sigma);
+    }
+
+    @Benchmark
+    public BufferedImage uniformKernel() {
+        return executor.apply(uniformKernel, image);
+    }
+
+    @Benchmark
+    public BufferedImage boxBlur() {
+        return executor.apply(boxBlur, image);
+    }
+
+    @Benchmark
+    public BufferedImage gaussianKernel() {
+        return executor.apply(gaussianKernel, image);
+    }
+
+    @Benchmark
+    public BufferedImage boxGaussian() {
+        return executor.apply(boxGaussian, image);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(BlurBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,108 @@
+package com.pixelbit.model.filters;
+
+import com.pixelbit.model.filter.FilterExecutor;
+import com.pixelbit.model.filter.PixelAccess;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.pixelbit.TestImages.randomImage;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoxBlurFilterTest {
+
+    private static int maxChannelDifference(int[] expected, int[] actual) {
+        int max = 0;
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i] >>> 24, actual[i] >>> 24, "Alpha mismatch at " + i);
+            for (int shift = 0; shift <= 16; shift += 8) {
+                max = Math.max(max, Math.abs(((expected[i] >> shift) & 0xFF) - ((actual[i] >> shift) & 0xFF)));
+            }
+        }
+        return max;
+    }
+
+    /** Largest channel difference away from the borders, where repeated box passes clamp differently. */
+    private static int maxInteriorDifference(int[] expected, int[] actual, int width, int height, int margin) {
+        int max = 0;
+        for (int y = margin; y < height - margin; y++) {
+            for (int x = margin; x < width - margin; x++) {
+                int i = y * width + x;
+                for (int shift = 0; shift <= 16; shift += 8) {
+                    max = Math.max(max, Math.abs(((expected[i] >> shift) & 0xFF) - ((actual[i] >> shift) & 0xFF)));
+                }
+            }
+        }
+        return max;
+    }
+
+    private static ConvolutionKernel boxKernel(int radius) {
+        float[] weights = new float[2 * radius + 1];
+        Arrays.fill(weights, 1f / weights.length);
+        return ConvolutionKernel.separable(weights, weights);
+    }
+
+    @Test
+    void testBoxBlurMatchesUniformKernel() {
+        BufferedImage input = randomImage(41, 33, 1L);
+        for (int radius : new int[]{1, 4, 20, 60}) {
+            int[] expected = PixelAccess.data(new ConvolutionFilter(boxKernel(Math.min(radius, 100))).apply(input));
+            int[] actual = PixelAccess.data(new BoxBlurFilter(radius).apply(input));
+            assertTrue(maxChannelDifference(expected, actual) <= 1, "Radius " + radius);
+        }
+    }
+
+    @Test
+    void testThreeBoxesApproximateGaussian() {
+        BufferedImage input = randomImage(96, 96, 2L);
+        for (double sigma : new double[]{2.0, 5.0, 12.0}) {
+            int[] expected = PixelAccess.data(new GaussianBlurFilter(sigma).apply(input));
+            int[] actual = PixelAccess.data(BoxBlurFilter.gaussian(sigma).apply(input));
+            int margin = (int) Math.ceil(3 * sigma);
+            assertTrue(maxInteriorDifference(expected, actual, 96, 96, margin) <= 6, "Sigma " + sigma);
+        }
+    }
+
+    @Test
+    void testGaussianRadiiMatchVariance() {
+        for (double sigma : new double[]{1.5, 3.0, 10.0, 50.0}) {
+            double variance = 0;
+            for (int radius : BoxBlurFilter.gaussianRadii(sigma, BoxBlurFilter.GAUSSIAN_PASSES)) {
+                int size = 2 * radius + 1;
+                variance += (size * size - 1) / 12.0;
+            }
+            assertEquals(sigma * sigma, variance, sigma * sigma * 0.25, "Sigma " + sigma);
+        }
+    }
+
+    @Test
+    void testParallelMatchesSequential() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            BufferedImage input = randomImage(203, 157, 3L);
+            FilterExecutor sequential = new FilterExecutor(pool, Integer.MAX_VALUE);
+            FilterExecutor parallel = new FilterExecutor(pool, 1);
+            assertArrayEquals(PixelAccess.data(BoxBlurFilter.gaussian(6.0, sequential).apply(input)),
+                    PixelAccess.data(BoxBlurFilter.gaussian(6.0, parallel).apply(input)));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testFlatImageIsUnchanged() {
+        BufferedImage flat = PixelAccess.createArgb(30, 20);
+        Arrays.fill(PixelAccess.data(flat), 0x40ABCDEF);
+        for (int pixel : PixelAccess.data(BoxBlurFilter.gaussian(40.0).apply(flat))) {
+            assertEquals(0x40ABCDEF, pixel);
+        }
+    }
+
+    @Test
+    void testInvalidRadiusIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new BoxBlurFilter(-1));
+        assertThrows(IllegalArgumentException.class, () -> new BoxBlurFilter(BoxBlurFilter.MAX_RADIUS + 1));
+    }
+}
@@ -0,0 +1,139 @@
+package com.pixelbit.model.filters;
+
+import com.pixelbit.model.filter.FilterExecutor;
+import com.pixelbit.model.filter.PixelAccess;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.pixelbit.TestImages.randomImage;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConvolutionFilterTest {
+
+    /** Straightforward 2-D convolution with clamped borders, used as the reference. */
+    private static int[] referenceConvolve(BufferedImage image, ConvolutionKernel kernel) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int rx = kernel.getWidth() / 2;
+        int ry = kernel.getHeight() / 2;
+        int[] result = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                double r = 0, g = 0, b = 0;
+                for (int ky = 0; ky < kernel.getHeight(); ky++) {
+                    for (int kx = 0; kx < kernel.getWidth(); kx++) {
+                        int sx = Math.min(width - 1, Math.max(0, x + kx - rx));
+                        int sy = Math.min(height - 1, Math.max(0, y + ky - ry));
+                        int argb = image.getRGB(sx, sy);
+                        double weight = kernel.get(kx, ky);
+                        r += weight * ((argb >> 16) & 0xFF);
+                        g += weight * ((argb >> 8) & 0xFF);
+                        b += weight * (argb & 0xFF);
+                    }
+                }
+                result[y * width + x] = (image.getRGB(x, y) & 0xFF000000)
+                        | (clamp(r) << 16) | (clamp(g) << 8) | clamp(b);
+            }
+        }
+        return result;
+    }
+
+    private static int clamp(double value) {
+        return (int) Math.min(255, Math.max(0, Math.round(value)));
+    }
+
+    private static void assertClose(int[] expected, int[] actual) {
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i] >>> 24, actual[i] >>> 24, "Alpha mismatch at " + i);
+            for (int shift = 0; shift <= 16; shift += 8) {
+                int difference = Math.abs(((expected[i] >> shift) & 0xFF) - ((actual[i] >> shift) & 0xFF));
+                assertTrue(difference <= 1, "Channel mismatch at " + i);
+            }
+        }
+    }
+
+    @Test
+    void testSeparableKernelsAreDetected() {
+        assertTrue(ConvolutionKernel.gaussian(1.5).isSeparable());
+        assertTrue(ConvolutionKernel.sobelX().isSeparable());
+        assertFalse(ConvolutionKernel.sharpen(1).isSeparable());
+
+        ConvolutionKernel box = new ConvolutionKernel(3, 3, 1, 2, 1, 2, 4, 2, 1, 2, 1);
+        assertTrue(box.isSeparable());
+        float[] h = box.getHorizontal();
+        float[] v = box.getVertical();
+        for (int y = 0; y < 3; y++) {
+            for (int x = 0; x < 3; x++) {
+                assertEquals(box.get(x, y), v[y] * h[x], 1e-6);
+            }
+        }
+    }
+
+    @Test
+    void testSeparableAndDirectPathsMatchReference() {
+        BufferedImage input = randomImage(37, 29, 3L);
+        for (ConvolutionKernel kernel : new ConvolutionKernel[]{
+                ConvolutionKernel.gaussian(2.0), ConvolutionKernel.sharpen(0.7),
+                new ConvolutionKernel(5, 3, 1, 0, 2, 0, 1, 0, 3, 0, 1, 0, 1, 0, -2, 0, 1)}) {
+            BufferedImage result = new ConvolutionFilter(kernel).apply(input);
+            assertClose(referenceConvolve(input, kernel), PixelAccess.data(result));
+        }
+    }
+
+    @Test
+    void testParallelBandsMatchSequential() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            FilterExecutor executor = new FilterExecutor(pool, 1);
+            BufferedImage input = randomImage(180, 211, 5L);
+            for (ConvolutionFilter filter : new ConvolutionFilter[]{
+                    new GaussianBlurFilter(3.0), new SharpenFilter(1.0),
+                    new UnsharpMaskFilter(2.0, 1.5, 4), new SobelFilter()}) {
+                assertArrayEquals(PixelAccess.data(filter.apply(input)),
+                        PixelAccess.data(executor.apply(filter, input)), filter.getName());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testFlatImageKeepsColorAndHasNoEdges() {
+        BufferedImage flat = PixelAccess.createArgb(16, 12);
+        Arrays.fill(PixelAccess.data(flat), 0x80336699);
+
+        for (ConvolutionFilter filter : new ConvolutionFilter[]{
+                new GaussianBlurFilter(2.5), new SharpenFilter(2.0), new UnsharpMaskFilter(1.0, 1.0, 0)}) {
+            for (int pixel : PixelAccess.data(filter.apply(flat))) {
+                assertEquals(0x80336699, pixel, filter.getName());
+            }
+        }
+        for (int pixel : PixelAccess.data(new SobelFilter().apply(flat))) {
+            assertEquals(0x80000000, pixel);
+        }
+    }
+
+    @Test
+    void testSobelFindsVerticalEdge() {
+        BufferedImage image = PixelAccess.createArgb(8, 4);
+        int[] data = PixelAccess.data(image);
+        for (int i = 0; i < data.length; i++) {
+            data[i] = i % 8 < 4 ? 0xFF000000 : 0xFFFFFFFF;
+        }
+        int[] edges = PixelAccess.data(new SobelFilter().apply(image));
+        assertEquals(0xFF000000, edges[0]);
+        assertEquals(0xFFFFFFFF, edges[3]);
+        assertEquals(0xFFFFFFFF, edges[4]);
+        assertEquals(0xFF000000, edges[7]);
+    }
+
+    @Test
+    void testInvalidSigmaIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new GaussianBlurFilter(0));
+        assertThrows(IllegalArgumentException.class, () -> new GaussianBlurFilter(ConvolutionKernel.MAX_SIGMA + 1));
+    }
+}
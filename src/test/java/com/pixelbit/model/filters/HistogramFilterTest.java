@@ -0,0 +1,73 @@
+package com.pixelbit.model.filters;
+
+import com.pixelbit.model.Histogram;
+import com.pixelbit.model.filter.FilterExecutor;
+import com.pixelbit.model.filter.LookupTableFilter;
+import com.pixelbit.model.filter.PixelAccess;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistogramFilterTest {
+
+    /** An image whose channels only use the range [low, high], with a different range per channel. */
+    private static BufferedImage lowContrastImage() {
+        Random random = new Random(7);
+        BufferedImage image = PixelAccess.createArgb(64, 48);
+        int[] data = PixelAccess.data(image);
+        for (int i = 0; i < data.length; i++) {
+            int r = 60 + random.nextInt(81);   // 60-140
+            int g = 100 + random.nextInt(51);  // 100-150
+            int b = 30 + random.nextInt(171);  // 30-200
+            data[i] = PixelAccess.pack(0x80, r, g, b);
+        }
+        return image;
+    }
+
+    @Test
+    void testAutoLevelsStretchesEveryChannel() {
+        BufferedImage input = lowContrastImage();
+        BufferedImage output = new AutoLevelsFilter(0, FilterExecutor.getDefault()).apply(input);
+        Histogram histogram = Histogram.compute(output);
+        for (Histogram.Channel channel : new Histogram.Channel[]{
+                Histogram.Channel.RED, Histogram.Channel.GREEN, Histogram.Channel.BLUE}) {
+            assertEquals(0, histogram.percentile(channel, 0), channel.toString());
+            assertEquals(255, histogram.percentile(channel, 1), channel.toString());
+        }
+        assertEquals(0x80, PixelAccess.alpha(PixelAccess.data(output)[0]), "Alpha must be preserved");
+    }
+
+    @Test
+    void testAutoLevelsLeavesFlatChannelsAlone() {
+        BufferedImage input = PixelAccess.createArgb(8, 8);
+        Arrays.fill(PixelAccess.data(input), 0xFF405060);
+        BufferedImage output = new AutoLevelsFilter().apply(input);
+        assertArrayEquals(PixelAccess.data(input), PixelAccess.data(output));
+    }
+
+    @Test
+    void testEqualizeFlattensLuminance() {
+        BufferedImage input = lowContrastImage();
+        BufferedImage output = new EqualizeFilter().apply(input);
+        Histogram before = Histogram.compute(input);
+        Histogram after = Histogram.compute(output);
+        // Tones are spread out: the middle half of the pixels covers a much wider range
+        int spreadBefore = before.percentile(Histogram.Channel.LUMINANCE, 0.75) - before.percentile(Histogram.Channel.LUMINANCE, 0.25);
+        int spreadAfter = after.percentile(Histogram.Channel.LUMINANCE, 0.75) - after.percentile(Histogram.Channel.LUMINANCE, 0.25);
+        assertTrue(spreadAfter > 2 * spreadBefore, spreadBefore + " -> " + spreadAfter);
+    }
+
+    @Test
+    void testEqualizeTableIsMonotonic() {
+        Histogram histogram = Histogram.compute(lowContrastImage());
+        LookupTableFilter table = new EqualizeFilter().compile(histogram);
+        for (int i = 1; i < Histogram.LEVELS; i++) {
+            assertTrue(table.lookup(0, i) >= table.lookup(0, i - 1));
+        }
+        assertEquals(255, table.lookup(0, 255));
+    }
+}
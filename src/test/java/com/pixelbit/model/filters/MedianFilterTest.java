@@ -0,0 +1,92 @@
+package com.pixelbit.model.filters;
+
+import com.pixelbit.model.filter.FilterExecutor;
+import com.pixelbit.model.filter.FilterFactory;
+import com.pixelbit.model.filter.FilterType;
+import com.pixelbit.model.filter.PixelAccess;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.pixelbit.TestImages.randomImage;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MedianFilterTest {
+
+    /** Sorts every window, with pixels outside the image clamped to the edge. */
+    private static int[] naiveMedian(int[] src, int width, int height, int radius) {
+        int[] dst = new int[src.length];
+        int[] window = new int[(2 * radius + 1) * (2 * radius + 1)];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int argb = src[y * width + x] & 0xFF000000;
+                for (int shift = 16; shift >= 0; shift -= 8) {
+                    int n = 0;
+                    for (int dy = -radius; dy <= radius; dy++) {
+                        int row = Math.min(height - 1, Math.max(0, y + dy));
+                        for (int dx = -radius; dx <= radius; dx++) {
+                            int column = Math.min(width - 1, Math.max(0, x + dx));
+                            window[n++] = (src[row * width + column] >> shift) & 0xFF;
+                        }
+                    }
+                    Arrays.sort(window);
+                    argb |= window[window.length / 2] << shift;
+                }
+                dst[y * width + x] = argb;
+            }
+        }
+        return dst;
+    }
+
+    @Test
+    void testMatchesSortedWindows() {
+        BufferedImage input = randomImage(41, 29, 1L);
+        for (int radius : new int[]{0, 1, 2, 3, 7, 20}) {
+            BufferedImage output = new MedianFilter(radius).apply(input);
+            assertArrayEquals(naiveMedian(PixelAccess.data(input), 41, 29, radius), PixelAccess.data(output),
+                    "radius " + radius);
+        }
+    }
+
+    @Test
+    void testRemovesSaltAndPepper() {
+        BufferedImage input = PixelAccess.createArgb(64, 64);
+        int[] data = PixelAccess.data(input);
+        Arrays.fill(data, 0xFF808080);
+        Random random = new Random(2);
+        for (int i = 0; i < 200; i++) {
+            data[random.nextInt(data.length)] = random.nextBoolean() ? 0xFFFFFFFF : 0xFF000000;
+        }
+        int[] output = PixelAccess.data(new MedianFilter(1).apply(input));
+        long speckles = Arrays.stream(output).filter(argb -> argb != 0xFF808080).count();
+        assertTrue(speckles < 5, speckles + " speckles left");
+    }
+
+    @Test
+    void testParallelMatchesSequential() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            BufferedImage input = randomImage(300, 257, 3L);
+            MedianFilter filter = new MedianFilter(5);
+            BufferedImage sequential = new FilterExecutor(pool, Integer.MAX_VALUE).apply(filter, input);
+            BufferedImage parallel = new FilterExecutor(pool, 1).apply(filter, input);
+            assertArrayEquals(PixelAccess.data(sequential), PixelAccess.data(parallel));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testFactoryReadsRadius() {
+        FilterFactory factory = new FilterFactory();
+        assertEquals(FilterFactory.DEFAULT_MEDIAN_RADIUS,
+                ((MedianFilter) factory.createFilter(FilterType.MEDIAN, null)).getRadius());
+        assertEquals(6, ((MedianFilter) factory.createFilter(FilterType.MEDIAN, Map.of("radius", 6))).getRadius());
+        assertThrows(IllegalArgumentException.class,
+                () -> factory.createFilter(FilterType.MEDIAN, Map.of("radius", MedianFilter.MAX_RADIUS + 1)));
+    }
+}
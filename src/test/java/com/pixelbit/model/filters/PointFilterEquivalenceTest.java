@@ -0,0 +1,205 @@
+package com.pixelbit.model.filters;
+
+import com.pixelbit.model.filter.Filter;
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.function.UnaryOperator;
+
+import static com.pixelbit.TestImages.randomImage;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifies that the packed-int filters produce the same pixels as the original
+ * getRGB/setRGB implementations based on java.awt.Color. Tone filters must match exactly;
+ * color matrix filters use fixed-point weights and may differ by one level per channel.
+ */
+class PointFilterEquivalenceTest {
+
+    private static final int WIDTH = 67;
+    private static final int HEIGHT = 41;
+
+    /**
+     * Asserts that two images have the same size and the same ARGB value at every pixel.
+     */
+    private static void assertSamePixels(BufferedImage expected, BufferedImage actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals(expected.getRGB(x, y), actual.getRGB(x, y),
+                        "Pixel mismatch at (" + x + ", " + y + ")");
+            }
+        }
+    }
+
+    private static void assertClosePixels(BufferedImage expected, BufferedImage actual, int tolerance) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                int e = expected.getRGB(x, y);
+                int a = actual.getRGB(x, y);
+                assertEquals(e >>> 24, a >>> 24, "Alpha mismatch at (" + x + ", " + y + ")");
+                for (int shift = 0; shift <= 16; shift += 8) {
+                    int difference = Math.abs(((e >> shift) & 0xFF) - ((a >> shift) & 0xFF));
+                    assertTrue(difference <= tolerance, "Channel mismatch at (" + x + ", " + y + ")");
+                }
+            }
+        }
+    }
+
+    private static void assertEquivalent(Filter filter, UnaryOperator<BufferedImage> reference) {
+        for (int type : new int[]{BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_3BYTE_BGR}) {
+            BufferedImage input = randomImage(WIDTH, HEIGHT, type, type * 31L);
+            assertSamePixels(reference.apply(input), filter.apply(input));
+        }
+    }
+
+    private static void assertEquivalentWithin(Filter filter, UnaryOperator<BufferedImage> reference, int tolerance) {
+        for (int type : new int[]{BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_3BYTE_BGR}) {
+            BufferedImage input = randomImage(WIDTH, HEIGHT, type, type * 31L);
+            assertClosePixels(reference.apply(input), filter.apply(input), tolerance);
+        }
+    }
+
+    private static int clamp(int value) {
+        return Math.min(255, Math.max(0, value));
+    }
+
+    /** Reference implementation of the original grayscale loop. */
+    private static BufferedImage referenceGrayscale(BufferedImage image) {
+        BufferedImage result = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                Color color = new Color(image.getRGB(x, y), true);
+                int gray = (int) (0.299 * color.getRed() + 0.587 * color.getGreen() + 0.114 * color.getBlue());
+                result.setRGB(x, y, new Color(gray, gray, gray, color.getAlpha()).getRGB());
+            }
+        }
+        return result;
+    }
+
+    /** Reference implementation of the original sepia loop. */
+    private static BufferedImage referenceSepia(BufferedImage image) {
+        BufferedImage result = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                Color color = new Color(image.getRGB(x, y), true);
+                int r = clamp((int) (color.getRed() * 0.393 + color.getGreen() * 0.769 + color.getBlue() * 0.189));
+                int g = clamp((int) (color.getRed() * 0.349 + color.getGreen() * 0.686 + color.getBlue() * 0.168));
+                int b = clamp((int) (color.getRed() * 0.272 + color.getGreen() * 0.534 + color.getBlue() * 0.131));
+                result.setRGB(x, y, new Color(r, g, b, color.getAlpha()).getRGB());
+            }
+        }
+        return result;
+    }
+
+    /** Reference implementation of the original invert loop. */
+    private static BufferedImage referenceInvert(BufferedImage image) {
+        BufferedImage result = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                Color color = new Color(image.getRGB(x, y), true);
+                result.setRGB(x, y, new Color(255 - color.getRed(), 255 - color.getGreen(),
+                        255 - color.getBlue(), color.getAlpha()).getRGB());
+            }
+        }
+        return result;
+    }
+
+    /** Reference implementation of the original brightness loop. */
+    private static BufferedImage referenceBrightness(BufferedImage image, int adjustment) {
+        BufferedImage result = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        float adjustmentFactor = adjustment / 255.0f;
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                Color color = new Color(image.getRGB(x, y), true);
+                int r = color.getRed();
+                int g = color.getGreen();
+                int b = color.getBlue();
+                if (adjustmentFactor > 0) {
+                    r = (int) (r + (255 - r) * adjustmentFactor);
+                    g = (int) (g + (255 - g) * adjustmentFactor);
+                    b = (int) (b + (255 - b) * adjustmentFactor);
+                } else {
+                    r = (int) (r + r * adjustmentFactor);
+                    g = (int) (g + g * adjustmentFactor);
+                    b = (int) (b + b * adjustmentFactor);
+                }
+                result.setRGB(x, y, new Color(clamp(r), clamp(g), clamp(b), color.getAlpha()).getRGB());
+            }
+        }
+        return result;
+    }
+
+    /** Reference implementation of the original contrast loop. */
+    private static BufferedImage referenceContrast(BufferedImage image, double adjustment) {
+        BufferedImage result = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        double factor = adjustment > 0 ? 1.0 + adjustment : 1.0 + adjustment / 2.0;
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                Color color = new Color(image.getRGB(x, y), true);
+                int r = clamp((int) (128 + (color.getRed() - 128) * factor));
+                int g = clamp((int) (128 + (color.getGreen() - 128) * factor));
+                int b = clamp((int) (128 + (color.getBlue() - 128) * factor));
+                result.setRGB(x, y, new Color(r, g, b, color.getAlpha()).getRGB());
+            }
+        }
+        return result;
+    }
+
+    @Test
+    void testGrayscaleMatchesReference() {
+        assertEquivalentWithin(new GrayscaleFilter(), PointFilterEquivalenceTest::referenceGrayscale, 1);
+    }
+
+    @Test
+    void testSepiaMatchesReference() {
+        assertEquivalentWithin(new SepiaFilter(), PointFilterEquivalenceTest::referenceSepia, 1);
+    }
+
+    @Test
+    void testInvertMatchesReference() {
+        assertEquivalent(new InvertFilter(), PointFilterEquivalenceTest::referenceInvert);
+    }
+
+    @Test
+    void testBrightnessMatchesReference() {
+        for (int adjustment : new int[]{-255, -127, -30, 0, 1, 63, 127, 255, 300}) {
+            assertEquivalent(new BrightnessFilter(adjustment), image -> referenceBrightness(image, adjustment));
+        }
+    }
+
+    @Test
+    void testContrastMatchesReference() {
+        for (double adjustment : new double[]{-1.0, -0.4, 0.0, 0.1, 0.5, 1.0, 1.1}) {
+            assertEquivalent(new ContrastFilter(adjustment), image -> referenceContrast(image, adjustment));
+        }
+    }
+
+    @Test
+    void testCropMatchesDrawImage() {
+        BufferedImage input = randomImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB, 7L);
+        BufferedImage cropped = new CropFilter(5, 3, 20, 30).apply(input);
+        assertEquals(20, cropped.getWidth());
+        assertEquals(30, cropped.getHeight());
+        for (int y = 0; y < 30; y++) {
+            for (int x = 0; x < 20; x++) {
+                assertEquals(input.getRGB(x + 5, y + 3), cropped.getRGB(x, y));
+            }
+        }
+    }
+
+    @Test
+    void testCroppedViewFiltersLikeCopy() {
+        BufferedImage input = randomImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB, 9L);
+        BufferedImage view = new CropFilter(5, 3, 20, 30).apply(input);
+        BufferedImage copy = new BufferedImage(20, 30, BufferedImage.TYPE_INT_ARGB);
+        copy.setRGB(0, 0, 20, 30, view.getRGB(0, 0, 20, 30, null, 0, 20), 0, 20);
+
+        assertSame(input.getRaster().getDataBuffer(), view.getRaster().getDataBuffer(), "Crop should not copy pixels");
+        assertSamePixels(new SepiaFilter().apply(copy), new SepiaFilter().apply(view));
+    }
+}
@@ -0,0 +1,123 @@
+package com.pixelbit.model.filters;
+
+import com.pixelbit.model.filter.FilterExecutor;
+import com.pixelbit.model.filter.PixelAccess;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResizeFilterTest {
+
+    private static BufferedImage randomOpaqueImage(int width, int height, long seed) {
+        Random random = new Random(seed);
+        BufferedImage image = PixelAccess.createArgb(width, height);
+        int[] data = PixelAccess.data(image);
+        for (int i = 0; i < data.length; i++) {
+            data[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+        return image;
+    }
+
+    private static ResizeFilter resize(int width, int height, ResizeFilter.Interpolation interpolation, boolean progressive) {
+        return new ResizeFilter(width, height, interpolation, progressive, FilterExecutor.getDefault());
+    }
+
+    @Test
+    void testSameSizeIsIdentity() {
+        BufferedImage input = randomOpaqueImage(23, 17, 1L);
+        for (ResizeFilter.Interpolation interpolation : ResizeFilter.Interpolation.values()) {
+            BufferedImage output = resize(23, 17, interpolation, true).apply(input);
+            assertArrayEquals(PixelAccess.data(input), PixelAccess.data(output), interpolation.toString());
+        }
+    }
+
+    @Test
+    void testHalvingAveragesBlocks() {
+        BufferedImage input = randomOpaqueImage(20, 14, 2L);
+        int[] src = PixelAccess.data(input);
+        int[] output = PixelAccess.data(new ResizeFilter(10, 7).apply(input));
+        for (int y = 0; y < 7; y++) {
+            for (int x = 0; x < 10; x++) {
+                for (int shift = 0; shift <= 16; shift += 8) {
+                    int sum = 0;
+                    for (int i = 0; i < 4; i++) {
+                        sum += (src[(2 * y + i / 2) * 20 + 2 * x + i % 2] >> shift) & 0xFF;
+                    }
+                    int actual = (output[y * 10 + x] >> shift) & 0xFF;
+                    assertTrue(Math.abs(sum / 4.0 - actual) <= 1, "Pixel (" + x + ", " + y + ")");
+                }
+            }
+        }
+    }
+
+    @Test
+    void testFlatImageStaysFlat() {
+        BufferedImage flat = PixelAccess.createArgb(9, 7);
+        Arrays.fill(PixelAccess.data(flat), 0xC0406080);
+        for (ResizeFilter.Interpolation interpolation : ResizeFilter.Interpolation.values()) {
+            for (int[] size : new int[][]{{31, 25}, {3, 2}, {40, 3}}) {
+                BufferedImage output = resize(size[0], size[1], interpolation, true).apply(flat);
+                assertEquals(size[0], output.getWidth());
+                assertEquals(size[1], output.getHeight());
+                for (int pixel : PixelAccess.data(output)) {
+                    assertEquals(0xC0406080, pixel);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testProgressiveReductionMatchesSinglePass() {
+        BufferedImage gradient = PixelAccess.createArgb(400, 320);
+        int[] data = PixelAccess.data(gradient);
+        for (int y = 0; y < 320; y++) {
+            for (int x = 0; x < 400; x++) {
+                data[y * 400 + x] = 0xFF000000 | (x * 255 / 399) << 16 | (y * 255 / 319) << 8;
+            }
+        }
+        int[] single = PixelAccess.data(resize(25, 20, ResizeFilter.Interpolation.LANCZOS, false).apply(gradient));
+        int[] progressive = PixelAccess.data(resize(25, 20, ResizeFilter.Interpolation.LANCZOS, true).apply(gradient));
+        for (int i = 0; i < single.length; i++) {
+            for (int shift = 0; shift <= 24; shift += 8) {
+                assertTrue(Math.abs(((single[i] >> shift) & 0xFF) - ((progressive[i] >> shift) & 0xFF)) <= 2);
+            }
+        }
+    }
+
+    @Test
+    void testTransparentPixelsDoNotBleed() {
+        BufferedImage image = PixelAccess.createArgb(2, 1);
+        PixelAccess.data(image)[0] = 0x00FF0000;
+        PixelAccess.data(image)[1] = 0xFF0000FF;
+        int pixel = PixelAccess.data(new ResizeFilter(1, 1).apply(image))[0];
+        assertEquals(0x800000FF, pixel);
+    }
+
+    @Test
+    void testParallelMatchesSequential() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            BufferedImage input = randomOpaqueImage(300, 200, 3L);
+            FilterExecutor sequential = new FilterExecutor(pool, Integer.MAX_VALUE);
+            FilterExecutor parallel = new FilterExecutor(pool, 1);
+            for (int[] size : new int[][]{{70, 45}, {613, 401}}) {
+                assertArrayEquals(
+                        PixelAccess.data(new ResizeFilter(size[0], size[1], ResizeFilter.Interpolation.BICUBIC, true, sequential).apply(input)),
+                        PixelAccess.data(new ResizeFilter(size[0], size[1], ResizeFilter.Interpolation.BICUBIC, true, parallel).apply(input)));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testInvalidSizeIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new ResizeFilter(0, 10));
+        assertThrows(IllegalArgumentException.class, () -> new ResizeFilter(10, ResizeFilter.MAX_SIZE + 1));
+    }
+}
@@ -0,0 +1,108 @@
+package com.pixelbit.model.filters;
+
+import com.pixelbit.model.filter.FilterExecutor;
+import com.pixelbit.model.filter.PixelAccess;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.pixelbit.TestImages.randomImage;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransformFilterTest {
+
+    // Not a multiple of the block size, so partial blocks are exercised on both axes
+    private static final int WIDTH = TransformFilter.BLOCK_SIZE * 2 + 3;
+    private static final int HEIGHT = TransformFilter.BLOCK_SIZE + 7;
+
+    /** Where source pixel (x, y) of a width x height image ends up, as {x', y'}. */
+    private static int[] expectedPosition(TransformFilter.Transform transform, int x, int y, int width, int height) {
+        return switch (transform) {
+            case ROTATE_90 -> new int[]{height - 1 - y, x};
+            case ROTATE_180 -> new int[]{width - 1 - x, height - 1 - y};
+            case ROTATE_270 -> new int[]{y, width - 1 - x};
+            case FLIP_HORIZONTAL -> new int[]{width - 1 - x, y};
+            case FLIP_VERTICAL -> new int[]{x, height - 1 - y};
+            case TRANSPOSE -> new int[]{y, x};
+        };
+    }
+
+    private static void assertTransformed(TransformFilter.Transform transform, BufferedImage input, BufferedImage output) {
+        int width = input.getWidth();
+        int height = input.getHeight();
+        assertEquals(transform.swapsAxes() ? height : width, output.getWidth(), transform.toString());
+        assertEquals(transform.swapsAxes() ? width : height, output.getHeight(), transform.toString());
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int[] position = expectedPosition(transform, x, y, width, height);
+                assertEquals(input.getRGB(x, y), output.getRGB(position[0], position[1]),
+                        transform + " at " + x + "," + y);
+            }
+        }
+    }
+
+    @Test
+    void testPackedTransformsMovePixels() {
+        BufferedImage input = randomImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB, 1L);
+        for (TransformFilter.Transform transform : TransformFilter.Transform.values()) {
+            BufferedImage output = new TransformFilter(transform).apply(input);
+            assertEquals(BufferedImage.TYPE_INT_ARGB, output.getType());
+            assertTransformed(transform, input, output);
+        }
+    }
+
+    @Test
+    void testOtherTypesKeepTheirType() {
+        for (int type : new int[]{BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_BYTE_GRAY, BufferedImage.TYPE_INT_RGB}) {
+            BufferedImage input = randomImage(WIDTH, HEIGHT, type, 2L);
+            for (TransformFilter.Transform transform : TransformFilter.Transform.values()) {
+                BufferedImage output = new TransformFilter(transform).apply(input);
+                assertEquals(type, output.getType(), transform.toString());
+                assertTransformed(transform, input, output);
+            }
+        }
+    }
+
+    @Test
+    void testCroppedViewTransformsLikeCopy() {
+        BufferedImage input = randomImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB, 3L);
+        BufferedImage view = input.getSubimage(5, 9, 70, 41);
+        for (TransformFilter.Transform transform : TransformFilter.Transform.values()) {
+            assertTransformed(transform, view, new TransformFilter(transform).apply(view));
+        }
+    }
+
+    @Test
+    void testInverseRestoresExactly() {
+        BufferedImage packed = randomImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB, 4L);
+        BufferedImage gray = randomImage(WIDTH, HEIGHT, BufferedImage.TYPE_BYTE_GRAY, 5L);
+        byte[] grayData = ((DataBufferByte) gray.getRaster().getDataBuffer()).getData();
+        for (TransformFilter.Transform transform : TransformFilter.Transform.values()) {
+            TransformFilter filter = new TransformFilter(transform);
+            assertArrayEquals(PixelAccess.data(packed), PixelAccess.data(filter.inverse().apply(filter.apply(packed))),
+                    transform.toString());
+
+            BufferedImage restored = filter.inverse().apply(filter.apply(gray));
+            assertArrayEquals(grayData, ((DataBufferByte) restored.getRaster().getDataBuffer()).getData(),
+                    transform.toString());
+        }
+    }
+
+    @Test
+    void testParallelMatchesSequential() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            BufferedImage input = randomImage(517, 389, BufferedImage.TYPE_INT_ARGB, 6L);
+            FilterExecutor sequential = new FilterExecutor(pool, Integer.MAX_VALUE);
+            FilterExecutor parallel = new FilterExecutor(pool, 1);
+            for (TransformFilter.Transform transform : TransformFilter.Transform.values()) {
+                assertArrayEquals(PixelAccess.data(new TransformFilter(transform, sequential).apply(input)),
+                        PixelAccess.data(new TransformFilter(transform, parallel).apply(input)), transform.toString());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}